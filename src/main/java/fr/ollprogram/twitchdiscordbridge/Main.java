@@ -12,26 +12,65 @@
 
 package fr.ollprogram.twitchdiscordbridge;
 
-import com.github.philippheuer.events4j.simple.SimpleEventHandler;
 import com.github.twitch4j.TwitchClient;
+import com.github.twitch4j.chat.events.channel.ChannelMessageEvent;
+import com.github.twitch4j.chat.events.channel.IRCMessageEvent;
 import fr.ollprogram.twitchdiscordbridge.bridge.Bridge;
 import fr.ollprogram.twitchdiscordbridge.bridge.BridgeImpl;
+import fr.ollprogram.twitchdiscordbridge.bridge.Direction;
 import fr.ollprogram.twitchdiscordbridge.cli.BridgeCLI;
 import fr.ollprogram.twitchdiscordbridge.cli.ConfiguratorCLI;
 import fr.ollprogram.twitchdiscordbridge.command.*;
 import fr.ollprogram.twitchdiscordbridge.configuration.BridgeConfig;
+import fr.ollprogram.twitchdiscordbridge.configuration.BridgeSettings;
 import fr.ollprogram.twitchdiscordbridge.factory.BotFactory;
 import fr.ollprogram.twitchdiscordbridge.factory.BotFactoryImpl;
 import fr.ollprogram.twitchdiscordbridge.listener.DiscordListener;
+import fr.ollprogram.twitchdiscordbridge.listener.EchoGuard;
+import fr.ollprogram.twitchdiscordbridge.listener.EventGate;
+import fr.ollprogram.twitchdiscordbridge.listener.FloodControl;
 import fr.ollprogram.twitchdiscordbridge.listener.TwitchListener;
 import fr.ollprogram.twitchdiscordbridge.manager.AppsManager;
 import fr.ollprogram.twitchdiscordbridge.manager.AppsManagerImpl;
+import fr.ollprogram.twitchdiscordbridge.metrics.LatencyMonitor;
+import fr.ollprogram.twitchdiscordbridge.metrics.MetricsRegistry;
+import fr.ollprogram.twitchdiscordbridge.metrics.MetricsServer;
+import fr.ollprogram.twitchdiscordbridge.metrics.RelayMetrics;
+import fr.ollprogram.twitchdiscordbridge.service.CachingTwitchService;
+import fr.ollprogram.twitchdiscordbridge.service.DiscordServiceImpl;
+import fr.ollprogram.twitchdiscordbridge.service.TwitchService;
+import fr.ollprogram.twitchdiscordbridge.service.TwitchServiceImpl;
+import fr.ollprogram.twitchdiscordbridge.sink.BatchingDiscordSink;
+import fr.ollprogram.twitchdiscordbridge.sink.DirectDiscordSink;
+import fr.ollprogram.twitchdiscordbridge.sink.DiscordSink;
+import fr.ollprogram.twitchdiscordbridge.sink.JournaledDiscordSink;
+import fr.ollprogram.twitchdiscordbridge.sink.JournaledTwitchSink;
+import fr.ollprogram.twitchdiscordbridge.sink.OutboxJournal;
+import fr.ollprogram.twitchdiscordbridge.sink.RateLimitedTwitchSink;
+import fr.ollprogram.twitchdiscordbridge.sink.TwitchSink;
+import fr.ollprogram.twitchdiscordbridge.sink.WebhookDiscordSink;
+import fr.ollprogram.twitchdiscordbridge.utils.PhaseTimer;
+import fr.ollprogram.twitchdiscordbridge.utils.TokenBucket;
 import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.api.events.session.SessionRecreateEvent;
+import net.dv8tion.jda.api.events.session.SessionResumeEvent;
+import net.dv8tion.jda.api.hooks.EventListener;
 import net.dv8tion.jda.api.interactions.commands.DefaultMemberPermissions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
 
@@ -66,48 +105,241 @@ public class Main {
                                /____/             \s
             """;
     private static final Logger LOG = LoggerFactory.getLogger("Main");
+
+    private static final int STARTUP_BUFFER_SIZE = 1000; //events received per platform while the other one connects
+
+    private static final long OUTBOX_REPLAY_AGE = 30; //seconds, the age of the messages replayed after a reconnection
+
+    private static final String TWITCH_LOGIN_COMMAND = "GLOBALUSERSTATE"; //sent by twitch after each chat login
+
     public static void main(String[] args) {
         LOG.info(LICENCE);
-        int threads = Runtime.getRuntime().availableProcessors();
-        int commandPoolSize = (int) (threads * 0.2); // only 20% ~= 2 threads, this is not the most demanded task
-        int taskPoolSize = (threads - commandPoolSize) * (1 + (500 / 150)); // IDLE time over real calculation time (this is an approximation in ms)
-        // maybe this approximation is useless since the twitch api rate limit is a bottleneck.
-        LOG.info("Using "+commandPoolSize+" threads for commands and "+taskPoolSize+" threads for TDB messages and TDB tasks");
-        TDBExecutor executor = new TDBPoolExecutor(commandPoolSize, taskPoolSize);
+        PhaseTimer timer = new PhaseTimer();
+        TDBExecutor executor = createExecutor();
         Scanner scanner = new Scanner(System.in);
-        ConfiguratorCLI configuratorCLI = new ConfiguratorCLI(scanner);
-        BridgeConfig config = configuratorCLI.configure();
+        TwitchService twitchService = new CachingTwitchService(new TwitchServiceImpl()); //shared, the token validation is kept
+        ConfiguratorCLI configuratorCLI = new ConfiguratorCLI(scanner, twitchService, new DiscordServiceImpl());
+        BridgeConfig config = timer.time("configuration", configuratorCLI::configure);
 
         LOG.info("Starting bots");
         BotFactory botFactory = new BotFactoryImpl(config);
-        JDA discordBot = botFactory.createDiscordBot();
-        TwitchClient twitchBot = botFactory.createTwitchBot();
-        Bridge bridge = new BridgeImpl(discordBot, twitchBot, config);
-        AppsManager appsManager = new AppsManagerImpl(executor, discordBot, twitchBot);
+        EventGate<GenericEvent> discordGate = new EventGate<>(STARTUP_BUFFER_SIZE); //only the events of the listener
+        EventGate<ChannelMessageEvent> twitchGate = new EventGate<>(STARTUP_BUFFER_SIZE);
+        ExecutorService startup = Executors.newFixedThreadPool(2);
+        CompletableFuture<JDA> discordLogin = CompletableFuture.supplyAsync(() -> {
+            JDA jda = timer.time("discord login", botFactory::createDiscordBot);
+            jda.addEventListener((EventListener) event -> { //held until the listeners are ready
+                if(event instanceof MessageReceivedEvent || event instanceof SlashCommandInteractionEvent) discordGate.offer(event);
+            });
+            return jda;
+        }, startup);
+        CompletableFuture<TwitchClient> twitchLogin = CompletableFuture.supplyAsync(() -> {
+            TwitchClient client = timer.time("twitch login", botFactory::createTwitchBot);
+            client.getEventManager().onEvent(ChannelMessageEvent.class, twitchGate::offer);
+            return client;
+        }, startup);
+        JDA discordBot;
+        TwitchClient twitchBot;
+        try {
+            discordBot = discordLogin.join();
+            twitchBot = twitchLogin.join();
+        } catch (CompletionException e){
+            LOG.error("Unable to start the bots : "+e.getCause().getMessage());
+            System.exit(1);
+            return;
+        }
+        TokenBucket twitchBucket = new TokenBucket(BridgeSettings.getTwitchRateLimit(), BridgeSettings.getTwitchRatePeriod(), TimeUnit.MILLISECONDS);
+        TwitchSink twitchSink = new RateLimitedTwitchSink(twitchBot, twitchBucket, BridgeSettings.getTwitchQueueSize());
+        DiscordSink discordSink = new DirectDiscordSink(discordBot);
+        boolean webhook = BridgeSettings.isDiscordWebhookEnabled();
+        OutboxJournal outbox = BridgeSettings.isOutboxEnabled() ? openOutbox() : null;
+        if(outbox != null){
+            twitchSink = journalTwitchSink(twitchBot, twitchSink, outbox);
+            if(webhook) LOG.info("Webhook messages have no nonce, the messages sent to discord are not journaled");
+            else discordSink = journalDiscordSink(discordBot, discordSink, outbox); //below the batching, the batches are journaled
+        }
+        discordSink = new BatchingDiscordSink(discordSink, BridgeSettings.getDiscordBatchWindow(), TimeUnit.MILLISECONDS);
+        if(webhook) discordSink = new WebhookDiscordSink(discordBot, discordSink); //the batching sink is the fallback
+        Bridge bridge = new BridgeImpl(discordBot, twitchBot, config, twitchSink, discordSink, twitchService);
+        timer.time("routes check", bridge::checkRoutes); //cached by the configuration check most of the time
+        AppsManager appsManager = new AppsManagerImpl(executor, discordBot, twitchBot, bridge);
+        MetricsRegistry metrics = new MetricsRegistry();
+        RelayMetrics toDiscordMetrics = new RelayMetrics(metrics, Direction.TWITCH_TO_DISCORD);
+        RelayMetrics toTwitchMetrics = new RelayMetrics(metrics, Direction.DISCORD_TO_TWITCH);
+        registerMetrics(metrics, executor, bridge);
+        if(outbox != null) metrics.gauge("tdb_outbox_pending", "Messages sent but not acknowledged yet", outbox::getPendingCount);
+        toDiscordMetrics.registerDrops("startup", twitchGate::getDroppedCount);
+        toTwitchMetrics.registerDrops("startup", discordGate::getDroppedCount);
+        toDiscordMetrics.registerDrops("shed", () -> executor.getRejectedCount(Direction.TWITCH_TO_DISCORD));
+        toTwitchMetrics.registerDrops("shed", () -> executor.getRejectedCount(Direction.DISCORD_TO_TWITCH));
 
         LOG.info("Registering commands");
+        CommandRegistry registry = timer.time("commands registration",
+                () -> createRegistry(bridge, discordBot, executor, toDiscordMetrics, toTwitchMetrics));
+
+        LOG.info("Refreshing discord commands");
+        CompletableFuture<Void> refresh = CompletableFuture.runAsync(
+                () -> timer.time("discord commands refresh", () -> appsManager.refreshDiscordCommands(registry)), startup);
+
+        LOG.info("Registering listeners");
+        timer.time("listeners registration", () -> {
+            Set<String> allowedDomains = BridgeSettings.getUrlAllowlist();
+            // shared, a message relayed to one side comes back to the listener of that side
+            EchoGuard echoGuard = new EchoGuard(EchoGuard.DEFAULT_CAPACITY, BridgeSettings.getEchoWindow(), TimeUnit.MILLISECONDS);
+            int floodLimit = BridgeSettings.getFloodLimit();
+            int floodPeriod = BridgeSettings.getFloodPeriod();
+            discordGate.open(new DiscordListener(bridge, registry, executor, allowedDomains, toTwitchMetrics, echoGuard,
+                    new FloodControl(floodLimit, floodPeriod, TimeUnit.MILLISECONDS))::onEvent);
+            twitchGate.open(new TwitchListener(bridge, executor, allowedDomains, toDiscordMetrics, echoGuard,
+                    new FloodControl(floodLimit, floodPeriod, TimeUnit.MILLISECONDS))::onMessageEvent);
+        });
+        startMetricsServer(metrics);
+        LatencyMonitor latencyMonitor = new LatencyMonitor(BridgeSettings.getLatencyBudget());
+        latencyMonitor.watch(toDiscordMetrics);
+        latencyMonitor.watch(toTwitchMetrics);
+        latencyMonitor.start(1, TimeUnit.MINUTES);
+        try {
+            refresh.join();
+        } catch (CompletionException e){
+            LOG.error("Unable to refresh the discord commands : "+e.getCause().getMessage());
+        }
+        startup.shutdown();
+        LOG.info("Startup phases : "+timer.report());
+
+        LOG.info(SPLASH + "\nStarted Bridge CLI");
+        BridgeCLI bridgeCLI = new BridgeCLI(scanner, registry, appsManager);
+        bridgeCLI.run();
+        scanner.close();
+
+    }
+
+    /**
+     * Open the outbox journal and forget the messages too old to be sent again
+     * @return The outbox journal, or null if it can't be opened
+     */
+    private static OutboxJournal openOutbox(){
+        try {
+            OutboxJournal outbox = new OutboxJournal(Path.of(BridgeSettings.getOutboxPath()));
+            outbox.expire(BridgeSettings.getOutboxMaxAge(), TimeUnit.MILLISECONDS);
+            return outbox;
+        } catch (IOException e){
+            LOG.warn("Unable to open the outbox journal, the messages won't be replayed : "+e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Journal the messages sent to twitch, replay the pending ones now and after each twitch chat login
+     * @param twitchBot The twitch bot
+     * @param twitchSink The twitch sink
+     * @param outbox The outbox journal
+     * @return The journaled twitch sink
+     */
+    private static TwitchSink journalTwitchSink(TwitchClient twitchBot, TwitchSink twitchSink, OutboxJournal outbox){
+        JournaledTwitchSink journaledSink = new JournaledTwitchSink(twitchSink, outbox);
+        journaledSink.replay(0, TimeUnit.MILLISECONDS);
+        twitchBot.getEventManager().onEvent(IRCMessageEvent.class, event -> {
+            if(TWITCH_LOGIN_COMMAND.equals(event.getCommandType())){ //once per chat connection
+                outbox.expire(BridgeSettings.getOutboxMaxAge(), TimeUnit.MILLISECONDS);
+                // the recently handed messages are probably still queued by the rate limit
+                journaledSink.replay(OUTBOX_REPLAY_AGE, TimeUnit.SECONDS);
+            }
+        });
+        return journaledSink;
+    }
+
+    /**
+     * Journal the messages sent to discord, replay the pending ones now and after each discord reconnection
+     * @param discordBot The discord bot
+     * @param discordSink The discord sink posting the messages
+     * @param outbox The outbox journal
+     * @return The journaled discord sink
+     */
+    private static DiscordSink journalDiscordSink(JDA discordBot, DiscordSink discordSink, OutboxJournal outbox){
+        JournaledDiscordSink journaledSink = new JournaledDiscordSink(discordSink, outbox);
+        journaledSink.replay(0, TimeUnit.MILLISECONDS);
+        discordBot.addEventListener((EventListener) event -> {
+            if(event instanceof SessionRecreateEvent || event instanceof SessionResumeEvent){
+                outbox.expire(BridgeSettings.getOutboxMaxAge(), TimeUnit.MILLISECONDS);
+                // the recent messages are probably still queued, the nonces prevent the duplicates of the others
+                journaledSink.replay(OUTBOX_REPLAY_AGE, TimeUnit.SECONDS);
+            }
+        });
+        return journaledSink;
+    }
+
+    /**
+     * Create the command registry
+     * @param bridge The bridge
+     * @param discordBot The discord bot
+     * @param executor The TDB executor
+     * @param toDiscordMetrics The metrics of the twitch to discord relay
+     * @param toTwitchMetrics The metrics of the discord to twitch relay
+     * @return The registry with all the commands
+     */
+    private static CommandRegistry createRegistry(Bridge bridge, JDA discordBot, TDBExecutor executor,
+                                                  RelayMetrics toDiscordMetrics, RelayMetrics toTwitchMetrics){
         CommandRegistry registry = new CommandRegistryImpl();
         registry.register("code", new Code());
         registry.register("say", new Say(bridge));
-        registry.register("bridge", "info", new BridgeInfo(bridge, discordBot));
+        registry.register("bridge", "info", new BridgeInfo(bridge, discordBot, executor, toDiscordMetrics, toTwitchMetrics));
         registry.register("bridge", "open", new BridgeOpen(bridge));
         registry.register("bridge", "close", new BridgeClose(bridge));
         registry.register("bridge", "discord_target", new BridgeDiscordTarget(bridge));
         registry.register("bridge", "twitch_target", new BridgeTwitchTarget(bridge));
+        registry.register("bridge", "add_route", new BridgeAddRoute(bridge));
+        registry.register("bridge", "remove_route", new BridgeRemoveRoute(bridge));
         registry.setDiscordPermissions("bridge", DefaultMemberPermissions.DISABLED);
         registry.setDiscordPermissions("say", DefaultMemberPermissions.DISABLED);
+        return registry;
+    }
 
-        LOG.info("Registering listeners");
-        discordBot.addEventListener(new DiscordListener(bridge, registry, executor));
-        twitchBot.getEventManager().getEventHandler(SimpleEventHandler.class).registerListener(new TwitchListener(bridge, executor));
-
-        LOG.info("Refreshing discord commands");
-        appsManager.refreshDiscordCommands(registry);
+    /**
+     * Register the executor and outbound queue metrics
+     * @param metrics The metrics registry
+     * @param executor The TDB executor
+     * @param bridge The bridge
+     */
+    private static void registerMetrics(MetricsRegistry metrics, TDBExecutor executor, Bridge bridge){
+        metrics.gauge("tdb_executor_queue_depth", "Tasks waiting for a thread", executor::getQueueDepth);
+        metrics.gauge("tdb_executor_active_tasks", "Tasks being run", executor::getActiveCount);
+        metrics.counter("tdb_commands_timed_out_total", "Commands cancelled after their timeout", executor::getTimedOutCount);
+        metrics.gauge("tdb_sink_queue_depth", "Messages waiting to be sent", bridge::getTwitchQueueDepth, "sink", "twitch");
+        metrics.gauge("tdb_sink_queue_depth", "Messages waiting to be sent", bridge::getDiscordQueueDepth, "sink", "discord");
+        metrics.gauge("tdb_sink_messages_per_send", "Average number of messages gathered in one sent message",
+                bridge::getTwitchCoalescingRatio, "sink", "twitch");
+        metrics.gauge("tdb_sink_messages_per_send", "Average number of messages gathered in one sent message",
+                bridge::getDiscordBatchingRatio, "sink", "discord");
+    }
 
-        LOG.info(SPLASH + "\nStarted Bridge CLI");
-        BridgeCLI bridgeCLI = new BridgeCLI(scanner, registry, appsManager);
-        bridgeCLI.run();
-        scanner.close();
+    /**
+     * Serve the metrics on the local port of the settings, if one is set
+     * @param metrics The metrics registry
+     */
+    private static void startMetricsServer(MetricsRegistry metrics){
+        int port = BridgeSettings.getMetricsPort();
+        if(port == 0) return;
+        try {
+            new MetricsServer(metrics, port).start();
+        } catch (IOException e){
+            LOG.warn("Unable to serve the metrics on port "+port+" : "+e.getMessage());
+        }
+    }
 
+    /**
+     * Create the executor chosen by the settings, sized thread pools by default
+     * @return The TDB executor
+     */
+    private static TDBExecutor createExecutor(){
+        if(BridgeSettings.isVirtualExecutorEnabled()){
+            LOG.info("Using virtual threads for commands, TDB messages and TDB tasks");
+            return new TDBVirtualExecutor(BridgeSettings.getExecutorQueueSize());
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        int commandPoolSize = TDBPoolExecutor.commandPoolSize(threads);
+        int taskPoolSize = TDBPoolExecutor.taskPoolSize(threads); // at least 1, on a single processor the command pool takes it
+        LOG.info("Using "+commandPoolSize+" threads for commands and "+taskPoolSize+" threads for TDB messages and TDB tasks");
+        return new TDBPoolExecutor(commandPoolSize, taskPoolSize, BridgeSettings.getExecutorQueueSize(),
+                BridgeSettings.getSheddingPolicy(), BridgeSettings.getExecutorMaxAge());
     }
 }
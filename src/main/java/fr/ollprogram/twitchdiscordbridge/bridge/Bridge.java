@@ -13,11 +13,17 @@
 package fr.ollprogram.twitchdiscordbridge.bridge;
 
 import fr.ollprogram.twitchdiscordbridge.configuration.BridgeConfig;
+import fr.ollprogram.twitchdiscordbridge.model.Route;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
 
 /**
  * Represents the communication bridge between twitch and discord
  * In order to send a message, the bridge needs to be opened.
+ * The bridge links pairs of channels called routes. The main route is the one from the configuration targets,
+ * additional routes can be added.
  */
 public interface Bridge {
 
@@ -27,6 +33,13 @@ public interface Bridge {
      */
     boolean isOpen();
 
+    /**
+     * Get a consistent snapshot of the bridge state, without locking.
+     * Prefer it over several calls to the other getters when the state is read multiple times.
+     * @return The current state
+     */
+    @NotNull BridgeState getState();
+
     /**
      * Close the bridge
      */
@@ -38,58 +51,168 @@ public interface Bridge {
     void open();
 
     /**
-     * Send to Twitch a message, the bridge should be opened first
+     * Send to Twitch a message on the main route, the bridge should be opened first
      * @param message The message to send
      */
     void sendToTwitch(@NotNull String message);
 
     /**
-     * Send to Discord a message, the bridge should be opened first
+     * Send to Discord a message on the main route, the bridge should be opened first
      * @param message The message to send
      */
     void sendToDiscord(@NotNull String message);
 
     /**
-     * Send to discord a message, but bypass the bridge restrictions
+     * Send to the twitch channel of the route a message, the bridge should be opened first
+     * @param route The route to use
+     * @param message The message to send
+     */
+    void sendToTwitch(@NotNull Route route, @NotNull String message);
+
+    /**
+     * Send to the twitch channel of the route a message, the bridge should be opened first
+     * @param route The route to use
+     * @param message The message to send
+     * @param onSent Run once the message is handed to the twitch chat connection
+     */
+    void sendToTwitch(@NotNull Route route, @NotNull String message, @NotNull Runnable onSent);
+
+    /**
+     * Send to the discord channel of the route a message, the bridge should be opened first
+     * @param route The route to use
+     * @param message The message to send
+     */
+    void sendToDiscord(@NotNull Route route, @NotNull String message);
+
+    /**
+     * Send to the discord channel of the route a message written by a twitch user, the bridge should be opened first
+     * @param route The route to use
+     * @param author The twitch user name
+     * @param content The message content
+     */
+    void sendToDiscord(@NotNull Route route, @NotNull String author, @NotNull String content);
+
+    /**
+     * Send to the discord channel of the route a message written by a twitch user, the bridge should be opened first
+     * @param route The route to use
+     * @param author The twitch user name
+     * @param content The message content
+     * @param onSent Run once discord acknowledged the message
+     */
+    void sendToDiscord(@NotNull Route route, @NotNull String author, @NotNull String content, @NotNull Runnable onSent);
+
+    /**
+     * Send to discord a message on the main route, but bypass the bridge restrictions
      * @param message The message to send
      */
     void adminSendToDiscord(@NotNull String message);
 
 
     /**
-     * Send to twitch a message, but bypass the bridge restrictions
+     * Send to twitch a message on the main route, but bypass the bridge restrictions
      * @param message The message to send
      */
     void adminSendToTwitch(@NotNull String message);
 
     /**
-     * Change the discord channel if it can be retrieved
+     * Change the discord channel of the main route if it can be retrieved
      * @param channelID The new channel ID
-     * @return If the channel exists and then has been changed
+     * @return If the channel exists, isn't used by another route and then has been changed
      */
     boolean changeDiscordChannel(@NotNull String channelID);
 
     /**
-     * Change the twitch channel if it can be retrieved
+     * Change the twitch channel of the main route if it can be retrieved
      * @param channelName The new channel name
-     * @return If the channel exists and then has been changed
+     * @return If the channel exists, isn't used by another route and then has been changed
      */
     boolean changeTwitchChannel(@NotNull String channelName);
 
     /**
-     * Check if the given channel is the targeted channel
+     * Add a new route if both channels can be retrieved
+     * @param route The route to add
+     * @return If both channels exist, aren't used by another route and then the route has been added
+     */
+    boolean addRoute(@NotNull Route route);
+
+    /**
+     * Check that the channels of the additional routes exist, the twitch channels are retrieved in one request.
+     * The routes whose channels can't be found aren't bridged until the next start, they are kept in the configuration.
+     * @return The routes which aren't bridged, empty if the channels can't be retrieved
+     */
+    @NotNull List<@NotNull Route> checkRoutes();
+
+    /**
+     * Remove an additional route, the main route can't be removed
+     * @param discordChannelID The discord channel ID of the route
+     * @return If the route existed and has been removed
+     */
+    boolean removeRoute(long discordChannelID);
+
+    /**
+     * Get all the routes, the main route first
+     * @return The routes
+     */
+    @NotNull List<@NotNull Route> getRoutes();
+
+    /**
+     * Find the route of a discord channel, in constant time
+     * @param channelID The discord channel ID
+     * @return The route, or null if this channel isn't bridged
+     */
+    @Nullable Route findRouteByDiscord(long channelID);
+
+    /**
+     * Find the route of a twitch channel, in constant time
+     * @param channelName The twitch channel name, in lower case
+     * @return The route, or null if this channel isn't bridged
+     */
+    @Nullable Route findRouteByTwitch(@NotNull String channelName);
+
+    /**
+     * Check if the given channel is one of the targeted channels
      * @param channelID The discord channel ID
-     * @return if the given channel is the targeted channel
+     * @return if the given channel is one of the targeted channels
      */
     boolean isDiscordTarget(@NotNull String channelID);
 
     /**
-     * Check if the given channel is the targeted channel
+     * Check if the given channel is one of the targeted channels
      * @param channelName The twitch channel ID
-     * @return if the given channel is the targeted channel
+     * @return if the given channel is one of the targeted channels
      */
     boolean isTwitchTarget(@NotNull String channelName);
 
+    /**
+     * Get the number of messages waiting to be sent to twitch
+     * @return The twitch queue depth
+     */
+    int getTwitchQueueDepth();
+
+    /**
+     * Get the average number of messages packed in one twitch message
+     * @return The twitch coalescing ratio
+     */
+    double getTwitchCoalescingRatio();
+
+    /**
+     * Get the number of messages waiting to be sent to discord
+     * @return The discord queue depth
+     */
+    int getDiscordQueueDepth();
+
+    /**
+     * Get the average number of messages gathered in one discord message
+     * @return The discord batching ratio
+     */
+    double getDiscordBatchingRatio();
+
+    /**
+     * Close the bridge and stop its outbound queues, pending messages are sent when possible
+     * @throws InterruptedException if an interruption error occurs
+     */
+    void shutdown() throws InterruptedException;
+
     /**
      * Get the bridge configuration
      * @return The bridge config
@@ -15,193 +15,467 @@ package fr.ollprogram.twitchdiscordbridge.bridge;
 import com.github.twitch4j.TwitchClient;
 import com.github.twitch4j.chat.TwitchChat;
 import fr.ollprogram.twitchdiscordbridge.configuration.BridgeConfig;
+import fr.ollprogram.twitchdiscordbridge.configuration.BridgeSettings;
 import fr.ollprogram.twitchdiscordbridge.configuration.build.ConfigBuilder;
 import fr.ollprogram.twitchdiscordbridge.configuration.build.ConfigBuilderImpl;
-import fr.ollprogram.twitchdiscordbridge.configuration.save.ConfigSaver;
-import fr.ollprogram.twitchdiscordbridge.configuration.save.ConfigSaverToProps;
+import fr.ollprogram.twitchdiscordbridge.configuration.save.WriteBehindConfigSaver;
 import fr.ollprogram.twitchdiscordbridge.exception.BridgeNotOpenedException;
 import fr.ollprogram.twitchdiscordbridge.exception.ServiceException;
-import fr.ollprogram.twitchdiscordbridge.model.TwitchChannelInfo;
+import fr.ollprogram.twitchdiscordbridge.model.Route;
+import fr.ollprogram.twitchdiscordbridge.service.CachingTwitchService;
 import fr.ollprogram.twitchdiscordbridge.service.TwitchService;
 import fr.ollprogram.twitchdiscordbridge.service.TwitchServiceImpl;
+import fr.ollprogram.twitchdiscordbridge.sink.DirectDiscordSink;
+import fr.ollprogram.twitchdiscordbridge.sink.DirectTwitchSink;
+import fr.ollprogram.twitchdiscordbridge.sink.DiscordSink;
+import fr.ollprogram.twitchdiscordbridge.sink.TwitchSink;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Implementation of a Bridge.
- * Because some most of the methods can be called by different threads, some blocks are synchronised to avoid race conditions.
+ * The state is an immutable snapshot published through an atomic reference, so the relay path only does a volatile read
+ * and never takes a lock. Modifications (channels, routes, configuration) are serialized with a write lock,
+ * which is never taken by the relay path even while a blocking operation is in progress.
+ * The configuration is saved in the background, no file is written while holding the write lock.
+ * Routes are kept in an index, so the route of an incoming message is found in constant time whatever the number of routes.
  *
  */
 public class BridgeImpl implements Bridge {
 
     private final JDA discordBot;
 
-    private boolean open;
-
     private final TwitchClient twitchBot;
 
+    private final TwitchSink twitchSink;
+
+    private final DiscordSink discordSink;
+
+    private final TwitchService twitchService;
+
+    private final WriteBehindConfigSaver configSaver;
+
     private final BridgeConfig config;
 
+    private final AtomicReference<BridgeState> state;
+
+    private final Object writeLock;
+
+    private List<Route> unavailableRoutes; //guarded by the write lock, configured routes whose channels can't be found
+
     private static final Logger LOG = LoggerFactory.getLogger("Bridge");
 
     /**
-     * Constructor
+     * Constructor, messages are sent directly to the bots
      * @param discordBot The discord bot / JDA instance
      * @param twitchBot The twitch client
      * @param config The bridge configuration
      */
     public BridgeImpl(@NotNull JDA discordBot, @NotNull TwitchClient twitchBot, @NotNull BridgeConfig config){
+        this(discordBot, twitchBot, config, new DirectTwitchSink(twitchBot), new DirectDiscordSink(discordBot));
+    }
+
+    /**
+     * Constructor
+     * @param discordBot The discord bot / JDA instance
+     * @param twitchBot The twitch client
+     * @param config The bridge configuration
+     * @param twitchSink The outbound stage of the twitch messages
+     * @param discordSink The outbound stage of the discord messages
+     */
+    public BridgeImpl(@NotNull JDA discordBot, @NotNull TwitchClient twitchBot, @NotNull BridgeConfig config,
+                      @NotNull TwitchSink twitchSink, @NotNull DiscordSink discordSink){
+        this(discordBot, twitchBot, config, twitchSink, discordSink, new CachingTwitchService(new TwitchServiceImpl()));
+    }
+
+    /**
+     * Constructor
+     * @param discordBot The discord bot / JDA instance
+     * @param twitchBot The twitch client
+     * @param config The bridge configuration
+     * @param twitchSink The outbound stage of the twitch messages
+     * @param discordSink The outbound stage of the discord messages
+     * @param twitchService The twitch service used to check the channels, shared for the whole bridge lifetime
+     */
+    public BridgeImpl(@NotNull JDA discordBot, @NotNull TwitchClient twitchBot, @NotNull BridgeConfig config,
+                      @NotNull TwitchSink twitchSink, @NotNull DiscordSink discordSink, @NotNull TwitchService twitchService){
+        this(discordBot, twitchBot, config, twitchSink, discordSink, twitchService,
+                new WriteBehindConfigSaver(BridgeSettings.getConfigSaveDelay(), TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Constructor
+     * @param discordBot The discord bot / JDA instance
+     * @param twitchBot The twitch client
+     * @param config The bridge configuration
+     * @param twitchSink The outbound stage of the twitch messages
+     * @param discordSink The outbound stage of the discord messages
+     * @param twitchService The twitch service used to check the channels, shared for the whole bridge lifetime
+     * @param configSaver Saves the configuration changes in the background
+     */
+    public BridgeImpl(@NotNull JDA discordBot, @NotNull TwitchClient twitchBot, @NotNull BridgeConfig config,
+                      @NotNull TwitchSink twitchSink, @NotNull DiscordSink discordSink, @NotNull TwitchService twitchService,
+                      @NotNull WriteBehindConfigSaver configSaver){
         this.config = config;
+        this.configSaver = configSaver;
+        this.twitchService = twitchService;
         this.twitchBot = twitchBot;
+        this.twitchSink = twitchSink;
+        this.discordSink = discordSink;
         this.discordBot = discordBot;
-        this.open = false;
+        this.writeLock = new Object();
+        this.unavailableRoutes = List.of();
+        Route mainRoute = new Route(Long.parseLong(config.getDiscordChannelID()), config.getTwitchChannelName());
+        RouteIndex index = RouteIndex.of(mainRoute, config.getAdditionalRoutes());
+        for(Route route : config.getAdditionalRoutes()){
+            if(!index.getRoutes().contains(route)) LOG.warn("Ignoring the route "+route+", one of its channels is already bridged");
+        }
+        this.state = new AtomicReference<>(new BridgeState(false, index, mainRoute));
     }
 
     @Override
-    public synchronized boolean isOpen() {
-        return open;
+    public boolean isOpen() {
+        return state.get().open();
     }
 
     @Override
-    public synchronized void close() {
-        open = false;
+    public @NotNull BridgeState getState() {
+        return state.get();
     }
 
     @Override
-    public synchronized void open() {
-        open = true;
+    public void close() {
+        state.updateAndGet(current -> current.withOpen(false));
+    }
+
+    @Override
+    public void open() {
+        state.updateAndGet(current -> current.withOpen(true));
     }
 
     @Override
     public void sendToTwitch(@NotNull String message) {
-        if(!isOpen()) throw new BridgeNotOpenedException("The bridge should be opened before using this operation");
-        commonSendToTwitch(message);
+        BridgeState current = state.get();
+        if(!current.open()) throw new BridgeNotOpenedException("The bridge should be opened before using this operation");
+        commonSendToTwitch(current.mainRoute(), message);
     }
 
     @Override
     public void sendToDiscord(@NotNull String message) {
+        BridgeState current = state.get();
+        if(!current.open()) throw new BridgeNotOpenedException("The bridge should be opened before using this operation");
+        commonSendToDiscord(current.mainRoute(), message);
+    }
+
+    @Override
+    public void sendToTwitch(@NotNull Route route, @NotNull String message) {
+        sendToTwitch(route, message, () -> {});
+    }
+
+    @Override
+    public void sendToTwitch(@NotNull Route route, @NotNull String message, @NotNull Runnable onSent) {
+        if(!isOpen()) throw new BridgeNotOpenedException("The bridge should be opened before using this operation");
+        twitchSink.send(route.twitchChannelName(), message, onSent);
+    }
+
+    @Override
+    public void sendToDiscord(@NotNull Route route, @NotNull String message) {
         if(!isOpen()) throw new BridgeNotOpenedException("The bridge should be opened before using this operation");
-        commonSendToDiscord(message);
+        commonSendToDiscord(route, message);
+    }
+
+    @Override
+    public void sendToDiscord(@NotNull Route route, @NotNull String author, @NotNull String content) {
+        sendToDiscord(route, author, content, () -> {});
+    }
+
+    @Override
+    public void sendToDiscord(@NotNull Route route, @NotNull String author, @NotNull String content, @NotNull Runnable onSent) {
+        if(!isOpen()) throw new BridgeNotOpenedException("The bridge should be opened before using this operation");
+        discordSink.send(route.discordChannelID(), author, content, onSent);
     }
 
     /**
      * Send to twitch the given message
+     * @param route The route to use
      * @param message The message to send
      */
-    private void commonSendToTwitch(String message){
-        twitchBot.getChat().sendMessage(getTwitchChannelNameSync(), message);
+    private void commonSendToTwitch(Route route, String message){
+        twitchSink.send(route.twitchChannelName(), message);
     }
 
     /**
      * Send to discord the given message
+     * @param route The route to use
      * @param message The message to send
      */
-    private void commonSendToDiscord(String message){
-        TextChannel channel = discordBot.getTextChannelById(getDiscordChannelIDSync());
-        if(channel == null){
-            LOG.warn("Discord channel not found (configuration is outdated)");
-            return;
-        }
-        channel.sendMessage(message).queue();
+    private void commonSendToDiscord(Route route, String message){
+        discordSink.send(route.discordChannelID(), message);
     }
 
     @Override
     public void adminSendToDiscord(@NotNull String message) {
-        commonSendToDiscord(message);
+        commonSendToDiscord(state.get().mainRoute(), message);
     }
 
     @Override
     public void adminSendToTwitch(@NotNull String message) {
-        commonSendToTwitch(message);
+        commonSendToTwitch(state.get().mainRoute(), message);
     }
 
     @Override
     public boolean changeDiscordChannel(@NotNull String channelID) {
+        long discordChannelID;
+        try {
+            discordChannelID = Long.parseLong(channelID);
+        } catch (NumberFormatException e){
+            return false;
+        }
         TextChannel channel = discordBot.getTextChannelById(channelID);
         if(channel == null) return false;
-        synchronized (this){
+        synchronized (writeLock){
+            BridgeState current = state.get();
+            if(isUsedByAnotherRoute(current, current.routes().findByDiscord(discordChannelID))) return false;
+            replaceMainRoute(new Route(discordChannelID, current.mainRoute().twitchChannelName()));
             config.changeDiscordChannelID(channelID);
             LOG.info("Changed the discord channel to ["+channel.getName()+"].");
-            LOG.info("Saving configuration");
-            ConfigSaver saver = new ConfigSaverToProps(config);
-            try {
-                saver.save();
-            } catch (IOException e) {
-                LOG.warn("Configuration can't be saved");
-            }
-            LOG.info("Configuration saved");
+            saveConfig();
         }
         return true;
     }
 
     @Override
     public boolean changeTwitchChannel(@NotNull String channelName) {
-        //Not using Helix form Twitch4J since the interface creates warning with URL and is too much complex for this easy task, but easy to change if necessary
-        TwitchService service = new TwitchServiceImpl();
-        Optional<TwitchChannelInfo> channelOpt;
-
-        try{
-            service.authenticate(config.getTwitchToken());
-            channelOpt = service.getChannel(channelName);
-        } catch (ServiceException e){
-            LOG.warn("Operation aborted. Request failed due to : "+e.getMessage());
-            return false;
-        }
-        if(channelOpt.isEmpty()) return false;
+        if(!twitchChannelExists(channelName)) return false;
         TwitchChat chat = twitchBot.getChat();
-        synchronized (this){
-            chat.leaveChannel(config.getTwitchChannelName());
+        synchronized (writeLock){
+            BridgeState current = state.get();
+            Route newMainRoute = new Route(current.mainRoute().discordChannelID(), channelName);
+            if(isUsedByAnotherRoute(current, current.routes().findByTwitch(newMainRoute.twitchChannelName()))) return false;
+            replaceMainRoute(newMainRoute);
+            chat.leaveChannel(current.mainRoute().twitchChannelName());
             chat.joinChannel(channelName);
             config.changeTwitchChannelName(channelName);
             LOG.info("Changed the twitch channel to ["+channelName+"].");
-            LOG.info("Saving configuration");
-            ConfigSaver saver = new ConfigSaverToProps(config);
-            try {
-                saver.save();
-            } catch (IOException e) {
-                LOG.warn("Configuration can't be saved");
+            saveConfig();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean addRoute(@NotNull Route route) {
+        if(discordBot.getTextChannelById(route.discordChannelID()) == null) return false;
+        if(!twitchChannelExists(route.twitchChannelName())) return false;
+        synchronized (writeLock){
+            BridgeState current = state.get();
+            if(current.routes().conflictsWith(route)) return false;
+            publishRoutes(current.routes().with(route), current.mainRoute());
+            twitchBot.getChat().joinChannel(route.twitchChannelName());
+            config.changeAdditionalRoutes(getAdditionalRoutes());
+            LOG.info("Added the route "+route+".");
+            saveConfig();
+        }
+        return true;
+    }
+
+    @Override
+    public @NotNull List<@NotNull Route> checkRoutes() {
+        BridgeState checked = state.get();
+        List<Route> routes = checked.routes().getRoutes().stream().filter(route -> !route.equals(checked.mainRoute())).toList();
+        if(routes.isEmpty()) return List.of();
+        Set<String> twitchChannels;
+        try {
+            twitchChannels = findTwitchChannels(routes.stream().map(Route::twitchChannelName).toList());
+        } catch (ServiceException e){
+            LOG.warn("The routes can't be checked. Request failed due to : "+e.getMessage());
+            return List.of();
+        }
+        List<Route> missing = routes.stream().filter(route -> !twitchChannels.contains(route.twitchChannelName())
+                || discordBot.getTextChannelById(route.discordChannelID()) == null).toList();
+        if(missing.isEmpty()) return missing;
+        synchronized (writeLock){
+            BridgeState current = state.get();
+            RouteIndex index = current.routes();
+            for(Route route : missing){
+                index = index.without(route);
+                twitchBot.getChat().leaveChannel(route.twitchChannelName());
+                LOG.warn("The channels of the route "+route+" can't be found, it isn't bridged");
             }
-            LOG.info("Configuration saved");
+            publishRoutes(index, current.mainRoute());
+            List<Route> unavailable = new ArrayList<>(unavailableRoutes);
+            unavailable.addAll(missing);
+            unavailableRoutes = List.copyOf(unavailable);
+        }
+        return missing;
+    }
+
+    @Override
+    public boolean removeRoute(long discordChannelID) {
+        synchronized (writeLock){
+            BridgeState current = state.get();
+            Route route = current.routes().findByDiscord(discordChannelID);
+            if(route == null) route = unavailableRoutes.stream()
+                    .filter(unavailable -> unavailable.discordChannelID() == discordChannelID).findFirst().orElse(null);
+            if(route == null || route.equals(current.mainRoute())) return false;
+            Route removed = route;
+            unavailableRoutes = unavailableRoutes.stream().filter(unavailable -> !unavailable.equals(removed)).toList();
+            publishRoutes(current.routes().without(route), current.mainRoute());
+            twitchBot.getChat().leaveChannel(route.twitchChannelName());
+            config.changeAdditionalRoutes(getAdditionalRoutes());
+            LOG.info("Removed the route "+route+".");
+            saveConfig();
         }
         return true;
     }
 
+    @Override
+    public @NotNull List<@NotNull Route> getRoutes() {
+        return state.get().routes().getRoutes();
+    }
+
+    @Override
+    public @Nullable Route findRouteByDiscord(long channelID) {
+        return state.get().routes().findByDiscord(channelID);
+    }
+
+    @Override
+    public @Nullable Route findRouteByTwitch(@NotNull String channelName) {
+        return state.get().routes().findByTwitch(channelName);
+    }
+
     @Override
     public boolean isDiscordTarget(@NotNull String channelID) {
-        return channelID.equals(getDiscordChannelIDSync());
+        try {
+            return findRouteByDiscord(Long.parseLong(channelID)) != null;
+        } catch (NumberFormatException e){
+            return false;
+        }
     }
 
     @Override
     public boolean isTwitchTarget(@NotNull String channelName) {
-        return channelName.equals(getTwitchChannelNameSync());
+        return findRouteByTwitch(channelName.toLowerCase(Locale.ROOT)) != null;
     }
 
     @Override
-    public synchronized @NotNull BridgeConfig getConfig() {
-        ConfigBuilder builder = new ConfigBuilderImpl(config);
-        return builder.build(); //return a copy
+    public int getTwitchQueueDepth() {
+        return twitchSink.getQueueDepth();
+    }
+
+    @Override
+    public double getTwitchCoalescingRatio() {
+        return twitchSink.getCoalescingRatio();
+    }
+
+    @Override
+    public int getDiscordQueueDepth() {
+        return discordSink.getQueueDepth();
+    }
+
+    @Override
+    public double getDiscordBatchingRatio() {
+        return discordSink.getBatchingRatio();
+    }
+
+    @Override
+    public void shutdown() throws InterruptedException {
+        close();
+        twitchSink.shutdown();
+        discordSink.shutdown();
+        configSaver.shutdown();
+    }
+
+    @Override
+    public @NotNull BridgeConfig getConfig() {
+        synchronized (writeLock){
+            ConfigBuilder builder = new ConfigBuilderImpl(config);
+            return builder.build(); //return a copy
+        }
     }
 
     /**
-     * Synchronized method to get the discord channel ID atomically
-     * @return the discord channel ID
+     * Check if a twitch channel exists
+     * @param channelName The twitch channel name
+     * @return If the channel exists, false if it can't be retrieved
      */
-    private synchronized String getDiscordChannelIDSync(){
-        return config.getDiscordChannelID();
+    private boolean twitchChannelExists(String channelName){
+        try{
+            return findTwitchChannels(List.of(channelName)).contains(channelName.toLowerCase(Locale.ROOT));
+        } catch (ServiceException e){
+            LOG.warn("Operation aborted. Request failed due to : "+e.getMessage());
+            return false;
+        }
     }
 
     /**
-     * Synchronized method to get the twitch channel name atomically
-     * @return the twitch channel name
+     * Find the existing twitch channels, with one request for up to 100 channels
+     * @param channelNames The twitch channel names
+     * @return The lower case names of the channels which exist
+     * @throws ServiceException if the channels can't be retrieved
      */
-    private synchronized String getTwitchChannelNameSync(){
-        return config.getTwitchChannelName();
+    private Set<String> findTwitchChannels(Collection<String> channelNames) throws ServiceException {
+        //Not using Helix form Twitch4J since the interface creates warning with URL and is too much complex for this easy task, but easy to change if necessary
+        twitchService.authenticate(config.getTwitchToken()); //cached until the token expires
+        return twitchService.getChannels(channelNames).keySet();
     }
 
+    /**
+     * Check if the route found for a channel is another route than the main route
+     * @param current The state used for the check
+     * @param route The route found for the channel, can be null
+     * @return If the channel is used by another route
+     */
+    private boolean isUsedByAnotherRoute(BridgeState current, Route route){
+        return route != null && !route.equals(current.mainRoute());
+    }
+
+    /**
+     * Replace the main route in the index. Should be called while holding the write lock.
+     * @param newMainRoute The new main route
+     */
+    private void replaceMainRoute(Route newMainRoute){
+        BridgeState current = state.get();
+        publishRoutes(current.routes().replace(current.mainRoute(), newMainRoute), newMainRoute);
+    }
+
+    /**
+     * Publish new routes, keeping the open flag which can change concurrently. Should be called while holding the write lock.
+     * @param routes The new route index
+     * @param mainRoute The new main route
+     */
+    private void publishRoutes(RouteIndex routes, Route mainRoute){
+        state.updateAndGet(current -> current.withRoutes(routes, mainRoute));
+    }
+
+    /**
+     * Get the routes to configure without the main route, the unavailable routes are kept unless their channels
+     * are bridged by another route now. Should be called while holding the write lock.
+     * @return The additional routes
+     */
+    private List<Route> getAdditionalRoutes(){
+        BridgeState current = state.get();
+        List<Route> routes = new ArrayList<>(current.routes().getRoutes());
+        routes.remove(current.mainRoute());
+        unavailableRoutes.stream().filter(route -> !current.routes().conflictsWith(route)).forEach(routes::add);
+        return routes;
+    }
+
+    /**
+     * Save the configuration in the background, only a copy is made here. Should be called while holding the write lock.
+     */
+    private void saveConfig(){
+        configSaver.requestSave(new ConfigBuilderImpl(config).build());
+    }
 }
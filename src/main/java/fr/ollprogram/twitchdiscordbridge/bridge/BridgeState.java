@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.bridge;
+
+import fr.ollprogram.twitchdiscordbridge.model.Route;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An immutable snapshot of the bridge state.
+ * A snapshot is consistent: the open flag, the routes and the main route always belong to the same version of the bridge.
+ * @param open If the bridge is open
+ * @param routes The route index, containing the main route
+ * @param mainRoute The main route
+ */
+public record BridgeState(boolean open, @NotNull RouteIndex routes, @NotNull Route mainRoute) {
+
+    /**
+     * Create a copy of this state with another open flag
+     * @param open If the bridge is open
+     * @return The new state
+     */
+    public @NotNull BridgeState withOpen(boolean open) {
+        return (open == this.open) ? this : new BridgeState(open, routes, mainRoute);
+    }
+
+    /**
+     * Create a copy of this state with other routes
+     * @param routes The new route index, containing the main route
+     * @param mainRoute The new main route
+     * @return The new state
+     */
+    public @NotNull BridgeState withRoutes(@NotNull RouteIndex routes, @NotNull Route mainRoute) {
+        return new BridgeState(open, routes, mainRoute);
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "Open='" + open + '\'' +
+                ", MainRoute='" + mainRoute + '\'' +
+                ", Routes='" + routes.size() + '\'' +
+                '}';
+    }
+}
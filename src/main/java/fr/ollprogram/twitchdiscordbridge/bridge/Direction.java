@@ -0,0 +1,30 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.bridge;
+
+/**
+ * The direction of a task going through the bridge
+ */
+public enum Direction {
+    /**
+     * A twitch message relayed to discord
+     */
+    TWITCH_TO_DISCORD,
+    /**
+     * A discord message relayed to twitch
+     */
+    DISCORD_TO_TWITCH,
+    /**
+     * Any other task of TwitchDiscordBridge
+     */
+    INTERNAL
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.bridge;
+
+import fr.ollprogram.twitchdiscordbridge.model.Route;
+import fr.ollprogram.twitchdiscordbridge.utils.LongHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable index of the bridge routes.
+ * Routes can be found in constant time by their discord channel ID or by their twitch channel name.
+ * A channel can only be part of one route. Modifications return a new index (copy on write), so an index
+ * can be shared between threads once built.
+ */
+public final class RouteIndex {
+
+    private static final RouteIndex EMPTY = new RouteIndex(List.of());
+
+    private final List<Route> routes;
+
+    private final LongHashMap<Route> byDiscord;
+
+    private final Map<String, Route> byTwitch;
+
+    /**
+     * Constructor
+     * @param routes The routes to index, without conflicts
+     */
+    private RouteIndex(List<Route> routes) {
+        this.routes = Collections.unmodifiableList(routes);
+        this.byDiscord = new LongHashMap<>(routes.size());
+        this.byTwitch = new HashMap<>(routes.size() * 2);
+        routes.forEach(route -> {
+            byDiscord.put(route.discordChannelID(), route);
+            byTwitch.put(route.twitchChannelName(), route);
+        });
+    }
+
+    /**
+     * Get an empty index
+     * @return The empty index
+     */
+    public static @NotNull RouteIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Index the configured routes, a route is skipped when one of its channels is already used by a previous route
+     * @param mainRoute The main route, always indexed first
+     * @param additionalRoutes The other routes, in configuration order
+     * @return The index of the accepted routes
+     */
+    public static @NotNull RouteIndex of(@NotNull Route mainRoute, @NotNull List<@NotNull Route> additionalRoutes) {
+        RouteIndex index = EMPTY.with(mainRoute);
+        for(Route route : additionalRoutes){
+            if(!index.conflictsWith(route)) index = index.with(route);
+        }
+        return index;
+    }
+
+    /**
+     * Find the route of a discord channel
+     * @param discordChannelID The discord channel ID
+     * @return The route, or null if the channel is not bridged
+     */
+    public @Nullable Route findByDiscord(long discordChannelID) {
+        return byDiscord.get(discordChannelID);
+    }
+
+    /**
+     * Find the route of a twitch channel
+     * @param twitchChannelName The twitch channel name, in lower case
+     * @return The route, or null if the channel is not bridged
+     */
+    public @Nullable Route findByTwitch(@NotNull String twitchChannelName) {
+        return byTwitch.get(twitchChannelName);
+    }
+
+    /**
+     * Check if one of the route channels is already part of this index
+     * @param route The route to check
+     * @return If one of the route channels is already used
+     */
+    public boolean conflictsWith(@NotNull Route route) {
+        return byDiscord.containsKey(route.discordChannelID()) || byTwitch.containsKey(route.twitchChannelName());
+    }
+
+    /**
+     * Create a new index with an additional route
+     * @param route The route to add, it should not conflict with the current routes
+     * @return The new index
+     */
+    public @NotNull RouteIndex with(@NotNull Route route) {
+        List<Route> newRoutes = new ArrayList<>(routes.size() + 1);
+        newRoutes.addAll(routes);
+        newRoutes.add(route);
+        return new RouteIndex(newRoutes);
+    }
+
+    /**
+     * Create a new index where a route is replaced by another one, at the same position
+     * @param oldRoute The route to replace
+     * @param newRoute The new route, it should not conflict with the other routes
+     * @return The new index
+     */
+    public @NotNull RouteIndex replace(@NotNull Route oldRoute, @NotNull Route newRoute) {
+        List<Route> newRoutes = new ArrayList<>(routes);
+        newRoutes.replaceAll(route -> route.equals(oldRoute) ? newRoute : route);
+        return new RouteIndex(newRoutes);
+    }
+
+    /**
+     * Create a new index without the given route
+     * @param route The route to remove
+     * @return The new index
+     */
+    public @NotNull RouteIndex without(@NotNull Route route) {
+        List<Route> newRoutes = new ArrayList<>(routes);
+        newRoutes.remove(route);
+        return new RouteIndex(newRoutes);
+    }
+
+    /**
+     * Get all the routes, in insertion order
+     * @return The routes
+     */
+    public @NotNull List<@NotNull Route> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * Get the number of routes
+     * @return The number of routes
+     */
+    public int size() {
+        return routes.size();
+    }
+}
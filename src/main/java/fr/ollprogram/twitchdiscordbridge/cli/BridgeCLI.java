@@ -120,9 +120,12 @@ public class BridgeCLI {
                         res = executor.submit(commandOpt.get(), args.subList(1, argsSize)).get(); //sequential (joining the thread for better user experience)
                     }
                     System.out.println(res);
-                } catch (InterruptedException | ExecutionException e) {
+                } catch (ExecutionException e) { //the command failed or timed out
+                    LOG.warn("The following error occurs during the command execution "+e.getCause().getMessage());
+                    System.out.println(Command.failureReply(e));
+                } catch (InterruptedException e) {
                     LOG.warn("The following error occurs during the command execution "+e.getMessage());
-                    System.out.println("Command failed");
+                    System.out.println(Command.FAILURE_ERROR);
                 }
             }
         }
@@ -21,6 +21,10 @@ import fr.ollprogram.twitchdiscordbridge.configuration.save.ConfigSaver;
 import fr.ollprogram.twitchdiscordbridge.configuration.save.ConfigSaverToProps;
 import fr.ollprogram.twitchdiscordbridge.configuration.validate.ConfigValidator;
 import fr.ollprogram.twitchdiscordbridge.configuration.validate.ConfigValidatorImpl;
+import fr.ollprogram.twitchdiscordbridge.service.DiscordService;
+import fr.ollprogram.twitchdiscordbridge.service.DiscordServiceImpl;
+import fr.ollprogram.twitchdiscordbridge.service.TwitchService;
+import fr.ollprogram.twitchdiscordbridge.service.TwitchServiceImpl;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,6 +41,10 @@ public class ConfiguratorCLI {
     private final ConfigBuilder builder;
     private final Scanner scanner;
 
+    private final TwitchService twitchService;
+
+    private final DiscordService discordService;
+
     private final static Logger LOG = LoggerFactory.getLogger("Configurator CLI");
 
     /**
@@ -44,8 +52,20 @@ public class ConfiguratorCLI {
      * @param scanner The file scanner
      */
     public ConfiguratorCLI(@NotNull Scanner scanner){
+        this(scanner, new TwitchServiceImpl(), new DiscordServiceImpl());
+    }
+
+    /**
+     * Configurator constructor
+     * @param scanner The file scanner
+     * @param twitchService The twitch service used for the validation
+     * @param discordService The discord service used for the validation
+     */
+    public ConfiguratorCLI(@NotNull Scanner scanner, @NotNull TwitchService twitchService, @NotNull DiscordService discordService){
         this.builder = new ConfigBuilderImpl();
         this.scanner = scanner;
+        this.twitchService = twitchService;
+        this.discordService = discordService;
     }
 
     /**
@@ -62,7 +82,7 @@ public class ConfiguratorCLI {
         }
         boolean configured = false;
         if(builder.isComplete()) {
-            ConfigValidator validator = new ConfigValidatorImpl(builder);
+            ConfigValidator validator = new ConfigValidatorImpl(builder, twitchService, discordService);
             configured = validator.isValid();
         }
         while(!configured) {
@@ -70,7 +90,7 @@ public class ConfiguratorCLI {
             askDiscordChannelID();
             askTwitchToken();
             askTwitchChannelName();
-            ConfigValidator validator = new ConfigValidatorImpl(builder);
+            ConfigValidator validator = new ConfigValidatorImpl(builder, twitchService, discordService);
             configured = builder.isComplete() && validator.isValid();
         }
         BridgeConfig config = builder.build();
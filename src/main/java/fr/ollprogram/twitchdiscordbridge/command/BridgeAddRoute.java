@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.command;
+
+import fr.ollprogram.twitchdiscordbridge.bridge.Bridge;
+import fr.ollprogram.twitchdiscordbridge.model.Route;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Command to add a new route (a discord channel linked with a twitch channel)
+ */
+public class BridgeAddRoute extends Command {
+
+    private static final String DESCRIPTION = "Link another discord channel with another twitch channel";
+
+    private static final String ROUTE_NOT_ADDED = "The channels don't exist, can't be retrieved or are already bridged.";
+
+    private static final String ROUTE_ADDED = "The route has been added.";
+
+    private final Bridge bridge;
+
+    /**
+     * Constructor
+     * @param bridge The bridge
+     */
+    public BridgeAddRoute(@NotNull Bridge bridge) {
+        super(DESCRIPTION, List.of(new Option("channel_id", "The discord channel ID", true),
+                new Option("channel_name", "The twitch channel name", true)), true, TWITCH_TIMEOUT);
+        this.bridge = bridge;
+    }
+
+    @Override
+    public @NotNull Supplier<@NotNull String> getExecution(@NotNull List<@NotNull String> args) {
+        if(!validateArguments(args)) return () -> DEFAULT_ARGS_ERROR;
+        long channelID;
+        try {
+            channelID = Long.parseLong(args.get(0));
+        } catch (NumberFormatException e){
+            return () -> ROUTE_NOT_ADDED;
+        }
+        Route route = new Route(channelID, args.get(1));
+        return () -> bridge.addRoute(route) ? ROUTE_ADDED : ROUTE_NOT_ADDED;
+    }
+}
@@ -13,12 +13,18 @@
 package fr.ollprogram.twitchdiscordbridge.command;
 
 import fr.ollprogram.twitchdiscordbridge.bridge.Bridge;
+import fr.ollprogram.twitchdiscordbridge.bridge.Direction;
 import fr.ollprogram.twitchdiscordbridge.configuration.BridgeConfig;
+import fr.ollprogram.twitchdiscordbridge.metrics.Histogram;
+import fr.ollprogram.twitchdiscordbridge.metrics.MetricsRegistry;
+import fr.ollprogram.twitchdiscordbridge.metrics.RelayMetrics;
+import fr.ollprogram.twitchdiscordbridge.model.Route;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.function.Supplier;
 
 /**
@@ -36,15 +42,39 @@ public class BridgeInfo extends Command {
 
     private final JDA discordBot;
 
+    private final TDBExecutor executor;
+
+    private final RelayMetrics toDiscordMetrics;
+
+    private final RelayMetrics toTwitchMetrics;
+
+    /**
+     * Constructor, without relay latency
+     * @param bridge The bridge
+     * @param discordBot The discord bot to be able to fetch more information
+     * @param executor The TDB executor, to get the load shedding information
+     */
+    public BridgeInfo(@NotNull Bridge bridge, @NotNull JDA discordBot, @NotNull TDBExecutor executor){
+        this(bridge, discordBot, executor, new RelayMetrics(new MetricsRegistry(), Direction.TWITCH_TO_DISCORD),
+                new RelayMetrics(new MetricsRegistry(), Direction.DISCORD_TO_TWITCH));
+    }
+
     /**
      * Constructor
      * @param bridge The bridge
      * @param discordBot The discord bot to be able to fetch more information
+     * @param executor The TDB executor, to get the load shedding information
+     * @param toDiscordMetrics The metrics of the twitch to discord relay, to get the latency
+     * @param toTwitchMetrics The metrics of the discord to twitch relay, to get the latency
      */
-    public BridgeInfo(@NotNull Bridge bridge, @NotNull JDA discordBot){
+    public BridgeInfo(@NotNull Bridge bridge, @NotNull JDA discordBot, @NotNull TDBExecutor executor,
+                      @NotNull RelayMetrics toDiscordMetrics, @NotNull RelayMetrics toTwitchMetrics){
         super(DESCRIPTION,true);
         this.bridge = bridge;
         this.discordBot = discordBot;
+        this.executor = executor;
+        this.toDiscordMetrics = toDiscordMetrics;
+        this.toTwitchMetrics = toTwitchMetrics;
     }
 
     @Override
@@ -64,6 +94,41 @@ public class BridgeInfo extends Command {
                 "Status : " + (bridge.isOpen() ? "\u001b[0;32mOpened" : "\u001b[0;31mClosed") + "\u001b[0m\n"
                 + "Twitch target channel : " + "\u001b[0;36m" + config.getTwitchChannelName() + "\u001b[0m\n"
                 + "Discord target channel : " + (discordChannel == null ? "\u001b[0;31mNot found" : "\u001b[0;36m" + discordChannel.getName() ) + "\u001b[0m\n"
+                + getAdditionalRoutesInformation(config)
+                + "Twitch queue : " + "\u001b[0;36m" + bridge.getTwitchQueueDepth() + " waiting, "
+                + String.format(Locale.ROOT, "%.2f", bridge.getTwitchCoalescingRatio()) + " lines per message" + "\u001b[0m\n"
+                + "Discord queue : " + "\u001b[0;36m" + bridge.getDiscordQueueDepth() + " waiting, "
+                + String.format(Locale.ROOT, "%.2f", bridge.getDiscordBatchingRatio()) + " lines per message" + "\u001b[0m\n"
+                + "Shed messages : " + "\u001b[0;36m" + executor.getRejectedCount(Direction.TWITCH_TO_DISCORD) + " to discord, "
+                + executor.getRejectedCount(Direction.DISCORD_TO_TWITCH) + " to twitch" + "\u001b[0m\n"
+                + "Relay latency : " + "\u001b[0;36m" + getLatencyInformation(toDiscordMetrics.getLatency()) + " to discord, "
+                + getLatencyInformation(toTwitchMetrics.getLatency()) + " to twitch" + "\u001b[0m\n"
                 + "```\n";
     }
+
+    /**
+     * Get the median and p99 of a relay latency
+     * @param latency The latency histogram
+     * @return The latency quantiles in milliseconds, or a dash if no message was relayed
+     */
+    private static String getLatencyInformation(Histogram latency){
+        if(latency.getCount() == 0) return "-";
+        return String.format(Locale.ROOT, "p50 %.0fms / p99 %.0fms", latency.quantile(0.5) * 1000, latency.quantile(0.99) * 1000);
+    }
+
+    /**
+     * Get the information lines about the additional routes
+     * @param config The bridge configuration
+     * @return The additional routes lines, one per route
+     */
+    private String getAdditionalRoutesInformation(BridgeConfig config){
+        StringBuilder builder = new StringBuilder();
+        for(Route route : config.getAdditionalRoutes()){
+            TextChannel discordChannel = discordBot.getTextChannelById(route.discordChannelID());
+            builder.append("Additional route : ")
+                    .append(discordChannel == null ? "\u001b[0;31mNot found" : "\u001b[0;36m" + discordChannel.getName())
+                    .append("\u001b[0m <-> \u001b[0;36m").append(route.twitchChannelName()).append("\u001b[0m\n");
+        }
+        return builder.toString();
+    }
 }
@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.command;
+
+import fr.ollprogram.twitchdiscordbridge.bridge.Bridge;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Command to remove an additional route
+ */
+public class BridgeRemoveRoute extends Command {
+
+    private static final String DESCRIPTION = "Remove the route of a discord channel (the main route can't be removed)";
+
+    private static final String ROUTE_NOT_FOUND = "No additional route uses this discord channel.";
+
+    private static final String ROUTE_REMOVED = "The route has been removed.";
+
+    private final Bridge bridge;
+
+    /**
+     * Constructor
+     * @param bridge The bridge
+     */
+    public BridgeRemoveRoute(@NotNull Bridge bridge) {
+        super(DESCRIPTION, List.of(new Option("channel_id", "The discord channel ID of the route", true)), true);
+        this.bridge = bridge;
+    }
+
+    @Override
+    public @NotNull Supplier<@NotNull String> getExecution(@NotNull List<@NotNull String> args) {
+        if(!validateArguments(args)) return () -> DEFAULT_ARGS_ERROR;
+        long channelID;
+        try {
+            channelID = Long.parseLong(args.get(0));
+        } catch (NumberFormatException e){
+            return () -> ROUTE_NOT_FOUND;
+        }
+        return () -> bridge.removeRoute(channelID) ? ROUTE_REMOVED : ROUTE_NOT_FOUND;
+    }
+}
@@ -35,7 +35,7 @@ public class BridgeTwitchTarget extends Command{
      * @param bridge The bridge
      */
     public BridgeTwitchTarget(@NotNull Bridge bridge) {
-        super(DESCRIPTION, List.of(new Option("channel_name", "The twitch target channel name", true)), true);
+        super(DESCRIPTION, List.of(new Option("channel_name", "The twitch target channel name", true)), true, TWITCH_TIMEOUT);
         this.bridge = bridge;
     }
 
@@ -16,6 +16,9 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Supplier;
 
 /**
@@ -27,12 +30,35 @@ public abstract class Command {
     protected static final String DEFAULT_ARGS_ERROR = "Wrong arguments";
 
     protected static final String SHOULD_HAVE_NO_ARGS_ERROR = "This command don't have any arguments.";
+
+    /**
+     * The reply of a command which didn't finish before its timeout
+     */
+    public static final String TIMEOUT_ERROR = "The command took too long and has been cancelled.";
+
+    /**
+     * The reply of a command which failed
+     */
+    public static final String FAILURE_ERROR = "Command failed";
+
+    /**
+     * The default command timeout, in milliseconds
+     */
+    public static final long DEFAULT_TIMEOUT = 5_000;
+
+    /**
+     * The timeout of the commands looking up twitch channels, in milliseconds
+     */
+    protected static final long TWITCH_TIMEOUT = 10_000;
+
     private final String description;
 
     private final boolean discordEnabled;
 
     private final List<Option> options;
 
+    private final long timeout;
+
     private int argsMin;
     private int argsMax;
 
@@ -41,10 +67,12 @@ public abstract class Command {
      * @param description The command description
      * @param discordEnabled If this command can be used on discord,
      * @param options The command arguments
+     * @param timeout The time in milliseconds the command can run before being cancelled
      */
-    protected Command(@NotNull String description, @NotNull List<@NotNull Option> options, boolean discordEnabled){
+    protected Command(@NotNull String description, @NotNull List<@NotNull Option> options, boolean discordEnabled, long timeout){
         this.description = description;
         this.discordEnabled = discordEnabled;
+        this.timeout = timeout;
         this.options = Collections.unmodifiableList(options);
         argsMin = 0;
         argsMax = 0;
@@ -54,6 +82,16 @@ public abstract class Command {
         });
     }
 
+    /**
+     * Constructor with the default timeout
+     * @param description The command description
+     * @param discordEnabled If this command can be used on discord,
+     * @param options The command arguments
+     */
+    protected Command(@NotNull String description, @NotNull List<@NotNull Option> options, boolean discordEnabled){
+        this(description, options, discordEnabled, DEFAULT_TIMEOUT);
+    }
+
     /**
      * without options constructor
      * @param description The command description
@@ -96,6 +134,27 @@ public abstract class Command {
         return discordEnabled;
     }
 
+    /**
+     * Get the time the command can run, it is cancelled afterward
+     * @return The timeout in milliseconds, counted from the submission
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Get the reply of a command which completed exceptionally
+     * @param error The command error, possibly wrapped by the future
+     * @return The timeout reply if the command timed out, the failure reply otherwise
+     */
+    public static @NotNull String failureReply(@NotNull Throwable error){
+        Throwable cause = error;
+        while((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null){
+            cause = cause.getCause();
+        }
+        return (cause instanceof TimeoutException) ? TIMEOUT_ERROR : FAILURE_ERROR;
+    }
+
     /**
      * Get options
      * @return The options list
@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.command;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * A command queued in the executor, ordered by deadline then by submission order.
+ * It can time out while waiting or running: its future is then completed with a TimeoutException
+ * and its thread is interrupted, which cancels the interruptible blocking I/O.
+ */
+final class CommandTask implements Runnable, Comparable<CommandTask> {
+
+    private static final Logger LOG = LoggerFactory.getLogger("Executor");
+
+    private final Supplier<String> execution;
+
+    private final CompletableFuture<String> future;
+
+    private final Priority priority;
+
+    private final long deadline;
+
+    private final long sequence;
+
+    private Thread runner; //guarded by this
+
+    private boolean interrupted; //guarded by this
+
+    /**
+     * Constructor
+     * @param execution The command execution
+     * @param priority The command priority class
+     * @param submittedAt The submission time in nanoseconds
+     * @param sequence The submission number, to keep the order of the commands with the same deadline
+     */
+    CommandTask(Supplier<String> execution, Priority priority, long submittedAt, long sequence){
+        this.execution = execution;
+        this.future = new CompletableFuture<>();
+        this.priority = priority;
+        this.deadline = submittedAt + priority.getBudget() * 1_000_000L;
+        this.sequence = sequence;
+    }
+
+    /**
+     * Get the future completed with the command reply
+     * @return The command future
+     */
+    CompletableFuture<String> getFuture(){
+        return future;
+    }
+
+    /**
+     * Time out the command if it isn't done, interrupting it if it is running
+     * @return If the command timed out
+     */
+    synchronized boolean timeOut(){
+        if(!future.completeExceptionally(new TimeoutException("The command of priority "+priority+" timed out"))) return false;
+        if(runner != null){
+            runner.interrupt();
+            interrupted = true;
+        }
+        return true;
+    }
+
+    @Override
+    public void run() {
+        synchronized (this){
+            if(future.isDone()) return; //timed out while waiting
+            runner = Thread.currentThread();
+        }
+        if(System.nanoTime() - deadline > 0) LOG.warn("A command of priority "+priority+" started after its deadline");
+        try {
+            future.complete(execution.get());
+        } catch (RuntimeException e){
+            future.completeExceptionally(e);
+        } finally {
+            synchronized (this){
+                runner = null;
+                if(interrupted) Thread.interrupted(); //the pool thread is reused, the interruption was for this command only
+            }
+        }
+    }
+
+    @Override
+    public int compareTo(@NotNull CommandTask other) {
+        long difference = deadline - other.deadline; //nano times are compared by difference, they can overflow
+        if(difference != 0) return (difference < 0) ? -1 : 1;
+        return Long.compare(sequence, other.sequence);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.command;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Times out the commands still waiting or running after their timeout, on a background thread
+ */
+final class CommandTimeouts {
+
+    private static final Logger LOG = LoggerFactory.getLogger("Executor");
+
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    private final LongAdder timedOut;
+
+    /**
+     * Constructor
+     */
+    CommandTimeouts(){
+        this.timedOut = new LongAdder();
+        this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "command-timeouts");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true); //most commands finish in time, their checks must not pile up
+    }
+
+    /**
+     * Time out a command if it isn't done after its timeout
+     * @param task The submitted command
+     * @param timeout The timeout in milliseconds, counted from now
+     */
+    void watch(CommandTask task, long timeout){
+        ScheduledFuture<?> check = scheduler.schedule(() -> {
+            if(task.timeOut()){
+                timedOut.increment();
+                LOG.warn("A command has been cancelled after "+timeout+"ms");
+            }
+        }, timeout, TimeUnit.MILLISECONDS);
+        task.getFuture().whenComplete((reply, error) -> check.cancel(false));
+    }
+
+    /**
+     * Get the number of commands timed out
+     * @return The number of timed out commands
+     */
+    long getTimedOutCount(){
+        return timedOut.sum();
+    }
+
+    /**
+     * Stop the background thread
+     */
+    void shutdown(){
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.command;
+
+import fr.ollprogram.twitchdiscordbridge.bridge.Direction;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides which tasks are dropped when the bounded task queue is full, following a shedding policy.
+ * Dropped tasks are counted per direction.
+ */
+final class LoadShedder implements RejectedExecutionHandler {
+
+    private final SheddingPolicy policy;
+
+    private final long maxAgeNanos;
+
+    private final LongSupplier clock;
+
+    private final Map<Direction, LongAdder> rejected;
+
+    /**
+     * Constructor
+     * @param policy The shedding policy
+     * @param maxAgeNanos The max age of a waiting task, only used by DROP_EXPIRED
+     * @param clock The clock, in nanoseconds
+     */
+    LoadShedder(SheddingPolicy policy, long maxAgeNanos, LongSupplier clock){
+        this.policy = policy;
+        this.maxAgeNanos = maxAgeNanos;
+        this.clock = clock;
+        this.rejected = new EnumMap<>(Direction.class);
+        for(Direction direction : Direction.values()) rejected.put(direction, new LongAdder());
+    }
+
+    /**
+     * Create a task to submit
+     * @param direction The task direction
+     * @param task The task to run
+     * @return The task with its submission time
+     */
+    RelayTask wrap(Direction direction, Runnable task){
+        return new RelayTask(direction, task, clock.getAsLong(), this);
+    }
+
+    /**
+     * Check if a task waited for too long
+     * @param task The task
+     * @return If the task should be dropped
+     */
+    boolean isExpired(RelayTask task){
+        return policy == SheddingPolicy.DROP_EXPIRED && clock.getAsLong() - task.getSubmittedAt() > maxAgeNanos;
+    }
+
+    /**
+     * Count a dropped task
+     * @param direction The task direction
+     */
+    void countRejected(Direction direction){
+        rejected.get(direction).increment();
+    }
+
+    /**
+     * Get the number of dropped tasks
+     * @param direction The tasks direction
+     * @return The number of dropped tasks
+     */
+    long getRejectedCount(Direction direction){
+        return rejected.get(direction).sum();
+    }
+
+    @Override
+    public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+        RelayTask task = (RelayTask) runnable; //only relay tasks are submitted
+        if(executor.isShutdown()){
+            countRejected(task.getDirection());
+            return;
+        }
+        BlockingQueue<Runnable> queue = executor.getQueue();
+        switch (policy){
+            case DROP_OLDEST -> {
+                Runnable oldest;
+                while(!queue.offer(task)){
+                    oldest = queue.poll();
+                    if(oldest != null) countRejected(((RelayTask) oldest).getDirection());
+                }
+            }
+            case DROP_NEWEST -> countRejected(task.getDirection());
+            case DROP_EXPIRED -> {
+                queue.removeIf(waiting -> {
+                    RelayTask waitingTask = (RelayTask) waiting;
+                    boolean expired = isExpired(waitingTask);
+                    if(expired) countRejected(waitingTask.getDirection());
+                    return expired;
+                });
+                if(!queue.offer(task)) countRejected(task.getDirection());
+            }
+        }
+    }
+}
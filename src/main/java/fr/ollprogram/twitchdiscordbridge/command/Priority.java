@@ -0,0 +1,50 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.command;
+
+/**
+ * The priority classes of the executor commands. Each class has a time budget: the deadline of a command is its submission time
+ * plus the budget of its class, and the waiting commands are run earliest deadline first.
+ * A short budget makes a class run before the commands of the other classes submitted a bit earlier, without starving them.
+ * The relayed messages don't have a class, they run on their own lanes.
+ */
+public enum Priority {
+
+    /**
+     * A discord slash command, its reply was deferred and must be sent while the interaction token is valid
+     */
+    INTERACTION(2_000),
+
+    /**
+     * A command typed on the CLI
+     */
+    ADMIN(10_000);
+
+    private final long budget;
+
+    /**
+     * Constructor
+     * @param budget The time budget in milliseconds
+     */
+    Priority(long budget){
+        this.budget = budget;
+    }
+
+    /**
+     * Get the time budget, between the submission and the deadline
+     * @return The time budget in milliseconds
+     */
+    public long getBudget(){
+        return budget;
+    }
+}
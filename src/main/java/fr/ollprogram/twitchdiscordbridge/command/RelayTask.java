@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.command;
+
+import fr.ollprogram.twitchdiscordbridge.bridge.Direction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A task queued in the executor, with its direction and its submission time for the load shedding
+ */
+final class RelayTask implements Runnable {
+
+    private final Direction direction;
+
+    private final Runnable task;
+
+    private final long submittedAt;
+
+    private final LoadShedder shedder;
+
+    private static final Logger LOG = LoggerFactory.getLogger("Executor");
+
+    /**
+     * Constructor
+     * @param direction The task direction
+     * @param task The task to run
+     * @param submittedAt The submission time in nanoseconds
+     * @param shedder The load shedder, to drop the task if it expired while waiting
+     */
+    RelayTask(Direction direction, Runnable task, long submittedAt, LoadShedder shedder){
+        this.direction = direction;
+        this.task = task;
+        this.submittedAt = submittedAt;
+        this.shedder = shedder;
+    }
+
+    /**
+     * Get the task direction
+     * @return The direction
+     */
+    Direction getDirection(){
+        return direction;
+    }
+
+    /**
+     * Get the submission time
+     * @return The submission time in nanoseconds
+     */
+    long getSubmittedAt(){
+        return submittedAt;
+    }
+
+    @Override
+    public void run() {
+        if(shedder.isExpired(this)){
+            shedder.countRejected(direction);
+            return;
+        }
+        try {
+            task.run();
+        } catch (RuntimeException e){
+            LOG.warn("Task failed : "+e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.command;
+
+/**
+ * What to drop when the task queue of the executor is full
+ */
+public enum SheddingPolicy {
+    /**
+     * Drop the oldest waiting task to accept the new one, the freshest messages are relayed
+     */
+    DROP_OLDEST,
+    /**
+     * Reject the new task, the waiting messages are relayed
+     */
+    DROP_NEWEST,
+    /**
+     * Drop the tasks waiting for longer than a max age, when they are dequeued or when the queue is full
+     * (then the new task is rejected if no task expired)
+     */
+    DROP_EXPIRED
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.command;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Lanes of single thread executors, each one having its own queue.
+ * Tasks submitted with the same key always go to the same lane, so they run in submission order,
+ * while tasks of different keys run in parallel on the other lanes. There is no global lock, only one per lane.
+ */
+final class StripedLanes {
+
+    private final ThreadPoolExecutor[] lanes;
+
+    private final AtomicInteger next;
+
+    /**
+     * Constructor
+     * @param count The number of lanes
+     * @param queueFactory Creates the queue of a lane
+     * @param threadFactory Creates the thread of a lane
+     * @param handler Called when a lane queue is full or the lanes are shut down
+     */
+    StripedLanes(int count, Supplier<BlockingQueue<Runnable>> queueFactory, ThreadFactory threadFactory, RejectedExecutionHandler handler){
+        if(count <= 0) throw new IllegalArgumentException("The number of lanes should be positive");
+        this.lanes = new ThreadPoolExecutor[count];
+        for(int i = 0; i < count; i++){
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, queueFactory.get(), threadFactory, handler);
+        }
+        this.next = new AtomicInteger();
+    }
+
+    /**
+     * Execute a task after the tasks previously submitted with the same key
+     * @param key The ordering key, e.g. the source channel
+     * @param task The task
+     */
+    void execute(long key, Runnable task){
+        lanes[indexOf(key, lanes.length)].execute(task);
+    }
+
+    /**
+     * Execute a task without any ordering, the lanes are used in turn
+     * @param task The task
+     */
+    void execute(Runnable task){
+        lanes[Math.floorMod(next.getAndIncrement(), lanes.length)].execute(task);
+    }
+
+    /**
+     * Get the number of lanes
+     * @return The number of lanes
+     */
+    int size(){
+        return lanes.length;
+    }
+
+    /**
+     * Get the number of tasks waiting in all the lanes
+     * @return The queue depth
+     */
+    int queueDepth(){
+        int depth = 0;
+        for(ThreadPoolExecutor lane : lanes) depth += lane.getQueue().size();
+        return depth;
+    }
+
+    /**
+     * Get the number of lanes running a task
+     * @return The number of active lanes
+     */
+    int activeCount(){
+        int active = 0;
+        for(ThreadPoolExecutor lane : lanes) active += lane.getActiveCount();
+        return active;
+    }
+
+    /**
+     * Stop accepting tasks, the queued tasks are still executed
+     */
+    void shutdown(){
+        for(ThreadPoolExecutor lane : lanes) lane.shutdown();
+    }
+
+    /**
+     * Wait for all the lanes to terminate after a shutdown
+     * @param timeout The maximum time to wait for all the lanes
+     * @param unit The timeout unit
+     * @return If all the lanes terminated before the timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for(ThreadPoolExecutor lane : lanes){
+            if(!lane.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Get the lane of a key, the key bits are mixed so that close keys (e.g. snowflake IDs) are spread
+     * @param key The key
+     * @param count The number of lanes
+     * @return The lane index
+     */
+    static int indexOf(long key, int count){
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return Math.floorMod((int) (mixed ^ (mixed >>> 32)), count);
+    }
+}
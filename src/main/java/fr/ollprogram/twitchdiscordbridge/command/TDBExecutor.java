@@ -12,6 +12,7 @@
 
 package fr.ollprogram.twitchdiscordbridge.command;
 
+import fr.ollprogram.twitchdiscordbridge.bridge.Direction;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
@@ -23,19 +24,75 @@ import java.util.concurrent.CompletableFuture;
 public interface TDBExecutor {
 
     /**
-     * Submit the command to the executor. The command will be executed.
+     * Submit an admin command to the executor. The command will be executed.
      * @param command The command to execute.
      * @param args The arguments needed for the command execution
      * @return The command future.
      */
-    @NotNull CompletableFuture<String> submit(@NotNull Command command, @NotNull List<@NotNull String> args);
+    default @NotNull CompletableFuture<String> submit(@NotNull Command command, @NotNull List<@NotNull String> args) {
+        return submit(command, args, Priority.ADMIN);
+    }
 
+    /**
+     * Submit the command to the executor. The command will be executed, the waiting commands are run by deadline,
+     * the deadline of a command being its submission time plus the budget of its priority class.
+     * If the command isn't done after its timeout, it is cancelled and the future completes with a TimeoutException.
+     * @param command The command to execute.
+     * @param args The arguments needed for the command execution
+     * @param priority The command priority class, INTERACTION or ADMIN
+     * @return The command future.
+     */
+    @NotNull CompletableFuture<String> submit(@NotNull Command command, @NotNull List<@NotNull String> args, @NotNull Priority priority);
+
+
+    /**
+     * Submit the task to the executor. The task will be executed, unless it is shed because of the load.
+     * @param task The runnable to execute.
+     */
+    default void submit(@NotNull Runnable task) {
+        submit(Direction.INTERNAL, task);
+    }
+
+    /**
+     * Submit a task going through the bridge, on the relay lanes. The task will be executed, unless it is shed because of the load.
+     * @param direction The task direction
+     * @param task The runnable to execute.
+     */
+    void submit(@NotNull Direction direction, @NotNull Runnable task);
 
     /**
-     * Submit the task to the executor. The task will be executed.
+     * Submit a task going through the bridge, on the relay lanes, after the tasks previously submitted with the same key.
+     * Tasks with different keys can run in parallel. The task will be executed, unless it is shed because of the load.
+     * @param direction The task direction
+     * @param key The ordering key, e.g. the source channel
      * @param task The runnable to execute.
      */
-    void submit(@NotNull Runnable task);
+    void submit(@NotNull Direction direction, long key, @NotNull Runnable task);
+
+    /**
+     * Get the number of tasks dropped by the load shedding
+     * @param direction The tasks direction
+     * @return The number of dropped tasks
+     */
+    long getRejectedCount(@NotNull Direction direction);
+
+    /**
+     * Get the number of commands cancelled after their timeout
+     * @return The number of timed out commands
+     */
+    long getTimedOutCount();
+
+    /**
+     * Get the number of tasks waiting to be run, commands excluded
+     * @return The queue depth
+     */
+    int getQueueDepth();
+
+    /**
+     * Get the number of tasks being run, commands excluded
+     * @return The number of active tasks
+     */
+    int getActiveCount();
 
     /**
      * Shutdown the executor and delete all the pending command to execute. The executor can't receive any other commands after this call.
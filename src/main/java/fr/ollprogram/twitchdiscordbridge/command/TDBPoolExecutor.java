@@ -9,50 +9,145 @@
  * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
  * If not, see https://www.gnu.org/licenses.
  */
-
 package fr.ollprogram.twitchdiscordbridge.command;
 
+import fr.ollprogram.twitchdiscordbridge.bridge.Direction;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Implementation of the Command executor, using a ScheduledThreadPoolExecutor.
+ * Implementation of the Command executor, using thread pools.
+ * Tasks are run on lanes of one thread: the tasks sharing a key go to the same lane and keep their order.
+ * The lane queues are bounded: when one is full, tasks are shed following a shedding policy, so a burst of messages can't
+ * make the heap grow without limit.
+ * Commands are run on their own pool, the waiting ones by priority deadline, so a slash command goes before the CLI commands.
  */
 public class TDBPoolExecutor implements TDBExecutor {
-    private final ExecutorService taskPool;
+
+    /**
+     * The default maximum number of waiting tasks, for all the lanes
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 1000;
+
+    /**
+     * The default max age of a waiting task in milliseconds, for the DROP_EXPIRED policy
+     */
+    public static final long DEFAULT_MAX_AGE = 10_000;
+
+    private final StripedLanes taskLanes;
 
     private final ExecutorService commandPool;
 
+    private final AtomicLong commandSequence;
+
+    private final CommandTimeouts timeouts;
+
+    private final LoadShedder shedder;
+
     /**
-     * Constructor
+     * Constructor, using the default queue size and dropping the oldest tasks
      * @param commandPoolSize The size for the thread pool dedicated to commands
      * @param taskPoolSize The size for the thread pool dedicated to all the other tasks of TwitchDiscordBridge
      */
     public TDBPoolExecutor(int commandPoolSize, int taskPoolSize) {
-        this.commandPool = Executors.newFixedThreadPool(commandPoolSize);
-        this.taskPool = Executors.newFixedThreadPool(taskPoolSize);
+        this(commandPoolSize, taskPoolSize, DEFAULT_QUEUE_SIZE, SheddingPolicy.DROP_OLDEST, DEFAULT_MAX_AGE);
+    }
+
+    /**
+     * Constructor
+     * @param commandPoolSize The size for the thread pool dedicated to commands
+     * @param taskPoolSize The size for the thread pool dedicated to all the other tasks of TwitchDiscordBridge, one thread per lane
+     * @param queueSize The maximum number of waiting tasks, split between the lanes
+     * @param policy The shedding policy, when the queue is full
+     * @param maxAge The max age of a waiting task in milliseconds, for the DROP_EXPIRED policy
+     */
+    public TDBPoolExecutor(int commandPoolSize, int taskPoolSize, int queueSize, @NotNull SheddingPolicy policy, long maxAge) {
+        if(commandPoolSize <= 0) throw new IllegalArgumentException("The commandPoolSize should be positive, got "+commandPoolSize);
+        if(taskPoolSize <= 0) throw new IllegalArgumentException("The taskPoolSize should be positive, got "+taskPoolSize);
+        // a waiting command is a CommandTask, the queue runs the earliest deadline first
+        this.commandPool = new ThreadPoolExecutor(commandPoolSize, commandPoolSize, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>());
+        this.commandSequence = new AtomicLong();
+        this.timeouts = new CommandTimeouts();
+        this.shedder = new LoadShedder(policy, TimeUnit.MILLISECONDS.toNanos(maxAge), System::nanoTime);
+        int laneQueueSize = Math.max(1, queueSize / taskPoolSize);
+        this.taskLanes = new StripedLanes(taskPoolSize, () -> new ArrayBlockingQueue<>(laneQueueSize),
+                Executors.defaultThreadFactory(), shedder);
+    }
+
+    /**
+     * Get the command pool size for a number of processors, only 20% of them: this is not the most demanded task
+     * @param processors The number of available processors
+     * @return The command pool size, at least 1
+     */
+    public static int commandPoolSize(int processors) {
+        return Math.max(1, (int) (processors * 0.2));
+    }
+
+    /**
+     * Get the task pool size for a number of processors, the ones left by the command pool times the IDLE time over the
+     * real calculation time (an approximation in ms, the twitch rate limit may be the bottleneck anyway)
+     * @param processors The number of available processors
+     * @return The task pool size, at least 1 even if the command pool takes the only processor
+     */
+    public static int taskPoolSize(int processors) {
+        return Math.max(1, (processors - commandPoolSize(processors)) * (1 + (500 / 150)));
+    }
+
+    @Override
+    public @NotNull CompletableFuture<String> submit(@NotNull Command command, @NotNull List<@NotNull String> args,
+                                                     @NotNull Priority priority) {
+        CommandTask task = new CommandTask(command.getExecution(args), priority, System.nanoTime(), commandSequence.getAndIncrement());
+        timeouts.watch(task, command.getTimeout());
+        commandPool.execute(task);
+        return task.getFuture();
+    }
+
+    @Override
+    public void submit(@NotNull Direction direction, @NotNull Runnable task) {
+        taskLanes.execute(shedder.wrap(direction, task));
+    }
+
+    @Override
+    public void submit(@NotNull Direction direction, long key, @NotNull Runnable task) {
+        taskLanes.execute(key, shedder.wrap(direction, task));
+    }
+
+    @Override
+    public long getRejectedCount(@NotNull Direction direction) {
+        return shedder.getRejectedCount(direction);
+    }
+
+    @Override
+    public long getTimedOutCount() {
+        return timeouts.getTimedOutCount();
     }
 
     @Override
-    public @NotNull CompletableFuture<String> submit(@NotNull Command command, @NotNull List<@NotNull String> args) {
-        return CompletableFuture.supplyAsync(command.getExecution(args), commandPool);
+    public int getQueueDepth() {
+        return taskLanes.queueDepth();
     }
 
     @Override
-    public void submit(@NotNull Runnable task) {
-        taskPool.submit(task);
+    public int getActiveCount() {
+        return taskLanes.activeCount();
     }
 
     @Override
     public boolean shutdown() throws InterruptedException {
-        taskPool.shutdown();
+        taskLanes.shutdown();
         commandPool.shutdown();
-        return commandPool.awaitTermination(5, TimeUnit.SECONDS) && taskPool.awaitTermination(5, TimeUnit.SECONDS);
+        timeouts.shutdown();
+        return commandPool.awaitTermination(5, TimeUnit.SECONDS) && taskLanes.awaitTermination(5, TimeUnit.SECONDS);
     }
 
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.command;
+
+import fr.ollprogram.twitchdiscordbridge.bridge.Direction;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Implementation of the Command executor, running every task and command on its own virtual thread.
+ * The relay work is mostly blocking I/O (discord and twitch requests), a blocked virtual thread doesn't hold a platform thread,
+ * so no pool has to be sized. Tasks sharing a key are run in order on lanes of one virtual thread.
+ * The number of running tasks is bounded: above, the new tasks are shed.
+ */
+public class TDBVirtualExecutor implements TDBExecutor {
+
+    private static final int KEYED_LANES = 256;
+
+    private final ExecutorService executor;
+
+    private final StripedLanes keyedLanes;
+
+    private final Semaphore permits;
+
+    private final int maxRunningTasks;
+
+    private final LoadShedder shedder;
+
+    private final CommandTimeouts timeouts;
+
+    /**
+     * Constructor, using the default limit of running tasks
+     */
+    public TDBVirtualExecutor() {
+        this(TDBPoolExecutor.DEFAULT_QUEUE_SIZE);
+    }
+
+    /**
+     * Constructor
+     * @param maxRunningTasks The maximum number of running or waiting tasks, commands are not limited
+     */
+    public TDBVirtualExecutor(int maxRunningTasks) {
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("tdb-", 0).factory());
+        this.keyedLanes = new StripedLanes(KEYED_LANES, LinkedBlockingQueue::new,
+                Thread.ofVirtual().name("tdb-lane-", 0).factory(), new ThreadPoolExecutor.AbortPolicy());
+        this.permits = new Semaphore(maxRunningTasks);
+        this.maxRunningTasks = maxRunningTasks;
+        this.shedder = new LoadShedder(SheddingPolicy.DROP_NEWEST, 0, System::nanoTime); //tasks never wait, they can't expire
+        this.timeouts = new CommandTimeouts();
+    }
+
+    @Override
+    public @NotNull CompletableFuture<String> submit(@NotNull Command command, @NotNull List<@NotNull String> args,
+                                                     @NotNull Priority priority) { //commands start at once, they never wait
+        CommandTask task = new CommandTask(command.getExecution(args), priority, System.nanoTime(), 0);
+        timeouts.watch(task, command.getTimeout());
+        executor.execute(task);
+        return task.getFuture();
+    }
+
+    @Override
+    public void submit(@NotNull Direction direction, @NotNull Runnable task) {
+        admit(direction, task, executor::execute);
+    }
+
+    @Override
+    public void submit(@NotNull Direction direction, long key, @NotNull Runnable task) {
+        admit(direction, task, admitted -> keyedLanes.execute(key, admitted));
+    }
+
+    /**
+     * Execute a task if the limit of running tasks isn't reached, otherwise shed it
+     * @param direction The task direction
+     * @param task The task
+     * @param target Where the admitted task is executed
+     */
+    private void admit(Direction direction, Runnable task, Consumer<Runnable> target){
+        if(!permits.tryAcquire()){
+            shedder.countRejected(direction);
+            return;
+        }
+        RelayTask relayTask = shedder.wrap(direction, task);
+        try {
+            target.accept(() -> {
+                try {
+                    relayTask.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e){ //shutdown
+            permits.release();
+            shedder.countRejected(direction);
+        }
+    }
+
+    @Override
+    public long getRejectedCount(@NotNull Direction direction) {
+        return shedder.getRejectedCount(direction);
+    }
+
+    @Override
+    public long getTimedOutCount() {
+        return timeouts.getTimedOutCount();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return keyedLanes.queueDepth(); //the unordered tasks start at once
+    }
+
+    @Override
+    public int getActiveCount() {
+        return Math.max(0, maxRunningTasks - permits.availablePermits() - keyedLanes.queueDepth());
+    }
+
+    @Override
+    public boolean shutdown() throws InterruptedException {
+        keyedLanes.shutdown();
+        executor.shutdown();
+        timeouts.shutdown();
+        return executor.awaitTermination(5, TimeUnit.SECONDS) && keyedLanes.awaitTermination(5, TimeUnit.SECONDS);
+    }
+}
@@ -11,15 +11,19 @@
  */
 package fr.ollprogram.twitchdiscordbridge.configuration;
 
+import fr.ollprogram.twitchdiscordbridge.model.Route;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
+
 /**
- * The Bridge configuration contains 4 information :
+ * The Bridge configuration contains 5 information :
  * <ul>
  *     <li>The name of the twitch channel target (mutable) </li>
  *     <li>The id of the discord channel target (mutable) </li>
  *     <li>The discord token for the bot (immutable)</li>
  *     <li>The twitch token for the bot (immutable)</li>
+ *     <li>The additional routes, other pairs of channels to bridge (mutable, optional)</li>
  * </ul>
  * This configuration can be saved or read from other files easily.
  * This configuration contains all information needed for the two bots (twitch, discord) to run properly.
@@ -62,5 +66,17 @@ public interface BridgeConfig {
      */
     void changeTwitchChannelName(@NotNull String name);
 
+    /**
+     * Get the additional routes. The main route is made of the twitch channel name and the discord channel ID.
+     * @return The additional routes
+     */
+    @NotNull List<@NotNull Route> getAdditionalRoutes();
+
+    /**
+     * Change the additional routes
+     * @param routes The new additional routes
+     */
+    void changeAdditionalRoutes(@NotNull List<@NotNull Route> routes);
+
 }
 
@@ -11,8 +11,11 @@
  */
 package fr.ollprogram.twitchdiscordbridge.configuration;
 
+import fr.ollprogram.twitchdiscordbridge.model.Route;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
+
 /**
  * A simple implementation for a BridgeConfig
  */
@@ -24,19 +27,36 @@ public class BridgeConfigImpl implements BridgeConfig {
     private String discordChannelID;
     private String twitchChannelName;
 
+    private List<Route> additionalRoutes;
+
     /**
      * Constructor
      * @param twitchChannelName The twitch channel name
      * @param discordChannelID The discord Channel ID
      * @param twitchToken The twitch bot token
      * @param discordToken The discord bot token
+     * @param additionalRoutes The additional routes
      */
     public BridgeConfigImpl(@NotNull String twitchChannelName, @NotNull String discordChannelID,
-                            @NotNull String twitchToken, @NotNull String discordToken) throws IllegalArgumentException {
+                            @NotNull String twitchToken, @NotNull String discordToken,
+                            @NotNull List<@NotNull Route> additionalRoutes) throws IllegalArgumentException {
         this.twitchToken = twitchToken;
         this.discordToken = discordToken;
         this.discordChannelID = discordChannelID;
         this.twitchChannelName = twitchChannelName;
+        this.additionalRoutes = List.copyOf(additionalRoutes);
+    }
+
+    /**
+     * Constructor without additional routes
+     * @param twitchChannelName The twitch channel name
+     * @param discordChannelID The discord Channel ID
+     * @param twitchToken The twitch bot token
+     * @param discordToken The discord bot token
+     */
+    public BridgeConfigImpl(@NotNull String twitchChannelName, @NotNull String discordChannelID,
+                            @NotNull String twitchToken, @NotNull String discordToken) throws IllegalArgumentException {
+        this(twitchChannelName, discordChannelID, twitchToken, discordToken, List.of());
     }
 
     @Override
@@ -69,6 +89,16 @@ public class BridgeConfigImpl implements BridgeConfig {
         twitchChannelName = name;
     }
 
+    @Override
+    public @NotNull List<@NotNull Route> getAdditionalRoutes() {
+        return additionalRoutes;
+    }
+
+    @Override
+    public void changeAdditionalRoutes(@NotNull List<@NotNull Route> routes) {
+        additionalRoutes = List.copyOf(routes);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -77,6 +107,7 @@ public class BridgeConfigImpl implements BridgeConfig {
         if (!getTwitchToken().equals(that.getTwitchToken())) return false;
         if (!getDiscordToken().equals(that.getDiscordToken())) return false;
         if (!getDiscordChannelID().equals(that.getDiscordChannelID())) return false;
+        if (!getAdditionalRoutes().equals(that.getAdditionalRoutes())) return false;
         return getTwitchChannelName().equals(that.getTwitchChannelName());
     }
 }
@@ -0,0 +1,221 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.configuration;
+
+import fr.ollprogram.twitchdiscordbridge.command.SheddingPolicy;
+import fr.ollprogram.twitchdiscordbridge.command.TDBPoolExecutor;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Advanced settings of the bridge, for tuning only. Unlike the bridge configuration, they are not asked to the user:
+ * they are read from the JVM system properties (e.g. -Dtdb.twitch.rate.limit=100) and have sensible defaults.
+ */
+public final class BridgeSettings {
+
+    private static final String PREFIX = "tdb.";
+
+    /**
+     * Can't be instantiated
+     */
+    private BridgeSettings(){
+        throw new UnsupportedOperationException("Bridge settings can't be instantiated");
+    }
+
+    /**
+     * Get the number of messages the twitch bot can send per rate period (20 for a regular account)
+     * @return The twitch rate limit
+     */
+    public static int getTwitchRateLimit(){
+        return getPositiveInt("twitch.rate.limit", 20);
+    }
+
+    /**
+     * Get the twitch rate period in milliseconds
+     * @return The twitch rate period
+     */
+    public static int getTwitchRatePeriod(){
+        return getPositiveInt("twitch.rate.period", 30_000);
+    }
+
+    /**
+     * Get the maximum number of lines waiting to be sent to a twitch channel, the oldest are dropped above
+     * @return The twitch queue size per channel
+     */
+    public static int getTwitchQueueSize(){
+        return getPositiveInt("twitch.queue.size", 200);
+    }
+
+    /**
+     * Get the discord batch window in milliseconds, lines sent to a busy discord channel during this window are sent together
+     * @return The discord batch window
+     */
+    public static int getDiscordBatchWindow(){
+        return getPositiveInt("discord.batch.window", 1000);
+    }
+
+    /**
+     * Check if the messages to discord are posted through channel webhooks instead of the bot messages
+     * @return If the webhooks are used
+     */
+    public static boolean isDiscordWebhookEnabled(){
+        return "webhook".equalsIgnoreCase(System.getProperty(PREFIX + "discord.sink"));
+    }
+
+    /**
+     * Check if the tasks and commands are run on virtual threads instead of the thread pools
+     * @return If the virtual threads are used
+     */
+    public static boolean isVirtualExecutorEnabled(){
+        return "virtual".equalsIgnoreCase(System.getProperty(PREFIX + "executor"));
+    }
+
+    /**
+     * Get the maximum number of tasks waiting for a thread, tasks are shed above
+     * @return The executor queue size
+     */
+    public static int getExecutorQueueSize(){
+        return getPositiveInt("executor.queue.size", TDBPoolExecutor.DEFAULT_QUEUE_SIZE);
+    }
+
+    /**
+     * Get what to drop when the executor queue is full
+     * @return The shedding policy, DROP_OLDEST if absent or invalid
+     */
+    public static @NotNull SheddingPolicy getSheddingPolicy(){
+        String value = System.getProperty(PREFIX + "executor.shedding");
+        if(value == null) return SheddingPolicy.DROP_OLDEST;
+        try {
+            return SheddingPolicy.valueOf(value.toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e){
+            return SheddingPolicy.DROP_OLDEST;
+        }
+    }
+
+    /**
+     * Get the max age of a waiting task in milliseconds, for the drop_expired shedding policy
+     * @return The max age
+     */
+    public static int getExecutorMaxAge(){
+        return getPositiveInt("executor.max.age", (int) TDBPoolExecutor.DEFAULT_MAX_AGE);
+    }
+
+    /**
+     * Get the domains whose links are relayed instead of being replaced, their subdomains are allowed too
+     * @return The allowed domains in lower case, empty by default
+     */
+    public static @NotNull Set<@NotNull String> getUrlAllowlist(){
+        String value = System.getProperty(PREFIX + "url.allowlist");
+        if(value == null) return Set.of();
+        Set<String> domains = new HashSet<>();
+        for(String domain : value.split(",")){
+            String trimmed = domain.trim().toLowerCase(Locale.ROOT);
+            if(!trimmed.isEmpty()) domains.add(trimmed);
+        }
+        return Set.copyOf(domains);
+    }
+
+    /**
+     * Get the delay in milliseconds between a configuration change and its save, the changes done meanwhile are saved together
+     * @return The configuration save delay
+     */
+    public static int getConfigSaveDelay(){
+        return getPositiveInt("config.save.delay", 500);
+    }
+
+    /**
+     * Get the local port of the metrics endpoint
+     * @return The metrics port, 0 if the metrics are not served (default)
+     */
+    public static int getMetricsPort(){
+        return getPositiveInt("metrics.port", 0);
+    }
+
+    /**
+     * Get the p99 relay latency budget in milliseconds, a warning is logged when it is exceeded
+     * @return The latency budget
+     */
+    public static int getLatencyBudget(){
+        return getPositiveInt("latency.budget", 5000);
+    }
+
+    /**
+     * Get the time in milliseconds a relayed message is remembered, the same message coming back meanwhile is an echo and not relayed
+     * @return The echo window
+     */
+    public static int getEchoWindow(){
+        return getPositiveInt("echo.window", 30_000);
+    }
+
+    /**
+     * Get the number of messages a chat user can send per flood period, the others are not relayed
+     * @return The flood limit
+     */
+    public static int getFloodLimit(){
+        return getPositiveInt("flood.limit", 5);
+    }
+
+    /**
+     * Get the flood period in milliseconds
+     * @return The flood period
+     */
+    public static int getFloodPeriod(){
+        return getPositiveInt("flood.period", 10_000);
+    }
+
+    /**
+     * Check if the outgoing messages are written to the outbox journal, to be sent again after a failure or a restart
+     * @return If the outbox journal is used (default)
+     */
+    public static boolean isOutboxEnabled(){
+        return !"off".equalsIgnoreCase(System.getProperty(PREFIX + "outbox"));
+    }
+
+    /**
+     * Get the path of the outbox journal file
+     * @return The outbox journal path
+     */
+    public static @NotNull String getOutboxPath(){
+        return System.getProperty(PREFIX + "outbox.path", "outbox.journal");
+    }
+
+    /**
+     * Get the max age in milliseconds of a message waiting in the outbox journal, older ones are not sent again
+     * @return The outbox max age
+     */
+    public static int getOutboxMaxAge(){
+        return getPositiveInt("outbox.max.age", 600_000);
+    }
+
+    /**
+     * Check if the commands of the guilds recorded as synced are retrieved at startup, to sync again those deleted outside the bridge
+     * @return If the recorded guilds are verified, false by default: they are trusted and skipped
+     */
+    public static boolean isDiscordCommandVerifyEnabled(){
+        return Boolean.getBoolean(PREFIX + "discord.commands.verify");
+    }
+
+    /**
+     * Get a positive integer setting
+     * @param name The setting name, without prefix
+     * @param defaultValue The value used if the setting is absent or invalid
+     * @return The setting value
+     */
+    private static int getPositiveInt(String name, int defaultValue){
+        Integer value = Integer.getInteger(PREFIX + name);
+        return (value == null || value <= 0) ? defaultValue : value;
+    }
+}
@@ -12,9 +12,12 @@
 package fr.ollprogram.twitchdiscordbridge.configuration.build;
 
 import fr.ollprogram.twitchdiscordbridge.configuration.BridgeConfig;
+import fr.ollprogram.twitchdiscordbridge.model.Route;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
+
 /**
  * A builder for a configuration which allows you to put null values and or wrong values and change them before building
  * a concrete half immutable configuration.
@@ -50,6 +53,13 @@ public interface ConfigBuilder {
      */
     @NotNull ConfigBuilder setTwitchChannelName(String name);
 
+    /**
+     * Set the additional routes (optional, empty by default)
+     * @param routes The additional routes
+     * @return this
+     */
+    @NotNull ConfigBuilder setAdditionalRoutes(@NotNull List<@NotNull Route> routes);
+
     /**
      * Get the twitch channel name
      * @return The twitch channel name, or null if not already provided
@@ -74,6 +84,12 @@ public interface ConfigBuilder {
      */
     @Nullable String getDiscordChannelID();
 
+    /**
+     * Get the additional routes
+     * @return The additional routes, empty if not provided
+     */
+    @NotNull List<@NotNull Route> getAdditionalRoutes();
+
     /**
      * Check if all fields are all set to a non-null value.
      * @return If all fields are all set to a non-null value.
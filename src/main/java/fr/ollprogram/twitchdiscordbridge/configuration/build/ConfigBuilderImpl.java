@@ -14,9 +14,12 @@ package fr.ollprogram.twitchdiscordbridge.configuration.build;
 import fr.ollprogram.twitchdiscordbridge.configuration.BridgeConfig;
 import fr.ollprogram.twitchdiscordbridge.configuration.BridgeConfigImpl;
 import fr.ollprogram.twitchdiscordbridge.exception.IncompleteConfigurationException;
+import fr.ollprogram.twitchdiscordbridge.model.Route;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
+
 /**
  * Implementation of a configuration builder
  */
@@ -29,6 +32,8 @@ public class ConfigBuilderImpl implements ConfigBuilder {
 
     private String twitchChannelName;
 
+    private List<Route> additionalRoutes = List.of();
+
     /**
      * Constructor
      */
@@ -43,7 +48,8 @@ public class ConfigBuilderImpl implements ConfigBuilder {
         this.setDiscordChannelID(config.getDiscordChannelID())
                 .setDiscordToken(config.getDiscordToken())
                 .setTwitchChannelName(config.getTwitchChannelName())
-                .setTwitchToken(config.getTwitchToken());
+                .setTwitchToken(config.getTwitchToken())
+                .setAdditionalRoutes(config.getAdditionalRoutes());
     }
 
     @Override
@@ -70,6 +76,12 @@ public class ConfigBuilderImpl implements ConfigBuilder {
         return this;
     }
 
+    @Override
+    public @NotNull ConfigBuilder setAdditionalRoutes(@NotNull List<@NotNull Route> routes) {
+        this.additionalRoutes = List.copyOf(routes);
+        return this;
+    }
+
     @Override
     public boolean isComplete() {
         return twitchChannelName != null && discordChannelID != null && discordToken != null && twitchToken != null;
@@ -77,7 +89,7 @@ public class ConfigBuilderImpl implements ConfigBuilder {
 
     @Override
     public @NotNull BridgeConfig build() {
-        if(isComplete()) return new BridgeConfigImpl(twitchChannelName, discordChannelID, twitchToken, discordToken);
+        if(isComplete()) return new BridgeConfigImpl(twitchChannelName, discordChannelID, twitchToken, discordToken, additionalRoutes);
         else throw new IncompleteConfigurationException("Incomplete number of fields, unable to build");
     }
 
@@ -104,4 +116,10 @@ public class ConfigBuilderImpl implements ConfigBuilder {
     public String getTwitchChannelName() {
         return twitchChannelName;
     }
+
+    @NotNull
+    @Override
+    public List<@NotNull Route> getAdditionalRoutes() {
+        return additionalRoutes;
+    }
 }
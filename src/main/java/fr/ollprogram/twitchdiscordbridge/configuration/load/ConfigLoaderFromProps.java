@@ -12,11 +12,17 @@
 package fr.ollprogram.twitchdiscordbridge.configuration.load;
 
 import fr.ollprogram.twitchdiscordbridge.configuration.build.ConfigBuilder;
+import fr.ollprogram.twitchdiscordbridge.model.Route;
 import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.Properties;
 
 /**
@@ -26,6 +32,12 @@ public class ConfigLoaderFromProps implements ConfigLoader {
 
     private static final String PROPERTIES = ".properties";
 
+    private static final String ROUTES_SEPARATOR = ",";
+
+    private static final String ROUTE_CHANNELS_SEPARATOR = ":";
+
+    private static final Logger LOG = LoggerFactory.getLogger("ConfigLoader");
+
     private final Properties props;
 
     private final ConfigBuilder builder;
@@ -46,7 +58,42 @@ public class ConfigLoaderFromProps implements ConfigLoader {
         builder.setTwitchChannelName(props.getProperty("TwitchChannelName"))
                 .setTwitchToken(props.getProperty("TwitchToken"))
                 .setDiscordToken(props.getProperty("DiscordToken"))
-                .setDiscordChannelID(props.getProperty("DiscordChannelID"));
+                .setDiscordChannelID(props.getProperty("DiscordChannelID"))
+                .setAdditionalRoutes(parseRoutes(props.getProperty("AdditionalRoutes", "")));
+    }
+
+    /**
+     * Parse the additional routes, written as "discordChannelID:twitchChannelName" and separated by commas.
+     * Malformed routes are ignored.
+     * @param value The property value
+     * @return The parsed routes
+     */
+    private List<Route> parseRoutes(String value){
+        List<Route> routes = new ArrayList<>();
+        for(String entry : value.split(ROUTES_SEPARATOR)){
+            if(entry.isBlank()) continue;
+            String[] channels = entry.strip().split(ROUTE_CHANNELS_SEPARATOR);
+            Optional<Long> discordChannelID = channels.length == 2 ? parseChannelID(channels[0].strip()) : Optional.empty();
+            if(discordChannelID.isEmpty() || channels[1].isBlank()){
+                LOG.warn("Ignoring the malformed route ["+entry+"]");
+                continue;
+            }
+            routes.add(new Route(discordChannelID.get(), channels[1].strip()));
+        }
+        return routes;
+    }
+
+    /**
+     * Parse a discord channel ID
+     * @param value The channel ID string
+     * @return The channel ID, empty if it's not a number
+     */
+    private static Optional<Long> parseChannelID(String value){
+        try {
+            return Optional.of(Long.parseLong(value));
+        } catch (NumberFormatException e){
+            return Optional.empty();
+        }
     }
 
     @Override
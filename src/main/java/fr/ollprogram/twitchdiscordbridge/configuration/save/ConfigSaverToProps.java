@@ -14,13 +14,20 @@ package fr.ollprogram.twitchdiscordbridge.configuration.save;
 import fr.ollprogram.twitchdiscordbridge.configuration.BridgeConfig;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Properties;
+import java.util.stream.Collectors;
 
 /**
  * Implementation of a ConfigToFile which saves into properties files.
+ * The file is written next to the previous one then renamed, so a crash during the save can't corrupt it.
  */
 public class ConfigSaverToProps implements ConfigSaver {
 
@@ -28,6 +35,12 @@ public class ConfigSaverToProps implements ConfigSaver {
 
     private static final String PROPERTIES = ".properties";
 
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final String ROUTES_SEPARATOR = ",";
+
+    private static final String ROUTE_CHANNELS_SEPARATOR = ":";
+
     /**
      * Constrictor
      * @param config The config to save
@@ -44,13 +57,38 @@ public class ConfigSaverToProps implements ConfigSaver {
         props.put("DiscordToken", config.getDiscordToken());
         props.put("TwitchChannelName", config.getTwitchChannelName());
         props.put("DiscordChannelID", config.getDiscordChannelID());
-        Writer w = new FileWriter(pathname);
-        props.store(w, "You can edit this file if you wish");
-        w.close();
+        props.put("AdditionalRoutes", formatRoutes(config));
+        Path target = Path.of(pathname).toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), TEMP_SUFFIX);
+        try {
+            try(FileOutputStream out = new FileOutputStream(temp.toFile()); Writer w = new OutputStreamWriter(out)) {
+                props.store(w, "You can edit this file if you wish");
+                w.flush();
+                out.getFD().sync(); //on the disk before replacing the previous file
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e){
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
     }
 
     @Override
     public void save() throws IOException {
         this.save(DEFAULT_FILE_NAME + PROPERTIES);
     }
+
+    /**
+     * Format the additional routes as "discordChannelID:twitchChannelName" separated by commas
+     * @param config The config to save
+     * @return The formatted routes
+     */
+    private static String formatRoutes(BridgeConfig config){
+        return config.getAdditionalRoutes().stream()
+                .map(route -> route.discordChannelID() + ROUTE_CHANNELS_SEPARATOR + route.twitchChannelName())
+                .collect(Collectors.joining(ROUTES_SEPARATOR));
+    }
 }
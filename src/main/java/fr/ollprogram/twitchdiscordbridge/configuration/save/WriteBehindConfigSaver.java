@@ -0,0 +1,129 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.configuration.save;
+
+import fr.ollprogram.twitchdiscordbridge.configuration.BridgeConfig;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Saves the configuration on a background thread, a while after it changed.
+ * The changes requested during this delay are saved together, only the last configuration is written.
+ * This class is thread safe.
+ */
+public class WriteBehindConfigSaver {
+
+    private static final Logger LOG = LoggerFactory.getLogger("ConfigSaver");
+
+    private final Function<BridgeConfig, ConfigSaver> saverFactory;
+
+    private final long delayNanos;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicReference<BridgeConfig> pending;
+
+    private final AtomicLong writes;
+
+    /**
+     * Constructor, saving to the default properties file
+     * @param delay The delay between the first change and the write
+     * @param unit The delay unit
+     */
+    public WriteBehindConfigSaver(long delay, @NotNull TimeUnit unit) {
+        this(ConfigSaverToProps::new, delay, unit);
+    }
+
+    /**
+     * Constructor
+     * @param saverFactory Creates the saver writing a configuration to its default location
+     * @param delay The delay between the first change and the write
+     * @param unit The delay unit
+     */
+    public WriteBehindConfigSaver(@NotNull Function<BridgeConfig, ConfigSaver> saverFactory, long delay, @NotNull TimeUnit unit) {
+        this.saverFactory = saverFactory;
+        this.delayNanos = unit.toNanos(delay);
+        this.pending = new AtomicReference<>();
+        this.writes = new AtomicLong();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "config-saver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Ask to save a configuration, without blocking
+     * @param config The configuration, it must not be modified afterward (a copy)
+     */
+    public void requestSave(@NotNull BridgeConfig config) {
+        if(pending.getAndSet(config) == null) { //the first change of the burst schedules the write
+            scheduler.schedule(this::writePending, delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Write the pending configuration now and wait for the write
+     * @throws InterruptedException if an interruption error occurs
+     */
+    public void flush() throws InterruptedException {
+        try {
+            scheduler.submit(this::writePending).get();
+        } catch (ExecutionException e) {
+            LOG.warn("Configuration can't be saved : "+e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Write the pending configuration and stop the background thread
+     * @throws InterruptedException if an interruption error occurs
+     */
+    public void shutdown() throws InterruptedException {
+        flush();
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Get the number of configuration files written
+     * @return The number of writes
+     */
+    public long getWriteCount() {
+        return writes.get();
+    }
+
+    /**
+     * Write the pending configuration if any, on the background thread
+     */
+    private void writePending() {
+        BridgeConfig config = pending.getAndSet(null);
+        if(config == null) return; //already written by a flush
+        LOG.info("Saving configuration");
+        try {
+            saverFactory.apply(config).save();
+            writes.incrementAndGet();
+            LOG.info("Configuration saved");
+        } catch (IOException e) {
+            LOG.warn("Configuration can't be saved : "+e.getMessage());
+        }
+    }
+}
@@ -14,10 +14,9 @@ package fr.ollprogram.twitchdiscordbridge.configuration.validate;
 
 import fr.ollprogram.twitchdiscordbridge.configuration.BridgeConfig;
 import fr.ollprogram.twitchdiscordbridge.configuration.build.ConfigBuilder;
+import fr.ollprogram.twitchdiscordbridge.exception.ServiceDisconnectedException;
 import fr.ollprogram.twitchdiscordbridge.exception.ServiceException;
-import fr.ollprogram.twitchdiscordbridge.model.DiscordBotInfo;
-import fr.ollprogram.twitchdiscordbridge.model.DiscordChannelInfo;
-import fr.ollprogram.twitchdiscordbridge.model.TwitchBotInfo;
+import fr.ollprogram.twitchdiscordbridge.model.Route;
 import fr.ollprogram.twitchdiscordbridge.model.TwitchChannelInfo;
 import fr.ollprogram.twitchdiscordbridge.service.DiscordService;
 import fr.ollprogram.twitchdiscordbridge.service.DiscordServiceImpl;
@@ -26,10 +25,16 @@ import fr.ollprogram.twitchdiscordbridge.service.TwitchServiceImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 /**
- * The bridge configuration validator implementation
+ * The bridge configuration validator implementation.
+ * The discord checks and the twitch checks are run concurrently, each chain checks the token then the channel.
  */
 public class ConfigValidatorImpl implements ConfigValidator {
 
@@ -71,76 +76,125 @@ public class ConfigValidatorImpl implements ConfigValidator {
 
     @Override
     public boolean isValid() {
+        long start = System.nanoTime();
+        CompletableFuture<Boolean> discord = checkDiscord();
+        CompletableFuture<Boolean> twitch = checkTwitch(); //both chains run at the same time
         try {
-            return isValidDiscordToken() && isValidDiscordChannelID() && isValidTwitchToken() && isValidTwitchChannelName();
-        } catch(ServiceException e){
-            LOG.error("An error occurs during validation : "+e.getMessage());
+            boolean valid = discord.thenCombine(twitch, (validDiscord, validTwitch) -> validDiscord && validTwitch).join();
+            LOG.info("Configuration checked in "+elapsedMillis(start)+" ms");
+            return valid;
+        } catch(CompletionException e){
+            Throwable cause = (e.getCause() == null) ? e : e.getCause();
+            if(!(cause instanceof ServiceException) && !(cause instanceof ServiceDisconnectedException)) throw e;
+            LOG.error("An error occurs during validation : "+cause.getMessage());
             System.exit(1);
         }
         return false;
     }
 
+    /**
+     * Check the discord token then the discord channel
+     * @return If both are valid
+     */
+    private CompletableFuture<Boolean> checkDiscord(){
+        return isValidDiscordToken().thenCompose(valid -> valid ? isValidDiscordChannelID() : CompletableFuture.completedFuture(false));
+    }
+
+    /**
+     * Check the twitch token then the twitch channel
+     * @return If both are valid
+     */
+    private CompletableFuture<Boolean> checkTwitch(){
+        return isValidTwitchToken().thenCompose(valid -> valid ? isValidTwitchChannelName() : CompletableFuture.completedFuture(false));
+    }
+
+    /**
+     * Get the time elapsed since a start
+     * @param start The start, in nanoseconds
+     * @return The elapsed time in milliseconds
+     */
+    private static long elapsedMillis(long start){
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
     /**
      * Check discord token validity
      * @return If the discord token is valid
      */
-    private boolean isValidDiscordToken() throws ServiceException {
+    private CompletableFuture<Boolean> isValidDiscordToken() {
         String discordToken = bridgeConfig.getDiscordToken();
         LOG.info("Checking discord token validity...");
-        Optional<DiscordBotInfo> discordInfo = discordService.authenticate(discordToken);
-        if(discordInfo.isEmpty()) {
-            LOG.warn("Discord token is invalid");
-            return false;
-        }
-        LOG.info("Discord token is valid, retrieved bot : "+discordInfo.get());
-        return true;
+        long start = System.nanoTime();
+        return discordService.authenticateAsync(discordToken).thenApply(discordInfo -> {
+            if(discordInfo.isEmpty()) {
+                LOG.warn("Discord token is invalid ("+elapsedMillis(start)+" ms)");
+                return false;
+            }
+            LOG.info("Discord token is valid, retrieved bot : "+discordInfo.get()+" ("+elapsedMillis(start)+" ms)");
+            return true;
+        });
     }
 
     /**
      * Check the twitch token validity
      * @return If the twitch token is valid
      */
-    private boolean isValidTwitchToken() throws ServiceException {
+    private CompletableFuture<Boolean> isValidTwitchToken() {
         String twitchToken = bridgeConfig.getTwitchToken();
         LOG.info("Checking twitch token validity...");
-        Optional<TwitchBotInfo> twitchInfo = twitchService.authenticate(twitchToken);
-        if(twitchInfo.isEmpty()) {
-            LOG.warn("Twitch token is invalid");
-            return false;
-        }
-        LOG.info("Twitch token is valid, retrieved bot : "+twitchInfo.get());
-        return true;
+        long start = System.nanoTime();
+        return twitchService.authenticateAsync(twitchToken).thenApply(twitchInfo -> {
+            if(twitchInfo.isEmpty()) {
+                LOG.warn("Twitch token is invalid ("+elapsedMillis(start)+" ms)");
+                return false;
+            }
+            LOG.info("Twitch token is valid, retrieved bot : "+twitchInfo.get()+" ("+elapsedMillis(start)+" ms)");
+            return true;
+        });
     }
 
     /**
-     * Check the twitch channel name validity
+     * Check the twitch channel name validity, the channels of the additional routes are retrieved in the same request
      * @return If the twitch channel name is valid
      */
-    private boolean isValidTwitchChannelName() throws ServiceException {
-        String twitchChannelName = bridgeConfig.getTwitchChannelName();
+    private CompletableFuture<Boolean> isValidTwitchChannelName() {
+        String twitchChannelName = bridgeConfig.getTwitchChannelName().toLowerCase(Locale.ROOT);
+        List<String> channelNames = new ArrayList<>();
+        channelNames.add(twitchChannelName);
+        bridgeConfig.getAdditionalRoutes().forEach(route -> channelNames.add(route.twitchChannelName()));
         LOG.info("Checking twitch channel validity...");
-        Optional<TwitchChannelInfo> twitchChannelInfo = twitchService.getChannel(twitchChannelName);
-        if(twitchChannelInfo.isEmpty()) {
-            LOG.info("Twitch channel name is invalid");
-            return false;
-        }
-        LOG.info("Twitch channel retrieved : "+twitchChannelInfo.get());
-        return true;
+        long start = System.nanoTime();
+        return twitchService.getChannelsAsync(channelNames).thenApply(channels -> {
+            for(Route route : bridgeConfig.getAdditionalRoutes()){
+                if(!channels.containsKey(route.twitchChannelName().toLowerCase(Locale.ROOT))){
+                    LOG.warn("Twitch channel of an additional route not found : "+route.twitchChannelName());
+                }
+            }
+            TwitchChannelInfo twitchChannelInfo = channels.get(twitchChannelName);
+            if(twitchChannelInfo == null) {
+                LOG.info("Twitch channel name is invalid ("+elapsedMillis(start)+" ms)");
+                return false;
+            }
+            LOG.info("Twitch channel retrieved : "+twitchChannelInfo+" ("+elapsedMillis(start)+" ms)");
+            return true;
+        });
     }
 
     /**
      * Check the discord channel ID validity
      * @return If the discord channel is valid
      */
-    private boolean isValidDiscordChannelID() throws ServiceException {
+    private CompletableFuture<Boolean> isValidDiscordChannelID() {
         String discordChannelID = bridgeConfig.getDiscordChannelID();
         LOG.info("Checking discord channel validity...");
-        Optional<DiscordChannelInfo> channelInfo = discordService.getChannel(discordChannelID);
-        if(channelInfo.isEmpty()) {
-            LOG.info("Discord channel ID is invalid");
-            return false;
-        }
-        LOG.info("Discord channel retrieved : "+channelInfo.get());
-        return true;
+        long start = System.nanoTime();
+        return discordService.getChannelAsync(discordChannelID).thenApply(channelInfo -> {
+            if(channelInfo.isEmpty()) {
+                LOG.info("Discord channel ID is invalid ("+elapsedMillis(start)+" ms)");
+                return false;
+            }
+            LOG.info("Discord channel retrieved : "+channelInfo.get()+" ("+elapsedMillis(start)+" ms)");
+            return true;
+        });
     }
 }
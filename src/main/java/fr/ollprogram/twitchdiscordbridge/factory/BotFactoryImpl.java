@@ -15,7 +15,9 @@ package fr.ollprogram.twitchdiscordbridge.factory;
 import com.github.philippheuer.credentialmanager.domain.OAuth2Credential;
 import com.github.twitch4j.TwitchClient;
 import com.github.twitch4j.TwitchClientBuilder;
+import fr.ollprogram.twitchdiscordbridge.bridge.RouteIndex;
 import fr.ollprogram.twitchdiscordbridge.configuration.BridgeConfig;
+import fr.ollprogram.twitchdiscordbridge.model.Route;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.JDABuilder;
 import net.dv8tion.jda.api.requests.GatewayIntent;
@@ -62,7 +64,10 @@ public class BotFactoryImpl implements BotFactory{
                 .withChatAccount(twitchCred)
                 .withEnableChat(true)
                 .build();
-        client.getChat().joinChannel(config.getTwitchChannelName());
+        //only the routes accepted by the bridge, a conflicting route would stay joined without being bridged
+        Route mainRoute = new Route(Long.parseLong(config.getDiscordChannelID()), config.getTwitchChannelName());
+        RouteIndex.of(mainRoute, config.getAdditionalRoutes()).getRoutes()
+                .forEach(route -> client.getChat().joinChannel(route.twitchChannelName()));
         return client;
     }
 }
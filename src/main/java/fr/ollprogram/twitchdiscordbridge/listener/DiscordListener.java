@@ -13,9 +13,15 @@
 package fr.ollprogram.twitchdiscordbridge.listener;
 
 import fr.ollprogram.twitchdiscordbridge.bridge.Bridge;
+import fr.ollprogram.twitchdiscordbridge.bridge.BridgeState;
+import fr.ollprogram.twitchdiscordbridge.bridge.Direction;
 import fr.ollprogram.twitchdiscordbridge.command.Command;
 import fr.ollprogram.twitchdiscordbridge.command.CommandRegistry;
+import fr.ollprogram.twitchdiscordbridge.command.Priority;
 import fr.ollprogram.twitchdiscordbridge.command.TDBExecutor;
+import fr.ollprogram.twitchdiscordbridge.metrics.MetricsRegistry;
+import fr.ollprogram.twitchdiscordbridge.metrics.RelayMetrics;
+import fr.ollprogram.twitchdiscordbridge.model.Route;
 import fr.ollprogram.twitchdiscordbridge.utils.MessageUtils;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
@@ -26,6 +32,8 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Discord main listener. Listen to messages and commands. It can be split into two listeners if the application get bigger
@@ -38,26 +46,102 @@ public class DiscordListener extends ListenerAdapter  {
 
     private final TDBExecutor executor;
 
+    private final Set<String> allowedDomains;
+
+    private final LongAdder skipped;
+
+    private final RelayMetrics metrics;
+
+    private final EchoGuard echoGuard;
+
+    private final FloodControl floodControl;
+
     /**
-     * Constructor
+     * Constructor, all the links are filtered
      * @param bridge The bridge
      * @param commandRegistry The command registry
      * @param executor The TDB executor
      */
     public DiscordListener(@NotNull Bridge bridge, @NotNull CommandRegistry commandRegistry, @NotNull TDBExecutor executor){
+        this(bridge, commandRegistry, executor, Set.of());
+    }
+
+    /**
+     * Constructor
+     * @param bridge The bridge
+     * @param commandRegistry The command registry
+     * @param executor The TDB executor
+     * @param allowedDomains The domains in lower case whose links aren't filtered
+     */
+    public DiscordListener(@NotNull Bridge bridge, @NotNull CommandRegistry commandRegistry, @NotNull TDBExecutor executor,
+                           @NotNull Set<@NotNull String> allowedDomains){
+        this(bridge, commandRegistry, executor, allowedDomains, new RelayMetrics(new MetricsRegistry(), Direction.DISCORD_TO_TWITCH));
+    }
+
+    /**
+     * Constructor with the metrics of the discord to twitch direction
+     * @param bridge The bridge
+     * @param commandRegistry The command registry
+     * @param executor The TDB executor
+     * @param allowedDomains The domains in lower case whose links aren't filtered
+     * @param metrics The relay metrics, the skipped messages are registered as dropped
+     */
+    public DiscordListener(@NotNull Bridge bridge, @NotNull CommandRegistry commandRegistry, @NotNull TDBExecutor executor,
+                           @NotNull Set<@NotNull String> allowedDomains, @NotNull RelayMetrics metrics){
+        this(bridge, commandRegistry, executor, allowedDomains, metrics, new EchoGuard(), new FloodControl());
+    }
+
+    /**
+     * Constructor with the echo guard, shared with the twitch listener
+     * @param bridge The bridge
+     * @param commandRegistry The command registry
+     * @param executor The TDB executor
+     * @param allowedDomains The domains in lower case whose links aren't filtered
+     * @param metrics The relay metrics, the skipped messages, the echoes and the floods are registered as dropped
+     * @param echoGuard The echo guard
+     * @param floodControl The flood control of the discord users
+     */
+    public DiscordListener(@NotNull Bridge bridge, @NotNull CommandRegistry commandRegistry, @NotNull TDBExecutor executor,
+                           @NotNull Set<@NotNull String> allowedDomains, @NotNull RelayMetrics metrics, @NotNull EchoGuard echoGuard,
+                           @NotNull FloodControl floodControl){
         this.bridge = bridge;
         this.commandRegistry = commandRegistry;
         this.executor = executor;
+        this.allowedDomains = allowedDomains;
+        this.skipped = new LongAdder();
+        this.metrics = metrics;
+        this.echoGuard = echoGuard;
+        this.floodControl = floodControl;
+        metrics.registerDrops("skipped", skipped::sum);
+        metrics.registerDrops("echo", () -> echoGuard.getSuppressedCount(Direction.DISCORD_TO_TWITCH));
+        metrics.registerDrops("flood", floodControl::getDroppedCount);
     }
 
     @Override
     public void onMessageReceived(@NotNull MessageReceivedEvent event) {
-        String message = event.getMessage().getContentDisplay();
-        String channelId = event.getChannel().getId();
+        long receivedAt = System.nanoTime();
+        metrics.received();
         User author = event.getAuthor();
-        executor.submit(() -> {
-            if(!author.isBot() && !author.isSystem() && bridge.isOpen() && bridge.isDiscordTarget(channelId)){
-                bridge.sendToTwitch(author.getName()+" says : "+ MessageUtils.filterMessage(message));
+        long channelID = event.getChannel().getIdLong();
+        BridgeState state = bridge.getState(); // one consistent snapshot, no locking
+        // checked on the event thread first, most of the messages the bot can see are not relayed
+        if(author.isBot() || author.isSystem() || !state.open() || state.routes().findByDiscord(channelID) == null){
+            skipped.increment();
+            return;
+        }
+        String message = event.getMessage().getContentDisplay();
+        if(echoGuard.isEcho(Direction.DISCORD_TO_TWITCH, message)) return; // a message we relayed, coming back
+        if(!floodControl.tryAcquire(author.getIdLong())) return; // the author is over the limit, not even queued
+        // keyed by channel, so the messages of a chat keep their order
+        executor.submit(Direction.DISCORD_TO_TWITCH, channelID, () -> {
+            BridgeState current = bridge.getState(); // the bridge may have changed while the task was waiting
+            if(!current.open()) return;
+            Route route = current.routes().findByDiscord(channelID);
+            if(route != null){
+                String text = author.getName() + EchoGuard.SAYS + MessageUtils.filterMessage(message, allowedDomains);
+                echoGuard.relayed(Direction.DISCORD_TO_TWITCH, text);
+                bridge.sendToTwitch(route, text, () -> metrics.acknowledged(receivedAt));
+                metrics.relayed();
             }
         });
     }
@@ -72,6 +156,18 @@ public class DiscordListener extends ListenerAdapter  {
         }
         event.deferReply(true).queue();
         List<String> optionStrings = event.getOptions().parallelStream().map(OptionMapping::getAsString).toList();
-        executor.submit(commandOptional.get(), optionStrings).thenAccept((replyText) -> event.getHook().sendMessage(replyText).queue());
+        // before the CLI commands, the reply must be sent while the interaction token is valid
+        executor.submit(commandOptional.get(), optionStrings, Priority.INTERACTION)
+                .exceptionally(Command::failureReply)
+                .thenAccept((replyText) -> event.getHook().sendMessage(replyText).queue());
+    }
+
+    /**
+     * Get the number of messages dropped before submitting a task,
+     * because they were sent by a bot, the bridge was closed or the channel isn't bridged
+     * @return The number of skipped messages
+     */
+    public long getSkippedCount(){
+        return skipped.sum();
     }
 }
@@ -0,0 +1,157 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.listener;
+
+import fr.ollprogram.twitchdiscordbridge.bridge.Direction;
+import fr.ollprogram.twitchdiscordbridge.sink.BatchingDiscordSink;
+import fr.ollprogram.twitchdiscordbridge.sink.RateLimitedTwitchSink;
+import fr.ollprogram.twitchdiscordbridge.utils.RecentHashWindow;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Suppresses the echoes of the relayed messages, so two bridges (or another relay bot) on the same channels can't
+ * make a message ping-pong between discord and twitch.
+ * The hashes of the messages relayed recently are kept per direction. A received message is an echo if it is one of the
+ * messages relayed to its platform, or if it is one of them written by someone ("someone says : message", the way bridges
+ * prefix the author). The sinks can pack several lines into one message, so a received message made of relayed lines
+ * joined by the separator of its platform is an echo too.
+ * This class is thread safe.
+ */
+public final class EchoGuard {
+
+    /**
+     * The default number of relayed messages remembered per direction
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * The default time a relayed message is remembered, in milliseconds
+     */
+    public static final long DEFAULT_WINDOW = 30_000;
+
+    /**
+     * The separator between the author and the content of a relayed message
+     */
+    public static final String SAYS = " says : ";
+
+    private static final int MAX_NESTED_AUTHORS = 3;
+
+    private final Map<Direction, RecentHashWindow> relayed;
+
+    private final Map<Direction, LongAdder> suppressed;
+
+    /**
+     * Constructor with the default capacity and window
+     */
+    public EchoGuard() {
+        this(DEFAULT_CAPACITY, DEFAULT_WINDOW, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Constructor
+     * @param capacity The number of relayed messages remembered per direction
+     * @param window The time a relayed message is remembered
+     * @param unit The window unit
+     */
+    public EchoGuard(int capacity, long window, @NotNull TimeUnit unit) {
+        this.relayed = new EnumMap<>(Direction.class);
+        this.suppressed = new EnumMap<>(Direction.class);
+        for(Direction direction : Direction.values()){
+            relayed.put(direction, new RecentHashWindow(capacity, window, unit));
+            suppressed.put(direction, new LongAdder());
+        }
+    }
+
+    /**
+     * Remember a relayed message
+     * @param direction The relay direction
+     * @param text The message, as sent
+     */
+    public void relayed(@NotNull Direction direction, @NotNull String text) {
+        relayed.get(direction).add(RecentHashWindow.hash(text));
+    }
+
+    /**
+     * Check if a received message is the echo of a relayed one, the echoes are counted
+     * @param direction The direction the received message would be relayed to
+     * @param content The received message content
+     * @return If the message should not be relayed
+     */
+    public boolean isEcho(@NotNull Direction direction, @NotNull String content) {
+        Direction received = opposite(direction); //the relayed messages that could have been received
+        RecentHashWindow window = relayed.get(received);
+        String separator = separator(received);
+        String candidate = content;
+        for(int i = 0; i <= MAX_NESTED_AUTHORS; i++){
+            if(window.contains(RecentHashWindow.hash(candidate)) || wasPacked(window, candidate, separator)){
+                suppressed.get(direction).increment();
+                return true;
+            }
+            int says = candidate.indexOf(SAYS);
+            if(says < 0) return false;
+            candidate = candidate.substring(says + SAYS.length());
+        }
+        return false;
+    }
+
+    /**
+     * Get the number of suppressed echoes
+     * @param direction The direction the echoes would have been relayed to
+     * @return The number of suppressed echoes
+     */
+    public long getSuppressedCount(@NotNull Direction direction) {
+        return suppressed.get(direction).sum();
+    }
+
+    /**
+     * Check if a message is made of relayed lines packed by a sink
+     * @param window The relayed lines
+     * @param candidate The message
+     * @param separator The separator between the packed lines
+     * @return If the message has several lines, all relayed
+     */
+    private static boolean wasPacked(RecentHashWindow window, String candidate, String separator) {
+        int start = 0;
+        int end = candidate.indexOf(separator);
+        if(end < 0) return false;
+        while(end >= 0){
+            if(!window.contains(RecentHashWindow.hash(candidate.substring(start, end)))) return false;
+            start = end + separator.length();
+            end = candidate.indexOf(separator, start);
+        }
+        return window.contains(RecentHashWindow.hash(candidate.substring(start)));
+    }
+
+    /**
+     * Get the opposite of a direction
+     * @param direction The direction
+     * @return The opposite direction
+     */
+    private static Direction opposite(Direction direction) {
+        return (direction == Direction.DISCORD_TO_TWITCH) ? Direction.TWITCH_TO_DISCORD : Direction.DISCORD_TO_TWITCH;
+    }
+
+    /**
+     * Get the separator of the lines packed into one message
+     * @param direction The relay direction
+     * @return The separator used by the sink of the direction
+     */
+    private static String separator(Direction direction) {
+        return (direction == Direction.DISCORD_TO_TWITCH) ? RateLimitedTwitchSink.SEPARATOR : BatchingDiscordSink.SEPARATOR;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.listener;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.function.Consumer;
+
+/**
+ * Holds the events received while the bridge is starting, then gives them in order to the listener once it is ready.
+ * Above the capacity, the oldest held events are dropped. Once the gate is open, an event is given without any lock.
+ * This class is thread safe.
+ * @param <E> The event type
+ */
+public final class EventGate<E> {
+
+    private final Queue<E> held;
+
+    private final int capacity;
+
+    private volatile Consumer<? super E> handler;
+
+    private long dropped;
+
+    /**
+     * Constructor
+     * @param capacity The maximum number of events held until the gate is open
+     */
+    public EventGate(int capacity) {
+        if(capacity <= 0) throw new IllegalArgumentException("The capacity should be positive");
+        this.held = new ArrayDeque<>();
+        this.capacity = capacity;
+        this.handler = null;
+        this.dropped = 0;
+    }
+
+    /**
+     * Give an event to the listener, or hold it if the gate is still closed
+     * @param event The event
+     */
+    public void offer(@NotNull E event) {
+        Consumer<? super E> current = handler;
+        if(current == null){
+            synchronized (this) {
+                current = handler; //may have been opened meanwhile
+                if(current == null){
+                    if(held.size() == capacity){
+                        held.poll();
+                        dropped++;
+                    }
+                    held.add(event);
+                    return;
+                }
+            }
+        }
+        current.accept(event);
+    }
+
+    /**
+     * Open the gate, the held events are given to the handler first
+     * @param handler The listener handler
+     */
+    public synchronized void open(@NotNull Consumer<? super E> handler) {
+        if(this.handler != null) throw new IllegalStateException("The gate is already open");
+        E event;
+        while((event = held.poll()) != null) handler.accept(event); //the new events wait for the lock, the order is kept
+        this.handler = handler;
+    }
+
+    /**
+     * Check if the gate is open
+     * @return If the events are given to the listener directly
+     */
+    public boolean isOpen() {
+        return handler != null;
+    }
+
+    /**
+     * Get the number of events dropped because too many were held
+     * @return The number of dropped events
+     */
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.listener;
+
+import fr.ollprogram.twitchdiscordbridge.utils.LongHashMap;
+import fr.ollprogram.twitchdiscordbridge.utils.TokenBucket;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Per author flood control, so a spammer or a raid of chat bots can't use the whole send budget of the bridge.
+ * Each author can send at most a number of messages in any window of one period, the others are dropped.
+ * The authors are keyed by their numeric user ID and spread over stripes with their own lock, so the listeners of
+ * different authors rarely wait for each other. Once per period, the authors idle for a whole period are evicted,
+ * so the memory follows the number of active authors.
+ * This class is thread safe.
+ */
+public final class FloodControl {
+
+    /**
+     * The default number of messages an author can send per period
+     */
+    public static final int DEFAULT_LIMIT = 5;
+
+    /**
+     * The default period, in milliseconds
+     */
+    public static final long DEFAULT_PERIOD = 10_000;
+
+    private static final int STRIPES = 16;
+
+    private final int limit;
+
+    private final long periodNanos;
+
+    private final LongSupplier clock;
+
+    private final Stripe[] stripes;
+
+    private final LongAdder dropped;
+
+    private final AtomicLong lastEviction;
+
+    /**
+     * Constructor with the default limit and period
+     */
+    public FloodControl() {
+        this(DEFAULT_LIMIT, DEFAULT_PERIOD, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Constructor
+     * @param limit The number of messages an author can send per period
+     * @param period The period
+     * @param unit The period unit
+     */
+    public FloodControl(int limit, long period, @NotNull TimeUnit unit) {
+        this(limit, period, unit, System::nanoTime);
+    }
+
+    /**
+     * Constructor with a custom clock
+     * @param limit The number of messages an author can send per period
+     * @param period The period
+     * @param unit The period unit
+     * @param clock The clock, in nanoseconds
+     */
+    public FloodControl(int limit, long period, @NotNull TimeUnit unit, @NotNull LongSupplier clock) {
+        if(limit <= 0) throw new IllegalArgumentException("The limit should be positive");
+        this.limit = limit;
+        this.periodNanos = unit.toNanos(period);
+        this.clock = clock;
+        this.stripes = new Stripe[STRIPES];
+        for(int i = 0; i < STRIPES; i++) stripes[i] = new Stripe();
+        this.dropped = new LongAdder();
+        this.lastEviction = new AtomicLong(clock.getAsLong());
+    }
+
+    /**
+     * Count a message of an author, if the author is under the limit
+     * @param authorID The author numeric user ID
+     * @return If the message can be relayed, otherwise it is counted as dropped
+     */
+    public boolean tryAcquire(long authorID) {
+        long now = clock.getAsLong();
+        long last = lastEviction.get();
+        if(now - last >= periodNanos && lastEviction.compareAndSet(last, now)) evictIdle(); //by a single caller
+        Stripe stripe = stripes[stripe(authorID)];
+        boolean acquired;
+        synchronized(stripe) { //the bucket can't be evicted meanwhile
+            TokenBucket bucket = stripe.authors.get(authorID);
+            if(bucket == null){
+                bucket = new TokenBucket(limit, periodNanos, TimeUnit.NANOSECONDS, clock);
+                stripe.authors.put(authorID, bucket);
+            }
+            acquired = bucket.tryAcquire();
+        }
+        if(acquired) return true;
+        dropped.increment();
+        return false;
+    }
+
+    /**
+     * Get the number of messages dropped because their author was over the limit
+     * @return The number of dropped messages
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Get the number of authors tracked
+     * @return The number of authors who sent a message during the last periods
+     */
+    public int getTrackedCount() {
+        int count = 0;
+        for(Stripe stripe : stripes){
+            synchronized(stripe) {
+                count += stripe.authors.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Evict the authors idle for a whole period, their bucket is full again. The stripes are locked one at a time
+     */
+    private void evictIdle() {
+        for(Stripe stripe : stripes){
+            synchronized(stripe) {
+                long[] idle = new long[stripe.authors.size()];
+                int[] count = {0};
+                stripe.authors.forEach((authorID, bucket) -> {
+                    if(bucket.available() == limit) idle[count[0]++] = authorID;
+                });
+                for(int i = 0; i < count[0]; i++) stripe.authors.remove(idle[i]);
+            }
+        }
+    }
+
+    /**
+     * Get the stripe of an author, the ID bits are mixed so that close IDs are spread
+     * @param authorID The author numeric user ID
+     * @return The stripe index
+     */
+    private static int stripe(long authorID) {
+        long mixed = authorID * 0x9E3779B97F4A7C15L;
+        return Math.floorMod((int) (mixed ^ (mixed >>> 32)), STRIPES);
+    }
+
+    /**
+     * The authors of a stripe, guarded by the stripe
+     */
+    private static final class Stripe {
+
+        private final LongHashMap<TokenBucket> authors = new LongHashMap<>();
+    }
+}
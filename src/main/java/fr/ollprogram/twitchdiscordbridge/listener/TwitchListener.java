@@ -14,11 +14,20 @@ package fr.ollprogram.twitchdiscordbridge.listener;
 
 import com.github.philippheuer.events4j.simple.domain.EventSubscriber;
 import com.github.twitch4j.chat.events.channel.ChannelMessageEvent;
+import com.github.twitch4j.common.events.domain.EventUser;
 import fr.ollprogram.twitchdiscordbridge.bridge.Bridge;
+import fr.ollprogram.twitchdiscordbridge.bridge.BridgeState;
+import fr.ollprogram.twitchdiscordbridge.bridge.Direction;
 import fr.ollprogram.twitchdiscordbridge.command.TDBExecutor;
+import fr.ollprogram.twitchdiscordbridge.metrics.MetricsRegistry;
+import fr.ollprogram.twitchdiscordbridge.metrics.RelayMetrics;
+import fr.ollprogram.twitchdiscordbridge.model.Route;
 import fr.ollprogram.twitchdiscordbridge.utils.MessageUtils;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * The twitch listener. Listen to the messages
  */
@@ -26,26 +35,114 @@ public class TwitchListener {
 
     private final Bridge bridge;
     private final TDBExecutor executor;
+    private final Set<String> allowedDomains;
+    private final LongAdder skipped;
+    private final RelayMetrics metrics;
+    private final EchoGuard echoGuard;
+    private final FloodControl floodControl;
 
     /**
-     * Constructor
+     * Constructor, all the links are filtered
      * @param bridge The bridge
      * @param executor The TDB executor
      */
     public TwitchListener(@NotNull Bridge bridge, @NotNull TDBExecutor executor){
+        this(bridge, executor, Set.of());
+    }
+
+    /**
+     * Constructor
+     * @param bridge The bridge
+     * @param executor The TDB executor
+     * @param allowedDomains The domains in lower case whose links aren't filtered
+     */
+    public TwitchListener(@NotNull Bridge bridge, @NotNull TDBExecutor executor, @NotNull Set<@NotNull String> allowedDomains){
+        this(bridge, executor, allowedDomains, new RelayMetrics(new MetricsRegistry(), Direction.TWITCH_TO_DISCORD));
+    }
+
+    /**
+     * Constructor with the metrics of the twitch to discord direction
+     * @param bridge The bridge
+     * @param executor The TDB executor
+     * @param allowedDomains The domains in lower case whose links aren't filtered
+     * @param metrics The relay metrics, the skipped messages are registered as dropped
+     */
+    public TwitchListener(@NotNull Bridge bridge, @NotNull TDBExecutor executor, @NotNull Set<@NotNull String> allowedDomains,
+                          @NotNull RelayMetrics metrics){
+        this(bridge, executor, allowedDomains, metrics, new EchoGuard(), new FloodControl());
+    }
+
+    /**
+     * Constructor with the echo guard, shared with the discord listener
+     * @param bridge The bridge
+     * @param executor The TDB executor
+     * @param allowedDomains The domains in lower case whose links aren't filtered
+     * @param metrics The relay metrics, the skipped messages, the echoes and the floods are registered as dropped
+     * @param echoGuard The echo guard
+     * @param floodControl The flood control of the twitch users
+     */
+    public TwitchListener(@NotNull Bridge bridge, @NotNull TDBExecutor executor, @NotNull Set<@NotNull String> allowedDomains,
+                          @NotNull RelayMetrics metrics, @NotNull EchoGuard echoGuard, @NotNull FloodControl floodControl){
         this.bridge = bridge;
         this.executor = executor;
+        this.allowedDomains = allowedDomains;
+        this.skipped = new LongAdder();
+        this.metrics = metrics;
+        this.echoGuard = echoGuard;
+        this.floodControl = floodControl;
+        metrics.registerDrops("skipped", skipped::sum);
+        metrics.registerDrops("echo", () -> echoGuard.getSuppressedCount(Direction.TWITCH_TO_DISCORD));
+        metrics.registerDrops("flood", floodControl::getDroppedCount);
     }
 
     @EventSubscriber
     public void onMessageEvent(ChannelMessageEvent event) {
-        String message = event.getMessage();
+        long receivedAt = System.nanoTime();
+        metrics.received();
         String channelName = event.getChannel().getName();
-        String authorName = event.getUser().getName();
-        executor.submit(() -> {
-            if(bridge.isOpen() && bridge.isTwitchTarget(channelName)) {
-                bridge.sendToDiscord(authorName+" says : "+ MessageUtils.filterMessage(message));
+        BridgeState state = bridge.getState(); // one consistent snapshot, no locking
+        // checked on the event thread first, the messages of a closed bridge or of another channel are not relayed
+        if(!state.open() || state.routes().findByTwitch(channelName) == null){
+            skipped.increment();
+            return;
+        }
+        String message = event.getMessage();
+        EventUser author = event.getUser();
+        String authorName = author.getName();
+        if(echoGuard.isEcho(Direction.TWITCH_TO_DISCORD, message)) return; // a message we relayed, coming back
+        if(!floodControl.tryAcquire(userID(author))) return; // the author is over the limit, not even queued
+        // keyed by channel, so the messages of a chat keep their order
+        executor.submit(Direction.TWITCH_TO_DISCORD, channelName.hashCode(), () -> {
+            BridgeState current = bridge.getState(); // the bridge may have changed while the task was waiting
+            if(!current.open()) return;
+            Route route = current.routes().findByTwitch(channelName);
+            if(route != null) {
+                String content = MessageUtils.filterMessage(message, allowedDomains);
+                echoGuard.relayed(Direction.TWITCH_TO_DISCORD, authorName + EchoGuard.SAYS + content);
+                bridge.sendToDiscord(route, authorName, content, () -> metrics.acknowledged(receivedAt));
+                metrics.relayed();
             }
         });
     }
+
+    /**
+     * Get the numeric ID of a twitch user
+     * @param user The twitch user
+     * @return The user ID, or a hash of the user name if the ID isn't numeric
+     */
+    private static long userID(@NotNull EventUser user){
+        try {
+            return Long.parseLong(user.getId());
+        } catch (NumberFormatException e){
+            return user.getName().hashCode();
+        }
+    }
+
+    /**
+     * Get the number of messages dropped before submitting a task, because the bridge was closed or the channel isn't bridged
+     * @return The number of skipped messages
+     */
+    public long getSkippedCount(){
+        return skipped.sum();
+    }
 }
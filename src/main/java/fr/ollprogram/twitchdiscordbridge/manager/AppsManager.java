@@ -41,7 +41,8 @@ public interface AppsManager {
     boolean areAllRunning();
 
     /**
-     * Refresh the discord commands (should be called once at the beginning to avoid Rate limits)
+     * Refresh the discord commands (should be called once at the beginning to avoid Rate limits).
+     * Only the guilds whose commands changed since the last refresh are updated
      * @param registry The command Registry
      */
     void refreshDiscordCommands(@NotNull CommandRegistry registry);
@@ -13,16 +13,14 @@
 package fr.ollprogram.twitchdiscordbridge.manager;
 
 import com.github.twitch4j.TwitchClient;
+import fr.ollprogram.twitchdiscordbridge.bridge.Bridge;
 import fr.ollprogram.twitchdiscordbridge.command.CommandRegistry;
 import fr.ollprogram.twitchdiscordbridge.command.TDBExecutor;
 import net.dv8tion.jda.api.JDA;
-import net.dv8tion.jda.api.interactions.commands.Command;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
-
 /**
  * AppsManager implementation
  */
@@ -34,12 +32,30 @@ public class AppsManagerImpl implements AppsManager {
 
     private final TwitchClient twitchApp;
 
+    private final Bridge bridge;
+
+    private final DiscordCommandSync commandSync;
+
     private boolean shutdown;
 
     private static final Logger LOG = LoggerFactory.getLogger("AppsManager");
 
-    public AppsManagerImpl(TDBExecutor executorApp, JDA discordApp, TwitchClient twitchApp){
+    public AppsManagerImpl(TDBExecutor executorApp, JDA discordApp, TwitchClient twitchApp, Bridge bridge){
+        this(executorApp, discordApp, twitchApp, bridge, new DiscordCommandSync());
+    }
+
+    /**
+     * Constructor
+     * @param executorApp The TDB executor
+     * @param discordApp The discord bot
+     * @param twitchApp The twitch bot
+     * @param bridge The bridge
+     * @param commandSync The discord commands synchronizer
+     */
+    public AppsManagerImpl(TDBExecutor executorApp, JDA discordApp, TwitchClient twitchApp, Bridge bridge, DiscordCommandSync commandSync){
+        this.commandSync = commandSync;
         this.discordApp = discordApp;
+        this.bridge = bridge;
         this.twitchApp = twitchApp;
         this.executor = executorApp;
         this.shutdown = false;
@@ -53,6 +69,8 @@ public class AppsManagerImpl implements AppsManager {
         } else {
             LOG.warn("Forced executor shutdown due to timeout.");
         }
+        LOG.info("Flushing bridge queues...");
+        bridge.shutdown();
         LOG.info("Shutdown discord bot...");
         discordApp.shutdown();
         discordApp.awaitShutdown();
@@ -69,6 +87,8 @@ public class AppsManagerImpl implements AppsManager {
         } else {
             LOG.warn("Forced executor shutdown due to timeout.");
         }
+        LOG.info("Flushing bridge queues...");
+        bridge.shutdown();
         LOG.info("Shutdown discord bot...");
         discordApp.shutdownNow();
         discordApp.awaitShutdown();
@@ -84,11 +104,12 @@ public class AppsManagerImpl implements AppsManager {
 
     @Override
     public void refreshDiscordCommands(@NotNull CommandRegistry registry) {
-        discordApp.getGuilds().parallelStream().forEach((guild) -> {
-            List<Command> commands = guild.retrieveCommands().complete();
-            commands.parallelStream().forEach(command -> command.delete().complete());
-            guild.updateCommands().addCommands(registry.getAllDiscordCommands()).complete();
-        });
+        try {
+            commandSync.sync(discordApp.getGuilds(), registry.getAllDiscordCommands());
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            LOG.warn("Discord commands refresh interrupted");
+        }
     }
 
     @Override
@@ -0,0 +1,250 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.manager;
+
+import fr.ollprogram.twitchdiscordbridge.configuration.BridgeSettings;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.interactions.commands.Command;
+import net.dv8tion.jda.api.interactions.commands.build.CommandData;
+import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Synchronizes the discord slash commands of the guilds.
+ * The hash of the commands last synced to each guild is kept in a properties file: the changed guilds get one bulk overwrite,
+ * the unchanged ones are skipped without any request. If the verification is enabled, the commands of an unchanged guild
+ * are retrieved instead, and overwritten if their names or descriptions don't match, e.g. after they were deleted outside the bridge.
+ * The requests are sent without blocking, a few at a time.
+ */
+public class DiscordCommandSync {
+
+    /**
+     * The default record file
+     */
+    public static final String DEFAULT_FILE_NAME = "commands.properties";
+
+    /**
+     * The default maximum number of overwrites in flight
+     */
+    public static final int DEFAULT_MAX_REQUESTS = 4;
+
+    private static final Logger LOG = LoggerFactory.getLogger("DiscordCommandSync");
+
+    private final Path recordFile;
+
+    private final int maxRequests;
+
+    private final boolean verify;
+
+    /**
+     * Constructor using the default record file and concurrency, the verification is set by the bridge settings
+     */
+    public DiscordCommandSync(){
+        this(Path.of(DEFAULT_FILE_NAME), DEFAULT_MAX_REQUESTS, BridgeSettings.isDiscordCommandVerifyEnabled());
+    }
+
+    /**
+     * Constructor trusting the record
+     * @param recordFile The file keeping the hash synced to each guild
+     * @param maxRequests The maximum number of overwrites in flight
+     */
+    public DiscordCommandSync(@NotNull Path recordFile, int maxRequests){
+        this(recordFile, maxRequests, false);
+    }
+
+    /**
+     * Constructor
+     * @param recordFile The file keeping the hash synced to each guild
+     * @param maxRequests The maximum number of overwrites in flight
+     * @param verify If the commands of the guilds recorded as synced are retrieved to check they are still registered
+     */
+    public DiscordCommandSync(@NotNull Path recordFile, int maxRequests, boolean verify){
+        if(maxRequests <= 0) throw new IllegalArgumentException("The maximum number of requests should be positive");
+        this.recordFile = recordFile;
+        this.maxRequests = maxRequests;
+        this.verify = verify;
+    }
+
+    /**
+     * Overwrite the commands of the guilds whose commands changed since the last sync
+     * @param guilds The guilds of the bot
+     * @param commands The commands every guild should have
+     * @return The number of guilds updated
+     * @throws InterruptedException if an interruption error occurs
+     */
+    public int sync(@NotNull List<? extends Guild> guilds, @NotNull List<? extends CommandData> commands) throws InterruptedException {
+        String hash = hash(commands);
+        Properties previous = load();
+        Properties synced = new Properties(); //only the current guilds are kept, written by the completions (synchronized)
+        Semaphore requests = new Semaphore(maxRequests);
+        AtomicInteger updated = new AtomicInteger();
+        List<CompletableFuture<?>> pending = new ArrayList<>();
+        for(Guild guild : guilds){
+            String guildID = String.valueOf(guild.getIdLong());
+            boolean recorded = hash.equals(previous.getProperty(guildID));
+            if(recorded && !verify){
+                synced.setProperty(guildID, hash); //trusted, no request
+                continue;
+            }
+            requests.acquire();
+            CompletableFuture<Boolean> update;
+            try {
+                update = update(guild, commands, recorded);
+            } catch (RuntimeException e){
+                requests.release(); //no completion to release it
+                LOG.warn("Unable to update the commands of the guild "+guildID+" : "+e.getMessage());
+                continue; //not recorded, retried on the next sync
+            }
+            pending.add(update.whenComplete((overwritten, error) -> {
+                requests.release();
+                if(error != null){
+                    LOG.warn("Unable to update the commands of the guild "+guildID+" : "+error.getMessage());
+                    return; //not recorded, retried on the next sync
+                }
+                synced.setProperty(guildID, hash);
+                if(overwritten) updated.incrementAndGet();
+            }));
+        }
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).handle((result, error) -> null).join();
+        save(synced);
+        LOG.info("Discord commands updated in "+updated.get()+" guild(s), "+(synced.size() - updated.get())+" unchanged");
+        return updated.get();
+    }
+
+    /**
+     * Overwrite the commands of a guild, unless they are recorded and still registered
+     * @param guild The guild
+     * @param commands The commands the guild should have
+     * @param recorded If the commands are recorded as synced to the guild, they are retrieved to verify them
+     * @return If the commands have been overwritten
+     */
+    private static CompletableFuture<Boolean> update(Guild guild, List<? extends CommandData> commands, boolean recorded){
+        CompletableFuture<Boolean> registered = !recorded ? CompletableFuture.completedFuture(false)
+                : guild.retrieveCommands().submit().thenApply(current -> matches(current, commands)).exceptionally(error -> {
+                    LOG.warn("Unable to retrieve the commands of the guild "+guild.getIdLong()+", kept as synced : "+error.getMessage());
+                    return true;
+                });
+        return registered.thenCompose(same -> same ? CompletableFuture.completedFuture(false)
+                : guild.updateCommands().addCommands(commands).submit().thenApply(result -> true));
+    }
+
+    /**
+     * Check if the registered commands of a guild have the names and descriptions of the commands to sync
+     * @param registered The commands registered on discord
+     * @param commands The commands to sync
+     * @return If they match, the options aren't compared
+     */
+    private static boolean matches(List<Command> registered, List<? extends CommandData> commands){
+        Map<String, String> expected = commands.stream()
+                .collect(Collectors.toMap(CommandData::getName, DiscordCommandSync::description, (first, second) -> first));
+        Map<String, String> current = registered.stream()
+                .collect(Collectors.toMap(Command::getName, Command::getDescription, (first, second) -> first));
+        return expected.equals(current);
+    }
+
+    /**
+     * Get the description of a command
+     * @param command The command
+     * @return The description, empty for the commands without description
+     */
+    private static String description(CommandData command){
+        return (command instanceof SlashCommandData slash) ? slash.getDescription() : "";
+    }
+
+    /**
+     * Compute the content hash of commands, independent of their order
+     * @param commands The commands
+     * @return The SHA-256 hash in hexadecimal
+     */
+    public static @NotNull String hash(@NotNull List<? extends CommandData> commands){
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            commands.stream().sorted(Comparator.comparing(CommandData::getName)).forEach(command -> {
+                digest.update(command.toData().toJson());
+                digest.update((byte) '\n');
+            });
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e){
+            throw new IllegalStateException("SHA-256 is not available", e); //every JVM provides it
+        }
+    }
+
+    /**
+     * Load the hashes of the last sync
+     * @return The hash by guild ID, empty if there is no record
+     */
+    private Properties load(){
+        Properties props = new Properties();
+        if(!Files.exists(recordFile)) return props;
+        try(Reader reader = Files.newBufferedReader(recordFile)) {
+            props.load(reader);
+        } catch (IOException e){
+            LOG.warn("Unable to read the discord commands record, every guild will be updated : "+e.getMessage());
+            props.clear();
+        }
+        return props;
+    }
+
+    /**
+     * Save the hashes of this sync
+     * @param props The hash by guild ID
+     */
+    private void save(Properties props){
+        Path target = recordFile.toAbsolutePath();
+        try {
+            Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            try {
+                try(FileOutputStream out = new FileOutputStream(temp.toFile());
+                    Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+                    props.store(writer, "Discord commands synced to each guild, delete this file to update them all");
+                    writer.flush();
+                    out.getFD().sync(); //on the disk before replacing the previous record
+                }
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e){
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e){
+            LOG.warn("Unable to write the discord commands record : "+e.getMessage());
+        }
+    }
+}
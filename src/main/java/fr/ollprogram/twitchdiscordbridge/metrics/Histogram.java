@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram with fixed bucket bounds, counting the observed values per bucket.
+ * Recording doesn't lock, the buckets are striped counters.
+ * This class is thread safe.
+ */
+public final class Histogram {
+
+    private final double[] bounds;
+
+    private final LongAdder[] buckets; //one more than the bounds, for the values above the last bound
+
+    private final DoubleAdder sum;
+
+    /**
+     * Constructor
+     * @param bounds The bucket upper bounds, in increasing order
+     */
+    public Histogram(double @NotNull [] bounds) {
+        for(int i = 1; i < bounds.length; i++){
+            if(bounds[i] <= bounds[i - 1]) throw new IllegalArgumentException("The bucket bounds should be increasing");
+        }
+        this.bounds = bounds.clone();
+        this.buckets = new LongAdder[bounds.length + 1];
+        for(int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+        this.sum = new DoubleAdder();
+    }
+
+    /**
+     * Record a value
+     * @param value The value
+     */
+    public void observe(double value) {
+        int index = Arrays.binarySearch(bounds, value);
+        if(index < 0) index = -index - 1; //the first bound above the value
+        buckets[index].increment();
+        sum.add(value);
+    }
+
+    /**
+     * Record a duration in seconds
+     * @param nanos The duration in nanoseconds
+     */
+    public void observeNanos(long nanos) {
+        observe((double) nanos / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * Get the bucket upper bounds
+     * @return A copy of the bounds
+     */
+    public double @NotNull [] getBounds() {
+        return bounds.clone();
+    }
+
+    /**
+     * Get the cumulative counts, the number of values lower or equal to each bound, then the total count
+     * @return The cumulative counts, one more than the bounds
+     */
+    public long @NotNull [] getCumulativeCounts() {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for(int i = 0; i < buckets.length; i++){
+            total += buckets[i].sum();
+            counts[i] = total;
+        }
+        return counts;
+    }
+
+    /**
+     * Estimate a quantile of the recorded values, interpolating inside the bucket where it falls
+     * @param quantile The quantile, between 0 and 1 (e.g. 0.99)
+     * @return The estimated value, NaN without any value
+     */
+    public double quantile(double quantile) {
+        return quantile(bounds, getCumulativeCounts(), quantile);
+    }
+
+    /**
+     * Estimate a quantile from cumulative bucket counts, the way Prometheus does.
+     * A quantile falling above the last bound is estimated as the last bound.
+     * @param bounds The bucket upper bounds
+     * @param cumulativeCounts The cumulative counts, one more than the bounds
+     * @param quantile The quantile, between 0 and 1
+     * @return The estimated value, NaN without any value
+     */
+    static double quantile(double[] bounds, long[] cumulativeCounts, double quantile) {
+        long total = cumulativeCounts[cumulativeCounts.length - 1];
+        if(total == 0) return Double.NaN;
+        double rank = quantile * total;
+        int index = 0;
+        while(index < bounds.length && cumulativeCounts[index] < rank) index++;
+        if(index == bounds.length) return bounds[bounds.length - 1];
+        double lower = (index == 0) ? 0 : bounds[index - 1];
+        long below = (index == 0) ? 0 : cumulativeCounts[index - 1];
+        long inBucket = cumulativeCounts[index] - below;
+        if(inBucket == 0) return bounds[index];
+        return lower + (bounds[index] - lower) * (rank - below) / inBucket;
+    }
+
+    /**
+     * Get the number of recorded values
+     * @return The count
+     */
+    public long getCount() {
+        long count = 0;
+        for(LongAdder bucket : buckets) count += bucket.sum();
+        return count;
+    }
+
+    /**
+     * Get the sum of the recorded values
+     * @return The sum
+     */
+    public double getSum() {
+        return sum.sum();
+    }
+}
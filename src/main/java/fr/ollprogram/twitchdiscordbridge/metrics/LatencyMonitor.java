@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.metrics;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks periodically the p99 relay latency against a budget, and logs a warning when it is above.
+ * Each check only looks at the messages acknowledged since the previous one, so an old spike doesn't keep warning.
+ * This class is thread safe.
+ */
+public class LatencyMonitor {
+
+    private static final Logger LOG = LoggerFactory.getLogger("Metrics");
+
+    private final double budgetSeconds;
+
+    private final List<Watched> watched; //guarded by this
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * A watched direction and its counts at the previous check
+     */
+    private static final class Watched {
+        private final RelayMetrics metrics;
+        private long[] previous;
+
+        private Watched(RelayMetrics metrics) {
+            this.metrics = metrics;
+            this.previous = metrics.getLatency().getCumulativeCounts();
+        }
+    }
+
+    /**
+     * Constructor
+     * @param budgetMillis The p99 latency budget, in milliseconds
+     */
+    public LatencyMonitor(long budgetMillis) {
+        this.budgetSeconds = budgetMillis / 1000.0;
+        this.watched = new ArrayList<>();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "latency-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Watch the latency of a relay direction
+     * @param metrics The metrics of the direction
+     */
+    public synchronized void watch(@NotNull RelayMetrics metrics) {
+        watched.add(new Watched(metrics));
+    }
+
+    /**
+     * Check the latency periodically
+     * @param period The period between two checks
+     * @param unit The period unit
+     */
+    public void start(long period, @NotNull TimeUnit unit) {
+        scheduler.scheduleAtFixedRate(this::check, period, period, unit);
+    }
+
+    /**
+     * Stop the periodic checks
+     */
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Check the p99 latency of the messages acknowledged since the previous check, a warning is logged above the budget
+     * @return The directions above the budget
+     */
+    public synchronized @NotNull List<@NotNull String> check() {
+        List<String> overBudget = new ArrayList<>();
+        for(Watched direction : watched){
+            Histogram latency = direction.metrics.getLatency();
+            long[] counts = latency.getCumulativeCounts();
+            long[] window = new long[counts.length];
+            for(int i = 0; i < counts.length; i++) window[i] = counts[i] - direction.previous[i];
+            direction.previous = counts;
+            double p99 = Histogram.quantile(latency.getBounds(), window, 0.99);
+            if(!Double.isNaN(p99) && p99 > budgetSeconds){
+                overBudget.add(direction.metrics.getDirection());
+                LOG.warn(String.format(Locale.ROOT, "Relay latency %s : p99 is %.0fms over %d messages, above the budget of %.0fms",
+                        direction.metrics.getDirection(), p99 * 1000, window[window.length - 1], budgetSeconds * 1000));
+            }
+        }
+        return overBudget;
+    }
+}
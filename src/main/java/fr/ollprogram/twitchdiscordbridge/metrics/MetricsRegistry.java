@@ -0,0 +1,205 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * The metrics of TwitchDiscordBridge, written in the Prometheus text format.
+ * A metric is a name with several samples, each one having its own labels (e.g. direction="twitch_to_discord").
+ * The counters are striped, so counting on the relay path doesn't contend. The values read from a component
+ * (queue depths, counts the component already keeps) are given as suppliers and read on each scrape.
+ * This class is thread safe.
+ */
+public final class MetricsRegistry {
+
+    /**
+     * The content type of the scrape
+     */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final Map<String, Family> families;
+
+    /**
+     * A metric and its samples by labels
+     * @param type The Prometheus type
+     * @param help The description
+     * @param samples The samples by formatted labels, in registration order
+     */
+    private record Family(String type, String help, Map<String, Object> samples) { }
+
+    /**
+     * Constructor
+     */
+    public MetricsRegistry() {
+        this.families = new LinkedHashMap<>();
+    }
+
+    /**
+     * Get a counter, created on the first call
+     * @param name The metric name, ending with _total
+     * @param help The description
+     * @param labels The label names and values, alternated
+     * @return The counter
+     */
+    public @NotNull LongAdder counter(@NotNull String name, @NotNull String help, @NotNull String... labels) {
+        Object sample = register(name, "counter", help, labels, LongAdder::new);
+        if(!(sample instanceof LongAdder counter)) throw new IllegalArgumentException("The counter "+name+" is already read from a supplier");
+        return counter;
+    }
+
+    /**
+     * Register a counter kept by a component
+     * @param name The metric name, ending with _total
+     * @param help The description
+     * @param value Reads the count
+     * @param labels The label names and values, alternated
+     */
+    public void counter(@NotNull String name, @NotNull String help, @NotNull LongSupplier value, @NotNull String... labels) {
+        register(name, "counter", help, labels, () -> value);
+    }
+
+    /**
+     * Register a gauge
+     * @param name The metric name
+     * @param help The description
+     * @param value Reads the current value
+     * @param labels The label names and values, alternated
+     */
+    public void gauge(@NotNull String name, @NotNull String help, @NotNull DoubleSupplier value, @NotNull String... labels) {
+        register(name, "gauge", help, labels, () -> value);
+    }
+
+    /**
+     * Get a histogram, created on the first call
+     * @param name The metric name
+     * @param help The description
+     * @param bounds The bucket upper bounds, in increasing order
+     * @param labels The label names and values, alternated
+     * @return The histogram
+     */
+    public @NotNull Histogram histogram(@NotNull String name, @NotNull String help, double @NotNull [] bounds,
+                                        @NotNull String... labels) {
+        return (Histogram) register(name, "histogram", help, labels, () -> new Histogram(bounds));
+    }
+
+    /**
+     * Write all the metrics in the Prometheus text format
+     * @return The metrics
+     */
+    public synchronized @NotNull String scrape() {
+        StringBuilder out = new StringBuilder();
+        families.forEach((name, family) -> {
+            out.append("# HELP ").append(name).append(' ').append(escapeHelp(family.help())).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type()).append('\n');
+            family.samples().forEach((labels, sample) -> writeSample(out, name, labels, sample));
+        });
+        return out.toString();
+    }
+
+    /**
+     * Get a sample, created if absent
+     * @param name The metric name
+     * @param type The Prometheus type
+     * @param help The description
+     * @param labels The label names and values, alternated
+     * @param factory Creates the sample
+     * @return The sample
+     */
+    private synchronized Object register(String name, String type, String help, String[] labels,
+                                         Supplier<Object> factory) {
+        if(labels.length % 2 != 0) throw new IllegalArgumentException("The labels should be name and value pairs");
+        Family family = families.computeIfAbsent(name, n -> new Family(type, help, new LinkedHashMap<>()));
+        if(!family.type().equals(type)) throw new IllegalArgumentException("The metric "+name+" is a "+family.type());
+        return family.samples().computeIfAbsent(formatLabels(labels), l -> factory.get());
+    }
+
+    /**
+     * Write the lines of a sample
+     * @param out The output
+     * @param name The metric name
+     * @param labels The formatted labels
+     * @param sample The sample
+     */
+    private static void writeSample(StringBuilder out, String name, String labels, Object sample) {
+        if(sample instanceof Histogram histogram){
+            double[] bounds = histogram.getBounds();
+            long[] counts = histogram.getCumulativeCounts();
+            for(int i = 0; i < counts.length; i++){
+                String le = (i < bounds.length) ? formatValue(bounds[i]) : "+Inf";
+                String bucketLabels = labels.isEmpty() ? "{le=\""+le+"\"}" : labels.substring(0, labels.length() - 1)+",le=\""+le+"\"}";
+                out.append(name).append("_bucket").append(bucketLabels).append(' ').append(counts[i]).append('\n');
+            }
+            out.append(name).append("_sum").append(labels).append(' ').append(formatValue(histogram.getSum())).append('\n');
+            out.append(name).append("_count").append(labels).append(' ').append(counts[counts.length - 1]).append('\n');
+            return;
+        }
+        out.append(name).append(labels).append(' ');
+        if(sample instanceof LongAdder counter) out.append(counter.sum());
+        else if(sample instanceof LongSupplier counter) out.append(counter.getAsLong());
+        else out.append(formatValue(((DoubleSupplier) sample).getAsDouble()));
+        out.append('\n');
+    }
+
+    /**
+     * Format the labels of a sample
+     * @param labels The label names and values, alternated
+     * @return The labels between braces, or an empty string without labels
+     */
+    private static String formatLabels(String[] labels) {
+        if(labels.length == 0) return "";
+        StringBuilder formatted = new StringBuilder("{");
+        for(int i = 0; i < labels.length; i += 2){
+            if(i > 0) formatted.append(',');
+            formatted.append(labels[i]).append("=\"").append(escapeLabel(labels[i + 1])).append('"');
+        }
+        return formatted.append('}').toString();
+    }
+
+    /**
+     * Format a value, the infinities and NaN are written the Prometheus way
+     * @param value The value
+     * @return The formatted value
+     */
+    private static String formatValue(double value) {
+        if(Double.isNaN(value)) return "NaN";
+        if(Double.isInfinite(value)) return (value > 0) ? "+Inf" : "-Inf";
+        if(value == Math.rint(value) && Math.abs(value) < 1e15) return Long.toString((long) value);
+        return Double.toString(value);
+    }
+
+    /**
+     * Escape a label value
+     * @param value The value
+     * @return The escaped value
+     */
+    private static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Escape a description
+     * @param help The description
+     * @return The escaped description
+     */
+    private static String escapeHelp(String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+}
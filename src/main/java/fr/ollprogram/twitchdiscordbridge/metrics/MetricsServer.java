@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A small HTTP server giving the metrics at /metrics, for a Prometheus scraper.
+ * It only listens on the loopback address, the metrics are not meant to be public.
+ */
+public class MetricsServer {
+
+    /**
+     * The path of the metrics
+     */
+    public static final String PATH = "/metrics";
+
+    private static final Logger LOG = LoggerFactory.getLogger("Metrics");
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    /**
+     * Constructor, the server is started by start
+     * @param registry The metrics to serve
+     * @param port The local port, 0 for any free port
+     * @throws IOException if the port can't be bound
+     */
+    public MetricsServer(@NotNull MetricsRegistry registry, int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext(PATH, exchange -> handle(exchange, registry));
+    }
+
+    /**
+     * Start serving the metrics
+     */
+    public void start() {
+        server.start();
+        LOG.info("Metrics available at http://"+server.getAddress().getHostString()+":"+getPort()+PATH);
+    }
+
+    /**
+     * Get the port the server listens on
+     * @return The port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stop the server, the running scrape is finished first
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    /**
+     * Answer a request
+     * @param exchange The request
+     * @param registry The metrics
+     * @throws IOException if the response can't be written
+     */
+    private static void handle(HttpExchange exchange, MetricsRegistry registry) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if(!method.equals("GET") && !method.equals("HEAD")){
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", MetricsRegistry.CONTENT_TYPE);
+            if(method.equals("HEAD")){
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try(OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.metrics;
+
+import fr.ollprogram.twitchdiscordbridge.bridge.Direction;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * The metrics of one direction of the relay pipeline: the messages received, relayed and dropped, and the relay latency.
+ * The latency is measured end to end, from the reception of a message to its acknowledgment by the destination
+ * (the discord REST response, or the handover to the twitch chat connection after the rate limit).
+ */
+public final class RelayMetrics {
+
+    /**
+     * The latency bucket bounds, in seconds
+     */
+    public static final double[] LATENCY_BUCKETS = {0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60};
+
+    private final MetricsRegistry registry;
+
+    private final String direction;
+
+    private final LongAdder received;
+
+    private final LongAdder relayed;
+
+    private final Histogram latency;
+
+    /**
+     * Constructor
+     * @param registry The registry where the metrics are registered
+     * @param direction The relay direction
+     */
+    public RelayMetrics(@NotNull MetricsRegistry registry, @NotNull Direction direction) {
+        this.registry = registry;
+        this.direction = direction.name().toLowerCase(Locale.ROOT);
+        this.received = registry.counter("tdb_messages_received_total",
+                "Messages received by the listeners", "direction", this.direction);
+        this.relayed = registry.counter("tdb_messages_relayed_total",
+                "Messages handed over to the outbound sink", "direction", this.direction);
+        this.latency = registry.histogram("tdb_relay_latency_seconds",
+                "Time from the reception of a message to its acknowledgment by the destination", LATENCY_BUCKETS,
+                "direction", this.direction);
+    }
+
+    /**
+     * Count a received message
+     */
+    public void received() {
+        received.increment();
+    }
+
+    /**
+     * Count a message handed over to the outbound sink
+     */
+    public void relayed() {
+        relayed.increment();
+    }
+
+    /**
+     * Record the latency of a message acknowledged by the destination
+     * @param receivedAt The reception time of the message, in nanoseconds
+     */
+    public void acknowledged(long receivedAt) {
+        latency.observeNanos(System.nanoTime() - receivedAt);
+    }
+
+    /**
+     * Register the messages dropped for a reason, counted by a component
+     * @param reason The drop reason, e.g. shed
+     * @param count Reads the number of dropped messages
+     */
+    public void registerDrops(@NotNull String reason, @NotNull LongSupplier count) {
+        registry.counter("tdb_messages_dropped_total", "Messages dropped before being relayed, by reason", count,
+                "direction", direction, "reason", reason);
+    }
+
+    /**
+     * Get the relay direction
+     * @return The direction label, e.g. twitch_to_discord
+     */
+    public @NotNull String getDirection() {
+        return direction;
+    }
+
+    /**
+     * Get the latency histogram
+     * @return The latency histogram
+     */
+    public @NotNull Histogram getLatency() {
+        return latency;
+    }
+}
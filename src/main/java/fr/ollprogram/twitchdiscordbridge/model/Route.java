@@ -0,0 +1,43 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.model;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+
+/**
+ * A route links one discord text channel with one twitch chat.
+ * The twitch channel name is stored in lower case, as twitch sends it in chat events.
+ * @param discordChannelID The discord channel ID (snowflake)
+ * @param twitchChannelName The twitch channel name (login)
+ */
+public record Route(long discordChannelID, @NotNull String twitchChannelName) {
+
+    /**
+     * Constructor
+     * @param discordChannelID The discord channel ID (snowflake)
+     * @param twitchChannelName The twitch channel name (login)
+     */
+    public Route {
+        twitchChannelName = twitchChannelName.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "DiscordChannelID='" + discordChannelID + '\'' +
+                ", TwitchChannelName='" + twitchChannelName + '\'' +
+                '}';
+    }
+}
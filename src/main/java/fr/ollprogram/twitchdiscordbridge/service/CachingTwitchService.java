@@ -0,0 +1,148 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.service;
+
+import fr.ollprogram.twitchdiscordbridge.exception.ServiceException;
+import fr.ollprogram.twitchdiscordbridge.model.TwitchBotInfo;
+import fr.ollprogram.twitchdiscordbridge.model.TwitchChannelInfo;
+import fr.ollprogram.twitchdiscordbridge.utils.ExpiringLruCache;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A twitch service keeping the channels found by another service for some time.
+ * Channels that aren't found are not cached, they may be created later.
+ */
+public class CachingTwitchService implements TwitchService {
+
+    /**
+     * The default maximum number of cached channels
+     */
+    public static final int DEFAULT_MAX_CHANNELS = 256;
+
+    /**
+     * The default time to live of a cached channel in minutes
+     */
+    public static final long DEFAULT_TTL_MINUTES = 10;
+
+    private final TwitchService delegate;
+
+    private final ExpiringLruCache<String, TwitchChannelInfo> channels;
+
+    /**
+     * Constructor using the default cache size and time to live
+     * @param delegate The service requesting twitch
+     */
+    public CachingTwitchService(@NotNull TwitchService delegate) {
+        this(delegate, new ExpiringLruCache<>(DEFAULT_MAX_CHANNELS, DEFAULT_TTL_MINUTES, TimeUnit.MINUTES));
+    }
+
+    /**
+     * Constructor
+     * @param delegate The service requesting twitch
+     * @param channels The channel cache, by lower case channel name
+     */
+    public CachingTwitchService(@NotNull TwitchService delegate, @NotNull ExpiringLruCache<String, TwitchChannelInfo> channels) {
+        this.delegate = delegate;
+        this.channels = channels;
+    }
+
+    @Override
+    public @NotNull Optional<TwitchBotInfo> authenticate(@NotNull String token) throws ServiceException {
+        return delegate.authenticate(token);
+    }
+
+    @Override
+    public @NotNull Optional<TwitchChannelInfo> getChannel(@NotNull String channelName) throws ServiceException {
+        String key = channelName.toLowerCase(Locale.ROOT); //twitch logins are case insensitive
+        TwitchChannelInfo cached = channels.get(key);
+        if(cached != null) return Optional.of(cached);
+        Optional<TwitchChannelInfo> channel = delegate.getChannel(channelName);
+        channel.ifPresent(info -> channels.put(key, info));
+        return channel;
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Optional<TwitchBotInfo>> authenticateAsync(@NotNull String token) {
+        return delegate.authenticateAsync(token);
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Optional<TwitchChannelInfo>> getChannelAsync(@NotNull String channelName) {
+        String key = channelName.toLowerCase(Locale.ROOT);
+        TwitchChannelInfo cached = channels.get(key);
+        if(cached != null) return CompletableFuture.completedFuture(Optional.of(cached));
+        return delegate.getChannelAsync(channelName).thenApply(channel -> {
+            channel.ifPresent(info -> channels.put(key, info));
+            return channel;
+        });
+    }
+
+    @Override
+    public @NotNull Map<String, TwitchChannelInfo> getChannels(@NotNull Collection<@NotNull String> channelNames) throws ServiceException {
+        Map<String, TwitchChannelInfo> found = new HashMap<>();
+        List<String> missing = findCached(channelNames, found);
+        if(!missing.isEmpty()) cacheAll(delegate.getChannels(missing), found);
+        return found;
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Map<String, TwitchChannelInfo>> getChannelsAsync(@NotNull Collection<@NotNull String> channelNames) {
+        Map<String, TwitchChannelInfo> found = new HashMap<>();
+        List<String> missing = findCached(channelNames, found);
+        if(missing.isEmpty()) return CompletableFuture.completedFuture(found);
+        return delegate.getChannelsAsync(missing).thenApply(channels -> {
+            cacheAll(channels, found);
+            return found;
+        });
+    }
+
+    /**
+     * Find the cached channels
+     * @param channelNames The channel names
+     * @param found The map receiving the cached channels, by lower case channel name
+     * @return The lower case names of the channels which aren't cached
+     */
+    private List<String> findCached(Collection<String> channelNames, Map<String, TwitchChannelInfo> found){
+        Set<String> missing = new LinkedHashSet<>();
+        for(String channelName : channelNames){
+            String key = channelName.toLowerCase(Locale.ROOT);
+            TwitchChannelInfo cached = channels.get(key);
+            if(cached != null) found.put(key, cached);
+            else missing.add(key);
+        }
+        return new ArrayList<>(missing);
+    }
+
+    /**
+     * Cache the channels retrieved by the delegate
+     * @param retrieved The retrieved channels, by lower case channel name
+     * @param found The map receiving them
+     */
+    private void cacheAll(Map<String, TwitchChannelInfo> retrieved, Map<String, TwitchChannelInfo> found){
+        retrieved.forEach((key, info) -> {
+            channels.put(key, info);
+            found.put(key, info);
+        });
+    }
+}
@@ -18,6 +18,7 @@ import fr.ollprogram.twitchdiscordbridge.model.DiscordChannelInfo;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Useful to request the discord API without a heavy client for simple validation requests
@@ -38,4 +39,17 @@ public interface DiscordService {
      */
     @NotNull Optional<DiscordChannelInfo> getChannel(@NotNull String channelID) throws ServiceException;
 
+    /**
+     * Authenticate without blocking the calling thread, like {@link #authenticate(String)}
+     * @param token A valid app token
+     * @return the bot info if authentication succeed, completed exceptionally with a ServiceException if the request failed
+     */
+    @NotNull CompletableFuture<Optional<DiscordBotInfo>> authenticateAsync(@NotNull String token);
+
+    /**
+     * Retrieve the channel without blocking the calling thread, like {@link #getChannel(String)}
+     * @param channelID The channel ID
+     * @return The channel infos, completed exceptionally with a ServiceException if the request failed
+     */
+    @NotNull CompletableFuture<Optional<DiscordChannelInfo>> getChannelAsync(@NotNull String channelID);
 }
@@ -14,7 +14,7 @@ package fr.ollprogram.twitchdiscordbridge.service;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import fr.ollprogram.twitchdiscordbridge.exception.ServiceDecodeFailedException;
 import fr.ollprogram.twitchdiscordbridge.exception.ServiceDisconnectedException;
 import fr.ollprogram.twitchdiscordbridge.exception.ServiceException;
@@ -26,11 +26,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 
 /**
@@ -53,6 +55,8 @@ public class DiscordServiceImpl implements DiscordService {
 
     private static final Logger LOG = LoggerFactory.getLogger("DiscordService");
 
+    private static final String API_NAME = "discord";
+
     @JsonIgnoreProperties(ignoreUnknown = true)
     private static class AuthValidationBody {
         public String id;
@@ -71,7 +75,11 @@ public class DiscordServiceImpl implements DiscordService {
         public String message;
     }
 
-    private String token;
+    private static final ObjectReader AUTH_VALIDATION_READER = ServiceResources.MAPPER.readerFor(AuthValidationBody.class);
+
+    private static final ObjectReader CHANNEL_READER = ServiceResources.MAPPER.readerFor(ChannelBody.class);
+
+    private volatile String token;
     private final HttpClient client;
 
     /**
@@ -85,10 +93,10 @@ public class DiscordServiceImpl implements DiscordService {
 
     /**
      * Discord service constructor
-     * Using the default HttpClient
+     * Using the http client shared by the services
      */
     public DiscordServiceImpl(){
-       this(HttpClient.newBuilder().build());
+       this(ServiceResources.sharedClient());
     }
 
     /**
@@ -100,30 +108,48 @@ public class DiscordServiceImpl implements DiscordService {
 
     @Override
     public @NotNull Optional<DiscordBotInfo> authenticate(@NotNull String token) throws ServiceException {
-        try {
-            AuthValidationBody response = callCheckDiscordToken(token);
-            if(response != null) {
-                this.token = token;
-                return Optional.of(new DiscordBotInfo(response.id, response.name));
-            }
-        } catch (IOException | InterruptedException e ){
-            LOG.error("Unable to request discord, reason : "+e.getMessage());
-            throw new ServiceRequestFailedException("Unable to request discord, reason : "+e.getMessage());
-        }
-        return Optional.empty();
+        AuthValidationBody body = ServiceResources.send(client, getAuthValidationRequest(token), DiscordServiceImpl::readAuthValidation, LOG, API_NAME);
+        return openSession(token, body);
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Optional<DiscordBotInfo>> authenticateAsync(@NotNull String token) {
+        return ServiceResources.sendAsync(client, getAuthValidationRequest(token), DiscordServiceImpl::readAuthValidation, LOG, API_NAME)
+                .thenApply(body -> openSession(token, body));
+    }
+
+    /**
+     * Keep a validated token
+     * @param token The discord token
+     * @param body The validation body, null if the token is invalid
+     * @return The bot info if the token is valid
+     */
+    private Optional<DiscordBotInfo> openSession(String token, AuthValidationBody body){
+        if(body == null) return Optional.empty();
+        this.token = token;
+        return Optional.of(new DiscordBotInfo(body.id, body.name));
     }
 
     @Override
     public @NotNull Optional<DiscordChannelInfo> getChannel(@NotNull String channelID) throws ServiceException {
         checkAuthCalled();
-        try {
-            ChannelBody body = callGetChannelByID(channelID);
-            if(body != null) return Optional.of(new DiscordChannelInfo(body.id, body.name));
-        } catch (IOException | InterruptedException e) {
-            LOG.error("Unable to request discord, reason : "+e.getMessage());
-            throw new ServiceRequestFailedException("Unable to request discord, reason : "+e.getMessage());
-        }
-        return Optional.empty();
+        return toChannel(ServiceResources.send(client, getChannelRequest(token, channelID), DiscordServiceImpl::readChannel, LOG, API_NAME));
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Optional<DiscordChannelInfo>> getChannelAsync(@NotNull String channelID) {
+        checkAuthCalled();
+        return ServiceResources.sendAsync(client, getChannelRequest(token, channelID), DiscordServiceImpl::readChannel, LOG, API_NAME)
+                .thenApply(DiscordServiceImpl::toChannel);
+    }
+
+    /**
+     * Get the channel of a channel response
+     * @param body The channel body, null if not found
+     * @return The channel infos
+     */
+    private static Optional<DiscordChannelInfo> toChannel(ChannelBody body){
+        return (body == null) ? Optional.empty() : Optional.of(new DiscordChannelInfo(body.id, body.name));
     }
 
     /**
@@ -160,19 +186,15 @@ public class DiscordServiceImpl implements DiscordService {
     }
 
     /**
-     * Call to the discord API to check if the token is valid
-     * @param token The discord token
+     * Read the response of the token validation
+     * @param response The response
      * @return The simplified body response or null if invalid
      * @throws IOException If an I/O error occurs
-     * @throws InterruptedException If an interruption error occurs
      */
-    private AuthValidationBody callCheckDiscordToken(String token) throws IOException, InterruptedException, ServiceException {
-        HttpRequest discordRequest = getAuthValidationRequest(token);
-        HttpResponse<String> response = client.send(discordRequest, HttpResponse.BodyHandlers.ofString());
-        ObjectMapper mapper = new ObjectMapper();
+    private static AuthValidationBody readAuthValidation(HttpResponse<InputStream> response) throws IOException, ServiceException {
         AuthValidationBody body;
-        try {
-            body = mapper.readValue(response.body(), AuthValidationBody.class);
+        try(InputStream in = response.body()) {
+            body = AUTH_VALIDATION_READER.readValue(in);
         } catch (JsonProcessingException e) {
             LOG.error("Unable to read the Discord validation response.");
             throw new ServiceDecodeFailedException("Unable to read the Discord validation response.");
@@ -193,26 +215,22 @@ public class DiscordServiceImpl implements DiscordService {
     }
 
     /**
-     * Call to the discord API to get a channel by its id
-     * @param channelID The id of the channel to retrieve
+     * Read the response of a channel request
+     * @param response The response
      * @return The simplified body response or null if not found
      * @throws IOException If an I/O error occurs
-     * @throws InterruptedException If an interruption error occurs
      */
-    private ChannelBody callGetChannelByID(String channelID) throws IOException, InterruptedException, ServiceException {
-        HttpRequest request = getChannelRequest(token, channelID);
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-        ObjectMapper mapper = new ObjectMapper();
+    private static ChannelBody readChannel(HttpResponse<InputStream> response) throws IOException, ServiceException {
         ChannelBody body;
-        try {
-            body = mapper.readValue(response.body(), ChannelBody.class);
+        try(InputStream in = response.body()) {
+            body = CHANNEL_READER.readValue(in);
         } catch(JsonProcessingException e) {
             LOG.error("Unable to read the Discord getChannel response.");
             throw new ServiceDecodeFailedException("Unable to read the Discord getChannel response.");
         }
         int status = response.statusCode();
         if(status == 200) return body;
-        else if(status == 404 && body.message.equals(UNKNOWN_CHANNEL_MESSAGE)) return null;
+        else if(status == 404 && UNKNOWN_CHANNEL_MESSAGE.equals(body.message)) return null;
         else {
             LOG.error("Request error : status=" + status + ", message=" + body.message);
             throw new ServiceRequestFailedException("Request error : status=" + status + ", message=" + body.message);
@@ -0,0 +1,172 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.ollprogram.twitchdiscordbridge.exception.ServiceException;
+import fr.ollprogram.twitchdiscordbridge.exception.ServiceRequestFailedException;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Resources and request helpers shared by the service implementations.
+ * The object mapper and the http client are thread safe and costly to create, they are built once.
+ * Only the http client is available outside the services, for the other discord and twitch requests.
+ */
+public final class ServiceResources {
+
+    /**
+     * The mapper the services build their readers from
+     */
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Reads a response of a service request
+     * @param <T> The result type
+     */
+    @FunctionalInterface
+    interface ResponseReader<T> {
+
+        /**
+         * Read the response, its body stream is closed by the reader
+         * @param response The response
+         * @return The result
+         * @throws IOException if the body can't be read
+         * @throws ServiceException if the response is an error or can't be decoded
+         */
+        T read(@NotNull HttpResponse<InputStream> response) throws IOException, ServiceException;
+    }
+
+    /**
+     * Holder of the shared client, created on first use
+     */
+    private static final class ClientHolder {
+        private static final HttpClient CLIENT = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .build();
+    }
+
+    /**
+     * Can't be instantiated
+     */
+    private ServiceResources(){
+        throw new UnsupportedOperationException("Service resources can't be instantiated");
+    }
+
+    /**
+     * Get the http client shared by the services, its connections are reused between requests
+     * @return The shared http client
+     */
+    public static @NotNull HttpClient sharedClient(){
+        return ClientHolder.CLIENT;
+    }
+
+    /**
+     * Send a request and read its response
+     * @param client The http client
+     * @param request The request
+     * @param reader The response reader
+     * @param log The logger of the service
+     * @param apiName The requested API, for the error messages
+     * @return The result of the reader
+     * @param <T> The result type
+     * @throws ServiceException if the request failed or the reader failed
+     */
+    static <T> T send(@NotNull HttpClient client, @NotNull HttpRequest request, @NotNull ResponseReader<T> reader,
+                      @NotNull Logger log, @NotNull String apiName) throws ServiceException {
+        try {
+            return reader.read(client.send(request, HttpResponse.BodyHandlers.ofInputStream()));
+        } catch (IOException e){
+            throw requestFailed(e, log, apiName);
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt(); //kept for the caller, e.g. a cancelled command
+            throw requestFailed(e, log, apiName);
+        }
+    }
+
+    /**
+     * Send a request without blocking and read its response in the http client threads
+     * @param client The http client
+     * @param request The request
+     * @param reader The response reader
+     * @param log The logger of the service
+     * @param apiName The requested API, for the error messages
+     * @return The result of the reader, completed with a CompletionException caused by a ServiceException on failure
+     * @param <T> The result type
+     */
+    static <T> @NotNull CompletableFuture<T> sendAsync(@NotNull HttpClient client, @NotNull HttpRequest request,
+                                                       @NotNull ResponseReader<T> reader, @NotNull Logger log, @NotNull String apiName){
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream()).handle((response, error) -> {
+            try {
+                if(error != null) throw requestFailed(unwrap(error), log, apiName);
+                return reader.read(response);
+            } catch (IOException e){
+                throw new CompletionException(requestFailed(e, log, apiName));
+            } catch (ServiceException e){
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Get the cause of an asynchronous failure
+     * @param error The failure, maybe wrapped by a completion stage
+     * @return The cause
+     */
+    static @NotNull Throwable unwrap(@NotNull Throwable error){
+        return (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+    }
+
+    /**
+     * Log and create the exception of a request which couldn't be done
+     * @param cause The cause
+     * @param log The logger of the service
+     * @param apiName The requested API
+     * @return The exception to throw
+     */
+    private static ServiceRequestFailedException requestFailed(Throwable cause, Logger log, String apiName){
+        log.error("Unable to request "+apiName+", reason : "+cause.getMessage());
+        return new ServiceRequestFailedException("Unable to request "+apiName+", reason : "+cause.getMessage());
+    }
+
+    /**
+     * Wait for the result of an asynchronous call, the request is cancelled if the waiting thread is interrupted
+     * @param future The asynchronous call
+     * @return The result
+     * @param <T> The result type
+     * @throws ServiceException if the call failed
+     */
+    static <T> T join(@NotNull CompletableFuture<T> future) throws ServiceException {
+        try {
+            return future.get();
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt(); //kept for the caller, e.g. a cancelled command
+            future.cancel(true);
+            throw new ServiceRequestFailedException("Request interrupted");
+        } catch (ExecutionException e){
+            Throwable cause = unwrap(e.getCause() == null ? e : e.getCause());
+            if(cause instanceof ServiceException serviceException) throw serviceException;
+            if(cause instanceof RuntimeException runtimeException) throw runtimeException;
+            throw new ServiceRequestFailedException("Request failed, reason : "+cause.getMessage());
+        }
+    }
+}
@@ -18,7 +18,10 @@ import fr.ollprogram.twitchdiscordbridge.model.TwitchBotInfo;
 import fr.ollprogram.twitchdiscordbridge.model.TwitchChannelInfo;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Useful to request the twitch API without a heavy client for simple validation requests
@@ -39,4 +42,33 @@ public interface TwitchService {
      * @return The channel infos
      */
     @NotNull Optional<TwitchChannelInfo> getChannel(@NotNull String channelName) throws ServiceException;
+
+    /**
+     * Authenticate without blocking the calling thread, like {@link #authenticate(String)}
+     * @param token A valid app token
+     * @return the bot info if authentication succeed, completed exceptionally with a ServiceException if the request failed
+     */
+    @NotNull CompletableFuture<Optional<TwitchBotInfo>> authenticateAsync(@NotNull String token);
+
+    /**
+     * Retrieve the channel without blocking the calling thread, like {@link #getChannel(String)}
+     * @param channelName The channel Name
+     * @return The channel infos, completed exceptionally with a ServiceException if the request failed
+     */
+    @NotNull CompletableFuture<Optional<TwitchChannelInfo>> getChannelAsync(@NotNull String channelName);
+
+    /**
+     * Retrieve several channels/users by their names, with one request per 100 names
+     * @param channelNames The channel names
+     * @return The channel infos of the existing channels, by lower case channel name
+     */
+    @NotNull Map<String, TwitchChannelInfo> getChannels(@NotNull Collection<@NotNull String> channelNames) throws ServiceException;
+
+    /**
+     * Retrieve several channels without blocking the calling thread, like {@link #getChannels(Collection)}
+     * @param channelNames The channel names
+     * @return The channel infos of the existing channels by lower case channel name,
+     * completed exceptionally with a ServiceException if a request failed
+     */
+    @NotNull CompletableFuture<Map<String, TwitchChannelInfo>> getChannelsAsync(@NotNull Collection<@NotNull String> channelNames);
 }
@@ -14,7 +14,7 @@ package fr.ollprogram.twitchdiscordbridge.service;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import fr.ollprogram.twitchdiscordbridge.exception.ServiceDecodeFailedException;
 import fr.ollprogram.twitchdiscordbridge.exception.ServiceDisconnectedException;
 import fr.ollprogram.twitchdiscordbridge.exception.ServiceException;
@@ -26,16 +26,28 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 /**
- * Implementation of the twitch service
+ * Implementation of the twitch service.
+ * A validated token is kept until it expires, so the service should be shared instead of being created for each request.
  */
 public class TwitchServiceImpl implements TwitchService {
 
@@ -47,6 +59,11 @@ public class TwitchServiceImpl implements TwitchService {
 
     private static final String USERS_ROUTE = "/helix/users";
 
+    /**
+     * The maximum number of logins helix accepts in one users request
+     */
+    public static final int MAX_LOGINS_PER_REQUEST = 100;
+
     private static final String AUTHORIZATION_HEADER = "authorization";
 
     private static final String CONTENT_TYPE_HEADER = "Content-Type";
@@ -54,6 +71,8 @@ public class TwitchServiceImpl implements TwitchService {
 
     private static final Logger LOG = LoggerFactory.getLogger("TwitchService");
 
+    private static final String API_NAME = "twitch";
+
     @JsonIgnoreProperties(ignoreUnknown = true)
     private static class AuthBody {
         public String client_id;
@@ -74,10 +93,20 @@ public class TwitchServiceImpl implements TwitchService {
         public String message;
     }
 
+    private static final ObjectReader AUTH_READER = ServiceResources.MAPPER.readerFor(AuthBody.class);
 
-    private String token;
+    private static final ObjectReader USER_LIST_READER = ServiceResources.MAPPER.readerFor(UserListBody.class);
 
-    private String clientID;
+    /**
+     * A validated token with its client ID
+     * @param token The twitch token
+     * @param clientID The client ID of the token
+     * @param botInfo The bot info returned by the validation
+     * @param expiresAt When the token expires
+     */
+    private record Session(String token, String clientID, TwitchBotInfo botInfo, Instant expiresAt) {}
+
+    private volatile Session session;
 
     private final HttpClient client;
 
@@ -87,64 +116,123 @@ public class TwitchServiceImpl implements TwitchService {
      */
     public TwitchServiceImpl(HttpClient client){
         this.client = client;
-        this.token = null;
-        this.clientID = null;
+        this.session = null;
     }
 
     /**
-     * Constructor using the default Http client
+     * Constructor using the http client shared by the services
      */
     public TwitchServiceImpl(){
-        this(HttpClient.newBuilder().build());
+        this(ServiceResources.sharedClient());
     }
 
 
     @Override
     public @NotNull Optional<TwitchBotInfo> authenticate(@NotNull String token) throws ServiceException {
-        try {
-            AuthBody body = callValidateToken(token);
-            if(body != null) {
-                this.clientID = body.client_id;
-                this.token = token;
-                return Optional.of(new TwitchBotInfo(body.client_id, getExpirationDate(body.expires_in)));
-            }
-        } catch (IOException | InterruptedException e ){
-            LOG.error("Unable to request twitch, reason : "+e.getMessage());
-            throw new ServiceRequestFailedException("Unable to request twitch, reason : "+e.getMessage());
+        Session current = session;
+        if(isSessionOf(current, token)) return Optional.of(current.botInfo()); //still valid, no need to request twitch again
+        AuthBody body = ServiceResources.send(client, getTokenValidateRequest(token), this::readValidation, LOG, API_NAME);
+        return openSession(token, body);
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Optional<TwitchBotInfo>> authenticateAsync(@NotNull String token) {
+        Session current = session;
+        if(isSessionOf(current, token)) return CompletableFuture.completedFuture(Optional.of(current.botInfo()));
+        return ServiceResources.sendAsync(client, getTokenValidateRequest(token), this::readValidation, LOG, API_NAME)
+                .thenApply(body -> openSession(token, body));
+    }
+
+    /**
+     * Check if a session is the one of a token and isn't expired
+     * @param session The session, maybe null
+     * @param token The twitch token
+     * @return If the token doesn't need to be validated again
+     */
+    private static boolean isSessionOf(Session session, String token){
+        return session != null && session.token().equals(token) && Instant.now().isBefore(session.expiresAt());
+    }
+
+    /**
+     * Open the session of a validated token, or close the current one
+     * @param token The twitch token
+     * @param body The validation body, null if the token is invalid
+     * @return The bot info if the token is valid
+     */
+    private Optional<TwitchBotInfo> openSession(String token, AuthBody body){
+        if(body == null){
+            session = null;
+            return Optional.empty();
         }
-        return Optional.empty();
+        Instant expiresAt = Instant.now().plusSeconds(body.expires_in);
+        TwitchBotInfo botInfo = new TwitchBotInfo(body.client_id, Date.from(expiresAt));
+        session = new Session(token, body.client_id, botInfo, expiresAt);
+        return Optional.of(botInfo);
     }
 
     /**
      * Check if authenticate operation was called before
+     * @return The current session
      */
-    private void checkAuthCalled(){
-        if(token == null || clientID == null) throw new ServiceDisconnectedException("Authentication failed or wasn't called before this");
+    private Session checkAuthCalled(){
+        Session current = session;
+        if(current == null) throw new ServiceDisconnectedException("Authentication failed or wasn't called before this");
+        return current;
     }
 
     @Override
     public @NotNull Optional<TwitchChannelInfo> getChannel(@NotNull String channelName) throws ServiceException {
-        checkAuthCalled();
-        try {
-            UserListBody userListBody = callGetChannelByName(token, clientID, channelName);
-            if(userListBody != null && userListBody.data.length > 0) {
-                UserBody userBody = userListBody.data[0];
-                return Optional.of(new TwitchChannelInfo(userBody.id, userBody.login));
-            }
-        }catch (IOException | InterruptedException e ){
-            LOG.error("Unable to request twitch, reason : "+e.getMessage());
-            throw new ServiceRequestFailedException("Unable to request twitch, reason : "+e.getMessage());
+        Session current = checkAuthCalled();
+        HttpRequest request = getTwitchChannelRequest(current.token(), current.clientID(), channelName);
+        return toChannel(ServiceResources.send(client, request, this::readUserList, LOG, API_NAME));
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Optional<TwitchChannelInfo>> getChannelAsync(@NotNull String channelName) {
+        Session current = checkAuthCalled();
+        HttpRequest request = getTwitchChannelRequest(current.token(), current.clientID(), channelName);
+        return ServiceResources.sendAsync(client, request, this::readUserList, LOG, API_NAME).thenApply(TwitchServiceImpl::toChannel);
+    }
+
+    @Override
+    public @NotNull Map<String, TwitchChannelInfo> getChannels(@NotNull Collection<@NotNull String> channelNames) throws ServiceException {
+        return ServiceResources.join(getChannelsAsync(channelNames));
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Map<String, TwitchChannelInfo>> getChannelsAsync(@NotNull Collection<@NotNull String> channelNames) {
+        Session current = checkAuthCalled();
+        List<String> logins = channelNames.stream().map(name -> name.toLowerCase(Locale.ROOT)).distinct().toList();
+        List<CompletableFuture<UserListBody>> chunks = new ArrayList<>();
+        for(int from = 0; from < logins.size(); from += MAX_LOGINS_PER_REQUEST){
+            List<String> chunk = logins.subList(from, Math.min(from + MAX_LOGINS_PER_REQUEST, logins.size()));
+            HttpRequest request = getTwitchChannelsRequest(current.token(), current.clientID(), chunk);
+            chunks.add(ServiceResources.sendAsync(client, request, this::readUserList, LOG, API_NAME)); //sent at the same time
         }
-        return Optional.empty();
+        return CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new)).thenApply(done -> {
+            Map<String, TwitchChannelInfo> channels = new HashMap<>();
+            for(CompletableFuture<UserListBody> chunk : chunks){
+                UserListBody body = chunk.join();
+                if(body == null || body.data == null) continue; //no user found
+                for(UserBody user : body.data){
+                    channels.put(user.login.toLowerCase(Locale.ROOT), new TwitchChannelInfo(user.id, user.login));
+                }
+            }
+            return channels;
+        });
     }
 
     /**
-     * Get the expiration date with the token expiration time
-     * @param expiresIn The time before the token expiration
-     * @return The expiration date
+     * Get the channel of a users response
+     * @param userListBody The users response body
+     * @return The first user of the response
      */
-    private static Date getExpirationDate(long expiresIn){
-        return Date.from(Instant.now().plusSeconds(expiresIn));
+    private static Optional<TwitchChannelInfo> toChannel(UserListBody userListBody){
+        if(userListBody != null && userListBody.data != null && userListBody.data.length > 0) {
+            UserBody userBody = userListBody.data[0];
+            return Optional.of(new TwitchChannelInfo(userBody.id, userBody.login));
+        }
+        return Optional.empty();
     }
 
     /**
@@ -190,19 +278,31 @@ public class TwitchServiceImpl implements TwitchService {
     }
 
     /**
-     * Call the twitch token validation endpoint
+     * Get the twitch channels search request
      * @param token The twitch token
-     * @return The Auth response body (filtered)
+     * @param clientID The client ID
+     * @param channelNames The channel names, at most 100
+     * @return The twitch users request, ready to be sent
+     */
+    private HttpRequest getTwitchChannelsRequest(String token, String clientID, List<String> channelNames){
+        String query = channelNames.stream()
+                .map(name -> "login=" + URLEncoder.encode(name, StandardCharsets.UTF_8))
+                .collect(Collectors.joining("&"));
+        return prepareHeadersWithClientID(token, clientID).GET()
+                .uri(URI.create(BASE_API_ROUTE + USERS_ROUTE + "?" + query))
+                .build();
+    }
+
+    /**
+     * Read the response of the twitch token validation endpoint
+     * @param response The response
+     * @return The Auth response body (filtered), or null if the token is invalid
      * @throws IOException if an I/O error occurs
-     * @throws InterruptedException If an interruption error occurs
      */
-    private AuthBody callValidateToken(String token) throws IOException, InterruptedException, ServiceException {
-        HttpRequest twitchRequest = getTokenValidateRequest(token);
-        HttpResponse<String> response = client.send(twitchRequest, HttpResponse.BodyHandlers.ofString());
-        ObjectMapper mapper = new ObjectMapper();
+    private AuthBody readValidation(HttpResponse<InputStream> response) throws IOException, ServiceException {
         AuthBody body;
-        try {
-            body = mapper.readValue(response.body(), AuthBody.class);
+        try(InputStream in = response.body()) {
+            body = AUTH_READER.readValue(in);
         } catch (JsonProcessingException e) {
             LOG.error("Unable to read the Twitch validation response.");
             throw new ServiceDecodeFailedException("Unable to read the Twitch validation response.");
@@ -227,33 +327,26 @@ public class TwitchServiceImpl implements TwitchService {
     }
 
     /**
-     * Call the users endpoint and retrieve the channel/user corresponding to the channelName given
-     * @param token The twitch token
-     * @param clientID The client ID
-     * @param channelName The channel Name
+     * Read the response of the users endpoint
+     * @param response The response
      * @return The users response body (fields filtered)
      * @throws IOException if an I/O error occurs
-     * @throws InterruptedException If an interruption error occurs
      */
-    private UserListBody callGetChannelByName(String token, String clientID, String channelName) throws IOException, InterruptedException, ServiceException {
-        HttpRequest request = getTwitchChannelRequest(token, clientID, channelName);
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-        ObjectMapper mapper = new ObjectMapper();
+    private UserListBody readUserList(HttpResponse<InputStream> response) throws IOException, ServiceException {
         UserListBody body;
-        try {
-            body = mapper.readValue(response.body(), UserListBody.class);
+        try(InputStream in = response.body()) {
+            body = USER_LIST_READER.readValue(in);
         } catch(JsonProcessingException e){
-            LOG.error("Unable to read twitch users response");
-            throw new ServiceDecodeFailedException("Unable to read the Twitch validation response.");
+            LOG.error("Unable to read the Twitch users response.");
+            throw new ServiceDecodeFailedException("Unable to read the Twitch users response.");
         }
         int status = response.statusCode();
         if(status == 200){
             return body;
         }else {
+            if(status == 401) session = null; //revoked before its expiration, it must be validated again
             LOG.error("Request error : status=" + status + ", message=" + body.message);
             throw new ServiceRequestFailedException("Request error : status=" + status + ", message=" + body.message);
         }
     }
-
-
 }
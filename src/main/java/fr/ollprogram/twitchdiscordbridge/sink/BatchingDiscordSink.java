@@ -0,0 +1,285 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.sink;
+
+import fr.ollprogram.twitchdiscordbridge.utils.RecentHashWindow;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A discord sink gathering the lines sent to a channel into one discord message.
+ * A line is sent immediately if the channel didn't receive a message during the last window, so the latency stays low
+ * at low volume. Otherwise, the line waits the end of the window with the following ones, and they are sent together
+ * (or earlier if the discord message length limit is reached). A busy channel then receives about one message per window.
+ * Each channel has its own lock, and the delegate is called outside of it, in the channel order.
+ */
+public class BatchingDiscordSink implements DiscordSink {
+
+    /**
+     * The maximum length of a discord message
+     */
+    public static final int MAX_MESSAGE_LENGTH = 2000;
+
+    /**
+     * The separator between the lines packed into one discord message
+     */
+    public static final String SEPARATOR = "\n";
+
+    private final DiscordSink delegate;
+
+    private final long windowNanos;
+
+    private final LongSupplier clock;
+
+    private final Map<Long, Batch> batches;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicInteger queueDepth;
+
+    private final AtomicLong sentLines;
+
+    private final AtomicLong sentMessages;
+
+    private static final Logger LOG = LoggerFactory.getLogger("DiscordSink");
+
+    /**
+     * The pending lines of a channel, guarded by itself
+     */
+    private static final class Batch {
+        private final StringBuilder text = new StringBuilder();
+        private final List<Runnable> callbacks = new ArrayList<>();
+        private final StringBuilder nonces = new StringBuilder(); //of the lines, if they all have one
+        private final Deque<Delivery> outgoing = new ArrayDeque<>(); //messages to hand to the delegate, in order
+        private boolean nonced = true;
+        private int lines = 0;
+        private long lastFlush;
+        private boolean flushScheduled = false;
+        private boolean delivering = false; //a thread is handing the outgoing messages to the delegate
+        private Batch(long lastFlush) {
+            this.lastFlush = lastFlush;
+        }
+    }
+
+    /**
+     * A message ready to be sent by the delegate
+     * @param text The message
+     * @param nonce The message nonce, or null
+     * @param onSent Run once the message is acknowledged
+     */
+    private record Delivery(String text, @Nullable String nonce, Runnable onSent) {}
+
+    /**
+     * Constructor
+     * @param delegate The sink sending the batches
+     * @param window The flush window
+     * @param unit The window unit
+     */
+    public BatchingDiscordSink(@NotNull DiscordSink delegate, long window, @NotNull TimeUnit unit){
+        this(delegate, window, unit, System::nanoTime);
+    }
+
+    /**
+     * Constructor with a custom clock
+     * @param delegate The sink sending the batches
+     * @param window The flush window
+     * @param unit The window unit
+     * @param clock The clock, in nanoseconds
+     */
+    BatchingDiscordSink(DiscordSink delegate, long window, TimeUnit unit, LongSupplier clock){
+        this.delegate = delegate;
+        this.windowNanos = unit.toNanos(window);
+        this.clock = clock;
+        this.batches = new ConcurrentHashMap<>();
+        this.queueDepth = new AtomicInteger();
+        this.sentLines = new AtomicLong();
+        this.sentMessages = new AtomicLong();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "discord-sink");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void send(long channelID, @NotNull String message, @NotNull Runnable onSent) {
+        enqueue(channelID, message, null, onSent);
+    }
+
+    @Override
+    public void sendOnce(long channelID, @NotNull String message, @NotNull String nonce, @NotNull Runnable onSent) {
+        enqueue(channelID, message, nonce, onSent);
+    }
+
+    /**
+     * Send a line now if the channel is quiet, or add it to the channel batch
+     * @param channelID The discord channel ID
+     * @param message The line
+     * @param nonce The line nonce, or null
+     * @param onSent Run once discord acknowledged the line
+     */
+    private void enqueue(long channelID, String message, @Nullable String nonce, Runnable onSent) {
+        long now = clock.getAsLong();
+        Batch batch = batches.computeIfAbsent(channelID, id -> new Batch(now - windowNanos));
+        synchronized (batch){
+            if(batch.lines == 0 && now - batch.lastFlush >= windowNanos){ //quiet channel
+                batch.lastFlush = now;
+                batch.outgoing.add(new Delivery(message, nonce, onSent));
+                sentLines.incrementAndGet();
+                sentMessages.incrementAndGet();
+            } else {
+                if(batch.lines > 0 && batch.text.length() + SEPARATOR.length() + message.length() > MAX_MESSAGE_LENGTH){
+                    flush(batch, now);
+                }
+                if(batch.lines > 0) batch.text.append(SEPARATOR);
+                batch.text.append(message);
+                batch.callbacks.add(onSent);
+                if(nonce == null) batch.nonced = false;
+                else batch.nonces.append(nonce).append(SEPARATOR);
+                batch.lines++;
+                queueDepth.incrementAndGet();
+                if(!batch.flushScheduled) scheduleFlush(channelID, batch, now);
+            }
+        }
+        deliver(channelID, batch);
+    }
+
+    /**
+     * Schedule the flush of a batch at the end of its window. Should be called while holding the batch lock.
+     * @param channelID The discord channel ID
+     * @param batch The batch
+     * @param now The current time
+     */
+    private void scheduleFlush(long channelID, Batch batch, long now){
+        long delay = Math.max(0, batch.lastFlush + windowNanos - now);
+        try {
+            scheduler.schedule(() -> timedFlush(channelID, batch), delay, TimeUnit.NANOSECONDS);
+            batch.flushScheduled = true;
+        } catch (RejectedExecutionException e){
+            flush(batch, now); //stopped, no more waiting
+        }
+    }
+
+    /**
+     * Flush a batch at the end of its window
+     * @param channelID The discord channel ID
+     * @param batch The batch
+     */
+    private void timedFlush(long channelID, Batch batch){
+        synchronized (batch){
+            batch.flushScheduled = false;
+            if(batch.lines > 0) flush(batch, clock.getAsLong());
+        }
+        deliver(channelID, batch);
+    }
+
+    /**
+     * Move the pending lines of a batch to its outgoing messages. Should be called while holding the batch lock.
+     * @param batch The batch
+     * @param now The current time
+     */
+    private void flush(Batch batch, long now){
+        int lines = batch.lines;
+        List<Runnable> callbacks = List.copyOf(batch.callbacks);
+        String nonce = batch.nonced ? batchNonce(batch.nonces, lines) : null;
+        batch.outgoing.add(new Delivery(batch.text.toString(), nonce, () -> callbacks.forEach(Runnable::run)));
+        batch.text.setLength(0);
+        batch.callbacks.clear();
+        batch.nonces.setLength(0);
+        batch.nonced = true;
+        batch.lines = 0;
+        batch.lastFlush = now;
+        queueDepth.addAndGet(-lines);
+        sentLines.addAndGet(lines);
+        sentMessages.incrementAndGet();
+    }
+
+    /**
+     * Get the nonce of a batch, it is the same only for a batch of the same lines
+     * @param nonces The nonces of the lines, each followed by the separator
+     * @param lines The number of lines
+     * @return The line nonce for a single line, a hash of the line nonces otherwise
+     */
+    private static String batchNonce(StringBuilder nonces, int lines){
+        if(lines == 1) return nonces.substring(0, nonces.length() - SEPARATOR.length());
+        return "b" + Long.toUnsignedString(RecentHashWindow.hash(nonces), Character.MAX_RADIX);
+    }
+
+    /**
+     * Hand the outgoing messages of a batch to the delegate, without holding the batch lock.
+     * Only one thread delivers the messages of a channel at a time, so they keep their order.
+     * @param channelID The discord channel ID
+     * @param batch The batch
+     */
+    private void deliver(long channelID, Batch batch){
+        synchronized (batch){
+            if(batch.delivering) return; //the delivering thread will take them
+            batch.delivering = true;
+        }
+        while(true){
+            Delivery delivery;
+            synchronized (batch){
+                delivery = batch.outgoing.poll();
+                if(delivery == null){
+                    batch.delivering = false;
+                    return;
+                }
+            }
+            try {
+                if(delivery.nonce() == null) delegate.send(channelID, delivery.text(), delivery.onSent());
+                else delegate.sendOnce(channelID, delivery.text(), delivery.nonce(), delivery.onSent());
+            } catch (RuntimeException e){
+                LOG.warn("Can't send the message to discord : "+e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    @Override
+    public double getBatchingRatio() {
+        long messages = sentMessages.get();
+        return (messages == 0) ? 1 : (double) sentLines.get() / messages;
+    }
+
+    @Override
+    public void shutdown() throws InterruptedException {
+        scheduler.shutdownNow();
+        long now = clock.getAsLong();
+        batches.forEach((channelID, batch) -> {
+            synchronized (batch){
+                if(batch.lines > 0) flush(batch, now);
+            }
+            deliver(channelID, batch);
+        });
+        delegate.shutdown();
+    }
+}
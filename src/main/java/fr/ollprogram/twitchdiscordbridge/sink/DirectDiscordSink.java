@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.sink;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.requests.restaction.MessageCreateAction;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A discord sink sending each message immediately, rate limits are left to JDA
+ */
+public class DirectDiscordSink implements DiscordSink {
+
+    private final JDA discordBot;
+
+    private static final Logger LOG = LoggerFactory.getLogger("DiscordSink");
+
+    /**
+     * Constructor
+     * @param discordBot The discord bot / JDA instance
+     */
+    public DirectDiscordSink(@NotNull JDA discordBot){
+        this.discordBot = discordBot;
+    }
+
+    @Override
+    public void send(long channelID, @NotNull String message, @NotNull Runnable onSent) {
+        post(channelID, message, null, onSent, () -> {});
+    }
+
+    @Override
+    public void sendOnce(long channelID, @NotNull String message, @NotNull String nonce, @NotNull Runnable onSent) {
+        post(channelID, message, nonce, onSent, () -> {});
+    }
+
+    @Override
+    public void sendOnce(long channelID, @NotNull String message, @NotNull String nonce, @NotNull Runnable onSent,
+                         @NotNull Runnable onFailed) {
+        post(channelID, message, nonce, onSent, onFailed);
+    }
+
+    /**
+     * Send a message now
+     * @param channelID The discord channel ID
+     * @param message The message to send
+     * @param nonce The message nonce, or null
+     * @param onSent Run once discord acknowledged the message
+     * @param onFailed Run if discord or the network failed to take the message
+     */
+    private void post(long channelID, String message, @Nullable String nonce, Runnable onSent, Runnable onFailed) {
+        TextChannel channel = discordBot.getTextChannelById(channelID);
+        if(channel == null){
+            LOG.warn("Discord channel not found (configuration is outdated)");
+            return;
+        }
+        MessageCreateAction action = channel.sendMessage(message);
+        if(nonce != null) action = action.setNonce(nonce);
+        action.queue(sent -> onSent.run(), error -> {
+            LOG.warn("Can't send the message to discord : "+error.getMessage());
+            onFailed.run();
+        });
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return 0;
+    }
+
+    @Override
+    public double getBatchingRatio() {
+        return 1;
+    }
+
+    @Override
+    public void shutdown() {
+        //nothing to flush
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.sink;
+
+import com.github.twitch4j.TwitchClient;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A twitch sink sending each message immediately, rate limits are left to twitch4j
+ */
+public class DirectTwitchSink implements TwitchSink {
+
+    private final TwitchClient twitchBot;
+
+    /**
+     * Constructor
+     * @param twitchBot The twitch client
+     */
+    public DirectTwitchSink(@NotNull TwitchClient twitchBot){
+        this.twitchBot = twitchBot;
+    }
+
+    @Override
+    public void send(@NotNull String channelName, @NotNull String message, @NotNull Runnable onSent) {
+        if(twitchBot.getChat().sendMessage(channelName, message)) onSent.run(); //refused when disconnected or queue full
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return 0;
+    }
+
+    @Override
+    public double getCoalescingRatio() {
+        return 1;
+    }
+
+    @Override
+    public void shutdown() {
+        //nothing to flush
+    }
+}
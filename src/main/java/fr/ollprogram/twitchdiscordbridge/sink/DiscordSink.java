@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.sink;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The outbound stage of the messages sent to discord text channels.
+ * A message can be given a callback, run once discord acknowledged it, e.g. to measure the relay latency.
+ */
+public interface DiscordSink {
+
+    /**
+     * Send a message to a discord text channel. The message can be sent later.
+     * @param channelID The discord channel ID
+     * @param message The message to send
+     */
+    default void send(long channelID, @NotNull String message) {
+        send(channelID, message, () -> {});
+    }
+
+    /**
+     * Send a message to a discord text channel. The message can be sent later.
+     * @param channelID The discord channel ID
+     * @param message The message to send
+     * @param onSent Run once discord acknowledged the message, not run if the message couldn't be sent
+     */
+    void send(long channelID, @NotNull String message, @NotNull Runnable onSent);
+
+    /**
+     * Send a message to a discord text channel, with a nonce. The message can be sent later.
+     * Discord doesn't post twice a message with the same nonce sent to a channel a few minutes apart,
+     * so a message sent again after a failure or a restart isn't duplicated. By default, the nonce is ignored.
+     * @param channelID The discord channel ID
+     * @param message The message to send
+     * @param nonce The message nonce, at most 25 characters
+     * @param onSent Run once discord acknowledged the message, not run if the message couldn't be sent
+     */
+    default void sendOnce(long channelID, @NotNull String message, @NotNull String nonce, @NotNull Runnable onSent) {
+        send(channelID, message, onSent);
+    }
+
+    /**
+     * Send a message to a discord text channel, with a nonce, and be told if discord refused it. The message can be sent later.
+     * By default, the failures are not reported.
+     * @param channelID The discord channel ID
+     * @param message The message to send
+     * @param nonce The message nonce, at most 25 characters
+     * @param onSent Run once discord acknowledged the message
+     * @param onFailed Run if discord or the network failed to take the message, it can be sent again later
+     */
+    default void sendOnce(long channelID, @NotNull String message, @NotNull String nonce, @NotNull Runnable onSent,
+                          @NotNull Runnable onFailed) {
+        sendOnce(channelID, message, nonce, onSent);
+    }
+
+    /**
+     * Send a message written by someone to a discord text channel, with a nonce. The message can be sent later.
+     * By default, the author name is written before the content.
+     * @param channelID The discord channel ID
+     * @param author The author name
+     * @param content The message content
+     * @param nonce The message nonce, at most 25 characters
+     * @param onSent Run once discord acknowledged the message, not run if the message couldn't be sent
+     */
+    default void sendOnce(long channelID, @NotNull String author, @NotNull String content, @NotNull String nonce,
+                          @NotNull Runnable onSent) {
+        sendOnce(channelID, author + " says : " + content, nonce, onSent);
+    }
+
+    /**
+     * Send a message written by someone to a discord text channel. The message can be sent later.
+     * By default, the author name is written before the content.
+     * @param channelID The discord channel ID
+     * @param author The author name
+     * @param content The message content
+     */
+    default void send(long channelID, @NotNull String author, @NotNull String content) {
+        send(channelID, author, content, () -> {});
+    }
+
+    /**
+     * Send a message written by someone to a discord text channel. The message can be sent later.
+     * By default, the author name is written before the content.
+     * @param channelID The discord channel ID
+     * @param author The author name
+     * @param content The message content
+     * @param onSent Run once discord acknowledged the message, not run if the message couldn't be sent
+     */
+    default void send(long channelID, @NotNull String author, @NotNull String content, @NotNull Runnable onSent) {
+        send(channelID, author + " says : " + content, onSent);
+    }
+
+    /**
+     * Get the number of lines waiting to be sent, for all channels
+     * @return The queue depth
+     */
+    int getQueueDepth();
+
+    /**
+     * Get the average number of lines per discord message sent
+     * @return The batching ratio, 1 if lines are never batched
+     */
+    double getBatchingRatio();
+
+    /**
+     * Stop the sink, pending lines are sent.
+     * @throws InterruptedException if an interruption error occurs
+     */
+    void shutdown() throws InterruptedException;
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.sink;
+
+import fr.ollprogram.twitchdiscordbridge.bridge.Direction;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A discord sink writing the messages to the outbox journal before sending them, and marking them done once acknowledged.
+ * It is placed below the batching, so each journaled message is the one posted: a line or a whole batch.
+ * The messages are sent with their own nonce, or a nonce made from their journal ID, and the nonce is journaled:
+ * a message sent again after a failure or a restart keeps its nonce, so it isn't posted twice if it had been posted
+ * in the meantime. A message discord failed to take is sent again a few times, with an exponential backoff.
+ */
+public class JournaledDiscordSink implements DiscordSink {
+
+    /**
+     * The default delay before sending again a failed message, doubled after each failure
+     */
+    public static final long DEFAULT_RETRY_DELAY = 1000;
+
+    private static final long MAX_RETRY_DELAY = 60_000;
+
+    private static final int MAX_RETRIES = 6; //then the message waits for the next replay
+
+    private static final Logger LOG = LoggerFactory.getLogger("Outbox");
+
+    private static final Direction DIRECTION = Direction.TWITCH_TO_DISCORD;
+
+    private static final String NONCE_PREFIX = "tdb";
+
+    private final DiscordSink delegate;
+
+    private final OutboxJournal journal;
+
+    private final long retryDelay;
+
+    private final ScheduledExecutorService retries;
+
+    /**
+     * Constructor, with the default retry delay
+     * @param delegate The sink posting the messages
+     * @param journal The outbox journal
+     */
+    public JournaledDiscordSink(@NotNull DiscordSink delegate, @NotNull OutboxJournal journal){
+        this(delegate, journal, DEFAULT_RETRY_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Constructor
+     * @param delegate The sink posting the messages
+     * @param journal The outbox journal
+     * @param retryDelay The delay before sending again a failed message, doubled after each failure
+     * @param unit The delay unit
+     */
+    JournaledDiscordSink(DiscordSink delegate, OutboxJournal journal, long retryDelay, TimeUnit unit){
+        this.delegate = delegate;
+        this.journal = journal;
+        this.retryDelay = unit.toMillis(retryDelay);
+        this.retries = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "outbox-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void send(long channelID, @NotNull String message, @NotNull Runnable onSent) {
+        long id = append(channelID, message, null);
+        if(id < 0) delegate.send(channelID, message, onSent);
+        else post(id, channelID, message, nonce(id), onSent, 0);
+    }
+
+    @Override
+    public void sendOnce(long channelID, @NotNull String message, @NotNull String nonce, @NotNull Runnable onSent) {
+        long id = append(channelID, message, nonce);
+        if(id < 0) delegate.sendOnce(channelID, message, nonce, onSent);
+        else post(id, channelID, message, nonce, onSent, 0);
+    }
+
+    /**
+     * Send again, in order, the pending messages appended a while ago, with the nonce they were sent with.
+     * The messages appended since are left to the delegate, they are probably still waiting to be sent.
+     * @param minAge The minimum age of a replayed message
+     * @param unit The age unit
+     * @return The number of replayed messages
+     */
+    public int replay(long minAge, @NotNull TimeUnit unit) {
+        long appendedBefore = System.currentTimeMillis() - unit.toMillis(minAge);
+        int replayed = 0;
+        for(OutboxJournal.Entry entry : journal.getPending(DIRECTION)){
+            if(entry.appendedAt() > appendedBefore) break; //in the append order
+            long channelID;
+            try {
+                channelID = Long.parseLong(entry.target());
+            } catch (NumberFormatException e){
+                journal.markDone(entry.id()); //not a discord channel, can't be sent
+                continue;
+            }
+            String text = (entry.author() == null) ? entry.text() : entry.author() + " says : " + entry.text();
+            String nonce = (entry.nonce() == null) ? nonce(entry.id()) : entry.nonce();
+            post(entry.id(), channelID, text, nonce, () -> {}, 0);
+            replayed++;
+        }
+        if(replayed > 0) LOG.info("Replayed "+replayed+" pending messages to discord");
+        return replayed;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return delegate.getQueueDepth();
+    }
+
+    @Override
+    public double getBatchingRatio() {
+        return delegate.getBatchingRatio();
+    }
+
+    @Override
+    public void shutdown() throws InterruptedException {
+        retries.shutdownNow(); //the pending messages are replayed on the next start
+        delegate.shutdown();
+        journal.close();
+    }
+
+    /**
+     * Post a journaled message, it is marked done once acknowledged and sent again if it fails
+     * @param id The message ID
+     * @param channelID The discord channel ID
+     * @param message The message
+     * @param nonce The message nonce
+     * @param onSent The sender callback
+     * @param attempt The number of failed attempts
+     */
+    private void post(long id, long channelID, String message, String nonce, Runnable onSent, int attempt) {
+        delegate.sendOnce(channelID, message, nonce, () -> {
+            journal.markDone(id);
+            onSent.run();
+        }, () -> retry(id, channelID, message, nonce, onSent, attempt + 1));
+    }
+
+    /**
+     * Schedule a failed message to be sent again, after a delay doubled at each attempt
+     * @param id The message ID
+     * @param channelID The discord channel ID
+     * @param message The message
+     * @param nonce The message nonce
+     * @param onSent The sender callback
+     * @param attempt The number of failed attempts
+     */
+    private void retry(long id, long channelID, String message, String nonce, Runnable onSent, int attempt) {
+        if(attempt > MAX_RETRIES){
+            LOG.warn("The message failed "+attempt+" times, it is kept for the next replay");
+            return;
+        }
+        long delay = Math.min(retryDelay << (attempt - 1), MAX_RETRY_DELAY);
+        try {
+            retries.schedule(() -> {
+                if(journal.isPending(id)) post(id, channelID, message, nonce, onSent, attempt); //not acknowledged meanwhile
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e){
+            //stopped, replayed on the next start
+        }
+    }
+
+    /**
+     * Append a message to the journal
+     * @param channelID The discord channel ID
+     * @param message The message
+     * @param nonce The message nonce, or null to use the message ID
+     * @return The message ID, or -1 if it can't be journaled (it is sent anyway)
+     */
+    private long append(long channelID, String message, @Nullable String nonce) {
+        try {
+            return journal.append(DIRECTION, Long.toString(channelID), null, message, nonce);
+        } catch (IOException e){
+            LOG.warn("Can't journal the message, it won't be replayed : "+e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Get the nonce of a message without nonce of its own
+     * @param id The message ID
+     * @return The nonce
+     */
+    private static String nonce(long id) {
+        return NONCE_PREFIX + id;
+    }
+}
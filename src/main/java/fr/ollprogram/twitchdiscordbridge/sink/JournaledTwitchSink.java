@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.sink;
+
+import fr.ollprogram.twitchdiscordbridge.bridge.Direction;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A twitch sink writing the messages to the outbox journal before sending them, and marking them done once handed to
+ * the twitch chat connection, or dropped by the delegate (e.g. its queue is full). A message refused by the connection stays
+ * pending until the replay following the next chat login. Twitch chat has no nonce: the messages
+ * handed to the delegate recently are not replayed, they are probably still waiting in its queue.
+ * This class is thread safe.
+ */
+public class JournaledTwitchSink implements TwitchSink {
+
+    private static final Logger LOG = LoggerFactory.getLogger("Outbox");
+
+    private static final Direction DIRECTION = Direction.DISCORD_TO_TWITCH;
+
+    private final TwitchSink delegate;
+
+    private final OutboxJournal journal;
+
+    private final Map<Long, Long> handedAt; //the time the pending messages were last handed to the delegate
+
+    /**
+     * Constructor
+     * @param delegate The sink sending the messages
+     * @param journal The outbox journal
+     */
+    public JournaledTwitchSink(@NotNull TwitchSink delegate, @NotNull OutboxJournal journal){
+        this.delegate = delegate;
+        this.journal = journal;
+        this.handedAt = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void send(@NotNull String channelName, @NotNull String message, @NotNull Runnable onSent) {
+        send(channelName, message, onSent, () -> {});
+    }
+
+    @Override
+    public void send(@NotNull String channelName, @NotNull String message, @NotNull Runnable onSent, @NotNull Runnable onDropped) {
+        long id;
+        try {
+            id = journal.append(DIRECTION, channelName, null, message);
+        } catch (IOException e){
+            LOG.warn("Can't journal the message, it won't be replayed : "+e.getMessage());
+            delegate.send(channelName, message, onSent, onDropped);
+            return;
+        }
+        hand(id, channelName, message, onSent, onDropped);
+    }
+
+    /**
+     * Send again, in order, the pending messages not handed to the delegate for a while.
+     * A message that failed to be sent stays pending, it is sent again by the next replay.
+     * @param minAge The minimum time since a replayed message was handed to the delegate, or appended for the previous runs
+     * @param unit The age unit
+     * @return The number of replayed messages
+     */
+    public int replay(long minAge, @NotNull TimeUnit unit) {
+        long handedBefore = System.currentTimeMillis() - unit.toMillis(minAge);
+        int replayed = 0;
+        List<OutboxJournal.Entry> pending = journal.getPending(DIRECTION);
+        handedAt.keySet().retainAll(pending.stream().map(OutboxJournal.Entry::id).toList()); //the expired ones
+        for(OutboxJournal.Entry entry : pending){
+            if(handedAt.getOrDefault(entry.id(), entry.appendedAt()) > handedBefore) continue;
+            hand(entry.id(), entry.target(), entry.text(), () -> {}, () -> {});
+            replayed++;
+        }
+        if(replayed > 0) LOG.info("Replayed "+replayed+" pending messages to twitch");
+        return replayed;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return delegate.getQueueDepth();
+    }
+
+    @Override
+    public double getCoalescingRatio() {
+        return delegate.getCoalescingRatio();
+    }
+
+    @Override
+    public void shutdown() throws InterruptedException {
+        delegate.shutdown();
+        journal.close();
+    }
+
+    /**
+     * Hand a journaled message to the delegate, it is marked done once sent or dropped
+     * @param id The message ID
+     * @param channelName The twitch channel name
+     * @param message The message
+     * @param onSent The sender callback once sent
+     * @param onDropped The sender callback if dropped
+     */
+    private void hand(long id, String channelName, String message, Runnable onSent, Runnable onDropped) {
+        handedAt.put(id, System.currentTimeMillis());
+        delegate.send(channelName, message, () -> {
+            done(id);
+            onSent.run();
+        }, () -> {
+            done(id); //given up, like the delegate does
+            onDropped.run();
+        });
+    }
+
+    /**
+     * Mark a message done, it won't be replayed
+     * @param id The message ID
+     */
+    private void done(long id) {
+        journal.markDone(id);
+        handedAt.remove(id);
+    }
+}
@@ -0,0 +1,454 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.sink;
+
+import fr.ollprogram.twitchdiscordbridge.bridge.Direction;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An append-only journal of the outgoing messages, in a memory-mapped file.
+ * A message is appended before being sent and marked done once acknowledged, the messages not done are pending:
+ * after a crash or a restart, they can be sent again in order. A written record survives a crash of the process,
+ * the file is synced to the disk when it is compacted or closed.
+ * When the file is full, it is compacted in place: the pending messages are first written to a copy, synced, then over
+ * the mapped file (which can't be replaced while mapped on some systems). A compaction interrupted by a crash is finished
+ * from the copy when the journal is opened again.
+ * This class is thread safe.
+ */
+public final class OutboxJournal implements Closeable {
+
+    /**
+     * The default size of the journal file in bytes
+     */
+    public static final int DEFAULT_CAPACITY = 4 * 1024 * 1024;
+
+    private static final Logger LOG = LoggerFactory.getLogger("Outbox");
+
+    private static final int MAGIC = 0x5444424F; //"TDBO"
+
+    private static final int HEADER_SIZE = 16; //magic, reserved, next id
+
+    private static final int NEXT_ID_OFFSET = 8;
+
+    private static final byte SEND = 1;
+
+    private static final byte DONE = 2;
+
+    private static final byte SEND_ONCE = 3; //a message record followed by its nonce
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final String COPY_SUFFIX = ".compacted";
+
+    /**
+     * A pending message
+     * @param id The message ID, increasing in the append order
+     * @param direction The direction of the message, TWITCH_TO_DISCORD for a message sent to discord
+     * @param target The destination channel, a discord channel ID or a twitch channel name
+     * @param author The author name, or null if the message has no author
+     * @param text The message
+     * @param appendedAt The time the message was appended, in epoch milliseconds
+     * @param nonce The nonce the message was sent with, or null if it has none of its own
+     */
+    public record Entry(long id, @NotNull Direction direction, @NotNull String target, @Nullable String author,
+                        @NotNull String text, long appendedAt, @Nullable String nonce) {}
+
+    private final Path path;
+
+    private final int capacity;
+
+    private final Map<Long, Entry> pending; //in the append order
+
+    private MappedByteBuffer buffer;
+
+    private int position;
+
+    private long nextId;
+
+    /**
+     * Constructor, with the default capacity
+     * @param path The journal file, created if it doesn't exist
+     * @throws IOException if the file can't be read or created
+     */
+    public OutboxJournal(@NotNull Path path) throws IOException {
+        this(path, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor
+     * @param path The journal file, created if it doesn't exist
+     * @param capacity The file size in bytes, the file is compacted when it is full
+     * @throws IOException if the file can't be read or created
+     */
+    public OutboxJournal(@NotNull Path path, int capacity) throws IOException {
+        if(capacity <= HEADER_SIZE) throw new IllegalArgumentException("The capacity should be greater than "+HEADER_SIZE);
+        this.path = path.toAbsolutePath();
+        this.pending = new LinkedHashMap<>();
+        recover();
+        boolean exists = Files.exists(this.path) && Files.size(this.path) > 0;
+        if(exists && !isJournal(this.path)) throw new IOException(this.path+" is not an outbox journal"); //left untouched
+        this.capacity = exists ? (int) Math.max(capacity, Files.size(this.path)) : capacity;
+        this.buffer = map(this.path, this.capacity);
+        if(exists) load();
+        else {
+            writeHeader(buffer, 0);
+            position = HEADER_SIZE;
+        }
+    }
+
+    /**
+     * Append a message to send
+     * @param direction The direction of the message, TWITCH_TO_DISCORD for a message sent to discord
+     * @param target The destination channel, a discord channel ID or a twitch channel name
+     * @param author The author name, or null if the message has no author
+     * @param text The message
+     * @return The message ID, to mark it done
+     * @throws IOException if the message doesn't fit in the journal or the journal can't be compacted
+     */
+    public long append(@NotNull Direction direction, @NotNull String target, @Nullable String author,
+                       @NotNull String text) throws IOException {
+        return append(direction, target, author, text, null);
+    }
+
+    /**
+     * Append a message to send, with the nonce it is sent with
+     * @param direction The direction of the message, TWITCH_TO_DISCORD for a message sent to discord
+     * @param target The destination channel, a discord channel ID or a twitch channel name
+     * @param author The author name, or null if the message has no author
+     * @param text The message
+     * @param nonce The message nonce, or null if it has none of its own
+     * @return The message ID, to mark it done
+     * @throws IOException if the message doesn't fit in the journal or the journal can't be compacted
+     */
+    public synchronized long append(@NotNull Direction direction, @NotNull String target, @Nullable String author,
+                                    @NotNull String text, @Nullable String nonce) throws IOException {
+        Entry entry = new Entry(nextId, direction, target, author, text, System.currentTimeMillis(), nonce);
+        byte[][] fields = encode(entry);
+        int size = sendSize(fields);
+        if(!fits(size)) compact(size);
+        buffer.position(position + Integer.BYTES);
+        putSend(buffer, entry, fields);
+        commit(size);
+        pending.put(entry.id(), entry);
+        buffer.putLong(NEXT_ID_OFFSET, ++nextId); //the IDs are never reused, even after a compaction
+        return entry.id();
+    }
+
+    /**
+     * Mark a message done, it won't be sent again
+     * @param id The message ID
+     */
+    public synchronized void markDone(long id) {
+        if(pending.remove(id) == null) return; //already done
+        int size = 1 + Long.BYTES;
+        try {
+            if(!fits(size)) compact(0); //the message is no longer pending, the compaction forgets it
+            else {
+                buffer.position(position + Integer.BYTES);
+                buffer.put(DONE).putLong(id);
+                commit(size);
+            }
+        } catch (IOException e){
+            LOG.warn("Can't mark a message done, it may be sent again : "+e.getMessage());
+        }
+    }
+
+    /**
+     * Mark done the pending messages appended too long ago, they are no longer worth sending
+     * @param maxAge The max age of a pending message
+     * @param unit The age unit
+     * @return The number of expired messages
+     */
+    public synchronized int expire(long maxAge, @NotNull TimeUnit unit) {
+        long appendedBefore = System.currentTimeMillis() - unit.toMillis(maxAge);
+        List<Long> expired = new ArrayList<>();
+        for(Entry entry : pending.values()){
+            if(entry.appendedAt() < appendedBefore) expired.add(entry.id());
+        }
+        for(long id : expired) markDone(id);
+        if(!expired.isEmpty()) LOG.info(expired.size()+" pending messages expired");
+        return expired.size();
+    }
+
+    /**
+     * Get the pending messages of a direction, in the append order
+     * @param direction The direction
+     * @return The pending messages
+     */
+    public synchronized @NotNull List<@NotNull Entry> getPending(@NotNull Direction direction) {
+        List<Entry> entries = new ArrayList<>();
+        for(Entry entry : pending.values()){
+            if(entry.direction() == direction) entries.add(entry);
+        }
+        return entries;
+    }
+
+    /**
+     * Check if a message is pending
+     * @param id The message ID
+     * @return If the message is neither done nor expired
+     */
+    public synchronized boolean isPending(long id) {
+        return pending.containsKey(id);
+    }
+
+    /**
+     * Get the number of pending messages
+     * @return The number of pending messages, for all directions
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Sync the journal to the disk
+     */
+    @Override
+    public synchronized void close() {
+        buffer.force();
+    }
+
+    /**
+     * Check if a record fits after the last one, with the room for the end mark
+     * @param size The record size, without its length
+     * @return If the record fits
+     */
+    private boolean fits(int size) {
+        return position + 2L * Integer.BYTES + size <= capacity;
+    }
+
+    /**
+     * Write the length of the record written after the last one, then the end mark.
+     * The length is written last, a record interrupted by a crash is ignored when the journal is loaded.
+     * @param size The record size, without its length
+     */
+    private void commit(int size) {
+        int end = position + Integer.BYTES + size;
+        buffer.putInt(end, 0);
+        buffer.putInt(position, size);
+        position = end;
+    }
+
+    /**
+     * Read the records of the journal file
+     */
+    private void load() {
+        nextId = buffer.getLong(NEXT_ID_OFFSET);
+        position = HEADER_SIZE;
+        Direction[] directions = Direction.values();
+        try {
+            while(position + Integer.BYTES <= capacity){
+                int size = buffer.getInt(position);
+                if(size <= 0 || position + Integer.BYTES + size > capacity) break; //end mark, or interrupted record
+                buffer.position(position + Integer.BYTES);
+                byte type = buffer.get();
+                long id = buffer.getLong();
+                if(type == SEND || type == SEND_ONCE){
+                    Direction direction = directions[buffer.get()];
+                    long appendedAt = buffer.getLong();
+                    String target = readString();
+                    String author = readString();
+                    String text = readString();
+                    String nonce = (type == SEND_ONCE) ? readString() : null;
+                    pending.put(id, new Entry(id, direction, target, author.isEmpty() ? null : author, text, appendedAt, nonce));
+                } else if(type == DONE) pending.remove(id);
+                else break;
+                position += Integer.BYTES + size;
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e){
+            LOG.warn("The outbox journal ends with a damaged record, it is ignored");
+        }
+        LOG.info(pending.size()+" messages pending in the outbox journal");
+    }
+
+    /**
+     * Read a string record field
+     * @return The string
+     */
+    private String readString() {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Rewrite the journal file with only the pending messages
+     * @param needed The size of the record to append afterward
+     * @throws IOException if the pending messages and the record don't fit, or the copy can't be written
+     */
+    private void compact(int needed) throws IOException {
+        ByteBuffer compacted = ByteBuffer.allocate(capacity);
+        writeHeader(compacted, nextId);
+        int end = HEADER_SIZE;
+        try {
+            compacted.position(end);
+            for(Entry entry : pending.values()){
+                byte[][] fields = encode(entry);
+                int size = sendSize(fields);
+                putSend(compacted.putInt(size), entry, fields);
+                end += Integer.BYTES + size;
+            }
+        } catch (BufferOverflowException e){
+            end = capacity;
+        }
+        if(end + 2L * Integer.BYTES + needed > capacity) throw new IOException("The outbox journal is full of pending messages");
+        compacted.putInt(end, 0).position(0).limit(end + Integer.BYTES); //end mark
+        Path copy = sibling(COPY_SUFFIX);
+        writeCopy(compacted, copy); //on the disk before overwriting the journal
+        buffer.put(0, compacted, 0, compacted.limit());
+        buffer.force();
+        Files.delete(copy);
+        position = end;
+        LOG.info("Outbox journal compacted, "+pending.size()+" messages pending");
+    }
+
+    /**
+     * Write the compacted journal to its copy, the copy is renamed once complete
+     * @param compacted The compacted journal
+     * @param copy The copy file
+     * @throws IOException if the copy can't be written
+     */
+    private void writeCopy(ByteBuffer compacted, Path copy) throws IOException {
+        Path temp = sibling(TEMP_SUFFIX);
+        try {
+            try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)){
+                ByteBuffer content = compacted.duplicate();
+                while(content.hasRemaining()) channel.write(content);
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, copy, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e){
+                Files.move(temp, copy, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Finish a compaction interrupted by a crash: the complete copy replaces the journal file, not mapped yet
+     * @throws IOException if the copy can't replace the journal file
+     */
+    private void recover() throws IOException {
+        Files.deleteIfExists(sibling(TEMP_SUFFIX)); //an incomplete copy, the journal wasn't overwritten
+        Path copy = sibling(COPY_SUFFIX);
+        if(!Files.exists(copy)) return;
+        Files.move(copy, path, StandardCopyOption.REPLACE_EXISTING);
+        LOG.info("Interrupted outbox journal compaction finished");
+    }
+
+    /**
+     * Get a file next to the journal file
+     * @param suffix The suffix of the journal file name
+     * @return The file
+     */
+    private Path sibling(String suffix) {
+        return path.resolveSibling(path.getFileName() + suffix);
+    }
+
+    /**
+     * Map a journal file, its size is extended to the capacity
+     * @param file The file
+     * @param capacity The file size
+     * @return The mapped file
+     * @throws IOException if the file can't be mapped
+     */
+    private static MappedByteBuffer map(Path file, int capacity) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity); //the mapping stays valid once the channel is closed
+        }
+    }
+
+    /**
+     * Check if a file starts like a journal file
+     * @param file The file
+     * @return If the file is a journal
+     * @throws IOException if the file can't be read
+     */
+    private static boolean isJournal(Path file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES);
+            while(magic.hasRemaining() && channel.read(magic) >= 0);
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Write the header of a new journal file
+     * @param file The journal file content
+     * @param nextId The ID of the next appended message
+     */
+    private static void writeHeader(ByteBuffer file, long nextId) {
+        file.putInt(0, MAGIC);
+        file.putLong(NEXT_ID_OFFSET, nextId);
+    }
+
+    /**
+     * Encode the string fields of a message
+     * @param entry The message
+     * @return The UTF-8 bytes of the target, the author (empty if none), the text and the nonce if any
+     */
+    private static byte[][] encode(Entry entry) {
+        String author = (entry.author() == null) ? "" : entry.author();
+        byte[] target = entry.target().getBytes(StandardCharsets.UTF_8);
+        byte[] text = entry.text().getBytes(StandardCharsets.UTF_8);
+        if(entry.nonce() == null) return new byte[][]{target, author.getBytes(StandardCharsets.UTF_8), text};
+        return new byte[][]{target, author.getBytes(StandardCharsets.UTF_8), text, entry.nonce().getBytes(StandardCharsets.UTF_8)};
+    }
+
+    /**
+     * Get the size of a message record
+     * @param fields The encoded string fields
+     * @return The record size, without its length
+     */
+    private static int sendSize(byte[][] fields) {
+        int size = 1 + Long.BYTES + 1 + Long.BYTES; //type, id, direction, time
+        for(byte[] field : fields) size += Integer.BYTES + field.length;
+        return size;
+    }
+
+    /**
+     * Write a message record at the buffer position, without its length
+     * @param file The mapped file
+     * @param entry The message
+     * @param fields The encoded string fields
+     */
+    private static void putSend(ByteBuffer file, Entry entry, byte[][] fields) {
+        file.put((entry.nonce() == null) ? SEND : SEND_ONCE).putLong(entry.id()).put((byte) entry.direction().ordinal()).putLong(entry.appendedAt());
+        for(byte[] field : fields) file.putInt(field.length).put(field);
+    }
+}
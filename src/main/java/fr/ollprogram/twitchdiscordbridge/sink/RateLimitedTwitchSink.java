@@ -0,0 +1,217 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.sink;
+
+import com.github.twitch4j.TwitchClient;
+import fr.ollprogram.twitchdiscordbridge.utils.TokenBucket;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A twitch sink respecting the twitch chat rate limit before twitch4j does it silently.
+ * Lines are queued per channel and sent by a single scheduler thread when a token is available,
+ * channels with pending lines are served in turn.
+ * When lines are waiting (a backlog), they are packed into one twitch message up to the twitch message length limit.
+ */
+public class RateLimitedTwitchSink implements TwitchSink {
+
+    /**
+     * The maximum length of a twitch message
+     */
+    public static final int MAX_MESSAGE_LENGTH = 500;
+
+    /**
+     * The separator between the lines packed into one twitch message
+     */
+    public static final String SEPARATOR = " | ";
+
+    private static final long DEFAULT_TICK_MILLIS = 100;
+
+    private final TwitchClient twitchBot;
+
+    private final TokenBucket bucket;
+
+    private final int maxQueueSize;
+
+    private final Map<String, Deque<Line>> queues;
+
+    private final Queue<String> readyChannels; //channels with pending lines, each one at most once
+
+    private final AtomicInteger queueDepth;
+
+    private final AtomicLong sentLines;
+
+    private final AtomicLong sentMessages;
+
+    private final AtomicLong droppedLines;
+
+    private final ScheduledExecutorService scheduler;
+
+    private static final Logger LOG = LoggerFactory.getLogger("TwitchSink");
+
+    /**
+     * A line waiting to be sent
+     * @param text The line
+     * @param onSent Run once the line is sent
+     * @param onDropped Run if the line is dropped because the queue is full
+     */
+    private record Line(String text, Runnable onSent, Runnable onDropped) { }
+
+    /**
+     * Lines packed into one twitch message
+     * @param text The message
+     * @param callbacks The callbacks of the packed lines
+     */
+    private record Packed(String text, List<Runnable> callbacks) { }
+
+    /**
+     * Constructor
+     * @param twitchBot The twitch client
+     * @param bucket The rate limit bucket, shared by all channels
+     * @param maxQueueSize The maximum number of lines waiting per channel, the oldest lines are dropped above
+     */
+    public RateLimitedTwitchSink(@NotNull TwitchClient twitchBot, @NotNull TokenBucket bucket, int maxQueueSize){
+        this(twitchBot, bucket, maxQueueSize, DEFAULT_TICK_MILLIS);
+    }
+
+    /**
+     * Constructor
+     * @param twitchBot The twitch client
+     * @param bucket The rate limit bucket, shared by all channels
+     * @param maxQueueSize The maximum number of lines waiting per channel, the oldest lines are dropped above
+     * @param tickMillis The delay between two checks of the bucket while lines are waiting
+     */
+    RateLimitedTwitchSink(TwitchClient twitchBot, TokenBucket bucket, int maxQueueSize, long tickMillis){
+        this.twitchBot = twitchBot;
+        this.bucket = bucket;
+        this.maxQueueSize = maxQueueSize;
+        this.queues = new ConcurrentHashMap<>();
+        this.readyChannels = new ConcurrentLinkedQueue<>();
+        this.queueDepth = new AtomicInteger();
+        this.sentLines = new AtomicLong();
+        this.sentMessages = new AtomicLong();
+        this.droppedLines = new AtomicLong();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "twitch-sink");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::drain, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void send(@NotNull String channelName, @NotNull String message, @NotNull Runnable onSent) {
+        send(channelName, message, onSent, () -> {});
+    }
+
+    @Override
+    public void send(@NotNull String channelName, @NotNull String message, @NotNull Runnable onSent, @NotNull Runnable onDropped) {
+        Deque<Line> queue = queues.computeIfAbsent(channelName, name -> new ArrayDeque<>());
+        Line dropped = null;
+        synchronized (queue){
+            boolean wasEmpty = queue.isEmpty();
+            if(!wasEmpty && queue.size() >= maxQueueSize){
+                dropped = queue.pollFirst();
+                queueDepth.decrementAndGet();
+                if(droppedLines.getAndIncrement() % maxQueueSize == 0) {
+                    LOG.warn("Twitch queue of ["+channelName+"] is full, dropping the oldest messages");
+                }
+            }
+            queue.addLast(new Line(message, onSent, onDropped));
+            queueDepth.incrementAndGet();
+            if(wasEmpty) readyChannels.add(channelName);
+        }
+        if(dropped != null) dropped.onDropped().run(); //outside of the queue lock
+        try {
+            scheduler.execute(this::drain); //no delay when a token is available
+        } catch (RejectedExecutionException e){
+            LOG.warn("Twitch sink stopped, message dropped");
+        }
+    }
+
+    /**
+     * Send the pending lines while tokens are available
+     */
+    private void drain(){
+        String channelName;
+        while(!readyChannels.isEmpty() && bucket.tryAcquire()){
+            channelName = readyChannels.poll();
+            if(channelName == null) return; //can't happen with a single drainer, the token is lost otherwise
+            Packed message = coalesce(channelName);
+            try {
+                if(twitchBot.getChat().sendMessage(channelName, message.text())) message.callbacks().forEach(Runnable::run);
+                else LOG.warn("Twitch chat refused the message to ["+channelName+"], it may be disconnected");
+            } catch (RuntimeException e){
+                LOG.warn("Can't send the message to twitch : "+e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Take the next lines of a ready channel and pack them into one message
+     * @param channelName The channel name
+     * @return The message to send
+     */
+    private Packed coalesce(String channelName){
+        Deque<Line> queue = queues.get(channelName);
+        synchronized (queue){
+            Line first = queue.pollFirst();
+            StringBuilder builder = new StringBuilder(first.text());
+            List<Runnable> callbacks = new ArrayList<>();
+            callbacks.add(first.onSent());
+            int lines = 1;
+            Line next;
+            while((next = queue.peekFirst()) != null
+                    && builder.length() + SEPARATOR.length() + next.text().length() <= MAX_MESSAGE_LENGTH){
+                builder.append(SEPARATOR).append(queue.pollFirst().text());
+                callbacks.add(next.onSent());
+                lines++;
+            }
+            if(!queue.isEmpty()) readyChannels.add(channelName); //back of the line, other channels first
+            queueDepth.addAndGet(-lines);
+            sentLines.addAndGet(lines);
+            sentMessages.incrementAndGet();
+            return new Packed(builder.toString(), callbacks);
+        }
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    @Override
+    public double getCoalescingRatio() {
+        long messages = sentMessages.get();
+        return (messages == 0) ? 1 : (double) sentLines.get() / messages;
+    }
+
+    @Override
+    public void shutdown() throws InterruptedException {
+        scheduler.shutdown();
+        if(!scheduler.awaitTermination(5, TimeUnit.SECONDS)) scheduler.shutdownNow();
+        drain();
+        int remaining = queueDepth.get();
+        if(remaining > 0) LOG.warn(remaining+" messages to twitch have been dropped due to the rate limit");
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.sink;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The outbound stage of the messages sent to twitch chats.
+ * A message can be given a callback, run once it is handed to the twitch chat connection, e.g. to measure the relay latency.
+ * The callback is not run if the connection refuses the message.
+ */
+public interface TwitchSink {
+
+    /**
+     * Send a message to a twitch chat. The message can be sent later.
+     * @param channelName The twitch channel name
+     * @param message The message to send
+     */
+    default void send(@NotNull String channelName, @NotNull String message) {
+        send(channelName, message, () -> {});
+    }
+
+    /**
+     * Send a message to a twitch chat. The message can be sent later.
+     * @param channelName The twitch channel name
+     * @param message The message to send
+     * @param onSent Run once the message is handed to the twitch chat connection, not run if the message is dropped
+     */
+    void send(@NotNull String channelName, @NotNull String message, @NotNull Runnable onSent);
+
+    /**
+     * Send a message to a twitch chat. The message can be sent later.
+     * @param channelName The twitch channel name
+     * @param message The message to send
+     * @param onSent Run once the message is handed to the twitch chat connection, not run if the message is dropped
+     * @param onDropped Run if the message is dropped by the sink, e.g. when its queue is full
+     */
+    default void send(@NotNull String channelName, @NotNull String message, @NotNull Runnable onSent, @NotNull Runnable onDropped) {
+        send(channelName, message, onSent); //never dropped
+    }
+
+    /**
+     * Get the number of lines waiting to be sent, for all channels
+     * @return The queue depth
+     */
+    int getQueueDepth();
+
+    /**
+     * Get the average number of lines per twitch message sent
+     * @return The coalescing ratio, 1 if lines are never coalesced
+     */
+    double getCoalescingRatio();
+
+    /**
+     * Stop the sink. Pending lines are sent if the rate limit allows it, the others are dropped.
+     * @throws InterruptedException if an interruption error occurs
+     */
+    void shutdown() throws InterruptedException;
+}
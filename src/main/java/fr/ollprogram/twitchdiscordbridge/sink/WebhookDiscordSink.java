@@ -0,0 +1,557 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.sink;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.ollprogram.twitchdiscordbridge.service.ServiceResources;
+import fr.ollprogram.twitchdiscordbridge.utils.LongHashMap;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Webhook;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A discord sink posting the messages through a webhook of each channel, with the twitch user as webhook username.
+ * Requests are sent with its own http client instead of the JDA REST queue, so the bot requests (e.g. command replies)
+ * are never stuck behind the relay traffic. Discord X-RateLimit-* headers are followed for each webhook:
+ * a webhook with no remaining request waits for its bucket reset, and a 429 response is retried after the given delay.
+ * Messages of a channel are posted one at a time, in order. The webhook of a channel is retrieved or created without
+ * blocking by the first message, the following ones wait for it. Channels where a webhook can't be used (e.g. missing
+ * Manage Webhooks permission) are sent with the fallback sink. A deleted webhook is looked up again.
+ */
+public class WebhookDiscordSink implements DiscordSink {
+
+    /**
+     * The name of the webhooks created by the bridge
+     */
+    public static final String WEBHOOK_NAME = "TwitchDiscordBridge";
+
+    private static final String CONTENT_TYPE_HEADER = "Content-Type";
+    private static final String CONTENT_TYPE_VALUE = "application/json";
+
+    private static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    private static final String RESET_AFTER_HEADER = "X-RateLimit-Reset-After";
+    private static final String GLOBAL_HEADER = "X-RateLimit-Global";
+    private static final String RETRY_AFTER_HEADER = "Retry-After";
+
+    private static final int MAX_USERNAME_LENGTH = 80;
+
+    private static final long TICK_MILLIS = 50;
+
+    private static final String NO_WEBHOOK = ""; //cached when the fallback sink is used for a channel
+
+    private static final int UNKNOWN_WEBHOOK_STATUS = 404;
+
+    private static final Logger LOG = LoggerFactory.getLogger("WebhookSink");
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private static class WebhookBody {
+        public String content;
+        public String username;
+        public AllowedMentions allowed_mentions = new AllowedMentions(); //no ping from twitch
+    }
+
+    private static class AllowedMentions {
+        public List<String> parse = List.of();
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class RateLimitBody {
+        public double retry_after;
+        public boolean global;
+    }
+
+    /**
+     * A message waiting to be posted
+     * @param username The webhook username, null for the webhook default name
+     * @param content The message content
+     * @param nonce The message nonce, or null. Only the fallback sink uses it, webhook messages don't have nonces
+     * @param onSent Run once discord accepted the message
+     */
+    private record Pending(@Nullable String username, String content, @Nullable String nonce, Runnable onSent) { }
+
+    /**
+     * The rate limit headers of a webhook response, read before taking the lock
+     * @param remaining The number of remaining requests of the bucket
+     * @param resetAfter The delay before the bucket reset, in nanoseconds
+     * @param retryAfter The delay before a rate limited request can be retried, in nanoseconds
+     * @param global If the rate limit is global
+     */
+    private record RateLimit(int remaining, long resetAfter, long retryAfter, boolean global) { }
+
+    /**
+     * The webhook state of a channel
+     */
+    private static final class ChannelQueue {
+        private final Deque<Pending> pending = new ArrayDeque<>();
+        private @Nullable String webhookUrl = null; //null until retrieved, NO_WEBHOOK for the fallback sink
+        private boolean lookingUp = false; //one lookup at a time, so a webhook is created once
+        private boolean inFlight = false;
+        private boolean ready = false;
+        private long blockedUntil;
+    }
+
+    private final JDA discordBot;
+
+    private final HttpClient client;
+
+    private final DiscordSink fallback;
+
+    private final LongSupplier clock;
+
+    private final ObjectMapper mapper;
+
+    private final LongHashMap<ChannelQueue> queues; //guarded by lock
+
+    private final Deque<Long> readyChannels; //guarded by lock
+
+    private final Object lock;
+
+    private final ScheduledExecutorService scheduler;
+
+    private long globalBlockedUntil;
+
+    private int queueDepth;
+
+    private int inFlight;
+
+    /**
+     * Constructor
+     * @param discordBot The discord bot / JDA instance, used to retrieve or create the webhooks
+     * @param client The http client for the webhook requests
+     * @param fallback The sink used for the channels without webhook
+     */
+    public WebhookDiscordSink(@NotNull JDA discordBot, @NotNull HttpClient client, @NotNull DiscordSink fallback){
+        this(discordBot, client, fallback, System::nanoTime);
+    }
+
+    /**
+     * Constructor using the http client shared with the services
+     * @param discordBot The discord bot / JDA instance, used to retrieve or create the webhooks
+     * @param fallback The sink used for the channels without webhook
+     */
+    public WebhookDiscordSink(@NotNull JDA discordBot, @NotNull DiscordSink fallback){
+        this(discordBot, ServiceResources.sharedClient(), fallback);
+    }
+
+    /**
+     * Constructor with a custom clock
+     * @param discordBot The discord bot / JDA instance, used to retrieve or create the webhooks
+     * @param client The http client for the webhook requests
+     * @param fallback The sink used for the channels without webhook
+     * @param clock The clock, in nanoseconds
+     */
+    WebhookDiscordSink(JDA discordBot, HttpClient client, DiscordSink fallback, LongSupplier clock){
+        this.discordBot = discordBot;
+        this.client = client;
+        this.fallback = fallback;
+        this.clock = clock;
+        this.mapper = new ObjectMapper();
+        this.queues = new LongHashMap<>();
+        this.readyChannels = new ArrayDeque<>();
+        this.lock = new Object();
+        this.globalBlockedUntil = clock.getAsLong();
+        this.queueDepth = 0;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "discord-webhook-sink");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::drain, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void send(long channelID, @NotNull String message, @NotNull Runnable onSent) {
+        post(channelID, null, message, null, onSent);
+    }
+
+    @Override
+    public void send(long channelID, @NotNull String author, @NotNull String content, @NotNull Runnable onSent) {
+        if(isValidUsername(author)) post(channelID, author, content, null, onSent);
+        else post(channelID, null, author + " says : " + content, null, onSent);
+    }
+
+    @Override
+    public void sendOnce(long channelID, @NotNull String message, @NotNull String nonce, @NotNull Runnable onSent) {
+        post(channelID, null, message, nonce, onSent);
+    }
+
+    @Override
+    public void sendOnce(long channelID, @NotNull String author, @NotNull String content, @NotNull String nonce,
+                         @NotNull Runnable onSent) {
+        if(isValidUsername(author)) post(channelID, author, content, nonce, onSent);
+        else post(channelID, null, author + " says : " + content, nonce, onSent);
+    }
+
+    /**
+     * Queue a webhook message, or send it with the fallback sink if the channel has no webhook
+     * @param channelID The discord channel ID
+     * @param username The webhook username, null for the webhook default name
+     * @param content The message content
+     * @param nonce The message nonce, or null
+     * @param onSent Run once discord accepted the message
+     */
+    private void post(long channelID, @Nullable String username, String content, @Nullable String nonce, Runnable onSent){
+        Pending message = new Pending(username, content, nonce, onSent);
+        boolean lookup = false;
+        synchronized (lock){
+            ChannelQueue queue = queues.get(channelID);
+            if(queue == null){
+                queue = new ChannelQueue();
+                queue.blockedUntil = clock.getAsLong();
+                queues.put(channelID, queue);
+            }
+            if(!NO_WEBHOOK.equals(queue.webhookUrl)){
+                queue.pending.addLast(message);
+                queueDepth++;
+                if(queue.webhookUrl == null && !queue.lookingUp){
+                    queue.lookingUp = true;
+                    lookup = true;
+                }
+                markReady(channelID, queue);
+                message = null;
+            }
+        }
+        if(message != null) sendWithFallback(channelID, message);
+        else if(lookup) lookupWebhook(channelID);
+        else wakeUp();
+    }
+
+    /**
+     * Send a message with the fallback sink
+     * @param channelID The discord channel ID
+     * @param message The message
+     */
+    private void sendWithFallback(long channelID, Pending message){
+        try {
+            if(message.nonce() != null){
+                if(message.username() == null) fallback.sendOnce(channelID, message.content(), message.nonce(), message.onSent());
+                else fallback.sendOnce(channelID, message.username(), message.content(), message.nonce(), message.onSent());
+            }
+            else if(message.username() == null) fallback.send(channelID, message.content(), message.onSent());
+            else fallback.send(channelID, message.username(), message.content(), message.onSent());
+        } catch (RuntimeException e){
+            LOG.warn("Can't send the message to discord : "+e.getMessage());
+        }
+    }
+
+    /**
+     * Retrieve the bridge webhook of a channel, or create it, without blocking
+     * @param channelID The discord channel ID
+     */
+    private void lookupWebhook(long channelID){
+        TextChannel channel = discordBot.getTextChannelById(channelID);
+        if(channel == null){
+            onWebhook(channelID, NO_WEBHOOK);
+            return;
+        }
+        try {
+            channel.retrieveWebhooks().queue(webhooks -> {
+                for(Webhook webhook : webhooks){
+                    if(WEBHOOK_NAME.equals(webhook.getName()) && webhook.getToken() != null){
+                        onWebhook(channelID, webhook.getUrl());
+                        return;
+                    }
+                }
+                try {
+                    channel.createWebhook(WEBHOOK_NAME).queue(webhook -> onWebhook(channelID, webhook.getUrl()),
+                            error -> onWebhookError(channel, channelID, error));
+                } catch (RuntimeException e){
+                    onWebhookError(channel, channelID, e);
+                }
+            }, error -> onWebhookError(channel, channelID, error));
+        } catch (RuntimeException e){ //e.g. missing permission, checked before queuing
+            onWebhookError(channel, channelID, e);
+        }
+    }
+
+    /**
+     * Use the fallback sink for a channel whose webhook can't be retrieved or created
+     * @param channel The discord channel
+     * @param channelID The discord channel ID
+     * @param error The lookup error
+     */
+    private void onWebhookError(TextChannel channel, long channelID, Throwable error){
+        LOG.warn("Can't use a webhook in ["+channel.getName()+"], the bot messages will be used : "+error.getMessage());
+        onWebhook(channelID, NO_WEBHOOK);
+    }
+
+    /**
+     * Store the looked up webhook of a channel, and send its waiting messages
+     * @param channelID The discord channel ID
+     * @param url The webhook url, or NO_WEBHOOK if the fallback sink should be used
+     */
+    private void onWebhook(long channelID, String url){
+        if(url.equals(NO_WEBHOOK)){
+            while(true){ //the url is stored once the queue is empty, so the following messages can't overtake
+                Pending message;
+                synchronized (lock){
+                    ChannelQueue queue = queues.get(channelID);
+                    message = queue.pending.pollFirst();
+                    if(message == null){
+                        queue.webhookUrl = NO_WEBHOOK;
+                        queue.lookingUp = false;
+                        return;
+                    }
+                    queueDepth--;
+                }
+                sendWithFallback(channelID, message);
+            }
+        }
+        synchronized (lock){
+            ChannelQueue queue = queues.get(channelID);
+            queue.webhookUrl = url;
+            queue.lookingUp = false;
+            markReady(channelID, queue);
+        }
+        wakeUp();
+    }
+
+    /**
+     * Check if a name can be used as webhook username
+     * @param username The username
+     * @return If discord accepts it
+     */
+    private static boolean isValidUsername(String username){
+        String lowerCase = username.toLowerCase(Locale.ROOT);
+        return !username.isBlank() && username.length() <= MAX_USERNAME_LENGTH
+                && !lowerCase.contains("discord") && !lowerCase.contains("clyde");
+    }
+
+    /**
+     * Mark a channel as ready to post, if it has pending messages and no request in flight. Should be called while holding the lock.
+     * @param channelID The discord channel ID
+     * @param queue The channel queue
+     */
+    private void markReady(long channelID, ChannelQueue queue){
+        if(!queue.ready && !queue.inFlight && queue.webhookUrl != null && !queue.pending.isEmpty()){
+            queue.ready = true;
+            readyChannels.addLast(channelID);
+        }
+    }
+
+    /**
+     * Drain the ready channels on the scheduler thread
+     */
+    private void wakeUp(){
+        try {
+            scheduler.execute(this::drain);
+        } catch (RejectedExecutionException e){
+            //stopped, pending messages are dropped by shutdown
+        }
+    }
+
+    /**
+     * Post the next message of each ready channel whose rate limit bucket isn't exhausted
+     */
+    private void drain(){
+        synchronized (lock){
+            long now = clock.getAsLong();
+            if(now < globalBlockedUntil) return;
+            int channels = readyChannels.size();
+            for(int i = 0; i < channels; i++){
+                long channelID = readyChannels.pollFirst();
+                ChannelQueue queue = queues.get(channelID);
+                if(now < queue.blockedUntil){
+                    readyChannels.addLast(channelID); //waiting for its bucket reset
+                    continue;
+                }
+                queue.ready = false;
+                Pending message = queue.pending.pollFirst();
+                queueDepth--;
+                HttpRequest request = createRequest(queue.webhookUrl, message);
+                if(request == null){ //dropped
+                    markReady(channelID, queue);
+                    continue;
+                }
+                queue.inFlight = true;
+                inFlight++;
+                client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                        .whenComplete((response, error) -> onResponse(channelID, message, response, error));
+            }
+        }
+    }
+
+    /**
+     * Create the request posting a message to a webhook
+     * @param url The webhook url
+     * @param message The message to post
+     * @return The request, null if the message can't be encoded
+     */
+    private @Nullable HttpRequest createRequest(String url, Pending message){
+        WebhookBody webhookBody = new WebhookBody();
+        webhookBody.content = message.content();
+        webhookBody.username = message.username();
+        try {
+            return HttpRequest.newBuilder().header(CONTENT_TYPE_HEADER, CONTENT_TYPE_VALUE)
+                    .POST(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(webhookBody)))
+                    .uri(URI.create(url))
+                    .build();
+        } catch (JsonProcessingException e) {
+            LOG.warn("Unable to encode the webhook message : "+e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Follow the rate limit headers of a webhook response, and retry the message if it was rate limited.
+     * A message sent to a deleted webhook is retried once the webhook of the channel is looked up again.
+     * @param channelID The discord channel ID
+     * @param message The posted message
+     * @param response The response, null if the request failed
+     * @param error The request error, null if the request succeeded
+     */
+    private void onResponse(long channelID, Pending message, @Nullable HttpResponse<String> response, @Nullable Throwable error){
+        RateLimit rateLimit = (response == null) ? null : readRateLimit(response); //headers parsed outside the lock
+        boolean accepted = false;
+        boolean lookup = false;
+        synchronized (lock){
+            ChannelQueue queue = queues.get(channelID);
+            queue.inFlight = false;
+            inFlight--;
+            long now = clock.getAsLong();
+            if(error != null){
+                LOG.warn("Can't post the webhook message : "+error.getMessage());
+            } else if(response.statusCode() == 429){
+                if(rateLimit.global()) globalBlockedUntil = Math.max(globalBlockedUntil, now + rateLimit.retryAfter());
+                else queue.blockedUntil = now + rateLimit.retryAfter();
+                queue.pending.addFirst(message); //retried first, the order is kept
+                queueDepth++;
+            } else if(response.statusCode() == UNKNOWN_WEBHOOK_STATUS){
+                LOG.warn("The webhook of the channel "+channelID+" has been deleted, looking it up again");
+                queue.pending.addFirst(message);
+                queueDepth++;
+                if(!queue.lookingUp){
+                    queue.webhookUrl = null; //evicted, the next lookup recreates it or falls back to the bot
+                    queue.lookingUp = true;
+                    lookup = true;
+                }
+            } else {
+                if(response.statusCode() >= 400) LOG.warn("Webhook message rejected : status="+response.statusCode());
+                else accepted = true;
+                if(rateLimit.remaining() <= 0) queue.blockedUntil = now + rateLimit.resetAfter();
+            }
+            markReady(channelID, queue);
+        }
+        if(accepted) message.onSent().run();
+        if(lookup) lookupWebhook(channelID);
+        wakeUp();
+    }
+
+    /**
+     * Read the rate limit of a webhook response, malformed headers are ignored
+     * @param response The webhook response
+     * @return The rate limit
+     */
+    private RateLimit readRateLimit(HttpResponse<String> response){
+        int remaining;
+        try {
+            remaining = response.headers().firstValue(REMAINING_HEADER).map(Integer::parseInt).orElse(1);
+        } catch (NumberFormatException e){
+            remaining = 1;
+        }
+        boolean global = response.headers().firstValue(GLOBAL_HEADER).map(Boolean::parseBoolean).orElse(false);
+        long retryAfter = (response.statusCode() == 429) ? getRetryAfterNanos(response) : 0;
+        return new RateLimit(remaining, getResetAfterNanos(response), retryAfter, global);
+    }
+
+    /**
+     * Get the delay before the bucket of a response is reset
+     * @param response The webhook response
+     * @return The delay in nanoseconds
+     */
+    private static long getResetAfterNanos(HttpResponse<String> response){
+        return response.headers().firstValue(RESET_AFTER_HEADER).map(WebhookDiscordSink::secondsToNanos).orElse(0L);
+    }
+
+    /**
+     * Get the delay before a rate limited request can be retried
+     * @param response The 429 response
+     * @return The delay in nanoseconds
+     */
+    private long getRetryAfterNanos(HttpResponse<String> response){
+        try {
+            RateLimitBody body = mapper.readValue(response.body(), RateLimitBody.class);
+            if(body.retry_after > 0) return (long) (body.retry_after * 1_000_000_000L);
+        } catch (JsonProcessingException e){
+            LOG.warn("Unable to read the rate limit response, using the headers");
+        }
+        return response.headers().firstValue(RETRY_AFTER_HEADER)
+                .or(() -> response.headers().firstValue(RESET_AFTER_HEADER))
+                .map(WebhookDiscordSink::secondsToNanos).orElse(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * Convert a header value in seconds (with decimals) to nanoseconds
+     * @param seconds The header value
+     * @return The duration in nanoseconds
+     */
+    private static long secondsToNanos(String seconds){
+        try {
+            return (long) (Double.parseDouble(seconds) * 1_000_000_000L);
+        } catch (NumberFormatException e){
+            return TimeUnit.SECONDS.toNanos(1);
+        }
+    }
+
+    @Override
+    public int getQueueDepth() {
+        synchronized (lock){
+            return queueDepth;
+        }
+    }
+
+    /**
+     * Check if messages are waiting or in flight
+     * @return If messages are still being sent
+     */
+    private boolean hasPendingMessages(){
+        synchronized (lock){
+            return queueDepth > 0 || inFlight > 0;
+        }
+    }
+
+    @Override
+    public double getBatchingRatio() {
+        return 1;
+    }
+
+    @Override
+    public void shutdown() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(hasPendingMessages() && System.nanoTime() < deadline) Thread.sleep(TICK_MILLIS);
+        scheduler.shutdownNow();
+        int remaining = getQueueDepth();
+        if(remaining > 0) LOG.warn(remaining+" webhook messages to discord have been dropped");
+        fallback.shutdown();
+    }
+}
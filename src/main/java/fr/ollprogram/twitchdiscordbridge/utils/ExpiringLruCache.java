@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A bounded cache whose entries expire after a time to live. Above the maximum size, the least recently used entry is evicted.
+ * This class is thread safe.
+ * @param <K> The key type
+ * @param <V> The value type
+ */
+public final class ExpiringLruCache<K, V> {
+
+    private record Entry<V>(V value, long expiresAt) {}
+
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private final long ttlNanos;
+
+    private final LongSupplier clock;
+
+    /**
+     * Constructor
+     * @param maxSize The maximum number of entries
+     * @param ttl The time to live of an entry
+     * @param unit The time to live unit
+     */
+    public ExpiringLruCache(int maxSize, long ttl, @NotNull TimeUnit unit) {
+        this(maxSize, ttl, unit, System::nanoTime);
+    }
+
+    /**
+     * Constructor with a custom clock
+     * @param maxSize The maximum number of entries
+     * @param ttl The time to live of an entry
+     * @param unit The time to live unit
+     * @param clock The clock, in nanoseconds
+     */
+    public ExpiringLruCache(int maxSize, long ttl, @NotNull TimeUnit unit, @NotNull LongSupplier clock) {
+        if(maxSize <= 0) throw new IllegalArgumentException("The maximum size should be positive");
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) { //access order, the eldest is the least recently used
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+        this.ttlNanos = unit.toNanos(ttl);
+        this.clock = clock;
+    }
+
+    /**
+     * Get a value if it is cached and not expired
+     * @param key The key
+     * @return The value, or null if absent or expired
+     */
+    public synchronized @Nullable V get(@NotNull K key) {
+        Entry<V> entry = entries.get(key);
+        if(entry == null) return null;
+        if(clock.getAsLong() - entry.expiresAt() >= 0){
+            entries.remove(key);
+            return null;
+        }
+        return entry.value();
+    }
+
+    /**
+     * Cache a value, replacing the previous one
+     * @param key The key
+     * @param value The value
+     */
+    public synchronized void put(@NotNull K key, @NotNull V value) {
+        entries.put(key, new Entry<>(value, clock.getAsLong() + ttlNanos));
+    }
+
+    /**
+     * Remove a value
+     * @param key The key
+     */
+    public synchronized void invalidate(@NotNull K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Get the number of entries, expired ones included until they are read
+     * @return The number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+}
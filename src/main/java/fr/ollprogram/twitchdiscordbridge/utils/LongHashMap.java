@@ -0,0 +1,243 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * A hash map using primitive long keys (open addressing with linear probing).
+ * Keys are never boxed, which keeps lookups allocation free. Null values are not allowed.
+ * This map is not thread safe.
+ * @param <V> The value type
+ */
+public final class LongHashMap<V> {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] keys;
+
+    private Object[] values;
+
+    private int size;
+
+    private int mask;
+
+    /**
+     * A consumer of the map entries
+     * @param <V> The value type
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        /**
+         * Consume an entry
+         * @param key The entry key
+         * @param value The entry value
+         */
+        void accept(long key, @NotNull V value);
+    }
+
+    /**
+     * Constructor
+     * @param expectedSize The expected number of entries
+     */
+    public LongHashMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while(capacity < expectedSize * 2) capacity <<= 1; //load factor of 0.5
+        allocate(capacity);
+    }
+
+    /**
+     * Constructor with a default capacity
+     */
+    public LongHashMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    /**
+     * Copy constructor
+     * @param other The map to copy
+     */
+    public LongHashMap(@NotNull LongHashMap<V> other) {
+        this.keys = other.keys.clone();
+        this.values = other.values.clone();
+        this.size = other.size;
+        this.mask = other.mask;
+    }
+
+    /**
+     * Get the value associated with the key
+     * @param key The key
+     * @return The value, or null if the key is absent
+     */
+    @SuppressWarnings("unchecked") // only V instances are stored
+    public @Nullable V get(long key) {
+        int i = slot(key);
+        Object value;
+        while((value = values[i]) != null) {
+            if(keys[i] == key) return (V) value;
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Check if the key is present
+     * @param key The key
+     * @return If the key is present
+     */
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Associate the value with the key
+     * @param key The key
+     * @param value The value
+     * @return The previous value, or null if the key was absent
+     */
+    @SuppressWarnings("unchecked") // only V instances are stored
+    public @Nullable V put(long key, @NotNull V value) {
+        int i = slot(key);
+        Object previous;
+        while((previous = values[i]) != null) {
+            if(keys[i] == key) {
+                values[i] = value;
+                return (V) previous;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        if(size * 2 > values.length) resize(values.length << 1);
+        return null;
+    }
+
+    /**
+     * Remove the key
+     * @param key The key
+     * @return The removed value, or null if the key was absent
+     */
+    @SuppressWarnings("unchecked") // only V instances are stored
+    public @Nullable V remove(long key) {
+        int i = slot(key);
+        Object value;
+        while((value = values[i]) != null) {
+            if(keys[i] == key) {
+                deleteSlot(i);
+                return (V) value;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Get the number of entries
+     * @return The number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check if the map is empty
+     * @return If the map is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove all entries
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Iterate over all entries, the map must not be modified during the iteration
+     * @param consumer The entry consumer
+     */
+    @SuppressWarnings("unchecked") // only V instances are stored
+    public void forEach(@NotNull EntryConsumer<V> consumer) {
+        for(int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if(value != null) consumer.accept(keys[i], (V) value);
+        }
+    }
+
+    /**
+     * Get the ideal slot of a key
+     * @param key The key
+     * @return The slot index
+     */
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L; //fibonacci hashing, snowflakes low bits are not well distributed
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * Delete the slot and shift back the following entries of the cluster (no tombstones)
+     * @param gap The slot to delete
+     */
+    private void deleteSlot(int gap) {
+        values[gap] = null;
+        size--;
+        int j = gap;
+        while(true) {
+            j = (j + 1) & mask;
+            if(values[j] == null) return;
+            int ideal = slot(keys[j]);
+            boolean reachable = (gap <= j) ? (gap < ideal && ideal <= j) : (gap < ideal || ideal <= j);
+            if(!reachable) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                values[j] = null;
+                gap = j;
+            }
+        }
+    }
+
+    /**
+     * Allocate empty tables
+     * @param capacity The table capacity (power of two)
+     */
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Grow the tables and rehash all entries
+     * @param capacity The new capacity (power of two)
+     */
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for(int i = 0; i < oldValues.length; i++) {
+            Object value = oldValues[i];
+            if(value == null) continue;
+            int j = slot(oldKeys[i]);
+            while(values[j] != null) j = (j + 1) & mask;
+            keys[j] = oldKeys[i];
+            values[j] = value;
+        }
+    }
+}
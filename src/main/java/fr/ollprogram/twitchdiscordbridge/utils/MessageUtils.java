@@ -14,6 +14,8 @@ package fr.ollprogram.twitchdiscordbridge.utils;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Set;
+
 /**
  * Message utility class
  */
@@ -26,6 +28,10 @@ public final class MessageUtils {
         throw new UnsupportedOperationException("Message utils can't be instantiated");
     }
 
+    private static final String[] SCHEMES = {"https://", "http://"};
+
+    private static final String URL_REPLACEMENT = "[url]";
+
     /**
      * Filter the given message to avoid :
      * <ul>
@@ -35,7 +41,132 @@ public final class MessageUtils {
      * @param message The message to filter
      * @return The filtered message
      */
-    public static String filterMessage(@NotNull String message){
-        return message.replaceAll("(https://www\\.|http://www\\.|https://|http://)?[a-zA-Z]{2,}(\\.[a-zA-Z]{2,})(\\.[a-zA-Z]{2,})?/[a-zA-Z0-9]{2,}|((https://www\\.|http://www\\.|https://|http://)?[a-zA-Z]{2,}(\\.[a-zA-Z]{2,})(\\.[a-zA-Z]{2,})?)|(https://www\\.|http://www\\.|https://|http://)?[a-zA-Z0-9]{2,}\\.[a-zA-Z0-9]{2,}\\.[a-zA-Z0-9]{2,}(\\.[a-zA-Z0-9]{2,})?", "[url]");
+    public static @NotNull String filterMessage(@NotNull String message){
+        return filterMessage(message, Set.of());
+    }
+
+    /**
+     * Filter the given message to avoid :
+     * <ul>
+     *     <li>Links, if they were disabled on one of the platform, unless they are on an allowed domain</li>
+     * </ul>
+     * <p>With this filter, this prevent users to bypass some permissions by using the bot chat.</p>
+     * <p>A link is a host (at least two labels separated by dots, the last one having at least two letters), with an
+     * optional http(s) scheme before and an optional path after. The message is scanned once, without regex and without
+     * going back, so the time is linear in the message length whatever the message is. A message without any dot is
+     * returned as is, a message without links is returned without any allocation.</p>
+     * @param message The message to filter
+     * @param allowedDomains The domains in lower case whose links are kept, their subdomains are allowed too
+     * @return The filtered message
+     */
+    public static @NotNull String filterMessage(@NotNull String message, @NotNull Set<@NotNull String> allowedDomains){
+        if(message.indexOf('.') < 0) return message; //no host without a dot
+        int length = message.length();
+        StringBuilder builder = null;
+        int copied = 0; //end of the part already copied to the builder
+        int i = 0;
+        while(i < length){
+            if(!isLabelChar(message.charAt(i)) || (i > 0 && isLabelChar(message.charAt(i - 1)))){
+                i++;
+                continue;
+            }
+            //start of a label, read the whole host
+            int labels = 0;
+            int lastLabelStart = i;
+            int end = i;
+            while(true){
+                int labelStart = end;
+                while(end < length && isLabelChar(message.charAt(end))) end++;
+                labels++;
+                lastLabelStart = labelStart;
+                if(end + 1 < length && message.charAt(end) == '.' && isLabelChar(message.charAt(end + 1))) end++;
+                else break;
+            }
+            //a host suffix can't be a link if the whole host isn't, so the scan continues after the host
+            if(labels < 2 || !isTopLevelDomain(message, lastLabelStart, end)){
+                i = end;
+                continue;
+            }
+            int linkStart = i - schemeLength(message, i);
+            int linkEnd = end;
+            if(linkEnd < length && isPathStart(message.charAt(linkEnd))){
+                while(linkEnd < length && !Character.isWhitespace(message.charAt(linkEnd))) linkEnd++;
+            }
+            if(isAllowed(message, i, end, allowedDomains)){ //kept with its path, which isn't scanned for hosts
+                i = linkEnd;
+                continue;
+            }
+            if(builder == null) builder = new StringBuilder(length);
+            builder.append(message, copied, linkStart).append(URL_REPLACEMENT);
+            copied = linkEnd;
+            i = linkEnd;
+        }
+        if(builder == null) return message;
+        return builder.append(message, copied, length).toString();
+    }
+
+    /**
+     * Check if the char can be part of a host label
+     * @param c The char
+     * @return If it is a letter, a digit or a hyphen (ASCII only)
+     */
+    private static boolean isLabelChar(char c){
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-';
+    }
+
+    /**
+     * Check if the last label of a host can be a top level domain
+     * @param message The message
+     * @param start The label start
+     * @param end The label end (exclusive)
+     * @return If the label has at least two letters and only letters
+     */
+    private static boolean isTopLevelDomain(String message, int start, int end){
+        if(end - start < 2) return false;
+        for(int i = start; i < end; i++){
+            char c = message.charAt(i);
+            if(!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z'))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Check if the char starts the part after the host of a link
+     * @param c The char
+     * @return If it starts a path, a port, a query or a fragment
+     */
+    private static boolean isPathStart(char c){
+        return c == '/' || c == ':' || c == '?' || c == '#';
+    }
+
+    /**
+     * Get the length of the http(s) scheme written just before a host
+     * @param message The message
+     * @param hostStart The host start
+     * @return The scheme length, 0 if there is no scheme
+     */
+    private static int schemeLength(String message, int hostStart){
+        for(String scheme : SCHEMES){
+            int start = hostStart - scheme.length();
+            if(start >= 0 && message.regionMatches(true, start, scheme, 0, scheme.length())) return scheme.length();
+        }
+        return 0;
+    }
+
+    /**
+     * Check if a host is one of the allowed domains, or one of their subdomains
+     * @param message The message
+     * @param start The host start
+     * @param end The host end (exclusive)
+     * @param allowedDomains The allowed domains, in lower case
+     * @return If the host is allowed
+     */
+    private static boolean isAllowed(String message, int start, int end, Set<String> allowedDomains){
+        for(String domain : allowedDomains){
+            int domainStart = end - domain.length();
+            if(domainStart < start || !message.regionMatches(true, domainStart, domain, 0, domain.length())) continue;
+            if(domainStart == start || message.charAt(domainStart - 1) == '.') return true;
+        }
+        return false;
     }
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Measures the duration of named phases, some of them may run at the same time.
+ * The report gives each phase in start order and the total since the timer creation.
+ * This class is thread safe.
+ */
+public final class PhaseTimer {
+
+    private final Map<String, Long> durations; //in nanoseconds, -1 while running
+
+    private final LongSupplier clock;
+
+    private final long createdAt;
+
+    /**
+     * Constructor
+     */
+    public PhaseTimer() {
+        this(System::nanoTime);
+    }
+
+    /**
+     * Constructor with a custom clock
+     * @param clock The clock, in nanoseconds
+     */
+    public PhaseTimer(@NotNull LongSupplier clock) {
+        this.durations = new LinkedHashMap<>();
+        this.clock = clock;
+        this.createdAt = clock.getAsLong();
+    }
+
+    /**
+     * Run a phase and measure it
+     * @param phase The phase name
+     * @param step The phase work
+     * @return The result of the phase
+     * @param <T> The result type
+     */
+    public <T> T time(@NotNull String phase, @NotNull Supplier<T> step) {
+        synchronized (this) {
+            durations.put(phase, -1L);
+        }
+        long start = clock.getAsLong();
+        try {
+            return step.get();
+        } finally {
+            long duration = clock.getAsLong() - start;
+            synchronized (this) {
+                durations.put(phase, duration);
+            }
+        }
+    }
+
+    /**
+     * Run a phase and measure it
+     * @param phase The phase name
+     * @param step The phase work
+     */
+    public void time(@NotNull String phase, @NotNull Runnable step) {
+        time(phase, () -> {
+            step.run();
+            return null;
+        });
+    }
+
+    /**
+     * Get the duration of a finished phase
+     * @param phase The phase name
+     * @return The duration in milliseconds, or -1 if the phase is unknown or still running
+     */
+    public synchronized long getMillis(@NotNull String phase) {
+        Long duration = durations.get(phase);
+        return (duration == null || duration < 0) ? -1 : TimeUnit.NANOSECONDS.toMillis(duration);
+    }
+
+    /**
+     * Get the report of the phases
+     * @return The phases with their duration, then the total
+     */
+    public synchronized @NotNull String report() {
+        StringBuilder report = new StringBuilder();
+        durations.forEach((phase, duration) -> {
+            report.append(phase).append('=');
+            if(duration < 0) report.append("running");
+            else report.append(TimeUnit.NANOSECONDS.toMillis(duration)).append("ms");
+            report.append(", ");
+        });
+        long total = clock.getAsLong() - createdAt;
+        return report.append("total=").append(TimeUnit.NANOSECONDS.toMillis(total)).append("ms").toString();
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * A bounded set of the hashes added during the last time window.
+ * The hashes are kept in a ring of fixed capacity: above the capacity, or once older than the window, the oldest are forgotten.
+ * An open-addressed index, four times larger than the ring, gives the last ring slot of each hash: an index entry is only
+ * trusted if its slot still holds the hash, so the entries left by the overwritten slots are reused instead of deleted.
+ * Adding and checking a hash take a constant time without locks, and the memory is fixed.
+ * This class is thread safe, a hash being written by a concurrent addition can be missed for a check.
+ */
+public final class RecentHashWindow {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final long EMPTY = Long.MIN_VALUE; //the addition time of an empty slot
+
+    private static final int INDEX_LOAD = 4; //index entries per ring slot
+
+    private static final int MAX_PROBES = 16;
+
+    private final AtomicLongArray hashes; //ring buffer, in addition order
+
+    private final AtomicLongArray addedAt;
+
+    private final AtomicLong additions; //the next slot, modulo the capacity
+
+    private final AtomicLongArray indexHashes; //open addressing, linear probing
+
+    private final AtomicIntegerArray indexSlots; //the ring slot of each index entry, -1 if the entry is empty
+
+    private final int indexMask;
+
+    private final long windowNanos;
+
+    private final LongSupplier clock;
+
+    /**
+     * Constructor
+     * @param capacity The maximum number of hashes kept
+     * @param window The time a hash is kept
+     * @param unit The window unit
+     */
+    public RecentHashWindow(int capacity, long window, @NotNull TimeUnit unit) {
+        this(capacity, window, unit, System::nanoTime);
+    }
+
+    /**
+     * Constructor with a custom clock
+     * @param capacity The maximum number of hashes kept
+     * @param window The time a hash is kept
+     * @param unit The window unit
+     * @param clock The clock, in nanoseconds
+     */
+    public RecentHashWindow(int capacity, long window, @NotNull TimeUnit unit, @NotNull LongSupplier clock) {
+        if(capacity <= 0) throw new IllegalArgumentException("The capacity should be positive");
+        this.hashes = new AtomicLongArray(capacity);
+        this.addedAt = new AtomicLongArray(capacity);
+        for(int i = 0; i < capacity; i++) addedAt.set(i, EMPTY);
+        this.additions = new AtomicLong();
+        int indexSize = Integer.highestOneBit(Math.max(1, capacity * INDEX_LOAD - 1)) << 1; //a power of two
+        this.indexHashes = new AtomicLongArray(indexSize);
+        this.indexSlots = new AtomicIntegerArray(indexSize);
+        for(int i = 0; i < indexSize; i++) indexSlots.set(i, -1);
+        this.indexMask = indexSize - 1;
+        this.windowNanos = unit.toNanos(window);
+        this.clock = clock;
+    }
+
+    /**
+     * Add a hash, the oldest one is forgotten if the window is full
+     * @param hash The hash
+     */
+    public void add(long hash) {
+        int index = (int) (additions.getAndIncrement() % hashes.length());
+        addedAt.set(index, EMPTY); //the previous hash is forgotten before its slot is reused
+        hashes.set(index, hash);
+        long now = clock.getAsLong();
+        addedAt.set(index, now);
+        indexSlot(hash, index, now);
+    }
+
+    /**
+     * Check if a hash was added during the window
+     * @param hash The hash
+     * @return If the hash is in the window
+     */
+    public boolean contains(long hash) {
+        long now = clock.getAsLong();
+        int entry = indexStart(hash);
+        for(int probe = 0; probe < MAX_PROBES; probe++, entry = (entry + 1) & indexMask){
+            int slot = indexSlots.get(entry);
+            if(slot < 0) return false; //never used, the probing stops there
+            if(indexHashes.get(entry) == hash && hashes.get(slot) == hash && isRecent(addedAt.get(slot), now)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the number of hashes in the window
+     * @return The number of hashes
+     */
+    public int size() {
+        long now = clock.getAsLong();
+        int size = 0;
+        for(int i = 0; i < addedAt.length(); i++){
+            if(isRecent(addedAt.get(i), now)) size++;
+        }
+        return size;
+    }
+
+    /**
+     * Hash a text, with the 64 bits FNV-1a hash of its characters
+     * @param text The text
+     * @return The hash
+     */
+    public static long hash(@NotNull CharSequence text) {
+        long hash = FNV_OFFSET;
+        for(int i = 0; i < text.length(); i++){
+            hash ^= text.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Index the ring slot of a hash. The entry of the hash is updated, else a stale entry is reused, else the oldest probed
+     * entry is replaced (the index is large enough to make it rare)
+     * @param hash The hash
+     * @param slot The ring slot holding the hash
+     * @param now The current time
+     */
+    private void indexSlot(long hash, int slot, long now) {
+        int start = indexStart(hash);
+        int oldest = start;
+        long oldestTime = Long.MAX_VALUE;
+        for(int probe = 0, entry = start; probe < MAX_PROBES; probe++, entry = (entry + 1) & indexMask){
+            int indexed = indexSlots.get(entry);
+            long indexedHash = indexHashes.get(entry);
+            if(indexed >= 0 && indexedHash == hash){
+                indexSlots.set(entry, slot);
+                return;
+            }
+            long time = (indexed < 0) ? EMPTY : addedAt.get(indexed);
+            boolean stale = indexed < 0 || hashes.get(indexed) != indexedHash || !isRecent(time, now);
+            if(stale){
+                if(claim(entry, indexed, indexedHash, hash, slot)) return;
+                probe--; //taken by a concurrent addition, look at it again
+                entry = (entry - 1) & indexMask;
+                continue;
+            }
+            if(time < oldestTime){
+                oldestTime = time;
+                oldest = entry;
+            }
+        }
+        claim(oldest, indexSlots.get(oldest), indexHashes.get(oldest), hash, slot);
+    }
+
+    /**
+     * Replace an index entry, unless a concurrent addition replaced it first
+     * @param entry The index entry
+     * @param indexed The slot of the entry when it was read
+     * @param indexedHash The hash of the entry when it was read
+     * @param hash The new hash
+     * @param slot The new slot
+     * @return If the entry has been replaced
+     */
+    private boolean claim(int entry, int indexed, long indexedHash, long hash, int slot) {
+        if(!indexSlots.compareAndSet(entry, indexed, slot)) return false;
+        indexHashes.set(entry, hash); //checked against the ring, a stale pair is never reported
+        return true;
+    }
+
+    /**
+     * Get the first index entry probed for a hash, the hash bits are mixed so that close hashes are spread
+     * @param hash The hash
+     * @return The index entry
+     */
+    private int indexStart(long hash) {
+        long mixed = hash * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & indexMask;
+    }
+
+    /**
+     * Check if an addition time is in the window
+     * @param added The addition time
+     * @param now The current time
+     * @return If the slot is not empty and not expired
+     */
+    private boolean isRecent(long added, long now) {
+        return added != EMPTY && now - added < windowNanos;
+    }
+}
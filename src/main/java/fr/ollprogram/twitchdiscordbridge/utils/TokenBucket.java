@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket where each token is given back one period after being taken.
+ * Unlike a bucket refilled at a constant rate, no more than capacity tokens can be taken in any window of one period,
+ * which is how the twitch chat limits are enforced (e.g. 20 messages per 30 seconds).
+ * This class is thread safe.
+ */
+public final class TokenBucket {
+
+    private final long[] takenAt; //ring buffer of the times the last tokens were taken
+
+    private final long periodNanos;
+
+    private final LongSupplier clock;
+
+    private int next;
+
+    private int taken;
+
+    /**
+     * Constructor
+     * @param capacity The number of tokens that can be taken per period
+     * @param period The period
+     * @param unit The period unit
+     */
+    public TokenBucket(int capacity, long period, @NotNull TimeUnit unit) {
+        this(capacity, period, unit, System::nanoTime);
+    }
+
+    /**
+     * Constructor with a custom clock
+     * @param capacity The number of tokens that can be taken per period
+     * @param period The period
+     * @param unit The period unit
+     * @param clock The clock, in nanoseconds
+     */
+    public TokenBucket(int capacity, long period, @NotNull TimeUnit unit, @NotNull LongSupplier clock) {
+        if(capacity <= 0) throw new IllegalArgumentException("The capacity should be positive");
+        this.takenAt = new long[capacity];
+        this.periodNanos = unit.toNanos(period);
+        this.clock = clock;
+        this.next = 0;
+        this.taken = 0;
+    }
+
+    /**
+     * Take a token if one is available
+     * @return If a token has been taken
+     */
+    public synchronized boolean tryAcquire() {
+        long now = clock.getAsLong();
+        if(taken == takenAt.length && now - takenAt[next] < periodNanos) return false;
+        takenAt[next] = now;
+        next = (next + 1) % takenAt.length;
+        if(taken < takenAt.length) taken++;
+        return true;
+    }
+
+    /**
+     * Get the number of available tokens
+     * @return The number of tokens that can be taken now
+     */
+    public synchronized int available() {
+        long now = clock.getAsLong();
+        int available = takenAt.length - taken;
+        int oldest = (next - taken + takenAt.length) % takenAt.length;
+        for(int i = 0; i < taken; i++) {
+            if(now - takenAt[(oldest + i) % takenAt.length] >= periodNanos) available++;
+            else break; //the following tokens were taken later
+        }
+        return available;
+    }
+
+    /**
+     * Get the capacity
+     * @return The number of tokens that can be taken per period
+     */
+    public int getCapacity() {
+        return takenAt.length;
+    }
+}
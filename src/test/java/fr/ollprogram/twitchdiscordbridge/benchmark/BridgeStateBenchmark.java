@@ -0,0 +1,162 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.benchmark;
+
+import com.github.twitch4j.TwitchClient;
+import fr.ollprogram.twitchdiscordbridge.bridge.Bridge;
+import fr.ollprogram.twitchdiscordbridge.bridge.BridgeImpl;
+import fr.ollprogram.twitchdiscordbridge.bridge.BridgeState;
+import fr.ollprogram.twitchdiscordbridge.configuration.BridgeConfigImpl;
+import fr.ollprogram.twitchdiscordbridge.model.Route;
+import net.dv8tion.jda.api.JDA;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Contention benchmark of the bridge state reads done for every relayed message.
+ * Seven relay threads read the state while one admin thread modifies it and then does some blocking work
+ * (chat leave/join, configuration write). The synchronized design is the one used before the state snapshots:
+ * three monitor acquisitions per message and the monitor held during the blocking work.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BridgeStateBenchmark {
+
+    private static final long DISCORD_CHANNEL = 10200303203L;
+
+    private static final String TWITCH_CHANNEL = "ollprogram";
+
+    private static final long ADMIN_WORK = 2_000;
+
+    /**
+     * The previous design, a mutable state guarded by the bridge monitor
+     */
+    @State(Scope.Group)
+    public static class SynchronizedBridge {
+
+        private boolean open = true;
+
+        private String discordChannelID = String.valueOf(DISCORD_CHANNEL);
+
+        private String twitchChannelName = TWITCH_CHANNEL;
+
+        /**
+         * @return If the bridge is open
+         */
+        public synchronized boolean isOpen() {
+            return open;
+        }
+
+        /**
+         * @param channelID The discord channel ID
+         * @return If the channel is the target
+         */
+        public synchronized boolean isDiscordTarget(String channelID) {
+            return discordChannelID.equals(channelID);
+        }
+
+        /**
+         * @return The twitch channel name
+         */
+        public synchronized String getTwitchChannelNameSync() {
+            return twitchChannelName;
+        }
+
+        /**
+         * Change the twitch channel, like changeTwitchChannel did
+         * @param channelName The new channel name
+         */
+        public synchronized void change(String channelName) {
+            twitchChannelName = channelName;
+            Blackhole.consumeCPU(ADMIN_WORK); //leave/join and save while holding the monitor
+        }
+    }
+
+    /**
+     * The current design, an immutable state published through an atomic reference
+     */
+    @State(Scope.Group)
+    public static class SnapshotBridge {
+
+        private Bridge bridge;
+
+        /**
+         * Create an opened bridge with stubbed bots
+         */
+        @Setup
+        public void setUp() {
+            bridge = new BridgeImpl(mock(JDA.class), mock(TwitchClient.class),
+                    new BridgeConfigImpl(TWITCH_CHANNEL, String.valueOf(DISCORD_CHANNEL), "twitch_token", "discord_token"));
+            bridge.open();
+        }
+    }
+
+    /**
+     * Relay path of the synchronized design
+     * @param bridge The shared bridge
+     * @return The destination
+     */
+    @Benchmark
+    @Group("synchronizedDesign")
+    @GroupThreads(7)
+    public String synchronizedRelay(SynchronizedBridge bridge) {
+        if(!bridge.isOpen()) return null;
+        if(!bridge.isDiscordTarget(String.valueOf(DISCORD_CHANNEL))) return null;
+        return bridge.getTwitchChannelNameSync();
+    }
+
+    /**
+     * Admin modification of the synchronized design
+     * @param bridge The shared bridge
+     */
+    @Benchmark
+    @Group("synchronizedDesign")
+    @GroupThreads(1)
+    public void synchronizedAdmin(SynchronizedBridge bridge) {
+        bridge.change(TWITCH_CHANNEL);
+    }
+
+    /**
+     * Relay path of the snapshot design
+     * @param holder The shared bridge
+     * @return The destination
+     */
+    @Benchmark
+    @Group("snapshotDesign")
+    @GroupThreads(7)
+    public String snapshotRelay(SnapshotBridge holder) {
+        BridgeState state = holder.bridge.getState();
+        if(!state.open()) return null;
+        Route route = state.routes().findByDiscord(DISCORD_CHANNEL);
+        return (route == null) ? null : route.twitchChannelName();
+    }
+
+    /**
+     * Admin modification of the snapshot design
+     * @param holder The shared bridge
+     */
+    @Benchmark
+    @Group("snapshotDesign")
+    @GroupThreads(1)
+    public void snapshotAdmin(SnapshotBridge holder) {
+        holder.bridge.open(); //CAS on the state, the blocking work is then done without blocking the readers
+        Blackhole.consumeCPU(ADMIN_WORK);
+    }
+}
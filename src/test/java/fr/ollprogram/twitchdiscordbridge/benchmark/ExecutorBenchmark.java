@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.benchmark;
+
+import fr.ollprogram.twitchdiscordbridge.bridge.Direction;
+import fr.ollprogram.twitchdiscordbridge.command.SheddingPolicy;
+import fr.ollprogram.twitchdiscordbridge.command.TDBExecutor;
+import fr.ollprogram.twitchdiscordbridge.command.TDBPoolExecutor;
+import fr.ollprogram.twitchdiscordbridge.command.TDBVirtualExecutor;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and memory of the two executors under a burst of relay tasks.
+ * A relay task is almost only blocking I/O (discord and twitch requests), simulated by a sleep.
+ * The pool executor is sized like in Main. The peak number of platform threads and the used heap are printed after
+ * each iteration, run with -prof gc for the allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutorBenchmark {
+
+    private static final int BURST = 2_000;
+
+    private static final long IO_MILLIS = 5;
+
+    /**
+     * The executor mode, like the tdb.executor setting
+     */
+    @Param({"pool", "virtual"})
+    public String mode;
+
+    private TDBExecutor executor;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    /**
+     * Create the executor, bounded high enough to never shed a task of the burst
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        if("virtual".equals(mode)){
+            executor = new TDBVirtualExecutor(2 * BURST);
+            return;
+        }
+        int processors = Runtime.getRuntime().availableProcessors();
+        int commandPoolSize = Math.max(1, (int) (processors * 0.2));
+        int taskPoolSize = (processors - commandPoolSize) * (1 + (500 / 150));
+        executor = new TDBPoolExecutor(commandPoolSize, taskPoolSize, 2 * BURST, SheddingPolicy.DROP_NEWEST, TDBPoolExecutor.DEFAULT_MAX_AGE);
+    }
+
+    /**
+     * Reset the peak thread count
+     */
+    @Setup(Level.Iteration)
+    public void resetPeak() {
+        threads.resetPeakThreadCount();
+    }
+
+    /**
+     * Print the memory used during the iteration
+     */
+    @TearDown(Level.Iteration)
+    public void printMemory() {
+        System.out.println(mode + " : peak platform threads " + threads.getPeakThreadCount()
+                + ", used heap " + (memory.getHeapMemoryUsage().getUsed() >> 20) + " MB");
+    }
+
+    /**
+     * Stop the executor
+     * @throws InterruptedException if interrupted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        executor.shutdown();
+    }
+
+    /**
+     * Submit a burst of relay tasks and wait for all of them
+     * @throws InterruptedException if interrupted
+     */
+    @Benchmark
+    public void relayBurst() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(BURST);
+        for(int i = 0; i < BURST; i++){
+            executor.submit(Direction.TWITCH_TO_DISCORD, () -> {
+                try {
+                    Thread.sleep(IO_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            });
+        }
+        if(!done.await(1, TimeUnit.MINUTES)) throw new IllegalStateException("Tasks have been shed");
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.benchmark;
+
+import com.github.twitch4j.TwitchClient;
+import com.github.twitch4j.chat.TwitchChat;
+import com.github.twitch4j.chat.events.channel.ChannelMessageEvent;
+import com.github.twitch4j.common.events.domain.EventChannel;
+import com.github.twitch4j.common.events.domain.EventUser;
+import fr.ollprogram.twitchdiscordbridge.bridge.Bridge;
+import fr.ollprogram.twitchdiscordbridge.bridge.BridgeImpl;
+import fr.ollprogram.twitchdiscordbridge.bridge.Direction;
+import fr.ollprogram.twitchdiscordbridge.command.Command;
+import fr.ollprogram.twitchdiscordbridge.command.CommandRegistryImpl;
+import fr.ollprogram.twitchdiscordbridge.command.Priority;
+import fr.ollprogram.twitchdiscordbridge.command.TDBExecutor;
+import fr.ollprogram.twitchdiscordbridge.configuration.BridgeConfigImpl;
+import fr.ollprogram.twitchdiscordbridge.listener.DiscordListener;
+import fr.ollprogram.twitchdiscordbridge.listener.EchoGuard;
+import fr.ollprogram.twitchdiscordbridge.listener.FloodControl;
+import fr.ollprogram.twitchdiscordbridge.listener.TwitchListener;
+import fr.ollprogram.twitchdiscordbridge.metrics.MetricsRegistry;
+import fr.ollprogram.twitchdiscordbridge.metrics.RelayMetrics;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.api.requests.restaction.MessageCreateAction;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Benchmark of the relay hot path of one message, from the listener to the bot send:
+ * listener, link filter, formatting, bridge routing, then the direct sinks and the stubbed discord and twitch bots.
+ * The tasks are run in the listener thread to measure the path only, without the executor hand-off.
+ * The stubs (Mockito, stub only) cost the same before and after a change, compare the numbers of the same machine only.
+ * Run with -prof gc to get the allocation per message (gc.alloc.rate.norm).
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RelayBenchmark {
+
+    private static final long DISCORD_CHANNEL = 10200303203L;
+
+    private static final String TWITCH_CHANNEL = "ollprogram";
+
+    /**
+     * The relayed message
+     */
+    @Param({"plain", "links", "long"})
+    public String kind;
+
+    private DiscordListener discordListener;
+
+    private TwitchListener twitchListener;
+
+    private MessageReceivedEvent discordEvent;
+
+    private ChannelMessageEvent twitchEvent;
+
+    /**
+     * Executor running the tasks in the caller thread
+     */
+    private static final class InlineExecutor implements TDBExecutor {
+
+        @Override
+        public @NotNull CompletableFuture<String> submit(@NotNull Command command, @NotNull List<@NotNull String> args,
+                                                         @NotNull Priority priority) {
+            return CompletableFuture.completedFuture(command.getExecution(args).get());
+        }
+
+        @Override
+        public void submit(@NotNull Direction direction, @NotNull Runnable task) {
+            task.run();
+        }
+
+        @Override
+        public void submit(@NotNull Direction direction, long key, @NotNull Runnable task) {
+            task.run();
+        }
+
+        @Override
+        public long getRejectedCount(@NotNull Direction direction) {
+            return 0;
+        }
+
+        @Override
+        public long getTimedOutCount() {
+            return 0;
+        }
+
+        @Override
+        public int getQueueDepth() {
+            return 0;
+        }
+
+        @Override
+        public int getActiveCount() {
+            return 0;
+        }
+
+        @Override
+        public boolean shutdown() {
+            return true;
+        }
+    }
+
+    /**
+     * Create the message of the benchmark kind
+     * @return The message
+     */
+    private String createMessage() {
+        return switch (kind) {
+            case "plain" -> "Hello everyone, what a nice stream today";
+            case "links" -> "look at https://www.chess.com/home and github.com/ollprogram, or the clip clips.twitch.tv/AbcDef";
+            default -> "Lorem ipsum dolor sit amet, consectetur adipiscing elit. ".repeat(8) + "e.g. 3.14 is not a link";
+        };
+    }
+
+    /**
+     * Create an opened bridge on stubbed bots, the listeners and their events
+     */
+    @Setup
+    public void setUp() {
+        String message = createMessage();
+        JDA jda = mock(JDA.class, withSettings().stubOnly());
+        TextChannel textChannel = mock(TextChannel.class, withSettings().stubOnly());
+        MessageCreateAction action = mock(MessageCreateAction.class, withSettings().stubOnly());
+        when(jda.getTextChannelById(anyLong())).thenReturn(textChannel);
+        when(textChannel.sendMessage(anyString())).thenReturn(action);
+        TwitchClient twitch = mock(TwitchClient.class, withSettings().stubOnly());
+        TwitchChat chat = mock(TwitchChat.class, withSettings().stubOnly());
+        when(twitch.getChat()).thenReturn(chat);
+        when(chat.sendMessage(anyString(), anyString())).thenReturn(true);
+
+        Bridge bridge = new BridgeImpl(jda, twitch,
+                new BridgeConfigImpl(TWITCH_CHANNEL, String.valueOf(DISCORD_CHANNEL), "twitch_token", "discord_token"));
+        bridge.open();
+        TDBExecutor executor = new InlineExecutor();
+        // the same author sends every message, a flood limit never reached keeps the relay path measured
+        discordListener = new DiscordListener(bridge, new CommandRegistryImpl(), executor, Set.of(),
+                new RelayMetrics(new MetricsRegistry(), Direction.DISCORD_TO_TWITCH), new EchoGuard(),
+                new FloodControl(64, 1, TimeUnit.MICROSECONDS));
+        twitchListener = new TwitchListener(bridge, executor, Set.of(),
+                new RelayMetrics(new MetricsRegistry(), Direction.TWITCH_TO_DISCORD), new EchoGuard(),
+                new FloodControl(64, 1, TimeUnit.MICROSECONDS));
+
+        discordEvent = mock(MessageReceivedEvent.class, withSettings().stubOnly());
+        Message discordMessage = mock(Message.class, withSettings().stubOnly());
+        MessageChannelUnion discordChannel = mock(MessageChannelUnion.class, withSettings().stubOnly());
+        User author = mock(User.class, withSettings().stubOnly());
+        when(discordMessage.getContentDisplay()).thenReturn(message);
+        when(discordChannel.getIdLong()).thenReturn(DISCORD_CHANNEL);
+        when(author.getName()).thenReturn("ollprogram");
+        when(discordEvent.getMessage()).thenReturn(discordMessage);
+        when(discordEvent.getChannel()).thenReturn(discordChannel);
+        when(discordEvent.getAuthor()).thenReturn(author);
+
+        twitchEvent = mock(ChannelMessageEvent.class, withSettings().stubOnly());
+        when(twitchEvent.getMessage()).thenReturn(message);
+        when(twitchEvent.getChannel()).thenReturn(new EventChannel("1", TWITCH_CHANNEL));
+        when(twitchEvent.getUser()).thenReturn(new EventUser("2", "ollprogram"));
+    }
+
+    /**
+     * Relay a discord message to twitch
+     */
+    @Benchmark
+    public void discordToTwitch() {
+        discordListener.onMessageReceived(discordEvent);
+    }
+
+    /**
+     * Relay a twitch message to discord
+     */
+    @Benchmark
+    public void twitchToDiscord() {
+        twitchListener.onMessageEvent(twitchEvent);
+    }
+}
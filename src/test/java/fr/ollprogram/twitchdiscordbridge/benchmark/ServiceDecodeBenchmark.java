@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.benchmark;
+package fr.ollprogram.twitchdiscordbridge.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the decoding of one service response.
+ * The per call design is the one used before the shared readers: a new mapper for each request and a body buffered as a string.
+ * The shared design reads the response stream with a reader built once.
+ * Run with -prof gc to get the allocation per call (gc.alloc.rate.norm).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServiceDecodeBenchmark {
+
+    private static final byte[] USER_LIST_BODY = ("{\"data\" : [{\"id\" : \"141981764\", \"login\":\"ollprogram\","
+            + "\"display_name\":\"ollprogram\", \"type\":\"\", \"broadcaster_type\":\"affiliate\","
+            + "\"description\":\"A bridge between twitch and discord\", \"view_count\":5980557,"
+            + "\"created_at\":\"2016-12-14T20:32:28Z\"}]}").getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Same fields as the twitch service user body
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class UserBody {
+        public String id;
+        public String login;
+    }
+
+    /**
+     * Same fields as the twitch service user list body
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class UserListBody {
+        public UserBody[] data;
+        public String message;
+    }
+
+    private static final ObjectReader USER_LIST_READER = new ObjectMapper().readerFor(UserListBody.class);
+
+    /**
+     * Decoding of the per call design
+     * @return The decoded body
+     * @throws IOException if the body can't be read
+     */
+    @Benchmark
+    public UserListBody perCallMapper() throws IOException {
+        String body = new String(new ByteArrayInputStream(USER_LIST_BODY).readAllBytes(), StandardCharsets.UTF_8); //BodyHandlers.ofString()
+        return new ObjectMapper().readValue(body, UserListBody.class);
+    }
+
+    /**
+     * Decoding of the shared design
+     * @return The decoded body
+     * @throws IOException if the body can't be read
+     */
+    @Benchmark
+    public UserListBody sharedReader() throws IOException {
+        try(InputStream in = new ByteArrayInputStream(USER_LIST_BODY)) { //BodyHandlers.ofInputStream()
+            return USER_LIST_READER.readValue(in);
+        }
+    }
+}
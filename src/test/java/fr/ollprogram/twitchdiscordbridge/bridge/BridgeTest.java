@@ -16,10 +16,16 @@ import com.github.twitch4j.TwitchClient;
 import com.github.twitch4j.chat.TwitchChat;
 import fr.ollprogram.twitchdiscordbridge.configuration.BridgeConfig;
 import fr.ollprogram.twitchdiscordbridge.configuration.BridgeConfigImpl;
-import fr.ollprogram.twitchdiscordbridge.configuration.save.ConfigSaverToProps;
+import fr.ollprogram.twitchdiscordbridge.configuration.save.ConfigSaver;
+import fr.ollprogram.twitchdiscordbridge.configuration.save.WriteBehindConfigSaver;
 import fr.ollprogram.twitchdiscordbridge.exception.BridgeNotOpenedException;
+import fr.ollprogram.twitchdiscordbridge.exception.ServiceException;
+import fr.ollprogram.twitchdiscordbridge.exception.ServiceRequestFailedException;
+import fr.ollprogram.twitchdiscordbridge.model.Route;
 import fr.ollprogram.twitchdiscordbridge.model.TwitchChannelInfo;
-import fr.ollprogram.twitchdiscordbridge.service.TwitchServiceImpl;
+import fr.ollprogram.twitchdiscordbridge.service.TwitchService;
+import fr.ollprogram.twitchdiscordbridge.sink.DirectDiscordSink;
+import fr.ollprogram.twitchdiscordbridge.sink.DirectTwitchSink;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
 import net.dv8tion.jda.api.requests.restaction.MessageCreateAction;
@@ -27,11 +33,16 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
-import org.mockito.MockedConstruction;
 
-import java.util.Optional;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 class BridgeTest {
@@ -47,6 +58,12 @@ class BridgeTest {
 
     private BridgeConfig fakeConfig;
 
+    private TwitchService fakeTwitchService;
+
+    private ConfigSaver fakeConfigSaver;
+
+    private WriteBehindConfigSaver configSaver;
+
     private static final String FAKE_DISCORD_TOKEN = "discord_token";
 
     private static final String FAKE_TWITCH_TOKEN = "twitch_token";
@@ -61,7 +78,20 @@ class BridgeTest {
         fakeTwitchChat = mock(TwitchChat.class);
         when(fakeTwitchBot.getChat()).thenReturn(fakeTwitchChat);
         fakeConfig = new BridgeConfigImpl(FAKE_TWITCH_CHANNEL, FAKE_DISCORD_CHANNEL, FAKE_TWITCH_TOKEN, FAKE_DISCORD_TOKEN);// can be mocked but there not too many drawbacks
-        bridge = new BridgeImpl(fakeDiscordBot, fakeTwitchBot, fakeConfig);
+        fakeTwitchService = mock(TwitchService.class);
+        fakeConfigSaver = mock(ConfigSaver.class);
+        configSaver = new WriteBehindConfigSaver(config -> fakeConfigSaver, 1, TimeUnit.HOURS); //written by flush only
+        bridge = createBridge(fakeConfig);
+    }
+
+    /**
+     * Create a bridge with the fake bots, service and saver
+     * @param config The bridge configuration
+     * @return The bridge
+     */
+    private Bridge createBridge(BridgeConfig config) {
+        return new BridgeImpl(fakeDiscordBot, fakeTwitchBot, config, new DirectTwitchSink(fakeTwitchBot),
+                new DirectDiscordSink(fakeDiscordBot), fakeTwitchService, configSaver);
     }
 
     @Test
@@ -96,7 +126,7 @@ class BridgeTest {
     void sendToDiscord() {
         bridge.open();
         TextChannel fakeDiscordTextChannel = mock(TextChannel.class);
-        when(fakeDiscordBot.getTextChannelById(FAKE_DISCORD_CHANNEL)).thenReturn(fakeDiscordTextChannel);
+        when(fakeDiscordBot.getTextChannelById(Long.parseLong(FAKE_DISCORD_CHANNEL))).thenReturn(fakeDiscordTextChannel);
         when(fakeDiscordTextChannel.sendMessage(any(CharSequence.class))).thenReturn(mock(MessageCreateAction.class));
         bridge.sendToDiscord("message");
         verify(fakeDiscordTextChannel).sendMessage("message");
@@ -123,9 +153,7 @@ class BridgeTest {
         TextChannel fakeDiscordTextChannel = mock(TextChannel.class);
         when(fakeDiscordBot.getTextChannelById("10001")).thenReturn(fakeDiscordTextChannel);
         when(fakeDiscordTextChannel.getName()).thenReturn("ollprogram");
-        try(MockedConstruction<ConfigSaverToProps> ignored = mockConstruction(ConfigSaverToProps.class)){
-            assertTrue(bridge.changeDiscordChannel("10001") && bridge.getConfig().getDiscordChannelID().equals("10001"));
-        }
+        assertTrue(bridge.changeDiscordChannel("10001") && bridge.getConfig().getDiscordChannelID().equals("10001"));
     }
 
     @Test
@@ -135,24 +163,35 @@ class BridgeTest {
 
 
     @Test
-    void changeTwitchChannel() {
-        try (
-                MockedConstruction<TwitchServiceImpl> ignored = mockConstruction(TwitchServiceImpl.class, (service, context) -> {
-            when(service.getChannel("new_channel")).thenReturn(Optional.of(new TwitchChannelInfo("any", "new_channel")));
-        });
-                MockedConstruction<ConfigSaverToProps> ignored1 = mockConstruction(ConfigSaverToProps.class))
-        {
-            assertTrue(bridge.changeTwitchChannel("new_channel") && bridge.getConfig().getTwitchChannelName().equals("new_channel"));
-        }
+    void changeTwitchChannel() throws ServiceException {
+        when(fakeTwitchService.getChannels(List.of("new_channel"))).thenReturn(Map.of("new_channel", new TwitchChannelInfo("any", "new_channel")));
+        assertTrue(bridge.changeTwitchChannel("new_channel") && bridge.getConfig().getTwitchChannelName().equals("new_channel"));
+    }
+
+    @Test
+    void changeTwitchChannelNotFound() throws ServiceException {
+        when(fakeTwitchService.getChannels(List.of("new_channel"))).thenReturn(Map.of());
+        assertFalse(bridge.changeTwitchChannel("new_channel"));
     }
 
     @Test
-    void changeTwitchChannelNotFound() {
-        try (MockedConstruction<TwitchServiceImpl> ignored = mockConstruction(TwitchServiceImpl.class, (service, context) -> {
-                    when(service.getChannel("new_channel")).thenReturn(Optional.empty());}))
-            {
-                assertFalse(bridge.changeTwitchChannel("new_channel"));
-            }
+    @DisplayName("The shared twitch service is used for every channel check")
+    void changeTwitchChannelSharedService() throws ServiceException {
+        when(fakeTwitchService.getChannels(List.of("new_channel"))).thenReturn(Map.of("new_channel", new TwitchChannelInfo("any", "new_channel")));
+        when(fakeTwitchService.getChannels(List.of(FAKE_TWITCH_CHANNEL))).thenReturn(Map.of(FAKE_TWITCH_CHANNEL, new TwitchChannelInfo("any", FAKE_TWITCH_CHANNEL)));
+        assertTrue(bridge.changeTwitchChannel("new_channel"));
+        assertTrue(bridge.changeTwitchChannel(FAKE_TWITCH_CHANNEL));
+        verify(fakeTwitchService, times(2)).authenticate(FAKE_TWITCH_TOKEN);
+        verify(fakeTwitchService, times(2)).getChannels(anyCollection());
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("A failing twitch service refuses the change")
+    void changeTwitchChannelServiceFailure() throws ServiceException {
+        when(fakeTwitchService.authenticate(FAKE_TWITCH_TOKEN)).thenThrow(new ServiceRequestFailedException("down"));
+        assertFalse(bridge.changeTwitchChannel("new_channel"));
+        assertEquals(FAKE_TWITCH_CHANNEL, bridge.getConfig().getTwitchChannelName());
     }
 
     @Test
@@ -183,4 +222,142 @@ class BridgeTest {
         mutation.changeTwitchChannelName("invalid");
         assertEquals(before, bridge.getConfig());
     }
-}
\ No newline at end of file
+
+    @Test
+    void sendToTwitchRoute() {
+        bridge.open();
+        bridge.sendToTwitch(new Route(42, "Other"), "message");
+        verify(fakeTwitchChat).sendMessage("other", "message");
+    }
+
+    @Test
+    void addRoute() throws ServiceException {
+        Route route = new Route(42, "other");
+        when(fakeDiscordBot.getTextChannelById(42L)).thenReturn(mock(TextChannel.class));
+        when(fakeTwitchService.getChannels(List.of("other"))).thenReturn(Map.of("other", new TwitchChannelInfo("any", "other")));
+        assertTrue(bridge.addRoute(route));
+        verify(fakeTwitchChat).joinChannel("other");
+        assertEquals(route, bridge.findRouteByDiscord(42));
+        assertEquals(route, bridge.findRouteByTwitch("other"));
+        assertEquals(List.of(route), bridge.getConfig().getAdditionalRoutes());
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("Can't add a route using an already bridged channel")
+    void addRouteConflict() throws ServiceException {
+        when(fakeDiscordBot.getTextChannelById(Long.parseLong(FAKE_DISCORD_CHANNEL))).thenReturn(mock(TextChannel.class));
+        when(fakeTwitchService.getChannels(List.of("other"))).thenReturn(Map.of("other", new TwitchChannelInfo("any", "other")));
+        assertFalse(bridge.addRoute(new Route(Long.parseLong(FAKE_DISCORD_CHANNEL), "other")));
+        assertEquals(1, bridge.getRoutes().size());
+    }
+
+    @Test
+    void removeRoute() {
+        BridgeConfig config = new BridgeConfigImpl(FAKE_TWITCH_CHANNEL, FAKE_DISCORD_CHANNEL, FAKE_TWITCH_TOKEN,
+                FAKE_DISCORD_TOKEN, List.of(new Route(42, "other")));
+        Bridge multiBridge = createBridge(config);
+        assertTrue(multiBridge.removeRoute(42));
+        verify(fakeTwitchChat).leaveChannel("other");
+        assertNull(multiBridge.findRouteByDiscord(42));
+        assertTrue(multiBridge.getConfig().getAdditionalRoutes().isEmpty());
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("The main route can't be removed")
+    void removeMainRoute() {
+        assertFalse(bridge.removeRoute(Long.parseLong(FAKE_DISCORD_CHANNEL)));
+        assertTrue(bridge.isDiscordTarget(FAKE_DISCORD_CHANNEL));
+    }
+
+    @Test
+    @DisplayName("The channels of the routes are checked in one request, a missing route stays configured")
+    void checkRoutes() throws ServiceException {
+        BridgeConfig config = new BridgeConfigImpl(FAKE_TWITCH_CHANNEL, FAKE_DISCORD_CHANNEL, FAKE_TWITCH_TOKEN,
+                FAKE_DISCORD_TOKEN, List.of(new Route(42, "other"), new Route(43, "deleted")));
+        Bridge multiBridge = createBridge(config);
+        when(fakeDiscordBot.getTextChannelById(anyLong())).thenReturn(mock(TextChannel.class));
+        when(fakeTwitchService.getChannels(List.of("other", "deleted"))).thenReturn(Map.of("other", new TwitchChannelInfo("any", "other")));
+        assertEquals(List.of(new Route(43, "deleted")), multiBridge.checkRoutes());
+        verify(fakeTwitchService, times(1)).getChannels(anyCollection());
+        verify(fakeTwitchChat).leaveChannel("deleted");
+        assertNull(multiBridge.findRouteByDiscord(43));
+        assertEquals(new Route(42, "other"), multiBridge.findRouteByDiscord(42));
+        assertTrue(multiBridge.removeRoute(42));
+        assertEquals(List.of(new Route(43, "deleted")), multiBridge.getConfig().getAdditionalRoutes());
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("The routes are kept when their channels can't be retrieved")
+    void checkRoutesServiceFailure() throws ServiceException {
+        BridgeConfig config = new BridgeConfigImpl(FAKE_TWITCH_CHANNEL, FAKE_DISCORD_CHANNEL, FAKE_TWITCH_TOKEN,
+                FAKE_DISCORD_TOKEN, List.of(new Route(42, "other")));
+        Bridge multiBridge = createBridge(config);
+        when(fakeTwitchService.getChannels(anyCollection())).thenThrow(new ServiceRequestFailedException("down"));
+        assertTrue(multiBridge.checkRoutes().isEmpty());
+        assertEquals(new Route(42, "other"), multiBridge.findRouteByDiscord(42));
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("A configured route using an already bridged channel is skipped")
+    void conflictingRouteSkipped() {
+        BridgeConfig config = new BridgeConfigImpl(FAKE_TWITCH_CHANNEL, FAKE_DISCORD_CHANNEL, FAKE_TWITCH_TOKEN,
+                FAKE_DISCORD_TOKEN, List.of(new Route(42, "other"), new Route(43, "other")));
+        Bridge multiBridge = createBridge(config);
+        RouteIndex expected = RouteIndex.of(multiBridge.getState().mainRoute(), config.getAdditionalRoutes());
+        assertEquals(expected.getRoutes(), multiBridge.getState().routes().getRoutes());
+        assertEquals(2, expected.size());
+        assertNull(multiBridge.findRouteByDiscord(43));
+    }
+
+    @Test
+    void findRouteOfAdditionalRoute() {
+        BridgeConfig config = new BridgeConfigImpl(FAKE_TWITCH_CHANNEL, FAKE_DISCORD_CHANNEL, FAKE_TWITCH_TOKEN,
+                FAKE_DISCORD_TOKEN, List.of(new Route(42, "other")));
+        Bridge multiBridge = createBridge(config);
+        assertEquals(new Route(42, "other"), multiBridge.findRouteByTwitch("other"));
+        assertTrue(multiBridge.isDiscordTarget("42"));
+        assertTrue(multiBridge.isTwitchTarget("OTHER"));
+    }
+
+    @Test
+    @DisplayName("A state snapshot doesn't change after a modification")
+    void stateIsSnapshot() {
+        BridgeState before = bridge.getState();
+        bridge.open();
+        BridgeState after = bridge.getState();
+        assertFalse(before.open());
+        assertTrue(after.open());
+        assertEquals(before.mainRoute(), after.mainRoute());
+        assertEquals(new Route(Long.parseLong(FAKE_DISCORD_CHANNEL), FAKE_TWITCH_CHANNEL), after.mainRoute());
+    }
+
+    @Test
+    @DisplayName("Changing a route keeps the bridge open")
+    void changeKeepsOpen() {
+        bridge.open();
+        TextChannel fakeDiscordTextChannel = mock(TextChannel.class);
+        when(fakeDiscordBot.getTextChannelById("10001")).thenReturn(fakeDiscordTextChannel);
+        assertTrue(bridge.changeDiscordChannel("10001"));
+        BridgeState state = bridge.getState();
+        assertTrue(state.open());
+        assertEquals(10001, state.mainRoute().discordChannelID());
+        assertNull(state.routes().findByDiscord(Long.parseLong(FAKE_DISCORD_CHANNEL)));
+    }
+
+    @Test
+    @DisplayName("The configuration changes are saved in the background, together")
+    void configSavedBehind() throws InterruptedException, IOException {
+        TextChannel fakeDiscordTextChannel = mock(TextChannel.class);
+        when(fakeDiscordBot.getTextChannelById(anyString())).thenReturn(fakeDiscordTextChannel);
+        assertTrue(bridge.changeDiscordChannel("10001"));
+        assertTrue(bridge.changeDiscordChannel("10002"));
+        verify(fakeConfigSaver, never()).save();
+        configSaver.flush();
+        verify(fakeConfigSaver, times(1)).save();
+        assertEquals(1, configSaver.getWriteCount());
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.command;
+
+import fr.ollprogram.twitchdiscordbridge.model.Route;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BridgeAddRouteTest extends CommandTest{
+
+    private static final String FAKE_DISCORD_CHANNEL = "1006321562229678111";
+
+    private static final String FAKE_TWITCH_CHANNEL = "ollprogram";
+
+    @BeforeEach
+    void setUp() {
+        command = new BridgeAddRoute(bridge);
+    }
+
+    @Test
+    @DisplayName("Add a route, with valid channels")
+    void testValidChannels(){
+        when(bridge.addRoute(new Route(Long.parseLong(FAKE_DISCORD_CHANNEL), FAKE_TWITCH_CHANNEL))).thenReturn(true);
+        assertEquals("The route has been added.", command.getExecution(List.of(FAKE_DISCORD_CHANNEL, FAKE_TWITCH_CHANNEL)).get());
+    }
+
+    @Test
+    @DisplayName("Add a route, with wrong channels")
+    void testWrongChannels(){
+        when(bridge.addRoute(any())).thenReturn(false);
+        assertEquals("The channels don't exist, can't be retrieved or are already bridged.", command.getExecution(List.of(FAKE_DISCORD_CHANNEL, FAKE_TWITCH_CHANNEL)).get());
+    }
+
+    @Test
+    @DisplayName("Add a route, with a malformed discord channel ID")
+    void testMalformedID(){
+        assertEquals("The channels don't exist, can't be retrieved or are already bridged.", command.getExecution(List.of("not_an_id", FAKE_TWITCH_CHANNEL)).get());
+        verify(bridge, never()).addRoute(any());
+    }
+
+    @Test
+    @DisplayName("Not enough arguments")
+    void testNotEnoughArgs(){
+        assertEquals(Command.DEFAULT_ARGS_ERROR, command.getExecution(List.of(FAKE_DISCORD_CHANNEL)).get());
+    }
+
+    @Test
+    @DisplayName("Should have two options")
+    void testTwoOptions(){
+        hasValidOptionSize(2);
+    }
+}
@@ -12,7 +12,10 @@
 
 package fr.ollprogram.twitchdiscordbridge.command;
 
+import fr.ollprogram.twitchdiscordbridge.bridge.Direction;
 import fr.ollprogram.twitchdiscordbridge.configuration.BridgeConfig;
+import fr.ollprogram.twitchdiscordbridge.metrics.MetricsRegistry;
+import fr.ollprogram.twitchdiscordbridge.metrics.RelayMetrics;
 import net.dv8tion.jda.api.JDA;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -41,7 +44,7 @@ class BridgeInfoTest extends CommandTest{
         when(fakeConfig.getTwitchChannelName()).thenReturn(FAKE_TWITCH_CHANNEL);
         when(fakeConfig.getDiscordChannelID()).thenReturn(FAKE_DISCORD_CHANNEL);
         when(bridge.getConfig()).thenReturn(fakeConfig);
-        command = new BridgeInfo(bridge, jda);
+        command = new BridgeInfo(bridge, jda, mock(TDBExecutor.class));
     }
 
     @Test
@@ -69,4 +72,16 @@ class BridgeInfoTest extends CommandTest{
     void testNoOptions(){
         hasValidOptionSize(0);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("The relay latency quantiles are shown")
+    void testLatency(){
+        MetricsRegistry metrics = new MetricsRegistry();
+        RelayMetrics toDiscord = new RelayMetrics(metrics, Direction.TWITCH_TO_DISCORD);
+        for(int i = 0; i < 100; i++) toDiscord.getLatency().observe(0.04);
+        command = new BridgeInfo(bridge, mock(JDA.class), mock(TDBExecutor.class), toDiscord,
+                new RelayMetrics(metrics, Direction.DISCORD_TO_TWITCH));
+        assertThat(command.getExecution(List.of()).get())
+                .matches(Pattern.compile(".*Relay latency : (.......)?p50 \\d+ms / p99 50ms to discord, - to twitch.*", Pattern.DOTALL));
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.command;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class BridgeRemoveRouteTest extends CommandTest{
+
+    private static final String FAKE_DISCORD_CHANNEL = "1006321562229678111";
+
+    @BeforeEach
+    void setUp() {
+        command = new BridgeRemoveRoute(bridge);
+    }
+
+    @Test
+    @DisplayName("Remove an existing route")
+    void testExistingRoute(){
+        when(bridge.removeRoute(Long.parseLong(FAKE_DISCORD_CHANNEL))).thenReturn(true);
+        assertEquals("The route has been removed.", command.getExecution(List.of(FAKE_DISCORD_CHANNEL)).get());
+    }
+
+    @Test
+    @DisplayName("Remove an unknown route")
+    void testUnknownRoute(){
+        when(bridge.removeRoute(anyLong())).thenReturn(false);
+        assertEquals("No additional route uses this discord channel.", command.getExecution(List.of(FAKE_DISCORD_CHANNEL)).get());
+    }
+
+    @Test
+    @DisplayName("Remove a route, with a malformed discord channel ID")
+    void testMalformedID(){
+        assertEquals("No additional route uses this discord channel.", command.getExecution(List.of("not_an_id")).get());
+        verify(bridge, never()).removeRoute(anyLong());
+    }
+
+    @Test
+    @DisplayName("Too much args")
+    void testTooMuchArgs(){
+        assertEquals(Command.DEFAULT_ARGS_ERROR, command.getExecution(List.of("Hey", "Hey")).get());
+    }
+
+    @Test
+    @DisplayName("Should have one option")
+    void testOneOption(){
+        hasValidOptionSize(1);
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.command;
+
+import fr.ollprogram.twitchdiscordbridge.bridge.Direction;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TDBPoolExecutorTest {
+
+    private TDBExecutor executor;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    private final List<String> executed = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        if(executor != null) executor.shutdown();
+    }
+
+    /**
+     * Create an executor with one task thread and a queue of two tasks, and keep its thread busy
+     * @param policy The shedding policy
+     * @param maxAge The max age of a waiting task in milliseconds
+     */
+    private void createBusyExecutor(SheddingPolicy policy, long maxAge) throws InterruptedException {
+        executor = new TDBPoolExecutor(1, 1, 2, policy, maxAge);
+        executor.submit(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Submit a task recording its name
+     * @param direction The task direction
+     * @param name The task name
+     */
+    private void submit(Direction direction, String name){
+        executor.submit(direction, () -> executed.add(name));
+    }
+
+    @Test
+    @DisplayName("A single processor gets one command thread and one task thread")
+    void singleProcessor() throws InterruptedException {
+        assertEquals(1, TDBPoolExecutor.commandPoolSize(1));
+        assertEquals(1, TDBPoolExecutor.taskPoolSize(1));
+        executor = new TDBPoolExecutor(TDBPoolExecutor.commandPoolSize(1), TDBPoolExecutor.taskPoolSize(1),
+                TDBPoolExecutor.DEFAULT_QUEUE_SIZE, SheddingPolicy.DROP_OLDEST, TDBPoolExecutor.DEFAULT_MAX_AGE);
+        CountDownLatch ran = new CountDownLatch(1);
+        executor.submit(Direction.TWITCH_TO_DISCORD, ran::countDown);
+        assertTrue(ran.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("The pool sizes should be positive")
+    void invalidPoolSizes() {
+        IllegalArgumentException command = assertThrows(IllegalArgumentException.class, () -> new TDBPoolExecutor(0, 1));
+        assertTrue(command.getMessage().contains("commandPoolSize"));
+        IllegalArgumentException task = assertThrows(IllegalArgumentException.class, () -> new TDBPoolExecutor(1, 0));
+        assertTrue(task.getMessage().contains("taskPoolSize"));
+    }
+
+    @Test
+    @DisplayName("Tasks sharing a key run in submission order")
+    void keyedOrder() throws InterruptedException {
+        executor = new TDBPoolExecutor(1, 4, 4000, SheddingPolicy.DROP_NEWEST, TDBPoolExecutor.DEFAULT_MAX_AGE);
+        Map<Long, List<Integer>> executedByKey = new ConcurrentHashMap<>();
+        for(int i = 0; i < 1000; i++){
+            long key = i % 8;
+            int index = i;
+            executor.submit(Direction.TWITCH_TO_DISCORD, key, () ->
+                    executedByKey.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(index));
+        }
+        assertTrue(executor.shutdown());
+        assertEquals(8, executedByKey.size());
+        executedByKey.values().forEach(indexes -> {
+            assertEquals(125, indexes.size());
+            assertEquals(indexes.stream().sorted().toList(), indexes);
+        });
+    }
+
+    @Test
+    @DisplayName("Drop newest rejects the new tasks when the queue is full")
+    void dropNewest() throws InterruptedException {
+        createBusyExecutor(SheddingPolicy.DROP_NEWEST, TDBPoolExecutor.DEFAULT_MAX_AGE);
+        submit(Direction.TWITCH_TO_DISCORD, "first");
+        submit(Direction.TWITCH_TO_DISCORD, "second");
+        submit(Direction.DISCORD_TO_TWITCH, "third");
+        release.countDown();
+        assertTrue(executor.shutdown());
+        assertEquals(List.of("first", "second"), executed);
+        assertEquals(1, executor.getRejectedCount(Direction.DISCORD_TO_TWITCH));
+        assertEquals(0, executor.getRejectedCount(Direction.TWITCH_TO_DISCORD));
+    }
+
+    @Test
+    @DisplayName("Drop oldest drops the oldest waiting tasks when the queue is full")
+    void dropOldest() throws InterruptedException {
+        createBusyExecutor(SheddingPolicy.DROP_OLDEST, TDBPoolExecutor.DEFAULT_MAX_AGE);
+        submit(Direction.TWITCH_TO_DISCORD, "first");
+        submit(Direction.DISCORD_TO_TWITCH, "second");
+        submit(Direction.DISCORD_TO_TWITCH, "third");
+        release.countDown();
+        assertTrue(executor.shutdown());
+        assertEquals(List.of("second", "third"), executed);
+        assertEquals(1, executor.getRejectedCount(Direction.TWITCH_TO_DISCORD));
+        assertEquals(0, executor.getRejectedCount(Direction.DISCORD_TO_TWITCH));
+    }
+
+    @Test
+    @DisplayName("Drop expired drops the tasks waiting for too long")
+    void dropExpired() throws InterruptedException {
+        createBusyExecutor(SheddingPolicy.DROP_EXPIRED, 50);
+        submit(Direction.TWITCH_TO_DISCORD, "expired");
+        Thread.sleep(100);
+        submit(Direction.TWITCH_TO_DISCORD, "fresh");
+        release.countDown();
+        assertTrue(executor.shutdown());
+        assertEquals(List.of("fresh"), executed);
+        assertEquals(1, executor.getRejectedCount(Direction.TWITCH_TO_DISCORD));
+    }
+
+    @Test
+    @DisplayName("Drop expired makes room in a full queue")
+    void dropExpiredFullQueue() throws InterruptedException {
+        createBusyExecutor(SheddingPolicy.DROP_EXPIRED, 50);
+        submit(Direction.TWITCH_TO_DISCORD, "first");
+        submit(Direction.TWITCH_TO_DISCORD, "second");
+        Thread.sleep(100);
+        submit(Direction.DISCORD_TO_TWITCH, "third");
+        release.countDown();
+        assertTrue(executor.shutdown());
+        assertEquals(List.of("third"), executed);
+        assertEquals(2, executor.getRejectedCount(Direction.TWITCH_TO_DISCORD));
+    }
+
+    @Test
+    @DisplayName("The queue depth and active tasks are given")
+    void queueDepthAndActive() throws InterruptedException {
+        createBusyExecutor(SheddingPolicy.DROP_NEWEST, TDBPoolExecutor.DEFAULT_MAX_AGE);
+        submit(Direction.TWITCH_TO_DISCORD, "first");
+        assertEquals(1, executor.getQueueDepth());
+        assertEquals(1, executor.getActiveCount());
+        release.countDown();
+        assertTrue(executor.shutdown());
+        assertEquals(0, executor.getQueueDepth());
+    }
+
+    /**
+     * Create a command recording its name
+     * @param name The command name
+     * @return The command
+     */
+    private Command recordingCommand(String name){
+        return new Command(name, false) {
+            @Override
+            public @NotNull Supplier<@NotNull String> getExecution(@NotNull List<@NotNull String> args) {
+                return () -> {
+                    executed.add(name);
+                    return name;
+                };
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("Waiting interactions run before the admin commands submitted earlier")
+    void interactionFirst() throws Exception {
+        executor = new TDBPoolExecutor(1, 1);
+        executor.submit(new Command("busy", false) {
+            @Override
+            public @NotNull Supplier<@NotNull String> getExecution(@NotNull List<@NotNull String> args) {
+                return () -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "busy";
+                };
+            }
+        }, List.of());
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        CompletableFuture<String> admin = executor.submit(recordingCommand("admin"), List.of());
+        CompletableFuture<String> interaction = executor.submit(recordingCommand("interaction"), List.of(), Priority.INTERACTION);
+        release.countDown();
+        assertEquals("admin", admin.get(1, TimeUnit.SECONDS));
+        assertEquals("interaction", interaction.get(1, TimeUnit.SECONDS));
+        assertEquals(List.of("interaction", "admin"), executed);
+    }
+
+    @Test
+    @DisplayName("A command running after its timeout is interrupted and replies a timeout")
+    void commandTimeout() throws Exception {
+        executor = new TDBPoolExecutor(1, 1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CompletableFuture<String> hung = executor.submit(new Command("hung", List.of(), false, 50) {
+            @Override
+            public @NotNull Supplier<@NotNull String> getExecution(@NotNull List<@NotNull String> args) {
+                return () -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                    }
+                    return "hung";
+                };
+            }
+        }, List.of());
+        ExecutionException error = assertThrows(ExecutionException.class, () -> hung.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        assertEquals(Command.TIMEOUT_ERROR, Command.failureReply(error));
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+        assertEquals(1, executor.getTimedOutCount());
+        assertEquals("admin", executor.submit(recordingCommand("admin"), List.of()).get(1, TimeUnit.SECONDS)); //the thread is reused
+        assertEquals(1, executor.getTimedOutCount());
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.command;
+
+import fr.ollprogram.twitchdiscordbridge.bridge.Direction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TDBVirtualExecutorTest {
+
+    private final TDBExecutor executor = new TDBVirtualExecutor(2);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    /**
+     * Submit a task blocked until the release
+     * @param direction The task direction
+     * @param started Counted down when the task starts
+     */
+    private void submitBlocking(Direction direction, CountDownLatch started){
+        executor.submit(direction, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("Tasks are run on virtual threads")
+    void virtualThreads() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        boolean[] virtual = new boolean[1];
+        executor.submit(Direction.TWITCH_TO_DISCORD, () -> {
+            virtual[0] = Thread.currentThread().isVirtual();
+            done.countDown();
+        });
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertTrue(virtual[0]);
+    }
+
+    @Test
+    @DisplayName("Tasks above the limit are shed")
+    void shedAboveLimit() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(2);
+        submitBlocking(Direction.TWITCH_TO_DISCORD, started);
+        submitBlocking(Direction.TWITCH_TO_DISCORD, started);
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        executor.submit(Direction.DISCORD_TO_TWITCH, () -> {});
+        assertEquals(1, executor.getRejectedCount(Direction.DISCORD_TO_TWITCH));
+        assertEquals(0, executor.getRejectedCount(Direction.TWITCH_TO_DISCORD));
+    }
+
+    @Test
+    @DisplayName("Tasks sharing a key run in submission order")
+    void keyedOrder() throws InterruptedException {
+        TDBExecutor keyedExecutor = new TDBVirtualExecutor(1000);
+        Map<Long, List<Integer>> executedByKey = new ConcurrentHashMap<>();
+        for(int i = 0; i < 1000; i++){
+            long key = i % 8;
+            int index = i;
+            keyedExecutor.submit(Direction.TWITCH_TO_DISCORD, key, () ->
+                    executedByKey.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(index));
+        }
+        assertTrue(keyedExecutor.shutdown());
+        assertEquals(8, executedByKey.size());
+        executedByKey.values().forEach(indexes -> {
+            assertEquals(125, indexes.size());
+            assertEquals(indexes.stream().sorted().toList(), indexes);
+        });
+    }
+
+    @Test
+    @DisplayName("Commands are executed")
+    void commands() throws Exception {
+        Command code = new Code();
+        String expected = code.getExecution(List.of()).get();
+        assertEquals(expected, executor.submit(code, List.of()).get(1, TimeUnit.SECONDS));
+    }
+}
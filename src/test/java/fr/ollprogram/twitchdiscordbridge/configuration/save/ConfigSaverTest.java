@@ -17,14 +17,18 @@ import fr.ollprogram.twitchdiscordbridge.configuration.BridgeConfigImpl;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Properties;
 
 import static java.util.logging.Logger.getGlobal;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class ConfigSaverTest {
@@ -64,4 +68,19 @@ public class ConfigSaverTest {
         assertConfigurationFile(b, TEST_PATHNAME);
     }
 
+    @Test
+    @DisplayName("Saving over an existing configuration replaces it, without leaving a temporary file")
+    void savingReplaces(@TempDir Path dir) throws IOException {
+        String pathname = dir.resolve(PROPERTIES_FILE).toString();
+        new ConfigSaverToProps(new BridgeConfigImpl("old_channel", "1006321562229678111",
+                "old%twitch%token", "old%discord%token")).save(pathname);
+        BridgeConfig b = new BridgeConfigImpl("my_twitch_channel", "1006321562229678112",
+                "my%twitch%token", "my%discord%token");
+        new ConfigSaverToProps(b).save(pathname);
+        assertConfigurationFile(b, pathname);
+        try(var files = Files.list(dir)){
+            assertArrayEquals(new Path[]{dir.resolve(PROPERTIES_FILE)}, files.toArray());
+        }
+    }
+
 }
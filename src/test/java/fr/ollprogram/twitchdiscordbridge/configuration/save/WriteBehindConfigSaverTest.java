@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.configuration.save;
+
+import fr.ollprogram.twitchdiscordbridge.configuration.BridgeConfig;
+import fr.ollprogram.twitchdiscordbridge.configuration.BridgeConfigImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class WriteBehindConfigSaverTest {
+
+    private List<BridgeConfig> saved;
+
+    private ConfigSaver fakeSaver;
+
+    private WriteBehindConfigSaver saverOf(long delay, TimeUnit unit) {
+        return new WriteBehindConfigSaver(config -> {
+            saved.add(config);
+            return fakeSaver;
+        }, delay, unit);
+    }
+
+    private static BridgeConfig configOf(String twitchChannel) {
+        return new BridgeConfigImpl(twitchChannel, "1006321562229678111", "my%twitch%token", "my%discord%token");
+    }
+
+    @BeforeEach
+    void setUp() {
+        saved = Collections.synchronizedList(new ArrayList<>());
+        fakeSaver = mock(ConfigSaver.class);
+    }
+
+    @Test
+    @DisplayName("A burst of changes is written once, with the last configuration")
+    void burstWrittenOnce() throws InterruptedException, IOException {
+        WriteBehindConfigSaver saver = saverOf(1, TimeUnit.HOURS);
+        saver.requestSave(configOf("first"));
+        saver.requestSave(configOf("second"));
+        saver.requestSave(configOf("third"));
+        saver.flush();
+        verify(fakeSaver, times(1)).save();
+        assertEquals(List.of(configOf("third")), saved);
+        assertEquals(1, saver.getWriteCount());
+        saver.shutdown();
+    }
+
+    @Test
+    @DisplayName("A change is written after the delay")
+    void writtenAfterDelay() throws InterruptedException, IOException {
+        WriteBehindConfigSaver saver = saverOf(10, TimeUnit.MILLISECONDS);
+        saver.requestSave(configOf("first"));
+        verify(fakeSaver, timeout(1000)).save();
+        saver.shutdown();
+        verify(fakeSaver, times(1)).save();
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("Nothing is written without a change")
+    void nothingPending() throws InterruptedException, IOException {
+        WriteBehindConfigSaver saver = saverOf(1, TimeUnit.HOURS);
+        saver.flush();
+        saver.shutdown();
+        verify(fakeSaver, never()).save();
+        assertEquals(0, saver.getWriteCount());
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("A failed write is logged and the next change is still written")
+    void failedWrite() throws InterruptedException, IOException {
+        doThrow(new IOException("disk full")).doNothing().when(fakeSaver).save();
+        WriteBehindConfigSaver saver = saverOf(1, TimeUnit.HOURS);
+        saver.requestSave(configOf("first"));
+        saver.flush();
+        assertEquals(0, saver.getWriteCount());
+        saver.requestSave(configOf("second"));
+        saver.flush();
+        assertEquals(1, saver.getWriteCount());
+        saver.shutdown();
+    }
+}
@@ -14,7 +14,6 @@ package fr.ollprogram.twitchdiscordbridge.configuration.validate;
 
 import fr.ollprogram.twitchdiscordbridge.configuration.build.ConfigBuilder;
 import fr.ollprogram.twitchdiscordbridge.configuration.build.ConfigBuilderImpl;
-import fr.ollprogram.twitchdiscordbridge.exception.ServiceException;
 import fr.ollprogram.twitchdiscordbridge.model.DiscordBotInfo;
 import fr.ollprogram.twitchdiscordbridge.model.DiscordChannelInfo;
 import fr.ollprogram.twitchdiscordbridge.model.TwitchBotInfo;
@@ -25,13 +24,20 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.util.Date;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class ConfigValidatorTest {
@@ -68,55 +74,73 @@ class ConfigValidatorTest {
      * @param twitchChannelValidity if the twitch channel will be returned as valid
      * @param discordChannelValidity if the discord channel will be returned as valid
      */
-    private void mockAllServiceCalls(boolean twitchTokenValidity, boolean discordTokenValidity, boolean twitchChannelValidity, boolean discordChannelValidity) throws ServiceException {
-        when(discordService.authenticate(any())).thenReturn(Optional.ofNullable(discordTokenValidity? VALID_DISCORD_BOT_INFO : null));
-        when(twitchService.authenticate(any())).thenReturn(Optional.ofNullable(twitchTokenValidity? VALID_TWITCH_BOT_INFO : null));
-        when(discordService.getChannel(any())).thenReturn(Optional.ofNullable(discordChannelValidity? VALID_DISCORD_CHANNEL_INFO : null));
-        when(twitchService.getChannel(any())).thenReturn(Optional.ofNullable(twitchChannelValidity? VALID_TWITCH_CHANNEL_INFO: null));
+    private void mockAllServiceCalls(boolean twitchTokenValidity, boolean discordTokenValidity, boolean twitchChannelValidity, boolean discordChannelValidity) {
+        when(discordService.authenticateAsync(any())).thenReturn(completedFuture(Optional.ofNullable(discordTokenValidity? VALID_DISCORD_BOT_INFO : null)));
+        when(twitchService.authenticateAsync(any())).thenReturn(completedFuture(Optional.ofNullable(twitchTokenValidity? VALID_TWITCH_BOT_INFO : null)));
+        when(discordService.getChannelAsync(any())).thenReturn(completedFuture(Optional.ofNullable(discordChannelValidity? VALID_DISCORD_CHANNEL_INFO : null)));
+        when(twitchService.getChannelsAsync(any())).thenReturn(completedFuture(twitchChannelValidity? Map.of("ollprogram", VALID_TWITCH_CHANNEL_INFO) : Map.of()));
     }
 
     @Test
     @DisplayName("all valid")
-    void isValid() throws ServiceException {
+    void isValid() {
         mockAllServiceCalls(true, true, true, true);
         assertTrue(validator.isValid());
     }
 
     @Test
     @DisplayName("all invalid")
-    void isInvalid() throws ServiceException {
+    void isInvalid() {
         mockAllServiceCalls(false, false, false, false);
         assertFalse(validator.isValid());
     }
 
     @Test
     @DisplayName("twitch token is invalid")
-    void isInvalidTwitchToken() throws ServiceException {
+    void isInvalidTwitchToken() {
         mockAllServiceCalls(false, true, true, true);
         assertFalse(validator.isValid());
     }
 
     @Test
     @DisplayName("discord token is invalid")
-    void isInvalidDiscordToken() throws ServiceException {
+    void isInvalidDiscordToken() {
         mockAllServiceCalls(true, false, true, true);
         assertFalse(validator.isValid());
     }
 
     @Test
     @DisplayName("twitch channel is invalid")
-    void isInvalidTwitchChannel() throws ServiceException {
+    void isInvalidTwitchChannel() {
         mockAllServiceCalls(true, true, false, true);
         assertFalse(validator.isValid());
     }
 
     @Test
     @DisplayName("discord channel is invalid")
-    void isInvalidDiscordChannel() throws ServiceException {
+    void isInvalidDiscordChannel() {
         mockAllServiceCalls(true, true, true, false);
         assertFalse(validator.isValid());
     }
 
+    @Test
+    @DisplayName("the twitch checks don't wait for the discord checks")
+    void concurrentChecks() {
+        mockAllServiceCalls(true, true, true, true);
+        CompletableFuture<Optional<DiscordBotInfo>> discordToken = new CompletableFuture<>();
+        when(discordService.authenticateAsync(any())).thenReturn(discordToken);
+        when(twitchService.getChannelsAsync(any())).thenAnswer(invocation -> {
+            discordToken.complete(Optional.of(VALID_DISCORD_BOT_INFO)); //answered once the twitch chain is done
+            return completedFuture(Map.of("ollprogram", VALID_TWITCH_CHANNEL_INFO));
+        });
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertTrue(validator.isValid()));
+    }
 
-
-}
\ No newline at end of file
+    @Test
+    @DisplayName("the channel isn't checked if the token is invalid")
+    void channelNotCheckedWithInvalidToken() {
+        mockAllServiceCalls(true, false, true, true);
+        assertFalse(validator.isValid());
+        verify(discordService, never()).getChannelAsync(any());
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.listener;
+
+import fr.ollprogram.twitchdiscordbridge.bridge.Bridge;
+import fr.ollprogram.twitchdiscordbridge.bridge.BridgeState;
+import fr.ollprogram.twitchdiscordbridge.bridge.Direction;
+import fr.ollprogram.twitchdiscordbridge.bridge.RouteIndex;
+import fr.ollprogram.twitchdiscordbridge.command.CommandRegistry;
+import fr.ollprogram.twitchdiscordbridge.command.TDBExecutor;
+import fr.ollprogram.twitchdiscordbridge.model.Route;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DiscordListenerTest {
+
+    private static final Route ROUTE = new Route(10200303203L, "ollprogram");
+
+    private Bridge bridge;
+
+    private TDBExecutor executor;
+
+    private DiscordListener listener;
+
+    private User author;
+
+    @BeforeEach
+    void setUp() {
+        bridge = mock(Bridge.class);
+        executor = mock(TDBExecutor.class);
+        author = mock(User.class);
+        listener = new DiscordListener(bridge, mock(CommandRegistry.class), executor);
+    }
+
+    /**
+     * Create a message event
+     * @param channelID The discord channel of the message
+     * @return The event
+     */
+    private MessageReceivedEvent createEvent(long channelID){
+        MessageReceivedEvent event = mock(MessageReceivedEvent.class);
+        MessageChannelUnion channel = mock(MessageChannelUnion.class);
+        Message message = mock(Message.class);
+        when(channel.getIdLong()).thenReturn(channelID);
+        when(message.getContentDisplay()).thenReturn("Hello");
+        when(event.getChannel()).thenReturn(channel);
+        when(event.getMessage()).thenReturn(message);
+        when(event.getAuthor()).thenReturn(author);
+        return event;
+    }
+
+    /**
+     * Set the bridge state
+     * @param open If the bridge is open
+     */
+    private void setState(boolean open){
+        when(bridge.getState()).thenReturn(new BridgeState(open, RouteIndex.empty().with(ROUTE), ROUTE));
+    }
+
+    @Test
+    @DisplayName("Messages of a bridged channel are submitted")
+    void bridgedChannelSubmitted() {
+        setState(true);
+        listener.onMessageReceived(createEvent(ROUTE.discordChannelID()));
+        verify(executor).submit(eq(Direction.DISCORD_TO_TWITCH), eq(ROUTE.discordChannelID()), any(Runnable.class));
+        assertEquals(0, listener.getSkippedCount());
+    }
+
+    @Test
+    @DisplayName("Messages are skipped without reading them when the bridge is closed")
+    void closedBridgeSkipped() {
+        setState(false);
+        MessageReceivedEvent event = createEvent(ROUTE.discordChannelID());
+        listener.onMessageReceived(event);
+        verifyNoInteractions(executor);
+        verify(event, never()).getMessage();
+        assertEquals(1, listener.getSkippedCount());
+    }
+
+    @Test
+    @DisplayName("Messages of other channels are skipped")
+    void otherChannelSkipped() {
+        setState(true);
+        listener.onMessageReceived(createEvent(42L));
+        verifyNoInteractions(executor);
+        assertEquals(1, listener.getSkippedCount());
+    }
+
+    @Test
+    @DisplayName("Messages of bots are skipped")
+    void botSkipped() {
+        setState(true);
+        when(author.isBot()).thenReturn(true);
+        listener.onMessageReceived(createEvent(ROUTE.discordChannelID()));
+        verifyNoInteractions(executor);
+        assertEquals(1, listener.getSkippedCount());
+    }
+}
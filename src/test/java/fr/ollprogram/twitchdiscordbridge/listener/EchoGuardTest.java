@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.listener;
+
+import fr.ollprogram.twitchdiscordbridge.bridge.Direction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EchoGuardTest {
+
+    private EchoGuard guard;
+
+    @BeforeEach
+    void setUp() {
+        guard = new EchoGuard();
+    }
+
+    @Test
+    @DisplayName("A relayed message coming back is an echo")
+    void echo() {
+        guard.relayed(Direction.DISCORD_TO_TWITCH, "user says : Hello");
+        assertTrue(guard.isEcho(Direction.TWITCH_TO_DISCORD, "user says : Hello"));
+        assertEquals(1, guard.getSuppressedCount(Direction.TWITCH_TO_DISCORD));
+        assertEquals(0, guard.getSuppressedCount(Direction.DISCORD_TO_TWITCH));
+    }
+
+    @Test
+    @DisplayName("A relayed message prefixed by other relays is an echo")
+    void prefixedEcho() {
+        guard.relayed(Direction.TWITCH_TO_DISCORD, "viewer says : Hello");
+        assertTrue(guard.isEcho(Direction.DISCORD_TO_TWITCH, "otherbot says : viewer says : Hello"));
+        assertTrue(guard.isEcho(Direction.DISCORD_TO_TWITCH, "bot1 says : bot2 says : viewer says : Hello"));
+    }
+
+    @Test
+    @DisplayName("A message received on the platform it came from is not an echo")
+    void sameDirectionNotEcho() {
+        guard.relayed(Direction.TWITCH_TO_DISCORD, "viewer says : Hello");
+        assertFalse(guard.isEcho(Direction.TWITCH_TO_DISCORD, "viewer says : Hello"));
+    }
+
+    @Test
+    @DisplayName("Relayed lines packed into one message are an echo")
+    void packedEcho() {
+        guard.relayed(Direction.DISCORD_TO_TWITCH, "user1 says : Hello");
+        guard.relayed(Direction.DISCORD_TO_TWITCH, "user2 says : Hi");
+        assertTrue(guard.isEcho(Direction.TWITCH_TO_DISCORD, "user1 says : Hello | user2 says : Hi"));
+        guard.relayed(Direction.TWITCH_TO_DISCORD, "viewer1 says : gg");
+        guard.relayed(Direction.TWITCH_TO_DISCORD, "viewer2 says : wp");
+        assertTrue(guard.isEcho(Direction.DISCORD_TO_TWITCH, "otherbot says : viewer1 says : gg\nviewer2 says : wp"));
+    }
+
+    @Test
+    @DisplayName("Packed lines are not an echo if one of them wasn't relayed")
+    void packedNotEcho() {
+        guard.relayed(Direction.DISCORD_TO_TWITCH, "user1 says : Hello");
+        assertFalse(guard.isEcho(Direction.TWITCH_TO_DISCORD, "user1 says : Hello | user2 says : Hi"));
+        assertFalse(guard.isEcho(Direction.TWITCH_TO_DISCORD, "user1 says : Hello\nuser2 says : Hi"));
+    }
+
+    @Test
+    @DisplayName("The same words from a user are not an echo")
+    void notEcho() {
+        guard.relayed(Direction.TWITCH_TO_DISCORD, "viewer says : gg");
+        assertFalse(guard.isEcho(Direction.DISCORD_TO_TWITCH, "gg"));
+        assertFalse(guard.isEcho(Direction.DISCORD_TO_TWITCH, "someone says : gg"));
+        assertEquals(0, guard.getSuppressedCount(Direction.DISCORD_TO_TWITCH));
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.listener;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventGateTest {
+
+    private EventGate<String> gate;
+
+    private List<String> received;
+
+    @BeforeEach
+    void setUp() {
+        gate = new EventGate<>(3);
+        received = new ArrayList<>();
+    }
+
+    @Test
+    @DisplayName("The events are held until the gate is open")
+    void held() {
+        gate.offer("a");
+        gate.offer("b");
+        assertTrue(received.isEmpty());
+        gate.open(received::add);
+        assertEquals(List.of("a", "b"), received);
+        assertTrue(gate.isOpen());
+    }
+
+    @Test
+    @DisplayName("The events are given directly once the gate is open")
+    void direct() {
+        gate.offer("a");
+        gate.open(received::add);
+        gate.offer("b");
+        assertEquals(List.of("a", "b"), received);
+    }
+
+    @Test
+    @DisplayName("Once open, the events are given without taking the gate lock")
+    void lockFree() throws InterruptedException {
+        gate.open(received::add);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            synchronized (gate) {
+                locked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e){
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        holder.start();
+        locked.await();
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> gate.offer("a"));
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+        assertEquals(List.of("a"), received);
+    }
+
+    @Test
+    @DisplayName("The oldest events are dropped above the capacity")
+    void oldestDropped() {
+        gate.offer("a");
+        gate.offer("b");
+        gate.offer("c");
+        gate.offer("d");
+        gate.open(received::add);
+        assertEquals(List.of("b", "c", "d"), received);
+        assertEquals(1, gate.getDroppedCount());
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("The gate can't be opened twice")
+    void openedTwice() {
+        gate.open(received::add);
+        assertThrows(IllegalStateException.class, () -> gate.open(received::add));
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("Capacity should be positive")
+    void invalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new EventGate<String>(0));
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.listener;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FloodControlTest {
+
+    private AtomicLong clock;
+
+    private FloodControl floodControl;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong(0);
+        floodControl = new FloodControl(2, 10, TimeUnit.SECONDS, clock::get);
+    }
+
+    @Test
+    @DisplayName("The messages above the limit are dropped")
+    void limited() {
+        assertTrue(floodControl.tryAcquire(1));
+        assertTrue(floodControl.tryAcquire(1));
+        assertFalse(floodControl.tryAcquire(1));
+        assertEquals(1, floodControl.getDroppedCount());
+    }
+
+    @Test
+    @DisplayName("Each author has its own limit")
+    void perAuthor() {
+        floodControl.tryAcquire(1);
+        floodControl.tryAcquire(1);
+        assertTrue(floodControl.tryAcquire(2));
+        assertTrue(floodControl.tryAcquire(2));
+        assertEquals(0, floodControl.getDroppedCount());
+    }
+
+    @Test
+    @DisplayName("An author can send again one period later")
+    void slidingWindow() {
+        floodControl.tryAcquire(1);
+        clock.set(TimeUnit.SECONDS.toNanos(5));
+        floodControl.tryAcquire(1);
+        clock.set(TimeUnit.SECONDS.toNanos(10));
+        assertTrue(floodControl.tryAcquire(1));
+        assertFalse(floodControl.tryAcquire(1));
+    }
+
+    @Test
+    @DisplayName("The idle authors are evicted")
+    void idleEvicted() {
+        for(long author = 0; author < 100; author++) floodControl.tryAcquire(author);
+        assertEquals(100, floodControl.getTrackedCount());
+        clock.set(TimeUnit.SECONDS.toNanos(8));
+        floodControl.tryAcquire(0);
+        clock.set(TimeUnit.SECONDS.toNanos(12));
+        floodControl.tryAcquire(1000);
+        assertEquals(2, floodControl.getTrackedCount()); //the author 0 sent a message less than one period ago
+    }
+
+    @Test
+    @DisplayName("Concurrent authors are all limited")
+    void concurrentAuthors() throws InterruptedException {
+        AtomicLong acquired = new AtomicLong();
+        Thread[] threads = new Thread[4];
+        for(int t = 0; t < threads.length; t++){
+            threads[t] = new Thread(() -> {
+                for(long author = 0; author < 500; author++){
+                    for(int i = 0; i < 3; i++) if(floodControl.tryAcquire(author)) acquired.incrementAndGet();
+                }
+            });
+            threads[t].start();
+        }
+        for(Thread thread : threads) thread.join();
+        assertEquals(1000, acquired.get()); //2 per author
+        assertEquals(500, floodControl.getTrackedCount());
+        assertEquals(5000, floodControl.getDroppedCount());
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("Limit should be positive")
+    void invalidLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new FloodControl(0, 10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.listener;
+
+import com.github.twitch4j.chat.events.channel.ChannelMessageEvent;
+import com.github.twitch4j.common.events.domain.EventChannel;
+import com.github.twitch4j.common.events.domain.EventUser;
+import fr.ollprogram.twitchdiscordbridge.bridge.Bridge;
+import fr.ollprogram.twitchdiscordbridge.bridge.BridgeState;
+import fr.ollprogram.twitchdiscordbridge.bridge.Direction;
+import fr.ollprogram.twitchdiscordbridge.bridge.RouteIndex;
+import fr.ollprogram.twitchdiscordbridge.command.TDBExecutor;
+import fr.ollprogram.twitchdiscordbridge.metrics.MetricsRegistry;
+import fr.ollprogram.twitchdiscordbridge.metrics.RelayMetrics;
+import fr.ollprogram.twitchdiscordbridge.model.Route;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TwitchListenerTest {
+
+    private static final Route ROUTE = new Route(10200303203L, "ollprogram");
+
+    private Bridge bridge;
+
+    private TDBExecutor executor;
+
+    private TwitchListener listener;
+
+    @BeforeEach
+    void setUp() {
+        bridge = mock(Bridge.class);
+        executor = mock(TDBExecutor.class);
+        listener = new TwitchListener(bridge, executor);
+    }
+
+    /**
+     * Create a message event
+     * @param channelName The twitch channel of the message
+     * @return The event
+     */
+    private ChannelMessageEvent createEvent(String channelName){
+        return createEvent(channelName, "Hello");
+    }
+
+    /**
+     * Create a message event
+     * @param channelName The twitch channel of the message
+     * @param message The message
+     * @return The event
+     */
+    private ChannelMessageEvent createEvent(String channelName, String message){
+        ChannelMessageEvent event = mock(ChannelMessageEvent.class);
+        when(event.getChannel()).thenReturn(new EventChannel("1", channelName));
+        when(event.getUser()).thenReturn(new EventUser("2", "viewer"));
+        when(event.getMessage()).thenReturn(message);
+        return event;
+    }
+
+    /**
+     * Set the bridge state
+     * @param open If the bridge is open
+     */
+    private void setState(boolean open){
+        when(bridge.getState()).thenReturn(new BridgeState(open, RouteIndex.empty().with(ROUTE), ROUTE));
+    }
+
+    @Test
+    @DisplayName("Messages of a bridged channel are submitted")
+    void bridgedChannelSubmitted() {
+        setState(true);
+        listener.onMessageEvent(createEvent(ROUTE.twitchChannelName()));
+        verify(executor).submit(eq(Direction.TWITCH_TO_DISCORD), anyLong(), any(Runnable.class));
+        assertEquals(0, listener.getSkippedCount());
+    }
+
+    @Test
+    @DisplayName("Messages are skipped without reading them when the bridge is closed")
+    void closedBridgeSkipped() {
+        setState(false);
+        ChannelMessageEvent event = createEvent(ROUTE.twitchChannelName());
+        listener.onMessageEvent(event);
+        verifyNoInteractions(executor);
+        verify(event, never()).getMessage();
+        assertEquals(1, listener.getSkippedCount());
+    }
+
+    @Test
+    @DisplayName("Messages of other channels are skipped")
+    void otherChannelSkipped() {
+        setState(true);
+        listener.onMessageEvent(createEvent("another"));
+        verifyNoInteractions(executor);
+        assertEquals(1, listener.getSkippedCount());
+    }
+
+    @Test
+    @DisplayName("Received, relayed and skipped messages are counted, the latency is recorded once acknowledged")
+    void metricsCounted() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        RelayMetrics relayMetrics = new RelayMetrics(metrics, Direction.TWITCH_TO_DISCORD);
+        listener = new TwitchListener(bridge, executor, Set.of(), relayMetrics);
+        setState(true);
+        listener.onMessageEvent(createEvent(ROUTE.twitchChannelName()));
+        listener.onMessageEvent(createEvent("another"));
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor).submit(eq(Direction.TWITCH_TO_DISCORD), anyLong(), task.capture());
+        task.getValue().run();
+        ArgumentCaptor<Runnable> onSent = ArgumentCaptor.forClass(Runnable.class);
+        verify(bridge).sendToDiscord(eq(ROUTE), eq("viewer"), eq("Hello"), onSent.capture());
+        assertEquals(0, relayMetrics.getLatency().getCount()); //not acknowledged yet
+        onSent.getValue().run();
+        String scrape = metrics.scrape();
+        assertTrue(scrape.contains("tdb_messages_received_total{direction=\"twitch_to_discord\"} 2\n"));
+        assertTrue(scrape.contains("tdb_messages_relayed_total{direction=\"twitch_to_discord\"} 1\n"));
+        assertTrue(scrape.contains("tdb_messages_dropped_total{direction=\"twitch_to_discord\",reason=\"skipped\"} 1\n"));
+        assertEquals(1, relayMetrics.getLatency().getCount());
+    }
+
+    @Test
+    @DisplayName("A relayed message coming back is not relayed again")
+    void echoSuppressed() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        EchoGuard echoGuard = new EchoGuard();
+        listener = new TwitchListener(bridge, executor, Set.of(), new RelayMetrics(metrics, Direction.TWITCH_TO_DISCORD),
+                echoGuard, new FloodControl());
+        setState(true);
+        echoGuard.relayed(Direction.DISCORD_TO_TWITCH, "user says : Hello");
+        listener.onMessageEvent(createEvent(ROUTE.twitchChannelName(), "otherbot says : user says : Hello"));
+        verify(executor, never()).submit(eq(Direction.TWITCH_TO_DISCORD), anyLong(), any(Runnable.class));
+        assertTrue(metrics.scrape().contains("tdb_messages_dropped_total{direction=\"twitch_to_discord\",reason=\"echo\"} 1\n"));
+    }
+
+    @Test
+    @DisplayName("The messages of an author over the flood limit are dropped before being submitted")
+    void floodDropped() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        listener = new TwitchListener(bridge, executor, Set.of(), new RelayMetrics(metrics, Direction.TWITCH_TO_DISCORD),
+                new EchoGuard(), new FloodControl(2, 10, TimeUnit.SECONDS));
+        setState(true);
+        for(int i = 0; i < 3; i++) listener.onMessageEvent(createEvent(ROUTE.twitchChannelName(), "Hello "+i));
+        verify(executor, times(2)).submit(eq(Direction.TWITCH_TO_DISCORD), anyLong(), any(Runnable.class));
+        assertTrue(metrics.scrape().contains("tdb_messages_dropped_total{direction=\"twitch_to_discord\",reason=\"flood\"} 1\n"));
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.manager;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.interactions.commands.Command;
+import net.dv8tion.jda.api.interactions.commands.build.CommandData;
+import net.dv8tion.jda.api.interactions.commands.build.Commands;
+import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
+import net.dv8tion.jda.api.requests.RestAction;
+import net.dv8tion.jda.api.requests.restaction.CommandListUpdateAction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class DiscordCommandSyncTest {
+
+    private static final List<CommandData> COMMANDS = List.of(
+            Commands.slash("code", "Get the source code"),
+            Commands.slash("say", "Say something"));
+
+    @TempDir
+    Path folder;
+
+    private DiscordCommandSync sync;
+
+    @BeforeEach
+    void setUp() {
+        sync = new DiscordCommandSync(folder.resolve("commands.properties"), 2);
+    }
+
+    /**
+     * Mock a guild accepting the command overwrites, with the commands registered
+     * @param id The guild ID
+     * @param result The result of the overwrite
+     * @return The guild
+     */
+    private static Guild mockGuild(long id, CompletableFuture<List<Command>> result) {
+        Guild guild = mock(Guild.class);
+        CommandListUpdateAction action = mock(CommandListUpdateAction.class);
+        when(guild.getIdLong()).thenReturn(id);
+        when(guild.updateCommands()).thenReturn(action);
+        when(action.addCommands(anyCollection())).thenReturn(action);
+        when(action.submit()).thenReturn(result);
+        mockRegistered(guild, CompletableFuture.completedFuture(COMMANDS.stream().map(DiscordCommandSyncTest::registered).toList()));
+        return guild;
+    }
+
+    /**
+     * Mock the commands registered on a guild
+     * @param guild The guild
+     * @param registered The result of the retrieval
+     */
+    @SuppressWarnings("unchecked")
+    private static void mockRegistered(Guild guild, CompletableFuture<List<Command>> registered) {
+        RestAction<List<Command>> retrieve = mock(RestAction.class);
+        when(guild.retrieveCommands()).thenReturn(retrieve);
+        when(retrieve.submit()).thenReturn(registered);
+    }
+
+    /**
+     * Mock a registered command
+     * @param data The command data
+     * @return The command with the same name and description
+     */
+    private static Command registered(CommandData data) {
+        Command command = mock(Command.class);
+        when(command.getName()).thenReturn(data.getName());
+        when(command.getDescription()).thenReturn(((SlashCommandData) data).getDescription());
+        return command;
+    }
+
+    @Test
+    @DisplayName("every guild is updated once, unchanged guilds are skipped without any request")
+    void unchangedSkipped() throws InterruptedException {
+        Guild first = mockGuild(1, CompletableFuture.completedFuture(List.of()));
+        Guild second = mockGuild(2, CompletableFuture.completedFuture(List.of()));
+        assertEquals(2, sync.sync(List.of(first, second), COMMANDS));
+        assertEquals(0, sync.sync(List.of(first, second), COMMANDS));
+        verify(first, times(1)).updateCommands();
+        verify(second, times(1)).updateCommands();
+        verify(first, never()).retrieveCommands();
+        verify(second, never()).retrieveCommands();
+        assertEquals(0, sync.sync(List.of(first, second), COMMANDS)); //still recorded after a skip
+        verify(first, times(1)).updateCommands();
+    }
+
+    @Test
+    @DisplayName("changed commands are synced again")
+    void changedSynced() throws InterruptedException {
+        Guild guild = mockGuild(1, CompletableFuture.completedFuture(List.of()));
+        sync.sync(List.of(guild), COMMANDS);
+        assertEquals(1, sync.sync(List.of(guild), List.of(Commands.slash("code", "Get the source code"))));
+    }
+
+    @Test
+    @DisplayName("a new guild is synced")
+    void newGuildSynced() throws InterruptedException {
+        Guild first = mockGuild(1, CompletableFuture.completedFuture(List.of()));
+        Guild second = mockGuild(2, CompletableFuture.completedFuture(List.of()));
+        sync.sync(List.of(first), COMMANDS);
+        assertEquals(1, sync.sync(List.of(first, second), COMMANDS));
+        verify(second, times(1)).updateCommands();
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("a failed guild is synced again on the next sync")
+    void failedRetried() throws InterruptedException {
+        Guild guild = mockGuild(1, CompletableFuture.failedFuture(new IllegalStateException("rate limited")));
+        assertEquals(0, sync.sync(List.of(guild), COMMANDS));
+        when(guild.updateCommands().submit()).thenReturn(CompletableFuture.completedFuture(List.of()));
+        assertEquals(1, sync.sync(List.of(guild), COMMANDS));
+    }
+
+    @Test
+    @DisplayName("with the verification, commands deleted outside the bridge are synced again")
+    void deletedResynced() throws InterruptedException {
+        DiscordCommandSync sync = new DiscordCommandSync(folder.resolve("commands.properties"), 2, true);
+        Guild guild = mockGuild(1, CompletableFuture.completedFuture(List.of()));
+        sync.sync(List.of(guild), COMMANDS);
+        mockRegistered(guild, CompletableFuture.completedFuture(List.of(registered(COMMANDS.get(0)))));
+        assertEquals(1, sync.sync(List.of(guild), COMMANDS));
+        verify(guild, times(2)).updateCommands();
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("with the verification, a failed retrieval keeps the guild as synced")
+    void failedRetrievalKept() throws InterruptedException {
+        DiscordCommandSync sync = new DiscordCommandSync(folder.resolve("commands.properties"), 2, true);
+        Guild guild = mockGuild(1, CompletableFuture.completedFuture(List.of()));
+        sync.sync(List.of(guild), COMMANDS);
+        mockRegistered(guild, CompletableFuture.failedFuture(new IllegalStateException("unavailable")));
+        assertEquals(0, sync.sync(List.of(guild), COMMANDS));
+        verify(guild, times(1)).updateCommands();
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("a request failing on submit doesn't keep its permit")
+    void failedSubmitReleased() {
+        DiscordCommandSync single = new DiscordCommandSync(folder.resolve("commands.properties"), 1);
+        Guild first = mockGuild(1, CompletableFuture.completedFuture(List.of()));
+        Guild second = mockGuild(2, CompletableFuture.completedFuture(List.of()));
+        Guild third = mockGuild(3, CompletableFuture.completedFuture(List.of()));
+        when(first.updateCommands()).thenThrow(new IllegalStateException("closed"));
+        int updated = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> single.sync(List.of(first, second, third), COMMANDS));
+        assertEquals(2, updated);
+    }
+
+    @Test
+    @DisplayName("the record is replaced without leaving temporary files")
+    void recordReplaced() throws InterruptedException, IOException {
+        Guild guild = mockGuild(1, CompletableFuture.completedFuture(List.of()));
+        sync.sync(List.of(guild), COMMANDS);
+        sync.sync(List.of(guild), List.of(COMMANDS.get(0)));
+        try(Stream<Path> files = Files.list(folder)) {
+            assertEquals(List.of(folder.resolve("commands.properties")), files.toList());
+        }
+        assertTrue(Files.readString(folder.resolve("commands.properties")).contains("1="+DiscordCommandSync.hash(List.of(COMMANDS.get(0)))));
+    }
+
+    @Test
+    @DisplayName("the hash doesn't depend on the commands order")
+    void hashOrderIndependent() {
+        assertEquals(DiscordCommandSync.hash(COMMANDS), DiscordCommandSync.hash(List.of(COMMANDS.get(1), COMMANDS.get(0))));
+        assertNotEquals(DiscordCommandSync.hash(COMMANDS), DiscordCommandSync.hash(List.of(COMMANDS.get(0))));
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistogramTest {
+
+    @Test
+    @DisplayName("Values are counted in the first bucket whose bound is greater or equal")
+    void buckets() {
+        Histogram histogram = new Histogram(new double[]{1, 2});
+        histogram.observe(0.5);
+        histogram.observe(1);
+        histogram.observe(1.5);
+        histogram.observe(5);
+        assertArrayEquals(new long[]{2, 3, 4}, histogram.getCumulativeCounts());
+        assertEquals(4, histogram.getCount());
+        assertEquals(8.0, histogram.getSum());
+    }
+
+    @Test
+    @DisplayName("Quantiles are interpolated inside their bucket")
+    void quantiles() {
+        Histogram histogram = new Histogram(new double[]{1, 2, 4});
+        for(int i = 0; i < 50; i++) histogram.observe(0.5);
+        for(int i = 0; i < 50; i++) histogram.observe(3);
+        assertEquals(1, histogram.quantile(0.5), 1e-9);
+        assertEquals(3.96, histogram.quantile(0.99), 1e-9);
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("A quantile above the last bound is the last bound, and there is no quantile without value")
+    void quantileLimits() {
+        Histogram histogram = new Histogram(new double[]{1, 2});
+        assertTrue(Double.isNaN(histogram.quantile(0.5)));
+        histogram.observe(10);
+        assertEquals(2.0, histogram.quantile(0.99));
+    }
+
+    @Test
+    @DisplayName("Durations are recorded in seconds")
+    void nanos() {
+        Histogram histogram = new Histogram(new double[]{0.1});
+        histogram.observeNanos(50_000_000L);
+        assertEquals(0.05, histogram.getSum(), 1e-9);
+        assertArrayEquals(new long[]{1, 1}, histogram.getCumulativeCounts());
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("Bounds should be increasing")
+    void invalidBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new Histogram(new double[]{2, 1}));
+    }
+}
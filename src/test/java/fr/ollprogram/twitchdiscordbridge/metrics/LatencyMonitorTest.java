@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.metrics;
+
+import fr.ollprogram.twitchdiscordbridge.bridge.Direction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyMonitorTest {
+
+    private RelayMetrics toDiscord;
+
+    private RelayMetrics toTwitch;
+
+    private LatencyMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        MetricsRegistry registry = new MetricsRegistry();
+        toDiscord = new RelayMetrics(registry, Direction.TWITCH_TO_DISCORD);
+        toTwitch = new RelayMetrics(registry, Direction.DISCORD_TO_TWITCH);
+        monitor = new LatencyMonitor(1000);
+        monitor.watch(toDiscord);
+        monitor.watch(toTwitch);
+    }
+
+    @Test
+    @DisplayName("Only the directions whose p99 is above the budget are reported")
+    void overBudget() {
+        for(int i = 0; i < 100; i++) toDiscord.getLatency().observe(0.05);
+        toTwitch.getLatency().observe(7);
+        assertEquals(List.of("discord_to_twitch"), monitor.check());
+    }
+
+    @Test
+    @DisplayName("Each check only looks at the messages since the previous one")
+    void windowed() {
+        toTwitch.getLatency().observe(7);
+        assertEquals(List.of("discord_to_twitch"), monitor.check());
+        toTwitch.getLatency().observe(0.05);
+        assertEquals(List.of(), monitor.check());
+        assertEquals(List.of(), monitor.check()); //no message at all
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.metrics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsRegistryTest {
+
+    private MetricsRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new MetricsRegistry();
+    }
+
+    @Test
+    @DisplayName("Counters are written with their labels, once per name")
+    void counters() {
+        registry.counter("tdb_test_total", "A test counter", "direction", "in").add(3);
+        registry.counter("tdb_test_total", "A test counter", "direction", "out").increment();
+        assertEquals("""
+                # HELP tdb_test_total A test counter
+                # TYPE tdb_test_total counter
+                tdb_test_total{direction="in"} 3
+                tdb_test_total{direction="out"} 1
+                """, registry.scrape());
+    }
+
+    @Test
+    @DisplayName("The same counter is given for the same name and labels")
+    void sameCounter() {
+        LongAdder first = registry.counter("tdb_test_total", "A test counter", "direction", "in");
+        assertSame(first, registry.counter("tdb_test_total", "A test counter", "direction", "in"));
+    }
+
+    @Test
+    @DisplayName("Gauges and supplied counters are read on each scrape")
+    void suppliers() {
+        int[] depth = {4};
+        registry.gauge("tdb_test_depth", "A test gauge", () -> depth[0]);
+        registry.counter("tdb_test_dropped_total", "A supplied counter", () -> 7L, "reason", "shed");
+        depth[0] = 2;
+        assertEquals("""
+                # HELP tdb_test_depth A test gauge
+                # TYPE tdb_test_depth gauge
+                tdb_test_depth 2
+                # HELP tdb_test_dropped_total A supplied counter
+                # TYPE tdb_test_dropped_total counter
+                tdb_test_dropped_total{reason="shed"} 7
+                """, registry.scrape());
+    }
+
+    @Test
+    @DisplayName("Histograms are written with cumulative buckets, sum and count")
+    void histogram() {
+        Histogram histogram = registry.histogram("tdb_test_seconds", "A test histogram", new double[]{0.1, 1}, "direction", "in");
+        histogram.observe(0.05);
+        histogram.observe(0.1);
+        histogram.observe(0.5);
+        histogram.observe(3);
+        assertEquals("""
+                # HELP tdb_test_seconds A test histogram
+                # TYPE tdb_test_seconds histogram
+                tdb_test_seconds_bucket{direction="in",le="0.1"} 2
+                tdb_test_seconds_bucket{direction="in",le="1"} 3
+                tdb_test_seconds_bucket{direction="in",le="+Inf"} 4
+                tdb_test_seconds_sum{direction="in"} 3.65
+                tdb_test_seconds_count{direction="in"} 4
+                """, registry.scrape());
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("Label values are escaped")
+    void escapedLabels() {
+        registry.counter("tdb_test_total", "A test counter", "channel", "a\"b\\c\nd");
+        assertTrue(registry.scrape().contains("tdb_test_total{channel=\"a\\\"b\\\\c\\nd\"} 0\n"));
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("A name can't be used for two metric types")
+    void typeConflict() {
+        registry.counter("tdb_test", "A test counter");
+        assertThrows(IllegalArgumentException.class, () -> registry.gauge("tdb_test", "A test gauge", () -> 1));
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("Labels should be name and value pairs")
+    void oddLabels() {
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("tdb_test_total", "A test counter", "direction"));
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.metrics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsServerTest {
+
+    private MetricsRegistry registry;
+
+    private MetricsServer server;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        registry = new MetricsRegistry();
+        server = new MetricsServer(registry, 0);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    /**
+     * Create a request to the metrics endpoint
+     * @return The request builder
+     */
+    private HttpRequest.Builder request() {
+        return HttpRequest.newBuilder(URI.create("http://127.0.0.1:"+server.getPort()+MetricsServer.PATH));
+    }
+
+    @Test
+    @DisplayName("The metrics are served in the Prometheus text format")
+    void scrape() throws IOException, InterruptedException {
+        registry.counter("tdb_test_total", "A test counter").increment();
+        HttpResponse<String> response = client.send(request().GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals(MetricsRegistry.CONTENT_TYPE, response.headers().firstValue("Content-Type").orElse(null));
+        assertEquals(registry.scrape(), response.body());
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("Only reads are allowed")
+    void postRefused() throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request().POST(HttpRequest.BodyPublishers.ofString("x")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(405, response.statusCode());
+    }
+}
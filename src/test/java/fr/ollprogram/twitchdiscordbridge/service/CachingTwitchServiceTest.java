@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.service;
+
+import fr.ollprogram.twitchdiscordbridge.exception.ServiceException;
+import fr.ollprogram.twitchdiscordbridge.model.TwitchChannelInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+class CachingTwitchServiceTest {
+
+    private static final TwitchChannelInfo CHANNEL = new TwitchChannelInfo("23", "ollprogram");
+
+    private TwitchService delegate;
+
+    private TwitchService service;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(TwitchService.class);
+        service = new CachingTwitchService(delegate);
+    }
+
+    @Test
+    @DisplayName("a found channel is requested once")
+    void foundChannelCached() throws ServiceException {
+        when(delegate.getChannel("ollprogram")).thenReturn(Optional.of(CHANNEL));
+        assertEquals(Optional.of(CHANNEL), service.getChannel("ollprogram"));
+        assertEquals(Optional.of(CHANNEL), service.getChannel("OllProgram"));
+        verify(delegate, times(1)).getChannel(anyString());
+    }
+
+    @Test
+    @DisplayName("a channel not found is requested again")
+    void notFoundNotCached() throws ServiceException {
+        when(delegate.getChannel("ollprogram")).thenReturn(Optional.empty());
+        assertEquals(Optional.empty(), service.getChannel("ollprogram"));
+        assertEquals(Optional.empty(), service.getChannel("ollprogram"));
+        verify(delegate, times(2)).getChannel("ollprogram");
+    }
+
+    @Test
+    @DisplayName("authentication is delegated")
+    void authenticationDelegated() throws ServiceException {
+        when(delegate.authenticate("token")).thenReturn(Optional.empty());
+        assertEquals(Optional.empty(), service.authenticate("token"));
+        verify(delegate).authenticate("token");
+    }
+
+    @Test
+    @DisplayName("a channel found asynchronously is cached too")
+    void asyncChannelCached() throws ServiceException {
+        when(delegate.getChannelAsync("ollprogram")).thenReturn(CompletableFuture.completedFuture(Optional.of(CHANNEL)));
+        assertEquals(Optional.of(CHANNEL), service.getChannelAsync("ollprogram").join());
+        assertEquals(Optional.of(CHANNEL), service.getChannel("ollprogram"));
+        verify(delegate, never()).getChannel(anyString());
+    }
+
+    @Test
+    @DisplayName("only the channels which aren't cached are requested")
+    void channelsPartiallyCached() throws ServiceException {
+        TwitchChannelInfo other = new TwitchChannelInfo("24", "other");
+        when(delegate.getChannel("ollprogram")).thenReturn(Optional.of(CHANNEL));
+        when(delegate.getChannels(List.of("other"))).thenReturn(Map.of("other", other));
+        service.getChannel("ollprogram");
+        assertEquals(Map.of("ollprogram", CHANNEL, "other", other), service.getChannels(List.of("OllProgram", "other")));
+        assertEquals(Optional.of(other), service.getChannel("other"));
+        verify(delegate, times(1)).getChannels(anyCollection());
+        verify(delegate, never()).getChannel("other");
+    }
+}
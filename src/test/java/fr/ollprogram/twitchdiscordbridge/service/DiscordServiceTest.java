@@ -23,13 +23,19 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -38,7 +44,7 @@ import static org.mockito.Mockito.when;
 class DiscordServiceTest {
 
     private DiscordService service;
-    private HttpResponse<String> response;
+    private HttpResponse<InputStream> response;
 
     private static final String ANY_TOKEN = "any_token";
     private static final String SUCCESS_AUTH_BODY = "{\"id\": \"23\", \"name\":\"TDB\"}";
@@ -53,9 +59,10 @@ class DiscordServiceTest {
     @BeforeEach
     void setUp() {
         HttpClient client = mock(HttpClient.class);
-        HttpResponse<String> response = mock(HttpResponse.class);
+        HttpResponse<InputStream> response = mock(HttpResponse.class);
         try {
-            when(client.send(any(HttpRequest.class), any(HttpResponse.BodyHandlers.ofString().getClass()))).thenReturn(response);
+            when(client.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(response);
+            when(client.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(CompletableFuture.completedFuture(response));
         } catch (IOException | InterruptedException e) {
             throw new RuntimeException(e);
         }
@@ -63,10 +70,18 @@ class DiscordServiceTest {
         this.response = response;
     }
 
+    /**
+     * Mock the response body, a new stream is given for each request
+     * @param body The response body
+     */
+    private void mockBody(String body) {
+        when(response.body()).thenAnswer(invocation -> new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
     @Test
     @DisplayName("if authentication is unauthorized the result must be empty")
     void unauthorizedMustBeEmpty() throws ServiceException {
-        when(response.body()).thenReturn("{}");
+        mockBody("{}");
         when(response.statusCode()).thenReturn(401);
         assertEquals(Optional.empty(), service.authenticate(ANY_TOKEN));
     }
@@ -74,7 +89,7 @@ class DiscordServiceTest {
     @Test
     @DisplayName("if authentication is unauthorized the result must be empty")
     void authorized() throws ServiceException {
-        when(response.body()).thenReturn(SUCCESS_AUTH_BODY);
+        mockBody(SUCCESS_AUTH_BODY);
         when(response.statusCode()).thenReturn(200);
         assertEquals(new DiscordBotInfo("23", "TDB"), service.authenticate(ANY_TOKEN).orElse(null));
     }
@@ -83,7 +98,7 @@ class DiscordServiceTest {
     @Tag("Robustness")
     @DisplayName("auth request error 404")
     void authRequestError404() {
-        when(response.body()).thenReturn(ERROR_BODY);
+        mockBody(ERROR_BODY);
         when(response.statusCode()).thenReturn(404);
         assertThrows(ServiceRequestFailedException.class, () -> {service.authenticate(ANY_TOKEN);});
     }
@@ -92,7 +107,7 @@ class DiscordServiceTest {
     @Tag("Robustness")
     @DisplayName("auth request error 500")
     void authRequestError500() {
-        when(response.body()).thenReturn(ERROR_BODY);
+        mockBody(ERROR_BODY);
         when(response.statusCode()).thenReturn(500);
         assertThrows(ServiceRequestFailedException.class, () -> {service.authenticate(ANY_TOKEN);});
     }
@@ -101,7 +116,7 @@ class DiscordServiceTest {
     @Tag("Robustness")
     @DisplayName("malformed body must throw")
     void authRequestMalformedBody() {
-        when(response.body()).thenReturn(MALFORMED_BODY);
+        mockBody(MALFORMED_BODY);
         when(response.statusCode()).thenReturn(200);
         assertThrows(ServiceDecodeFailedException.class, () -> {service.authenticate(ANY_TOKEN);});
     }
@@ -117,7 +132,7 @@ class DiscordServiceTest {
      * Mock authentication
      */
     private void mockAuthenticate() throws ServiceException {
-        when(response.body()).thenReturn(SUCCESS_AUTH_BODY);
+        mockBody(SUCCESS_AUTH_BODY);
         when(response.statusCode()).thenReturn(200);
         service.authenticate(ANY_TOKEN);
     }
@@ -126,7 +141,7 @@ class DiscordServiceTest {
     @DisplayName("empty channel if not found")
     void getChannelEmpty() throws ServiceException {
         mockAuthenticate();
-        when(response.body()).thenReturn(NOT_FOUND_CHANNEL_MESSAGE);
+        mockBody(NOT_FOUND_CHANNEL_MESSAGE);
         when(response.statusCode()).thenReturn(404);
         assertEquals(Optional.empty(), service.getChannel("1232"));
     }
@@ -135,7 +150,7 @@ class DiscordServiceTest {
     @DisplayName("channel found")
     void getChannel() throws ServiceException {
         mockAuthenticate();
-        when(response.body()).thenReturn(SUCCESS_CHANNEL_BODY);
+        mockBody(SUCCESS_CHANNEL_BODY);
         when(response.statusCode()).thenReturn(200);
         assertEquals(new DiscordChannelInfo("23", "bridgeChannel"), service.getChannel("23").orElse(null));
     }
@@ -145,7 +160,7 @@ class DiscordServiceTest {
     @DisplayName("request error 404 must throw")
     void getChannelRequestError404() throws ServiceException {
         mockAuthenticate();
-        when(response.body()).thenReturn(ERROR_BODY);
+        mockBody(ERROR_BODY);
         when(response.statusCode()).thenReturn(404);
         assertThrows(ServiceRequestFailedException.class, () -> {service.getChannel("any");});
     }
@@ -155,7 +170,7 @@ class DiscordServiceTest {
     @DisplayName("request error 500 must throw")
     void getChannelRequestError500() throws ServiceException {
         mockAuthenticate();
-        when(response.body()).thenReturn(ERROR_BODY);
+        mockBody(ERROR_BODY);
         when(response.statusCode()).thenReturn(500);
         assertThrows(ServiceRequestFailedException.class, () -> {service.getChannel("any");});
     }
@@ -165,8 +180,37 @@ class DiscordServiceTest {
     @DisplayName("malformed body must throw")
     void getChannelMalformedBody() throws ServiceException {
         mockAuthenticate();
-        when(response.body()).thenReturn(MALFORMED_BODY);
+        mockBody(MALFORMED_BODY);
         when(response.statusCode()).thenReturn(200);
         assertThrows(ServiceDecodeFailedException.class, () -> {service.getChannel("any");});
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("asynchronous authentication")
+    void authenticateAsync() {
+        mockBody(SUCCESS_AUTH_BODY);
+        when(response.statusCode()).thenReturn(200);
+        assertEquals(Optional.of(new DiscordBotInfo("23", "TDB")), service.authenticateAsync(ANY_TOKEN).join());
+    }
+
+    @Test
+    @DisplayName("asynchronous channel retrieval, empty if not found")
+    void getChannelAsyncEmpty() throws ServiceException {
+        mockBody(SUCCESS_AUTH_BODY);
+        when(response.statusCode()).thenReturn(200);
+        service.authenticate(ANY_TOKEN);
+        mockBody(NOT_FOUND_CHANNEL_MESSAGE);
+        when(response.statusCode()).thenReturn(404);
+        assertEquals(Optional.empty(), service.getChannelAsync("1234").join());
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("an asynchronous decode failure completes with a service exception")
+    void asyncDecodeFailure() {
+        mockBody(MALFORMED_BODY);
+        when(response.statusCode()).thenReturn(200);
+        CompletionException e = assertThrows(CompletionException.class, () -> service.authenticateAsync(ANY_TOKEN).join());
+        assertInstanceOf(ServiceDecodeFailedException.class, e.getCause());
+    }
+}
@@ -24,23 +24,35 @@ import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockedStatic;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 class TwitchServiceTest {
 
     private TwitchServiceImpl service;
-    private HttpResponse<String> response;
+    private HttpResponse<InputStream> response;
+
+    private HttpClient client;
 
     private static final String ANY_TOKEN = "any_token";
     private static final String ANY_CHANNEL_NAME = "any_channel";
@@ -66,10 +78,11 @@ class TwitchServiceTest {
 
     @BeforeEach
     void setUp() {
-        HttpClient client = mock(HttpClient.class);
-        HttpResponse<String> response = mock(HttpResponse.class);
+        client = mock(HttpClient.class);
+        HttpResponse<InputStream> response = mock(HttpResponse.class);
         try {
-            when(client.send(any(HttpRequest.class), any(HttpResponse.BodyHandlers.ofString().getClass()))).thenReturn(response);
+            when(client.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(response);
+            when(client.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(CompletableFuture.completedFuture(response));
         } catch (IOException | InterruptedException e) {
             throw new RuntimeException(e);
         }
@@ -77,10 +90,18 @@ class TwitchServiceTest {
         this.response = response;
     }
 
+    /**
+     * Mock the response body, a new stream is given for each request
+     * @param body The response body
+     */
+    private void mockBody(String body) {
+        when(response.body()).thenAnswer(invocation -> new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
     @Test
     @DisplayName("if authentication is unauthorized the result must be empty")
     void unauthorizedMustBeEmpty() throws ServiceException {
-        when(response.body()).thenReturn("{}");
+        mockBody("{}");
         when(response.statusCode()).thenReturn(401);
         assertEquals(Optional.empty(), service.authenticate(ANY_TOKEN));
     }
@@ -88,7 +109,7 @@ class TwitchServiceTest {
     @Test
     @DisplayName("if authentication is unauthorized the result must be empty")
     void authorized() throws ServiceException {
-        when(response.body()).thenReturn(SUCCESS_AUTH_BODY);
+        mockBody(SUCCESS_AUTH_BODY);
         when(response.statusCode()).thenReturn(200);
         try(MockedStatic<Instant> mocked = mockStatic(Instant.class, CALLS_REAL_METHODS)){
             mocked.when(Instant::now).thenReturn(FIXED_INSTANT);
@@ -100,7 +121,7 @@ class TwitchServiceTest {
     @Tag("Robustness")
     @DisplayName("auth request error 404")
     void authRequestError404() {
-        when(response.body()).thenReturn(ERROR_BODY);
+        mockBody(ERROR_BODY);
         when(response.statusCode()).thenReturn(404);
         assertThrows(ServiceRequestFailedException.class, () -> {service.authenticate(ANY_TOKEN);});
     }
@@ -109,7 +130,7 @@ class TwitchServiceTest {
     @Tag("Robustness")
     @DisplayName("auth request error 500")
     void authRequestError500() {
-        when(response.body()).thenReturn(ERROR_BODY);
+        mockBody(ERROR_BODY);
         when(response.statusCode()).thenReturn(500);
         assertThrows(ServiceRequestFailedException.class, () -> {service.authenticate(ANY_TOKEN);});
     }
@@ -118,7 +139,7 @@ class TwitchServiceTest {
     @Tag("Robustness")
     @DisplayName("malformed body must throw")
     void authRequestMalformedBody() {
-        when(response.body()).thenReturn(MALFORMED_BODY);
+        mockBody(MALFORMED_BODY);
         when(response.statusCode()).thenReturn(200);
         assertThrows(ServiceDecodeFailedException.class, () -> {service.authenticate(ANY_TOKEN);});
     }
@@ -134,7 +155,7 @@ class TwitchServiceTest {
      * Mock authentication
      */
     private void mockAuthenticate() throws ServiceException {
-        when(response.body()).thenReturn(SUCCESS_AUTH_BODY);
+        mockBody(SUCCESS_AUTH_BODY);
         when(response.statusCode()).thenReturn(200);
         service.authenticate(ANY_TOKEN);
     }
@@ -143,7 +164,7 @@ class TwitchServiceTest {
     @DisplayName("empty channel if not found")
     void getChannelEmpty() throws ServiceException {
         mockAuthenticate();
-        when(response.body()).thenReturn(NOT_FOUND_CHANNEL_BODY);
+        mockBody(NOT_FOUND_CHANNEL_BODY);
         when(response.statusCode()).thenReturn(200);
         assertEquals(Optional.empty(), service.getChannel(ANY_CHANNEL_NAME));
     }
@@ -152,7 +173,7 @@ class TwitchServiceTest {
     @DisplayName("channel found")
     void getChannel() throws ServiceException {
         mockAuthenticate();
-        when(response.body()).thenReturn(SUCCESS_CHANNEL_BODY);
+        mockBody(SUCCESS_CHANNEL_BODY);
         when(response.statusCode()).thenReturn(200);
         assertEquals(new TwitchChannelInfo("23", "bridgeChannel"), service.getChannel(ANY_CHANNEL_NAME).orElse(null));
     }
@@ -162,7 +183,7 @@ class TwitchServiceTest {
     @DisplayName("request error 404 must throw")
     void getChannelRequestError404() throws ServiceException {
         mockAuthenticate();
-        when(response.body()).thenReturn(ERROR_BODY);
+        mockBody(ERROR_BODY);
         when(response.statusCode()).thenReturn(404);
         assertThrows(ServiceRequestFailedException.class, () -> {service.getChannel(ANY_CHANNEL_NAME);});
     }
@@ -172,7 +193,7 @@ class TwitchServiceTest {
     @DisplayName("request error 500 must throw")
     void getChannelRequestError500() throws ServiceException {
         mockAuthenticate();
-        when(response.body()).thenReturn(ERROR_BODY);
+        mockBody(ERROR_BODY);
         when(response.statusCode()).thenReturn(500);
         assertThrows(ServiceRequestFailedException.class, () -> {service.getChannel(ANY_CHANNEL_NAME);});
     }
@@ -182,9 +203,123 @@ class TwitchServiceTest {
     @DisplayName("malformed body must throw")
     void getChannelMalformedBody() throws ServiceException {
         mockAuthenticate();
-        when(response.body()).thenReturn(MALFORMED_BODY);
+        mockBody(MALFORMED_BODY);
         when(response.statusCode()).thenReturn(200);
         assertThrows(ServiceDecodeFailedException.class, () -> {service.getChannel(ANY_CHANNEL_NAME);});
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("a valid token isn't validated again before its expiration")
+    void authenticationCached() throws ServiceException, IOException, InterruptedException {
+        mockAuthenticate();
+        mockBody(SUCCESS_CHANNEL_BODY);
+        service.authenticate(ANY_TOKEN);
+        service.getChannel(ANY_CHANNEL_NAME);
+        verify(client, times(2)).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+    }
+
+    @Test
+    @DisplayName("another token is validated")
+    void authenticationOtherToken() throws ServiceException, IOException, InterruptedException {
+        mockAuthenticate();
+        service.authenticate("other_token");
+        verify(client, times(2)).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+    }
+
+    @Test
+    @DisplayName("an expired token is validated again")
+    void authenticationExpired() throws ServiceException, IOException, InterruptedException {
+        mockAuthenticate();
+        try(MockedStatic<Instant> mocked = mockStatic(Instant.class, CALLS_REAL_METHODS)){
+            mocked.when(Instant::now).thenReturn(FIXED_INSTANT.plusSeconds(2 * FAKE_EXPIRATION_TIME));
+            service.authenticate(ANY_TOKEN);
+        }
+        verify(client, times(2)).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("a token revoked before its expiration must be validated again")
+    void revokedTokenDisconnects() throws ServiceException {
+        mockAuthenticate();
+        mockBody(ERROR_BODY);
+        when(response.statusCode()).thenReturn(401);
+        assertThrows(ServiceRequestFailedException.class, () -> {service.getChannel(ANY_CHANNEL_NAME);});
+        assertThrows(ServiceDisconnectedException.class, () -> {service.getChannel(ANY_CHANNEL_NAME);});
+    }
+
+    @Test
+    @DisplayName("asynchronous authentication")
+    void authenticateAsync() {
+        mockBody(SUCCESS_AUTH_BODY);
+        when(response.statusCode()).thenReturn(200);
+        assertEquals("23", service.authenticateAsync(ANY_TOKEN).join().map(TwitchBotInfo::clientID).orElse(null));
+    }
+
+    @Test
+    @DisplayName("asynchronous channel retrieval")
+    void getChannelAsync() throws ServiceException {
+        mockAuthenticate();
+        mockBody(SUCCESS_CHANNEL_BODY);
+        assertEquals(Optional.of(new TwitchChannelInfo("23", "bridgeChannel")), service.getChannelAsync(ANY_CHANNEL_NAME).join());
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("an asynchronous request failure completes with a service exception")
+    void asyncRequestFailure() {
+        when(client.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("connection reset")));
+        CompletionException e = assertThrows(CompletionException.class, () -> service.authenticateAsync(ANY_TOKEN).join());
+        assertInstanceOf(ServiceRequestFailedException.class, e.getCause());
+    }
+
+    @Test
+    @DisplayName("several channels are retrieved in one request")
+    void getChannels() throws ServiceException {
+        mockAuthenticate();
+        mockBody(SUCCESS_CHANNEL_BODY);
+        assertEquals(Map.of("bridgechannel", new TwitchChannelInfo("23", "bridgeChannel")),
+                service.getChannels(List.of("bridgeChannel", "unknown_channel", "BridgeChannel")));
+        verify(client, times(1)).sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+    }
+
+    @Test
+    @DisplayName("one request per 100 channels")
+    void getChannelsChunked() throws ServiceException {
+        mockAuthenticate();
+        mockBody(NOT_FOUND_CHANNEL_BODY);
+        List<String> names = IntStream.range(0, 150).mapToObj(i -> "channel_" + i).toList();
+        assertEquals(Map.of(), service.getChannels(names));
+        verify(client, times(2)).sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("a response without users data is an empty chunk")
+    void getChannelsWithoutData() throws ServiceException {
+        mockAuthenticate();
+        mockBody("{}");
+        assertEquals(Map.of(), service.getChannels(List.of("bridgeChannel")));
+        assertEquals(Optional.empty(), service.getChannel("bridgeChannel"));
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("a failed chunk fails the whole retrieval")
+    void getChannelsFailure() throws ServiceException {
+        mockAuthenticate();
+        mockBody(ERROR_BODY);
+        when(response.statusCode()).thenReturn(500);
+        assertThrows(ServiceRequestFailedException.class, () -> service.getChannels(List.of("bridgeChannel")));
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("an interrupted request keeps the interrupt flag of the thread")
+    void interruptedRequestKeepsFlag() throws IOException, InterruptedException {
+        when(client.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenThrow(new InterruptedException());
+        assertThrows(ServiceRequestFailedException.class, () -> service.authenticate(ANY_TOKEN));
+        assertTrue(Thread.interrupted()); //cleared for the next tests
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.sink;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BatchingDiscordSinkTest {
+
+    private static final long CHANNEL = 10200303203L;
+
+    private DiscordSink fakeDelegate;
+
+    private BatchingDiscordSink sink;
+
+    @BeforeEach
+    void setUp() {
+        fakeDelegate = mock(DiscordSink.class);
+        sink = new BatchingDiscordSink(fakeDelegate, 200, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    @DisplayName("A line to a quiet channel is sent immediately")
+    void quietChannel() {
+        sink.send(CHANNEL, "hello");
+        verify(fakeDelegate).send(eq(CHANNEL), eq("hello"), any(Runnable.class));
+        assertEquals(0, sink.getQueueDepth());
+    }
+
+    @Test
+    @DisplayName("Lines to a busy channel are sent together at the end of the window")
+    void busyChannel() {
+        sink.send(CHANNEL, "first");
+        sink.send(CHANNEL, "second");
+        sink.send(CHANNEL, "third");
+        assertEquals(2, sink.getQueueDepth());
+        verify(fakeDelegate, timeout(1000)).send(eq(CHANNEL), eq("second\nthird"), any(Runnable.class));
+        assertEquals(0, sink.getQueueDepth());
+        assertEquals(1.5, sink.getBatchingRatio());
+    }
+
+    @Test
+    @DisplayName("Channels are batched separately")
+    void separateChannels() {
+        sink.send(CHANNEL, "first");
+        sink.send(42L, "other");
+        verify(fakeDelegate).send(eq(CHANNEL), eq("first"), any(Runnable.class));
+        verify(fakeDelegate).send(eq(42L), eq("other"), any(Runnable.class));
+    }
+
+    @Test
+    @DisplayName("A batch is sent early when the discord length limit is reached")
+    void lengthLimit() {
+        String line = "a".repeat(1500);
+        sink.send(CHANNEL, "first");
+        sink.send(CHANNEL, line);
+        sink.send(CHANNEL, line);
+        verify(fakeDelegate).send(eq(CHANNEL), eq(line), any(Runnable.class));
+        assertEquals(1, sink.getQueueDepth());
+    }
+
+    @Test
+    @DisplayName("Pending lines are sent on shutdown")
+    void shutdownFlush() throws InterruptedException {
+        sink.send(CHANNEL, "first");
+        sink.send(CHANNEL, "second");
+        sink.shutdown();
+        verify(fakeDelegate).send(eq(CHANNEL), eq("second"), any(Runnable.class));
+        verify(fakeDelegate).shutdown();
+    }
+
+    @Test
+    @DisplayName("The callbacks of the batched lines are run once the batch is acknowledged")
+    void batchCallbacks() {
+        AtomicInteger acknowledged = new AtomicInteger();
+        sink.send(CHANNEL, "first", acknowledged::incrementAndGet);
+        sink.send(CHANNEL, "second", acknowledged::incrementAndGet);
+        sink.send(CHANNEL, "third", acknowledged::incrementAndGet);
+        ArgumentCaptor<Runnable> first = ArgumentCaptor.forClass(Runnable.class);
+        verify(fakeDelegate).send(eq(CHANNEL), eq("first"), first.capture());
+        first.getValue().run();
+        assertEquals(1, acknowledged.get());
+        ArgumentCaptor<Runnable> batch = ArgumentCaptor.forClass(Runnable.class);
+        verify(fakeDelegate, timeout(1000)).send(eq(CHANNEL), eq("second\nthird"), batch.capture());
+        batch.getValue().run();
+        assertEquals(3, acknowledged.get());
+    }
+
+    @Test
+    @DisplayName("A line keeps its nonce, a batch of lines gets a nonce of their nonces")
+    void nonces() {
+        sink.sendOnce(CHANNEL, "first", "tdb1", () -> {});
+        sink.sendOnce(CHANNEL, "second", "tdb2", () -> {});
+        sink.sendOnce(CHANNEL, "third", "tdb3", () -> {});
+        verify(fakeDelegate).sendOnce(eq(CHANNEL), eq("first"), eq("tdb1"), any());
+        ArgumentCaptor<String> nonce = ArgumentCaptor.forClass(String.class);
+        verify(fakeDelegate, timeout(1000)).sendOnce(eq(CHANNEL), eq("second\nthird"), nonce.capture(), any());
+        assertTrue(nonce.getValue().length() <= 25);
+        assertNotEquals("tdb2", nonce.getValue());
+    }
+
+    @Test
+    @DisplayName("A batch with a line without nonce has no nonce")
+    void partialNonces() {
+        sink.send(CHANNEL, "first");
+        sink.sendOnce(CHANNEL, "second", "tdb2", () -> {});
+        sink.send(CHANNEL, "third");
+        verify(fakeDelegate, timeout(1000)).send(eq(CHANNEL), eq("second\nthird"), any(Runnable.class));
+        verify(fakeDelegate, never()).sendOnce(anyLong(), anyString(), anyString(), any());
+    }
+}
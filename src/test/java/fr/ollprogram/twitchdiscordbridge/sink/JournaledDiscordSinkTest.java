@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.sink;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class JournaledDiscordSinkTest {
+
+    private static final long CHANNEL = 10200303203L;
+
+    @TempDir
+    Path dir;
+
+    private Path path;
+
+    private DiscordSink fakeDelegate;
+
+    @BeforeEach
+    void setUp() {
+        path = dir.resolve("outbox.journal");
+        fakeDelegate = mock(DiscordSink.class);
+    }
+
+    @Test
+    @DisplayName("Messages are sent with their nonce and marked done once acknowledged")
+    void acknowledged() throws IOException {
+        OutboxJournal journal = new OutboxJournal(path);
+        JournaledDiscordSink sink = new JournaledDiscordSink(fakeDelegate, journal);
+        Runnable onSent = mock(Runnable.class);
+        sink.send(CHANNEL, "viewer", "hello", onSent);
+        ArgumentCaptor<Runnable> ack = ArgumentCaptor.forClass(Runnable.class);
+        verify(fakeDelegate).sendOnce(eq(CHANNEL), eq("viewer says : hello"), eq("tdb0"), ack.capture(), any(Runnable.class));
+        assertEquals(1, journal.getPendingCount());
+        ack.getValue().run();
+        assertEquals(0, journal.getPendingCount());
+        verify(onSent).run();
+    }
+
+    @Test
+    @DisplayName("Messages not acknowledged before a restart are replayed with the same nonce")
+    void replayed() throws IOException {
+        OutboxJournal journal = new OutboxJournal(path);
+        new JournaledDiscordSink(fakeDelegate, journal).send(CHANNEL, "lost", () -> {});
+        journal.close();
+        DiscordSink restartedDelegate = mock(DiscordSink.class);
+        OutboxJournal reopened = new OutboxJournal(path);
+        JournaledDiscordSink restarted = new JournaledDiscordSink(restartedDelegate, reopened);
+        assertEquals(1, restarted.replay(0, TimeUnit.MILLISECONDS));
+        ArgumentCaptor<Runnable> ack = ArgumentCaptor.forClass(Runnable.class);
+        verify(restartedDelegate).sendOnce(eq(CHANNEL), eq("lost"), eq("tdb0"), ack.capture(), any(Runnable.class));
+        ack.getValue().run();
+        assertEquals(0, reopened.getPendingCount());
+    }
+
+    @Test
+    @DisplayName("A batch is journaled and replayed with the nonce it was first sent with")
+    void batchNonce() throws IOException {
+        OutboxJournal journal = new OutboxJournal(path);
+        new JournaledDiscordSink(fakeDelegate, journal).sendOnce(CHANNEL, "first\nsecond", "b123", () -> {});
+        verify(fakeDelegate).sendOnce(eq(CHANNEL), eq("first\nsecond"), eq("b123"), any(Runnable.class), any(Runnable.class));
+        DiscordSink restartedDelegate = mock(DiscordSink.class);
+        assertEquals(1, new JournaledDiscordSink(restartedDelegate, journal).replay(0, TimeUnit.MILLISECONDS));
+        verify(restartedDelegate).sendOnce(eq(CHANNEL), eq("first\nsecond"), eq("b123"), any(Runnable.class), any(Runnable.class));
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("A failed message is sent again with the same nonce, without waiting for a reconnection")
+    void retried() throws IOException, InterruptedException {
+        OutboxJournal journal = new OutboxJournal(path);
+        JournaledDiscordSink sink = new JournaledDiscordSink(fakeDelegate, journal, 10, TimeUnit.MILLISECONDS);
+        sink.send(CHANNEL, "failed", () -> {});
+        ArgumentCaptor<Runnable> failure = ArgumentCaptor.forClass(Runnable.class);
+        verify(fakeDelegate).sendOnce(eq(CHANNEL), eq("failed"), eq("tdb0"), any(Runnable.class), failure.capture());
+        failure.getValue().run();
+        ArgumentCaptor<Runnable> ack = ArgumentCaptor.forClass(Runnable.class);
+        verify(fakeDelegate, timeout(1000).times(2)).sendOnce(eq(CHANNEL), eq("failed"), eq("tdb0"), ack.capture(), any(Runnable.class));
+        ack.getValue().run();
+        assertEquals(0, journal.getPendingCount());
+        sink.shutdown();
+    }
+
+    @Test
+    @DisplayName("The recent messages are not replayed, they may still be waiting in the delegate")
+    void recentNotReplayed() throws IOException {
+        JournaledDiscordSink sink = new JournaledDiscordSink(fakeDelegate, new OutboxJournal(path));
+        sink.send(CHANNEL, "queued", () -> {});
+        assertEquals(0, sink.replay(30, TimeUnit.SECONDS));
+        verify(fakeDelegate, times(1)).sendOnce(anyLong(), anyString(), anyString(), any(Runnable.class), any(Runnable.class));
+    }
+}
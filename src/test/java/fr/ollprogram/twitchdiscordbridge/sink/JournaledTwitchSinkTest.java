@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.sink;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class JournaledTwitchSinkTest {
+
+    private static final String CHANNEL = "ollprogram";
+
+    @TempDir
+    Path dir;
+
+    private OutboxJournal journal;
+
+    private TwitchSink fakeDelegate;
+
+    private JournaledTwitchSink sink;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        journal = new OutboxJournal(dir.resolve("outbox.journal"));
+        fakeDelegate = mock(TwitchSink.class);
+        sink = new JournaledTwitchSink(fakeDelegate, journal);
+    }
+
+    @Test
+    @DisplayName("Messages are marked done once sent")
+    void sent() {
+        Runnable onSent = mock(Runnable.class);
+        sink.send(CHANNEL, "hello", onSent);
+        ArgumentCaptor<Runnable> ack = ArgumentCaptor.forClass(Runnable.class);
+        verify(fakeDelegate).send(eq(CHANNEL), eq("hello"), ack.capture(), any(Runnable.class));
+        assertEquals(1, journal.getPendingCount());
+        ack.getValue().run();
+        assertEquals(0, journal.getPendingCount());
+        verify(onSent).run();
+    }
+
+    @Test
+    @DisplayName("Messages dropped by the delegate are marked done, they are not replayed")
+    void dropped() {
+        sink.send(CHANNEL, "hello", () -> {});
+        ArgumentCaptor<Runnable> drop = ArgumentCaptor.forClass(Runnable.class);
+        verify(fakeDelegate).send(eq(CHANNEL), eq("hello"), any(Runnable.class), drop.capture());
+        drop.getValue().run();
+        assertEquals(0, journal.getPendingCount());
+        assertEquals(0, sink.replay(0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    @DisplayName("Messages neither sent nor dropped are replayed once handed long enough ago")
+    void replayed() {
+        sink.send(CHANNEL, "hello", () -> {});
+        assertEquals(0, sink.replay(30, TimeUnit.SECONDS));
+        assertEquals(1, sink.replay(0, TimeUnit.MILLISECONDS));
+        ArgumentCaptor<Runnable> ack = ArgumentCaptor.forClass(Runnable.class);
+        verify(fakeDelegate, times(2)).send(eq(CHANNEL), eq("hello"), ack.capture(), any(Runnable.class));
+        ack.getValue().run();
+        assertEquals(0, journal.getPendingCount());
+    }
+
+    @Test
+    @DisplayName("The pending messages of the previous run are replayed")
+    void restart() throws IOException {
+        sink.send(CHANNEL, "lost", () -> {});
+        journal.close();
+        TwitchSink restartedDelegate = mock(TwitchSink.class);
+        JournaledTwitchSink restarted = new JournaledTwitchSink(restartedDelegate, new OutboxJournal(dir.resolve("outbox.journal")));
+        assertEquals(1, restarted.replay(0, TimeUnit.MILLISECONDS));
+        verify(restartedDelegate).send(eq(CHANNEL), eq("lost"), any(Runnable.class), any(Runnable.class));
+        assertEquals(0, restarted.replay(30, TimeUnit.SECONDS)); //just handed
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.sink;
+
+import fr.ollprogram.twitchdiscordbridge.bridge.Direction;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboxJournalTest {
+
+    private static final String JOURNAL_FILE = "outbox.journal";
+
+    /**
+     * Get the texts of the pending messages of a direction
+     * @param journal The journal
+     * @param direction The direction
+     * @return The pending texts, in the append order
+     */
+    private static List<String> pendingTexts(OutboxJournal journal, Direction direction){
+        return journal.getPending(direction).stream().map(OutboxJournal.Entry::text).toList();
+    }
+
+    @Test
+    @DisplayName("Messages are pending until marked done")
+    void pending(@TempDir Path dir) throws IOException {
+        OutboxJournal journal = new OutboxJournal(dir.resolve(JOURNAL_FILE));
+        long first = journal.append(Direction.TWITCH_TO_DISCORD, "10200303203", "viewer", "first");
+        journal.append(Direction.TWITCH_TO_DISCORD, "10200303203", null, "second");
+        journal.append(Direction.DISCORD_TO_TWITCH, "ollprogram", null, "third");
+        journal.markDone(first);
+        assertEquals(List.of("second"), pendingTexts(journal, Direction.TWITCH_TO_DISCORD));
+        assertEquals(List.of("third"), pendingTexts(journal, Direction.DISCORD_TO_TWITCH));
+        assertEquals(2, journal.getPendingCount());
+    }
+
+    @Test
+    @DisplayName("Pending messages are read back in order after a restart, the IDs are not reused")
+    void restart(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve(JOURNAL_FILE);
+        OutboxJournal journal = new OutboxJournal(path);
+        long first = journal.append(Direction.TWITCH_TO_DISCORD, "10200303203", "viewer", "first");
+        long second = journal.append(Direction.TWITCH_TO_DISCORD, "10200303203", null, "second");
+        journal.append(Direction.TWITCH_TO_DISCORD, "10200303203", null, "third");
+        journal.markDone(second);
+        journal.close();
+        OutboxJournal reopened = new OutboxJournal(path);
+        assertEquals(List.of("first", "third"), pendingTexts(reopened, Direction.TWITCH_TO_DISCORD));
+        OutboxJournal.Entry entry = reopened.getPending(Direction.TWITCH_TO_DISCORD).get(0);
+        assertEquals(first, entry.id());
+        assertEquals("viewer", entry.author());
+        assertEquals("10200303203", entry.target());
+        assertNull(reopened.getPending(Direction.TWITCH_TO_DISCORD).get(1).author());
+        assertTrue(reopened.append(Direction.DISCORD_TO_TWITCH, "ollprogram", null, "fourth") > second);
+    }
+
+    @Test
+    @DisplayName("A full journal is compacted, only the pending messages are kept")
+    void compaction(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve(JOURNAL_FILE);
+        OutboxJournal journal = new OutboxJournal(path, 1024);
+        long kept = journal.append(Direction.DISCORD_TO_TWITCH, "ollprogram", null, "kept");
+        for(int i = 0; i < 100; i++){
+            journal.markDone(journal.append(Direction.DISCORD_TO_TWITCH, "ollprogram", null, "message "+i));
+        }
+        assertEquals(1024, Files.size(path));
+        assertFalse(Files.exists(dir.resolve(JOURNAL_FILE + ".compacted")));
+        assertEquals(List.of("kept"), pendingTexts(journal, Direction.DISCORD_TO_TWITCH));
+        journal.close();
+        OutboxJournal reopened = new OutboxJournal(path, 1024);
+        assertEquals(kept, reopened.getPending(Direction.DISCORD_TO_TWITCH).get(0).id());
+        assertEquals(1, reopened.getPendingCount());
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("A compaction interrupted after its copy is finished when the journal is opened")
+    void interruptedCompaction(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve(JOURNAL_FILE);
+        OutboxJournal journal = new OutboxJournal(path, 1024);
+        journal.append(Direction.DISCORD_TO_TWITCH, "ollprogram", null, "overwritten");
+        journal.close();
+        Path other = dir.resolve("other.journal");
+        OutboxJournal compacted = new OutboxJournal(other, 1024);
+        compacted.append(Direction.DISCORD_TO_TWITCH, "ollprogram", null, "kept");
+        compacted.close();
+        Files.copy(other, dir.resolve(JOURNAL_FILE + ".compacted"));
+        Files.writeString(dir.resolve(JOURNAL_FILE + ".tmp"), "incomplete");
+        OutboxJournal reopened = new OutboxJournal(path, 1024);
+        assertEquals(List.of("kept"), pendingTexts(reopened, Direction.DISCORD_TO_TWITCH));
+        assertFalse(Files.exists(dir.resolve(JOURNAL_FILE + ".compacted")));
+        assertFalse(Files.exists(dir.resolve(JOURNAL_FILE + ".tmp")));
+    }
+
+    @Test
+    @DisplayName("Old pending messages expire")
+    void expire(@TempDir Path dir) throws IOException {
+        OutboxJournal journal = new OutboxJournal(dir.resolve(JOURNAL_FILE));
+        journal.append(Direction.DISCORD_TO_TWITCH, "ollprogram", null, "message");
+        assertEquals(0, journal.expire(1, TimeUnit.HOURS));
+        assertEquals(1, journal.expire(-1, TimeUnit.HOURS));
+        assertEquals(0, journal.getPendingCount());
+    }
+
+    @Test
+    @DisplayName("The nonce a message was sent with is kept across a compaction and a restart")
+    void nonce(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve(JOURNAL_FILE);
+        OutboxJournal journal = new OutboxJournal(path, 1024);
+        long batch = journal.append(Direction.TWITCH_TO_DISCORD, "10200303203", null, "first\nsecond", "b123");
+        for(int i = 0; i < 100; i++){
+            journal.markDone(journal.append(Direction.TWITCH_TO_DISCORD, "10200303203", null, "message "+i));
+        }
+        journal.close();
+        OutboxJournal reopened = new OutboxJournal(path, 1024);
+        OutboxJournal.Entry entry = reopened.getPending(Direction.TWITCH_TO_DISCORD).get(0);
+        assertEquals(batch, entry.id());
+        assertEquals("b123", entry.nonce());
+        assertEquals("first\nsecond", entry.text());
+        assertTrue(reopened.isPending(batch));
+        reopened.markDone(batch);
+        assertFalse(reopened.isPending(batch));
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("A journal full of pending messages refuses new ones")
+    void full(@TempDir Path dir) throws IOException {
+        OutboxJournal journal = new OutboxJournal(dir.resolve(JOURNAL_FILE), 256);
+        assertThrows(IOException.class, () -> {
+            for(int i = 0; i < 100; i++) journal.append(Direction.DISCORD_TO_TWITCH, "ollprogram", null, "message "+i);
+        });
+        assertFalse(journal.getPending(Direction.DISCORD_TO_TWITCH).isEmpty());
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("A file which isn't a journal is not overwritten")
+    void notJournal(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve(JOURNAL_FILE);
+        Files.writeString(path, "TwitchToken=token");
+        assertThrows(IOException.class, () -> new OutboxJournal(path));
+        assertEquals("TwitchToken=token", Files.readString(path));
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.sink;
+
+import com.github.twitch4j.TwitchClient;
+import com.github.twitch4j.chat.TwitchChat;
+import fr.ollprogram.twitchdiscordbridge.utils.TokenBucket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class RateLimitedTwitchSinkTest {
+
+    private TwitchChat fakeTwitchChat;
+
+    private AtomicLong clock;
+
+    private RateLimitedTwitchSink sink;
+
+    @BeforeEach
+    void setUp() {
+        TwitchClient fakeTwitchBot = mock(TwitchClient.class);
+        fakeTwitchChat = mock(TwitchChat.class);
+        when(fakeTwitchBot.getChat()).thenReturn(fakeTwitchChat);
+        when(fakeTwitchChat.sendMessage(anyString(), anyString())).thenReturn(true);
+        clock = new AtomicLong(0);
+        TokenBucket bucket = new TokenBucket(1, 30, TimeUnit.SECONDS, clock::get);
+        sink = new RateLimitedTwitchSink(fakeTwitchBot, bucket, 3, 10);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        sink.shutdown();
+    }
+
+    @Test
+    @DisplayName("Sent immediately when a token is available")
+    void sendImmediately() {
+        sink.send("ollprogram", "hello");
+        verify(fakeTwitchChat, timeout(1000)).sendMessage("ollprogram", "hello");
+        assertEquals(0, sink.getQueueDepth());
+        assertEquals(1, sink.getCoalescingRatio());
+    }
+
+    @Test
+    @DisplayName("Backlog is coalesced when a token is given back")
+    void coalesceBacklog() {
+        sink.send("ollprogram", "first");
+        verify(fakeTwitchChat, timeout(1000)).sendMessage("ollprogram", "first");
+        sink.send("ollprogram", "second");
+        sink.send("ollprogram", "third");
+        assertEquals(2, sink.getQueueDepth());
+        clock.set(TimeUnit.SECONDS.toNanos(30));
+        verify(fakeTwitchChat, timeout(1000)).sendMessage("ollprogram", "second | third");
+        assertEquals(0, sink.getQueueDepth());
+        assertEquals(1.5, sink.getCoalescingRatio());
+    }
+
+    @Test
+    @DisplayName("Coalesced messages respect the twitch length limit")
+    void coalesceLimit() {
+        sink.send("ollprogram", "first");
+        verify(fakeTwitchChat, timeout(1000)).sendMessage("ollprogram", "first");
+        String line = "a".repeat(300);
+        sink.send("ollprogram", line);
+        sink.send("ollprogram", line);
+        clock.set(TimeUnit.SECONDS.toNanos(30));
+        verify(fakeTwitchChat, timeout(1000)).sendMessage("ollprogram", line);
+        assertEquals(1, sink.getQueueDepth());
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("The oldest lines are dropped when the queue is full")
+    void dropOldest() {
+        sink.send("ollprogram", "first");
+        verify(fakeTwitchChat, timeout(1000)).sendMessage("ollprogram", "first");
+        AtomicInteger dropped = new AtomicInteger();
+        for(int i = 0; i < 5; i++) sink.send("ollprogram", "line"+i, () -> {}, dropped::incrementAndGet);
+        assertEquals(3, sink.getQueueDepth());
+        assertEquals(2, dropped.get());
+        clock.set(TimeUnit.SECONDS.toNanos(30));
+        verify(fakeTwitchChat, timeout(1000)).sendMessage("ollprogram", "line2 | line3 | line4");
+    }
+
+    @Test
+    @DisplayName("The callbacks of the coalesced lines are run once the message is sent")
+    void coalescedCallbacks() {
+        AtomicInteger sent = new AtomicInteger();
+        sink.send("ollprogram", "first", sent::incrementAndGet);
+        verify(fakeTwitchChat, timeout(1000)).sendMessage("ollprogram", "first");
+        sink.send("ollprogram", "second", sent::incrementAndGet);
+        sink.send("ollprogram", "third", sent::incrementAndGet);
+        assertEquals(1, sent.get());
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        verify(fakeTwitchChat, timeout(1000)).sendMessage("ollprogram", "second | third");
+        assertEquals(3, sent.get());
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("The callbacks of a message refused by twitch chat are not run")
+    void refusedNotAcknowledged() {
+        when(fakeTwitchChat.sendMessage("ollprogram", "refused")).thenReturn(false);
+        AtomicInteger sent = new AtomicInteger();
+        sink.send("ollprogram", "refused", sent::incrementAndGet);
+        verify(fakeTwitchChat, timeout(1000)).sendMessage("ollprogram", "refused");
+        verify(fakeTwitchChat, after(100).times(1)).sendMessage("ollprogram", "refused");
+        assertEquals(0, sent.get());
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.sink;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Webhook;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.requests.RestAction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class WebhookDiscordSinkTest {
+
+    private static final long CHANNEL = 10200303203L;
+
+    private static final String WEBHOOK_URL = "https://discord.com/api/webhooks/1/token";
+
+    private HttpClient fakeClient;
+
+    private DiscordSink fakeFallback;
+
+    private TextChannel fakeTextChannel;
+
+    private RestAction<List<Webhook>> fakeRetrieve;
+
+    private Webhook fakeWebhook;
+
+    private WebhookDiscordSink sink;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked") // generic mocks
+    void setUp() {
+        JDA fakeDiscordBot = mock(JDA.class);
+        fakeTextChannel = mock(TextChannel.class);
+        fakeWebhook = mock(Webhook.class);
+        fakeRetrieve = mock(RestAction.class);
+        when(fakeDiscordBot.getTextChannelById(CHANNEL)).thenReturn(fakeTextChannel);
+        when(fakeTextChannel.retrieveWebhooks()).thenReturn(fakeRetrieve);
+        doAnswer(invocation -> {
+            invocation.<Consumer<List<Webhook>>>getArgument(0).accept(List.of(fakeWebhook));
+            return null;
+        }).when(fakeRetrieve).queue(any(), any());
+        when(fakeWebhook.getName()).thenReturn(WebhookDiscordSink.WEBHOOK_NAME);
+        when(fakeWebhook.getToken()).thenReturn("token");
+        when(fakeWebhook.getUrl()).thenReturn(WEBHOOK_URL);
+        fakeClient = mock(HttpClient.class);
+        fakeFallback = mock(DiscordSink.class);
+        sink = new WebhookDiscordSink(fakeDiscordBot, fakeClient, fakeFallback);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        sink.shutdown();
+    }
+
+    /**
+     * Create a webhook response
+     * @param status The status code
+     * @param body The response body
+     * @param headers The response headers
+     * @return The completed response future
+     */
+    @SuppressWarnings("unchecked") // generic mock
+    private static CompletableFuture<HttpResponse<String>> response(int status, String body, Map<String, List<String>> headers){
+        HttpResponse<String> response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(status);
+        when(response.body()).thenReturn(body);
+        when(response.headers()).thenReturn(HttpHeaders.of(headers, (name, value) -> true));
+        return CompletableFuture.completedFuture(response);
+    }
+
+    @Test
+    @DisplayName("Messages are posted to the channel webhook")
+    void postToWebhook() {
+        doReturn(response(204, "", Map.of())).when(fakeClient).sendAsync(any(HttpRequest.class), any());
+        sink.send(CHANNEL, "ollprogram", "hello");
+        ArgumentCaptor<HttpRequest> captor = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(fakeClient, timeout(1000)).sendAsync(captor.capture(), any());
+        assertEquals(URI.create(WEBHOOK_URL), captor.getValue().uri());
+        assertEquals("POST", captor.getValue().method());
+        verifyNoInteractions(fakeFallback);
+    }
+
+    @Test
+    @DisplayName("A rate limited message is retried")
+    void retryRateLimited() {
+        doReturn(response(429, "{\"retry_after\": 0.05, \"global\": false}", Map.of()))
+                .doReturn(response(204, "", Map.of()))
+                .when(fakeClient).sendAsync(any(HttpRequest.class), any());
+        sink.send(CHANNEL, "ollprogram", "hello");
+        verify(fakeClient, timeout(2000).times(2)).sendAsync(any(HttpRequest.class), any());
+        assertEquals(0, sink.getQueueDepth());
+    }
+
+    @Test
+    @DisplayName("An exhausted bucket waits for its reset")
+    void waitBucketReset() {
+        doReturn(response(204, "", Map.of("X-RateLimit-Remaining", List.of("0"), "X-RateLimit-Reset-After", List.of("0.5"))))
+                .when(fakeClient).sendAsync(any(HttpRequest.class), any());
+        sink.send(CHANNEL, "ollprogram", "first");
+        verify(fakeClient, timeout(1000)).sendAsync(any(HttpRequest.class), any());
+        sink.send(CHANNEL, "ollprogram", "second");
+        verify(fakeClient, after(200).times(1)).sendAsync(any(HttpRequest.class), any());
+        assertEquals(1, sink.getQueueDepth());
+        verify(fakeClient, timeout(2000).times(2)).sendAsync(any(HttpRequest.class), any());
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("The fallback sink is used when the webhook can't be created")
+    void fallbackWithoutWebhook() {
+        when(fakeTextChannel.retrieveWebhooks()).thenThrow(new RuntimeException("Missing permission"));
+        sink.send(CHANNEL, "ollprogram", "hello");
+        verify(fakeFallback).send(eq(CHANNEL), eq("ollprogram"), eq("hello"), any(Runnable.class));
+        verifyNoInteractions(fakeClient);
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("The webhook is looked up once for the first messages of a channel")
+    void singleLookup() {
+        doReturn(response(204, "", Map.of())).when(fakeClient).sendAsync(any(HttpRequest.class), any());
+        doNothing().when(fakeRetrieve).queue(any(), any()); //lookup in progress
+        sink.send(CHANNEL, "ollprogram", "first");
+        sink.send(CHANNEL, "ollprogram", "second");
+        verify(fakeTextChannel, times(1)).retrieveWebhooks();
+        assertEquals(2, sink.getQueueDepth());
+        ArgumentCaptor<Consumer<List<Webhook>>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(fakeRetrieve).queue(captor.capture(), any());
+        captor.getValue().accept(List.of(fakeWebhook));
+        verify(fakeClient, timeout(1000).times(2)).sendAsync(any(HttpRequest.class), any());
+        verify(fakeTextChannel, never()).createWebhook(anyString());
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("A deleted webhook is looked up again, and the bot is used if it can't be recreated")
+    void deletedWebhook() {
+        doReturn(response(404, "{\"code\": 10015}", Map.of())).when(fakeClient).sendAsync(any(HttpRequest.class), any());
+        doAnswer(invocation -> {
+            invocation.<Consumer<List<Webhook>>>getArgument(0).accept(List.of(fakeWebhook));
+            return null;
+        }).doAnswer(invocation -> {
+            invocation.<Consumer<Throwable>>getArgument(1).accept(new RuntimeException("Missing permission"));
+            return null;
+        }).when(fakeRetrieve).queue(any(), any());
+        sink.send(CHANNEL, "ollprogram", "first");
+        verify(fakeClient, timeout(1000)).sendAsync(any(HttpRequest.class), any());
+        verify(fakeFallback, timeout(1000)).send(eq(CHANNEL), eq("ollprogram"), eq("first"), any(Runnable.class));
+        verify(fakeTextChannel, times(2)).retrieveWebhooks();
+        sink.send(CHANNEL, "ollprogram", "second");
+        verify(fakeFallback).send(eq(CHANNEL), eq("ollprogram"), eq("second"), any(Runnable.class));
+        assertEquals(0, sink.getQueueDepth());
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("A malformed rate limit header doesn't block the channel")
+    void malformedRateLimitHeader() {
+        doReturn(response(204, "", Map.of("X-RateLimit-Remaining", List.of("many"))))
+                .when(fakeClient).sendAsync(any(HttpRequest.class), any());
+        sink.send(CHANNEL, "ollprogram", "first");
+        verify(fakeClient, timeout(1000)).sendAsync(any(HttpRequest.class), any());
+        sink.send(CHANNEL, "ollprogram", "second");
+        verify(fakeClient, timeout(1000).times(2)).sendAsync(any(HttpRequest.class), any());
+    }
+}
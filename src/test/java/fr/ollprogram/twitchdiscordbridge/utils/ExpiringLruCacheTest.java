@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpiringLruCacheTest {
+
+    private AtomicLong clock;
+
+    private ExpiringLruCache<String, String> cache;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong(0);
+        cache = new ExpiringLruCache<>(2, 10, TimeUnit.MINUTES, clock::get);
+    }
+
+    @Test
+    @DisplayName("A value is kept until its time to live")
+    void expires() {
+        cache.put("a", "v1");
+        clock.set(TimeUnit.MINUTES.toNanos(10) - 1);
+        assertEquals("v1", cache.get("a"));
+        clock.set(TimeUnit.MINUTES.toNanos(10));
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("The least recently used value is evicted above the maximum size")
+    void leastRecentlyUsedEvicted() {
+        cache.put("a", "v1");
+        cache.put("b", "v2");
+        cache.get("a");
+        cache.put("c", "v3");
+        assertEquals("v1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("v3", cache.get("c"));
+    }
+
+    @Test
+    @DisplayName("A replaced value gets a new time to live")
+    void replaced() {
+        cache.put("a", "v1");
+        clock.set(TimeUnit.MINUTES.toNanos(5));
+        cache.put("a", "v2");
+        clock.set(TimeUnit.MINUTES.toNanos(12));
+        assertEquals("v2", cache.get("a"));
+    }
+
+    @Test
+    @DisplayName("An invalidated value is absent")
+    void invalidated() {
+        cache.put("a", "v1");
+        cache.invalidate("a");
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("Maximum size should be positive")
+    void invalidSize() {
+        assertThrows(IllegalArgumentException.class, () -> new ExpiringLruCache<String, String>(0, 10, TimeUnit.MINUTES));
+    }
+}
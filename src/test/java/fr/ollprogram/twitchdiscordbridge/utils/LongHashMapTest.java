@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+
+package fr.ollprogram.twitchdiscordbridge.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongHashMapTest {
+
+    private LongHashMap<String> map;
+
+    @BeforeEach
+    void setUp() {
+        map = new LongHashMap<>();
+    }
+
+    @Test
+    @DisplayName("Absent key is null")
+    void getAbsent() {
+        assertNull(map.get(1006321562229678111L));
+    }
+
+    @Test
+    @DisplayName("Put then get")
+    void putGet() {
+        map.put(1006321562229678111L, "channel");
+        assertEquals("channel", map.get(1006321562229678111L));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    @DisplayName("Put replaces the previous value")
+    void putReplace() {
+        map.put(42L, "first");
+        assertEquals("first", map.put(42L, "second"));
+        assertEquals("second", map.get(42L));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    @DisplayName("Remove a key")
+    void remove() {
+        map.put(42L, "value");
+        assertEquals("value", map.remove(42L));
+        assertNull(map.get(42L));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Behaves like a HashMap with many insertions and removals")
+    void randomOperations() {
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(23);
+        for(int i = 0; i < 20000; i++){
+            long key = random.nextInt(512);
+            if(random.nextBoolean()){
+                assertEquals(expected.put(key, "v"+i), map.put(key, "v"+i));
+            } else {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> assertEquals(value, map.get(key)));
+        map.forEach((key, value) -> assertEquals(expected.get(key), value));
+    }
+
+    @Test
+    @DisplayName("A copy is independent")
+    void copy() {
+        map.put(1L, "one");
+        LongHashMap<String> copy = new LongHashMap<>(map);
+        copy.put(2L, "two");
+        assertNull(map.get(2L));
+        assertEquals("one", copy.get(1L));
+    }
+}
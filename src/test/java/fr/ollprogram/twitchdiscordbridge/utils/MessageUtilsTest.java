@@ -14,7 +14,10 @@ package fr.ollprogram.twitchdiscordbridge.utils;
 
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.time.Duration;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 class MessageUtilsTest {
 
@@ -48,4 +51,54 @@ class MessageUtilsTest {
     void filterMessageComplexWithLinks() {
         assertEquals("Hello my name is ollprogram and i like playing [url], also look my code on [url] or [url] or [url]", MessageUtils.filterMessage("Hello my name is ollprogram and i like playing chess.com, also look my code on https://github.com or http://github.com or github.com"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void filterMessageWithoutDotUnchanged() {
+        String message = "Hello my name is ollprogram";
+        assertSame(message, MessageUtils.filterMessage(message));
+    }
+
+    @Test
+    void filterMessageWithoutLinkUnchanged() {
+        String message = "Pi is 3.14, e.g. not a link... v1.2 neither";
+        assertSame(message, MessageUtils.filterMessage(message));
+    }
+
+    @Test
+    void filterMessageShortDomain() {
+        assertEquals("look [url] !", MessageUtils.filterMessage("look t.co/abc !"));
+    }
+
+    @Test
+    void filterMessageFullPath() {
+        assertEquals("[url] end", MessageUtils.filterMessage("https://github.com/ollprogram/TwitchDiscordBridge?tab=readme end"));
+    }
+
+    @Test
+    void filterMessageAllowedDomain() {
+        String message = "nice clip https://clips.twitch.tv/AbcDef and www.chess.com";
+        assertEquals("nice clip https://clips.twitch.tv/AbcDef and [url]", MessageUtils.filterMessage(message, Set.of("clips.twitch.tv")));
+    }
+
+    @Test
+    void filterMessageAllowedSubdomain() {
+        assertEquals("www.YouTube.com/watch", MessageUtils.filterMessage("www.YouTube.com/watch", Set.of("youtube.com")));
+    }
+
+    @Test
+    void filterMessageAllowedPathWithDot() {
+        String message = "https://clips.twitch.tv/page.html then evil.com/a.b";
+        assertEquals("https://clips.twitch.tv/page.html then [url]", MessageUtils.filterMessage(message, Set.of("clips.twitch.tv")));
+    }
+
+    @Test
+    void filterMessageAllowedDomainLookalike() {
+        assertEquals("[url] [url]", MessageUtils.filterMessage("notyoutube.com youtube.com.evil.com", Set.of("youtube.com")));
+    }
+
+    @Test
+    void filterMessageCraftedLinear() {
+        String crafted = "a.".repeat(100_000) + "a" + " https://".repeat(50_000);
+        assertTimeout(Duration.ofSeconds(1), () -> MessageUtils.filterMessage(crafted, Set.of("twitch.tv")));
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhaseTimerTest {
+
+    private AtomicLong clock;
+
+    private PhaseTimer timer;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong(0);
+        timer = new PhaseTimer(clock::get);
+    }
+
+    @Test
+    @DisplayName("A phase is measured and its result returned")
+    void measured() {
+        String result = timer.time("login", () -> {
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(120));
+            return "bot";
+        });
+        assertEquals("bot", result);
+        assertEquals(120, timer.getMillis("login"));
+    }
+
+    @Test
+    @DisplayName("A failed phase is measured too")
+    void failedMeasured() {
+        assertThrows(IllegalStateException.class, () -> timer.time("login", () -> {
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(30));
+            throw new IllegalStateException("invalid token");
+        }));
+        assertEquals(30, timer.getMillis("login"));
+    }
+
+    @Test
+    @DisplayName("The report gives the phases in start order and the total")
+    void report() {
+        timer.time("configuration", () -> clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(10)));
+        timer.time("login", () -> clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(200)));
+        assertEquals("configuration=10ms, login=200ms, total=210ms", timer.report());
+    }
+
+    @Test
+    @DisplayName("An unknown phase has no duration")
+    void unknown() {
+        assertEquals(-1, timer.getMillis("login"));
+    }
+}
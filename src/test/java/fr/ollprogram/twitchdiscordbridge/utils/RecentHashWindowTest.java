@@ -0,0 +1,136 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecentHashWindowTest {
+
+    private AtomicLong clock;
+
+    private RecentHashWindow window;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong(0);
+        window = new RecentHashWindow(3, 30, TimeUnit.SECONDS, clock::get);
+    }
+
+    @Test
+    @DisplayName("Added hashes are contained")
+    void contains() {
+        assertFalse(window.contains(1));
+        window.add(1);
+        window.add(2);
+        assertTrue(window.contains(1));
+        assertTrue(window.contains(2));
+        assertFalse(window.contains(3));
+        assertEquals(2, window.size());
+    }
+
+    @Test
+    @DisplayName("Hashes are forgotten once older than the window")
+    void expired() {
+        window.add(1);
+        clock.set(TimeUnit.SECONDS.toNanos(10));
+        window.add(2);
+        clock.set(TimeUnit.SECONDS.toNanos(30));
+        assertFalse(window.contains(1));
+        assertTrue(window.contains(2));
+        clock.set(TimeUnit.SECONDS.toNanos(40));
+        assertFalse(window.contains(2));
+        assertEquals(0, window.size());
+    }
+
+    @Test
+    @DisplayName("The oldest hash is forgotten above the capacity")
+    void bounded() {
+        for(long hash = 1; hash <= 5; hash++) window.add(hash);
+        assertEquals(3, window.size());
+        assertFalse(window.contains(1));
+        assertFalse(window.contains(2));
+        assertTrue(window.contains(5));
+    }
+
+    @Test
+    @DisplayName("A hash overwritten in the ring is not reported, even if its index entry is left")
+    void staleSlot() {
+        RecentHashWindow single = new RecentHashWindow(1, 30, TimeUnit.SECONDS, clock::get);
+        single.add(1);
+        single.add(2); //same slot, the index entry of 1 still points to it
+        assertFalse(single.contains(1));
+        assertTrue(single.contains(2));
+        single.add(1); //the stale entry is reused
+        assertTrue(single.contains(1));
+        assertFalse(single.contains(2));
+    }
+
+    @Test
+    @DisplayName("Many hashes stay found while the ring turns over")
+    void turnover() {
+        RecentHashWindow large = new RecentHashWindow(64, 30, TimeUnit.SECONDS, clock::get);
+        for(long hash = 0; hash < 10_000; hash++){
+            large.add(hash * 31);
+            assertTrue(large.contains(hash * 31));
+            if(hash >= 64) assertFalse(large.contains((hash - 64) * 31));
+        }
+    }
+
+    @Test
+    @DisplayName("A hash added twice stays until its last addition is forgotten")
+    void addedTwice() {
+        window.add(1);
+        clock.set(TimeUnit.SECONDS.toNanos(20));
+        window.add(1);
+        clock.set(TimeUnit.SECONDS.toNanos(35));
+        assertTrue(window.contains(1));
+        clock.set(TimeUnit.SECONDS.toNanos(50));
+        assertFalse(window.contains(1));
+    }
+
+    @Test
+    @DisplayName("Concurrent additions are all kept under the capacity")
+    void concurrentAdditions() throws InterruptedException {
+        RecentHashWindow large = new RecentHashWindow(4096, 30, TimeUnit.SECONDS, clock::get);
+        Thread[] threads = new Thread[4];
+        for(int t = 0; t < threads.length; t++){
+            long first = t * 1000L;
+            threads[t] = new Thread(() -> { for(long hash = first; hash < first + 1000; hash++) large.add(hash); });
+            threads[t].start();
+        }
+        for(Thread thread : threads) thread.join();
+        assertEquals(4000, large.size());
+        for(long hash = 0; hash < 4000; hash++) assertTrue(large.contains(hash));
+    }
+
+    @Test
+    @DisplayName("Same text, same hash")
+    void hash() {
+        assertEquals(RecentHashWindow.hash("Hello"), RecentHashWindow.hash(new StringBuilder("Hel").append("lo")));
+        assertNotEquals(RecentHashWindow.hash("Hello"), RecentHashWindow.hash("hello"));
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("Capacity should be positive")
+    void invalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new RecentHashWindow(0, 30, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2025 ollprogram
+ * This file is part of TwitchDiscordBridge.
+ * TwitchDiscordBridge is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License, or \(at your option\) any later version.
+ * TwitchDiscordBridge is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with TwitchDiscordBridge.
+ * If not, see https://www.gnu.org/licenses.
+ */
+package fr.ollprogram.twitchdiscordbridge.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private AtomicLong clock;
+
+    private TokenBucket bucket;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong(0);
+        bucket = new TokenBucket(3, 30, TimeUnit.SECONDS, clock::get);
+    }
+
+    @Test
+    @DisplayName("Full at creation")
+    void fullAtCreation() {
+        assertEquals(3, bucket.available());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+        assertEquals(0, bucket.available());
+    }
+
+    @Test
+    @DisplayName("A token is given back one period after being taken")
+    void givenBack() {
+        bucket.tryAcquire();
+        clock.set(TimeUnit.SECONDS.toNanos(10));
+        bucket.tryAcquire();
+        bucket.tryAcquire();
+        clock.set(TimeUnit.SECONDS.toNanos(30));
+        assertEquals(1, bucket.available());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+        clock.set(TimeUnit.SECONDS.toNanos(40));
+        assertEquals(2, bucket.available());
+    }
+
+    @Test
+    @DisplayName("Never more than the capacity in one period")
+    void slidingWindow() {
+        int taken = 0;
+        for(long second = 0; second < 30; second++) {
+            clock.set(TimeUnit.SECONDS.toNanos(second));
+            if(bucket.tryAcquire()) taken++;
+        }
+        assertEquals(3, taken);
+    }
+
+    @Test
+    @Tag("Robustness")
+    @DisplayName("Capacity should be positive")
+    void invalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 30, TimeUnit.SECONDS));
+    }
+}